@@ -0,0 +1,47 @@
+package tech.minediamond.micanbt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tech.minediamond.micanbt.nbt.NBT;
+import tech.minediamond.micanbt.nbt.NBTCompressType;
+import tech.minediamond.micanbt.tag.CompoundTag;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Reads and writes a chunk whose payload is mostly int and long arrays, in both byte orders
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ArrayBenchmark {
+    @Param({"false", "true"})
+    public boolean littleEndian;
+
+    private CompoundTag chunk;
+    private byte[] raw;
+    private byte[] gzip;
+
+    @Setup
+    public void setup() throws IOException {
+        chunk = Fixtures.chunk();
+        raw = NBT.toBytes(chunk, NBTCompressType.UNCOMPRESSED, littleEndian);
+        gzip = NBT.toBytes(chunk, NBTCompressType.GZIP, littleEndian);
+    }
+
+    @Benchmark
+    public CompoundTag read() throws IOException {
+        return NBT.read(raw, NBTCompressType.UNCOMPRESSED, littleEndian);
+    }
+
+    @Benchmark
+    public CompoundTag readGzip() throws IOException {
+        return NBT.read(gzip, NBTCompressType.GZIP, littleEndian);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return NBT.toBytes(chunk, NBTCompressType.UNCOMPRESSED, littleEndian);
+    }
+}
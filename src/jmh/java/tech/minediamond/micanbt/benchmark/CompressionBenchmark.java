@@ -0,0 +1,66 @@
+package tech.minediamond.micanbt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tech.minediamond.micanbt.nbt.*;
+import tech.minediamond.micanbt.tag.CommonCompoundTag;
+import tech.minediamond.micanbt.tag.CompoundTag;
+import tech.minediamond.micanbt.tag.ListTag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Writes level.dat and a larger document with every compression setting; each fork prints the
+// compression ratio of its setting, so time and ratio can be read side by side
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+    @Param({"gzip-1", "gzip-3", "gzip-6", "gzip-9", "gzip-6-filtered", "gzip-6-huffman", "lz4-fast", "lz4-high"})
+    public String setting;
+
+    // level.dat alone, or 50 copies of it in a list to stand in for bulk data such as a region file
+    @Param({"1", "50"})
+    public int copies;
+
+    private CompoundTag tag;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Setup
+    public void setup() throws IOException {
+        CompoundTag level = NBT.read(Fixtures.levelDat());
+        if (copies == 1) {
+            tag = level;
+        } else {
+            ListTag<CompoundTag> list = new ListTag<>("levels", CompoundTag.ID);
+            for (int i = 0; i < copies; i++) {
+                list.add(level.copy());
+            }
+            tag = new CommonCompoundTag("");
+            tag.put(list);
+        }
+        int uncompressed = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false).length;
+        int compressed = write().length;
+        System.out.printf("%s, %d copies: %d -> %d bytes, ratio %.2f%n", setting, copies, uncompressed, compressed, (double) uncompressed / compressed);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        out.reset();
+        String[] parts = setting.split("-");
+        NBTWriter.Builder builder = NBT.toStream(tag, out);
+        if (parts[0].equals("lz4")) {
+            builder.compressType(NBTCompressType.LZ4).lz4Mode(parts[1].equals("high") ? NBTLZ4Mode.HIGH : NBTLZ4Mode.FAST);
+        } else {
+            builder.compressType(NBTCompressType.GZIP).compressionLevel(Integer.parseInt(parts[1]));
+            if (parts.length > 2) {
+                builder.deflateStrategy(parts[2].equals("filtered") ? NBTDeflateStrategy.FILTERED : NBTDeflateStrategy.HUFFMAN_ONLY);
+            }
+        }
+        builder.write();
+        return out.toByteArray();
+    }
+}
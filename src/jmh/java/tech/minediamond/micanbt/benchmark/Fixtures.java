@@ -0,0 +1,56 @@
+package tech.minediamond.micanbt.benchmark;
+
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+// Inputs shared by the benchmarks; built only from API that older commits also have, so a benchmark
+// can be run against the commit before a change for comparison
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    // The gzip compressed level.dat of the test resources
+    static byte[] levelDat() {
+        try (InputStream inputStream = Fixtures.class.getResourceAsStream("/level.dat")) {
+            if (inputStream == null) {
+                throw new IllegalStateException("level.dat is not on the class path");
+            }
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A chunk shaped like the ones in region files: 24 sections with block states and biomes, and five heightmaps
+    static CompoundTag chunk() {
+        Random random = new Random(42);
+        CompoundTag chunk = new CommonCompoundTag("");
+        chunk.put(new IntTag("DataVersion", 3953));
+        chunk.put(new StringTag("Status", "minecraft:full"));
+
+        ListTag<CompoundTag> sections = new ListTag<>("sections", CompoundTag.ID);
+        for (int y = -4; y < 20; y++) {
+            CompoundTag section = new CommonCompoundTag("");
+            section.put(new ByteTag("Y", (byte) y));
+            CompoundTag blockStates = new CommonCompoundTag("block_states");
+            blockStates.put(new LongArrayTag("data", random.longs(256).toArray()));
+            section.put(blockStates);
+            CompoundTag biomes = new CommonCompoundTag("biomes");
+            biomes.put(new IntArrayTag("data", random.ints(64).toArray()));
+            section.put(biomes);
+            sections.add(section);
+        }
+        chunk.put(sections);
+
+        CompoundTag heightmaps = new CommonCompoundTag("Heightmaps");
+        for (String name : new String[]{"MOTION_BLOCKING", "MOTION_BLOCKING_NO_LEAVES", "OCEAN_FLOOR", "OCEAN_FLOOR_WG", "WORLD_SURFACE"}) {
+            heightmaps.put(new LongArrayTag(name, random.longs(37).toArray()));
+        }
+        chunk.put(heightmaps);
+        return chunk;
+    }
+}
@@ -0,0 +1,84 @@
+package tech.minediamond.micanbt.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import tech.minediamond.micanbt.nbt.NBT;
+import tech.minediamond.micanbt.nbt.NBTCompressType;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Reads and writes a deep tree, a wide tree and level.dat without compression, so that the cost of
+// walking the tree is not hidden behind a compressor
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NestingBenchmark {
+    // A chain of 100 or 400 shulker boxes; a recursive engine overflows the stack of the benchmark thread on 400
+    @Param({"deep-100", "deep-400", "wide", "level.dat"})
+    public String shape;
+
+    private CompoundTag tag;
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        tag = switch (shape) {
+            case "deep-100" -> shulkerChain(100);
+            case "deep-400" -> shulkerChain(400);
+            case "wide" -> wide(2000);
+            default -> NBT.read(Fixtures.levelDat());
+        };
+        data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+    }
+
+    // Shulker boxes inside shulker boxes, four containers per level as in a player inventory
+    private static CompoundTag shulkerChain(int levels) {
+        CompoundTag item = new CommonCompoundTag("");
+        item.put(new StringTag("id", "minecraft:diamond"));
+        item.put(new ByteTag("Count", (byte) 64));
+        for (int i = 0; i < levels; i++) {
+            item.put(new ByteTag("Slot", (byte) 0));
+            ListTag<CompoundTag> items = new ListTag<>("Items", CompoundTag.ID);
+            items.add(item);
+            CompoundTag blockEntity = new CommonCompoundTag("BlockEntityTag");
+            blockEntity.put(items);
+            CompoundTag itemTag = new CommonCompoundTag("tag");
+            itemTag.put(blockEntity);
+            item = new CommonCompoundTag("");
+            item.put(new StringTag("id", "minecraft:shulker_box"));
+            item.put(new ByteTag("Count", (byte) 1));
+            item.put(itemTag);
+        }
+        return item;
+    }
+
+    // Many small compounds of numbers in one list
+    private static CompoundTag wide(int count) {
+        ListTag<CompoundTag> entries = new ListTag<>("entries", CompoundTag.ID);
+        for (int i = 0; i < count; i++) {
+            CompoundTag entry = new CommonCompoundTag("");
+            entry.put(new IntTag("x", i));
+            entry.put(new IntTag("y", i * 7));
+            entry.put(new LongTag("time", i * 31L));
+            entry.put(new DoubleTag("value", i / 3.0));
+            entries.add(entry);
+        }
+        CompoundTag root = new CommonCompoundTag("");
+        root.put(entries);
+        return root;
+    }
+
+    @Benchmark
+    public CompoundTag read() throws IOException {
+        return NBT.read(data, NBTCompressType.UNCOMPRESSED, false);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+    }
+}
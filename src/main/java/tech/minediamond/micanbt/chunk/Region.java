@@ -1,7 +1,8 @@
 package tech.minediamond.micanbt.chunk;
 
-import net.jpountz.lz4.LZ4BlockInputStream;
 import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.nbt.NBTCodecPool;
+import tech.minediamond.micanbt.nbt.NBTCompressType;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
@@ -12,9 +13,6 @@ import java.nio.file.Path;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 
 public class Region {
@@ -27,8 +25,6 @@ public class Region {
     int[] timestamps;
     @Nullable Chunk[] chunks = new Chunk[CHUNKS_PER_REGION];
 
-    private static final ThreadLocal<Inflater> INFLATER_HOLDER =
-            ThreadLocal.withInitial(Inflater::new);
     private static final ForkJoinPool CHUNK_PARSER_EXECUTOR = new ForkJoinPool(Runtime.getRuntime().availableProcessors() / 2);
     private final Object[] locks = new Object[64];
 
@@ -98,22 +94,15 @@ public class Region {
             return Chunk.ofUninitialized(chunkPos, this);
         }
         try {
-            InputStream input = getByteArrayInputStream(offset);
-            switch (data[offset + 4]) {
-                case 0x01 -> // GZip
-                        input = new GZIPInputStream(input);
-                case 0x02 -> { // Zlib
-                    Inflater inflater = INFLATER_HOLDER.get();
-                    inflater.reset();
-                    input = new InflaterInputStream(input, inflater);
-                }
-                case 0x03 -> { // Uncompressed
-                }
-                case 0x04 -> // LZ4
-                        input = new LZ4BlockInputStream(input);
+            NBTCompressType compressType = switch (data[offset + 4]) {
+                case 0x01 -> NBTCompressType.GZIP;
+                case 0x02 -> NBTCompressType.ZLIB;
+                case 0x03 -> NBTCompressType.UNCOMPRESSED;
+                case 0x04 -> NBTCompressType.LZ4;
                 default ->
                         throw new IOException("Unsupported compression method: " + Integer.toHexString(data[offset + 4] & 0xff));
-            }
+            };
+            InputStream input = NBTCodecPool.shared().decompress(getByteArrayInputStream(offset), compressType);
             try (DataInputStream dis = new DataInputStream(input)) {
                 return Chunk.of(dis, timestamps[i], chunkPos, this);
             }
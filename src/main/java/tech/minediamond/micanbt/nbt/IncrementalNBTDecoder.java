@@ -0,0 +1,411 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.tag.*;
+import tech.minediamond.micanbt.util.map.OrderedListMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/// A push-based decoder for uncompressed NBT that accepts its input in fragments.
+///
+/// Bytes are handed over with [#feed(ByteBuffer)] as they arrive, for example from a non-blocking
+/// channel. The decoder consumes everything it can and returns [Result#NEED_MORE] when a fragment
+/// ends in the middle of the document, or [Result.Complete] as soon as the closing TAG_End of the
+/// root compound has been read. Bytes after the end of the document are left in the buffer, so the
+/// next document can be fed from the same buffer.
+///
+/// The position in the document is kept in an explicit stack of open compounds and lists rather
+/// than in the Java call stack, so decoding never blocks and deep nesting cannot overflow the
+/// thread's stack. Only a value that is split between two fragments is buffered, up to the size of
+/// one primitive or string. Arrays are filled in place as their elements arrive and grow with the
+/// data that has arrived rather than with their declared length, so a forged length prefix costs no
+/// more memory than the bytes that were actually fed.
+///
+/// Big-endian input uses Modified UTF-8 and little-endian input standard UTF-8, like [NBTReader].
+/// After an exception the decoder must be [reset][#reset()] before it is fed again. An instance is
+/// not thread-safe.
+public final class IncrementalNBTDecoder {
+    // Arrays start with room for the elements at hand, but at least this many
+    private static final int MIN_ARRAY_CAPACITY = 16;
+
+    private final ByteOrder order;
+    private final StringCodec strings;
+    private final ArrayDeque<Frame> stack = new ArrayDeque<>();
+
+    // Holds a fixed-width value that is split between fragments
+    private final byte[] pending = new byte[Long.BYTES];
+    private final ByteBuffer pendingView;
+    private int pendingLength;
+
+    private State state = State.TYPE;
+    private int typeId;
+    private String name = "";
+    private boolean readingName;
+    private int stringLength;
+    private int stringFill;
+    private @Nullable Object array;
+    private int arrayLength;
+    private int arrayFill;
+
+    /// Creates a decoder for big-endian NBT.
+    public IncrementalNBTDecoder() {
+        this(false);
+    }
+
+    /// Creates a decoder.
+    ///
+    /// @param littleEndian Whether the input is in little-endian byte order.
+    public IncrementalNBTDecoder(boolean littleEndian) {
+        this.order = littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        this.strings = new StringCodec(!littleEndian);
+        this.pendingView = ByteBuffer.wrap(pending).order(order);
+    }
+
+    /// The outcome of a [#feed(ByteBuffer)] call.
+    public sealed interface Result permits Result.NeedMore, Result.Complete {
+        /// The input ended before the document did.
+        Result NEED_MORE = NeedMore.INSTANCE;
+
+        /// The input ended before the document did; see [#NEED_MORE].
+        enum NeedMore implements Result {
+            INSTANCE
+        }
+
+        /// A document has been decoded completely.
+        ///
+        /// @param tag The root compound of the document.
+        record Complete(CompoundTag tag) implements Result {
+        }
+    }
+
+    private enum State {
+        TYPE, STRING_LENGTH, STRING_BYTES, VALUE, LIST_HEADER, ARRAY_LENGTH, ARRAY_ELEMENTS
+    }
+
+    private sealed interface Frame permits CompoundFrame, ListFrame {
+    }
+
+    private record CompoundFrame(String name, OrderedListMap<String, Tag> entries) implements Frame {
+    }
+
+    private static final class ListFrame implements Frame {
+        final ListTag<Tag> list;
+        int remaining;
+
+        ListFrame(ListTag<Tag> list, int remaining) {
+            this.list = list;
+            this.remaining = remaining;
+        }
+    }
+
+    /// Decodes as much of the document as `in` holds.
+    ///
+    /// The position of `in` is advanced past every byte consumed. The byte order of `in` is
+    /// ignored and left unchanged.
+    ///
+    /// @param in The next fragment of input.
+    /// @return [Result#NEED_MORE] if all of `in` was consumed without finishing the document, or
+    ///         the finished document.
+    /// @throws NBTParseException If the input is not valid NBT.
+    /// @throws IOException       If a string is not validly encoded.
+    public Result feed(ByteBuffer in) throws IOException {
+        ByteOrder original = in.order();
+        in.order(order);
+        try {
+            return decode(in);
+        } finally {
+            in.order(original);
+        }
+    }
+
+    /// Discards any partially decoded document, so that the next byte fed starts a new one.
+    public void reset() {
+        stack.clear();
+        pendingLength = 0;
+        state = State.TYPE;
+        name = "";
+        array = null;
+    }
+
+    /// Checks whether part of a document has been consumed but the document is not finished yet.
+    ///
+    /// @return `true` if the decoder is in the middle of a document.
+    public boolean isInProgress() {
+        return state != State.TYPE || !stack.isEmpty() || pendingLength > 0;
+    }
+
+    private Result decode(ByteBuffer in) throws IOException {
+        while (true) {
+            if (!in.hasRemaining() && needsInput()) {
+                return Result.NEED_MORE;
+            }
+            CompoundTag root = switch (state) {
+                case TYPE -> readType(in.get() & 0xFF);
+                case STRING_LENGTH -> {
+                    ByteBuffer source = take(in, Short.BYTES);
+                    if (source != null) {
+                        stringLength = source.getShort() & 0xFFFF;
+                        stringFill = 0;
+                        strings.buffer(stringLength);
+                        state = State.STRING_BYTES;
+                    }
+                    yield null;
+                }
+                case STRING_BYTES -> readStringBytes(in);
+                case VALUE -> readValue(in);
+                case LIST_HEADER -> readListHeader(in);
+                case ARRAY_LENGTH -> {
+                    ByteBuffer source = take(in, Integer.BYTES);
+                    if (source != null) {
+                        startArray(source.getInt(), in.remaining());
+                    }
+                    yield null;
+                }
+                case ARRAY_ELEMENTS -> readArrayElements(in);
+            };
+            if (root != null) {
+                return new Result.Complete(root);
+            }
+        }
+    }
+
+    // Whether the current state cannot make progress without at least one more byte
+    private boolean needsInput() {
+        return switch (state) {
+            case STRING_BYTES -> stringFill < stringLength;
+            case VALUE -> NBTSkipper.fixedWidth(typeId) > 0;
+            case ARRAY_ELEMENTS -> arrayFill < arrayLength;
+            default -> true;
+        };
+    }
+
+    private @Nullable CompoundTag readType(int id) throws IOException {
+        if (stack.isEmpty()) {
+            if (id != 10) {
+                throw new NBTParseException("NBT root must be a CompoundTag, but found tag ID " + id);
+            }
+        } else if (id == 0) {
+            if (!(stack.pop() instanceof CompoundFrame frame)) {
+                throw new IllegalStateException("TAG_End outside of a compound");
+            }
+            return complete(new ReorderableCompoundTag(frame.name(), frame.entries()));
+        }
+        typeId = id;
+        readingName = true;
+        state = State.STRING_LENGTH;
+        return null;
+    }
+
+    private @Nullable CompoundTag readStringBytes(ByteBuffer in) throws IOException {
+        int n = Math.min(stringLength - stringFill, in.remaining());
+        in.get(strings.buffer(), stringFill, n);
+        stringFill += n;
+        if (stringFill < stringLength) {
+            return null;
+        }
+        String value = strings.decode(stringLength);
+        if (readingName) {
+            name = value;
+            state = State.VALUE;
+            return null;
+        }
+        return complete(new StringTag(name, value));
+    }
+
+    private @Nullable CompoundTag readValue(ByteBuffer in) throws IOException {
+        int width = NBTSkipper.fixedWidth(typeId);
+        if (width > 0) {
+            ByteBuffer source = take(in, width);
+            if (source == null) {
+                return null;
+            }
+            return complete(switch (typeId) {
+                case 1 -> new ByteTag(name, source.get());
+                case 2 -> new ShortTag(name, source.getShort());
+                case 3 -> new IntTag(name, source.getInt());
+                case 4 -> new LongTag(name, source.getLong());
+                case 5 -> new FloatTag(name, source.getFloat());
+                default -> new DoubleTag(name, source.getDouble());
+            });
+        }
+        switch (typeId) {
+            case 7, 11, 12 -> state = State.ARRAY_LENGTH;
+            case 8 -> {
+                readingName = false;
+                state = State.STRING_LENGTH;
+            }
+            case 9 -> state = State.LIST_HEADER;
+            case 10 -> {
+                stack.push(new CompoundFrame(name, new OrderedListMap<>()));
+                state = State.TYPE;
+            }
+            default -> throw new NBTParseException("Could not find tag with ID \"" + typeId + "\".");
+        }
+        return null;
+    }
+
+    private @Nullable CompoundTag readListHeader(ByteBuffer in) throws NBTParseException {
+        ByteBuffer source = take(in, Byte.BYTES + Integer.BYTES);
+        if (source == null) {
+            return null;
+        }
+        int elementType = source.get() & 0xFF;
+        int count = source.getInt();
+        if (count > 0 && elementType == 0) {
+            throw new NBTParseException("ListTag type is TAG_End but count is > 0");
+        }
+        stack.push(new ListFrame(new ListTag<>(name, elementType), count));
+        return next();
+    }
+
+    private void startArray(int length, int available) throws NBTParseException {
+        if (length < 0) {
+            throw new NBTParseException("Negative array length: " + length);
+        }
+        array = switch (typeId) {
+            case 7 -> new byte[initialCapacity(length, available)];
+            case 11 -> new int[initialCapacity(length, available / Integer.BYTES)];
+            default -> new long[initialCapacity(length, available / Long.BYTES)];
+        };
+        arrayLength = length;
+        arrayFill = 0;
+        state = State.ARRAY_ELEMENTS;
+    }
+
+    private @Nullable CompoundTag readArrayElements(ByteBuffer in) {
+        switch (array) {
+            case byte[] bytes -> {
+                while (arrayFill < arrayLength && in.hasRemaining()) {
+                    if (arrayFill == bytes.length) {
+                        bytes = Arrays.copyOf(bytes, grow(in.remaining()));
+                        array = bytes;
+                    }
+                    int n = Math.min(bytes.length - arrayFill, in.remaining());
+                    in.get(bytes, arrayFill, n);
+                    arrayFill += n;
+                }
+            }
+            case int[] ints -> {
+                while (arrayFill < arrayLength) {
+                    if (arrayFill == ints.length) {
+                        ints = Arrays.copyOf(ints, grow(in.remaining() / Integer.BYTES));
+                        array = ints;
+                    }
+                    if (pendingLength == 0 && in.remaining() >= Integer.BYTES) {
+                        int n = Math.min(ints.length - arrayFill, in.remaining() / Integer.BYTES);
+                        in.asIntBuffer().get(ints, arrayFill, n);
+                        in.position(in.position() + n * Integer.BYTES);
+                        arrayFill += n;
+                    } else {
+                        ByteBuffer source = take(in, Integer.BYTES);
+                        if (source == null) {
+                            return null;
+                        }
+                        ints[arrayFill++] = source.getInt();
+                    }
+                }
+            }
+            case long[] longs -> {
+                while (arrayFill < arrayLength) {
+                    if (arrayFill == longs.length) {
+                        longs = Arrays.copyOf(longs, grow(in.remaining() / Long.BYTES));
+                        array = longs;
+                    }
+                    if (pendingLength == 0 && in.remaining() >= Long.BYTES) {
+                        int n = Math.min(longs.length - arrayFill, in.remaining() / Long.BYTES);
+                        in.asLongBuffer().get(longs, arrayFill, n);
+                        in.position(in.position() + n * Long.BYTES);
+                        arrayFill += n;
+                    } else {
+                        ByteBuffer source = take(in, Long.BYTES);
+                        if (source == null) {
+                            return null;
+                        }
+                        longs[arrayFill++] = source.getLong();
+                    }
+                }
+            }
+            case null, default -> throw new IllegalStateException("No array is being read");
+        }
+        if (arrayFill < arrayLength) {
+            return null;
+        }
+        // The capacity never exceeds the declared length, so the full array has exactly that length
+        Object array = this.array;
+        this.array = null;
+        return complete(switch (array) {
+            case byte[] bytes -> new ByteArrayTag(name, bytes);
+            case int[] ints -> new IntArrayTag(name, ints);
+            default -> new LongArrayTag(name, (long[]) array);
+        });
+    }
+
+    private static int initialCapacity(int length, int available) {
+        return Math.min(length, Math.max(MIN_ARRAY_CAPACITY, available));
+    }
+
+    // The capacity for a full array: doubled, or enough for the elements available if that is more, up to the declared length
+    private int grow(int available) {
+        return (int) Math.min(arrayLength, Math.max(2L * arrayFill, (long) arrayFill + Math.max(available, 1)));
+    }
+
+    /// Gets a buffer whose next `length` bytes are the next `length` bytes of input.
+    ///
+    /// That is `in` itself while nothing is pending. Otherwise, or if `in` holds fewer bytes, they
+    /// are collected in the pending buffer across calls.
+    ///
+    /// @return The buffer to read from, or `null` if the bytes have not all arrived yet.
+    private @Nullable ByteBuffer take(ByteBuffer in, int length) {
+        if (pendingLength == 0 && in.remaining() >= length) {
+            return in;
+        }
+        int n = Math.min(length - pendingLength, in.remaining());
+        in.get(pending, pendingLength, n);
+        pendingLength += n;
+        if (pendingLength < length) {
+            return null;
+        }
+        pendingLength = 0;
+        return pendingView.clear();
+    }
+
+    // Adds a finished value to the innermost open container and returns the root once it is finished
+    private @Nullable CompoundTag complete(Tag tag) {
+        Frame parent = stack.peek();
+        switch (parent) {
+            case null -> {
+                state = State.TYPE;
+                return (CompoundTag) tag;
+            }
+            case CompoundFrame frame -> {
+                frame.entries().put(tag.getName(), tag);
+                state = State.TYPE;
+                return null;
+            }
+            case ListFrame frame -> {
+                frame.list.add(tag);
+                frame.remaining--;
+                return next();
+            }
+        }
+    }
+
+    // Moves on to the next element of the innermost list, closing it if it is full
+    private @Nullable CompoundTag next() {
+        if (!(stack.peek() instanceof ListFrame frame)) {
+            throw new IllegalStateException("Not inside a list");
+        }
+        if (frame.remaining > 0) {
+            typeId = frame.list.getElementTypeId();
+            name = "";
+            state = State.VALUE;
+            return null;
+        }
+        stack.pop();
+        return complete(frame.list);
+    }
+}
@@ -0,0 +1,99 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/// A bounded table of canonical compound keys, shared by any number of [NBTReader]s.
+///
+/// Documents of the same kind repeat the same few hundred keys (`Name`, `Properties`, `palette`,
+/// ...) over and over. When a reader is given an interner, it looks up every key by its raw encoded
+/// bytes before decoding it; on a hit the canonical `String` is returned without decoding or
+/// allocating anything, so all trees read through the same interner share their key instances.
+///
+/// The table is a fixed-size, two-way set-associative cache: a key can live in one of two adjacent
+/// slots, and a new key evicts the less recently inserted of the two. Lookups and replacements are
+/// plain atomic reads and writes, so the table is lock-free and safe to share between threads; a
+/// lost race only costs a miss. Keys longer than [#MAX_KEY_LENGTH] encoded bytes are never cached.
+///
+/// @see NBTReader.Builder#keyInterner(KeyInterner)
+public final class KeyInterner {
+    /// The longest encoded key, in bytes, that is cached.
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private static final KeyInterner SHARED = new KeyInterner(4096);
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+
+    private KeyInterner(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /// Creates a new interner.
+    ///
+    /// @param capacity The number of slots, rounded up to a power of two of at least 2.
+    /// @return A new, empty interner.
+    /// @throws IllegalArgumentException If `capacity` is not positive or greater than 2^30.
+    public static KeyInterner create(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but was " + capacity);
+        }
+        return new KeyInterner(capacity);
+    }
+
+    /// Gets the process-wide interner with 4096 slots.
+    ///
+    /// @return The shared interner.
+    public static KeyInterner shared() {
+        return SHARED;
+    }
+
+    /// Gets the number of slots of this interner.
+    ///
+    /// @return The capacity.
+    public int capacity() {
+        return table.length();
+    }
+
+    /// Returns the canonical key for the bytes in the codec buffer, decoding them only on a miss.
+    ///
+    /// @param codec  The codec whose [StringCodec#buffer()] holds the encoded key.
+    /// @param length The number of encoded bytes.
+    /// @return The canonical key.
+    /// @throws UTFDataFormatException If the key is not validly encoded.
+    String intern(StringCodec codec, int length) throws UTFDataFormatException {
+        if (length > MAX_KEY_LENGTH) {
+            return codec.decode(length);
+        }
+        byte[] bytes = codec.buffer();
+        int hash = codec.isModified() ? 1 : 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int first = (hash ^ (hash >>> 16)) & mask & ~1;
+
+        Entry recent = table.getAcquire(first);
+        if (recent != null && recent.matches(hash, codec.isModified(), bytes, length)) {
+            return recent.key;
+        }
+        Entry older = table.getAcquire(first + 1);
+        if (older != null && older.matches(hash, codec.isModified(), bytes, length)) {
+            return older.key;
+        }
+        String key = codec.decode(length);
+        if (recent != null) {
+            table.setRelease(first + 1, recent);
+        }
+        table.setRelease(first, new Entry(hash, codec.isModified(), Arrays.copyOf(bytes, length), key));
+        return key;
+    }
+
+    private record Entry(int hash, boolean modified, byte[] bytes, String key) {
+        boolean matches(int hash, boolean modified, byte[] bytes, int length) {
+            return this.hash == hash && this.modified == modified && Arrays.equals(this.bytes, 0, this.bytes.length, bytes, 0, length);
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package tech.minediamond.micanbt.nbt;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 
 class LittleEndianDataInputStream extends FilterInputStream implements DataInput {
+    private final StringCodec strings = new StringCodec(false);
+
     public LittleEndianDataInputStream(InputStream in) {
         super(in);
     }
@@ -160,9 +161,6 @@ class LittleEndianDataInputStream extends FilterInputStream implements DataInput
 
     @Override
     public String readUTF() throws IOException {
-        byte[] bytes = new byte[this.readUnsignedShort()];
-        this.readFully(bytes);
-
-        return new String(bytes, StandardCharsets.UTF_8);
+        return strings.read(this);
     }
 }
@@ -4,9 +4,10 @@ import java.io.DataOutput;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 
 class LittleEndianDataOutputStream extends FilterOutputStream implements DataOutput {
+    private final StringCodec strings = new StringCodec(false);
+
     public LittleEndianDataOutputStream(OutputStream out) {
         super(out);
     }
@@ -98,9 +99,6 @@ class LittleEndianDataOutputStream extends FilterOutputStream implements DataOut
 
     @Override
     public void writeUTF(String s) throws IOException {
-        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
-
-        this.writeShort(bytes.length);
-        this.write(bytes);
+        strings.write(this, s);
     }
 }
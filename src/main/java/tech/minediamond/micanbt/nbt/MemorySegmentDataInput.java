@@ -0,0 +1,168 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/// A [DataInput] that decodes primitives straight out of a [MemorySegment].
+///
+/// Every read is an absolute, unaligned access at the current position, so there is no
+/// intermediate stream or buffer between the segment (a mapped file or a heap array) and
+/// the decoded value. Byte order is fixed at construction.
+class MemorySegmentDataInput implements DataInput {
+    private final MemorySegment segment;
+    private final boolean littleEndian;
+    private final ValueLayout.OfShort shortLayout;
+    private final ValueLayout.OfChar charLayout;
+    private final ValueLayout.OfInt intLayout;
+    private final ValueLayout.OfLong longLayout;
+    private final ValueLayout.OfFloat floatLayout;
+    private final ValueLayout.OfDouble doubleLayout;
+    private final StringCodec strings;
+    private long position;
+
+    public MemorySegmentDataInput(MemorySegment segment, boolean littleEndian) {
+        this.segment = segment;
+        this.littleEndian = littleEndian;
+        ByteOrder order = littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        this.shortLayout = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(order);
+        this.charLayout = ValueLayout.JAVA_CHAR_UNALIGNED.withOrder(order);
+        this.intLayout = ValueLayout.JAVA_INT_UNALIGNED.withOrder(order);
+        this.longLayout = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order);
+        this.floatLayout = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(order);
+        this.doubleLayout = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(order);
+        // Keep parity with LittleEndianDataInputStream, which reads standard UTF-8
+        this.strings = new StringCodec(!littleEndian);
+    }
+
+    /// Gets the offset of the next byte to be read.
+    ///
+    /// @return The current read position.
+    public long position() {
+        return position;
+    }
+
+    /// Moves the read position to the given offset.
+    ///
+    /// @param position The new read position.
+    public void position(long position) {
+        this.position = position;
+    }
+
+    /// Gets the byte order values are decoded in.
+    ///
+    /// @return The byte order of this input.
+    public ByteOrder order() {
+        return littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+    }
+
+    /// Gets the underlying segment.
+    ///
+    /// @return The segment this input reads from.
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    private long advance(int length) throws EOFException {
+        long pos = position;
+        if (length > segment.byteSize() - pos) {
+            throw new EOFException();
+        }
+        position = pos + length;
+        return pos;
+    }
+
+    @Override
+    public void readFully(byte[] b) throws IOException {
+        this.readFully(b, 0, b.length);
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        if (len < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, advance(len), b, off, len);
+    }
+
+    @Override
+    public int skipBytes(int n) {
+        int skipped = (int) Math.max(0, Math.min(n, segment.byteSize() - position));
+        position += skipped;
+        return skipped;
+    }
+
+    /// Skips exactly `length` bytes.
+    ///
+    /// @param length The number of bytes to skip.
+    /// @throws EOFException If fewer than `length` bytes remain.
+    public void skipFully(long length) throws EOFException {
+        if (length < 0 || length > segment.byteSize() - position) {
+            throw new EOFException();
+        }
+        position += length;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        return segment.get(ValueLayout.JAVA_BYTE, advance(Byte.BYTES));
+    }
+
+    @Override
+    public int readUnsignedByte() throws IOException {
+        return readByte() & 0xFF;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        return segment.get(shortLayout, advance(Short.BYTES));
+    }
+
+    @Override
+    public int readUnsignedShort() throws IOException {
+        return readShort() & 0xFFFF;
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return segment.get(charLayout, advance(Character.BYTES));
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return segment.get(intLayout, advance(Integer.BYTES));
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return segment.get(longLayout, advance(Long.BYTES));
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return segment.get(floatLayout, advance(Float.BYTES));
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return segment.get(doubleLayout, advance(Double.BYTES));
+    }
+
+    @Override
+    public String readLine() {
+        throw new UnsupportedOperationException("Use readUTF.");
+    }
+
+    @Override
+    public String readUTF() throws IOException {
+        return strings.read(this);
+    }
+}
@@ -0,0 +1,148 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.BufferOverflowException;
+import java.nio.ByteOrder;
+
+/// A [DataOutput] that encodes primitives straight into a [MemorySegment].
+///
+/// Every write is an absolute, unaligned access at the current position. Writing past the end of
+/// the segment throws a [BufferOverflowException] and leaves the position unchanged. Byte order is
+/// fixed at construction; strings are written like [MemorySegmentDataInput] reads them.
+class MemorySegmentDataOutput implements DataOutput {
+    private final MemorySegment segment;
+    private final boolean littleEndian;
+    private final ValueLayout.OfShort shortLayout;
+    private final ValueLayout.OfChar charLayout;
+    private final ValueLayout.OfInt intLayout;
+    private final ValueLayout.OfLong longLayout;
+    private final StringCodec strings;
+    private long position;
+
+    public MemorySegmentDataOutput(MemorySegment segment, boolean littleEndian) {
+        this.segment = segment;
+        this.littleEndian = littleEndian;
+        ByteOrder order = littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        this.shortLayout = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(order);
+        this.charLayout = ValueLayout.JAVA_CHAR_UNALIGNED.withOrder(order);
+        this.intLayout = ValueLayout.JAVA_INT_UNALIGNED.withOrder(order);
+        this.longLayout = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order);
+        this.strings = new StringCodec(!littleEndian);
+    }
+
+    /// Gets the offset of the next byte to be written.
+    ///
+    /// @return The current write position.
+    public long position() {
+        return position;
+    }
+
+    /// Gets the byte order values are encoded in.
+    ///
+    /// @return The byte order of this output.
+    public ByteOrder order() {
+        return littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+    }
+
+    /// Gets the underlying segment.
+    ///
+    /// @return The segment this output writes to.
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    /// Reserves the next `length` bytes and returns their offset.
+    ///
+    /// @param length The number of bytes to reserve.
+    /// @return The offset of the first reserved byte.
+    /// @throws BufferOverflowException If fewer than `length` bytes remain.
+    long advance(long length) {
+        long pos = position;
+        if (length > segment.byteSize() - pos) {
+            throw new BufferOverflowException();
+        }
+        position = pos + length;
+        return pos;
+    }
+
+    @Override
+    public void write(int b) {
+        writeByte(b);
+    }
+
+    @Override
+    public void write(byte[] b) {
+        this.write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (len < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        MemorySegment.copy(b, off, segment, ValueLayout.JAVA_BYTE, advance(len), len);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) {
+        writeByte(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(int v) {
+        segment.set(ValueLayout.JAVA_BYTE, advance(Byte.BYTES), (byte) v);
+    }
+
+    @Override
+    public void writeShort(int v) {
+        segment.set(shortLayout, advance(Short.BYTES), (short) v);
+    }
+
+    @Override
+    public void writeChar(int v) {
+        segment.set(charLayout, advance(Character.BYTES), (char) v);
+    }
+
+    @Override
+    public void writeInt(int v) {
+        segment.set(intLayout, advance(Integer.BYTES), v);
+    }
+
+    @Override
+    public void writeLong(long v) {
+        segment.set(longLayout, advance(Long.BYTES), v);
+    }
+
+    // Through floatToIntBits like DataOutputStream, so that every NaN is written as the canonical one
+    @Override
+    public void writeFloat(float v) {
+        segment.set(intLayout, advance(Float.BYTES), Float.floatToIntBits(v));
+    }
+
+    @Override
+    public void writeDouble(double v) {
+        segment.set(longLayout, advance(Double.BYTES), Double.doubleToLongBits(v));
+    }
+
+    @Override
+    public void writeBytes(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            writeByte(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeChars(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    @Override
+    public void writeUTF(String s) throws IOException {
+        strings.write(this, s);
+    }
+}
@@ -0,0 +1,68 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.InputStream;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+
+/// An [InputStream] over a [MemorySegment], used to feed mapped files into decompressors.
+class MemorySegmentInputStream extends InputStream {
+    private final MemorySegment segment;
+    private long position;
+    private long mark;
+
+    public MemorySegmentInputStream(MemorySegment segment) {
+        this.segment = segment;
+    }
+
+    @Override
+    public int read() {
+        if (position >= segment.byteSize()) {
+            return -1;
+        }
+        return segment.get(ValueLayout.JAVA_BYTE, position++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        long remaining = segment.byteSize() - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int n = (int) Math.min(len, remaining);
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, segment.byteSize() - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, segment.byteSize() - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+        mark = position;
+    }
+
+    @Override
+    public void reset() {
+        position = mark;
+    }
+}
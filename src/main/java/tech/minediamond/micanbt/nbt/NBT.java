@@ -7,6 +7,10 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SegmentAllocator;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 
 public class NBT {
@@ -20,6 +24,18 @@ public class NBT {
         return NBTReader.builder(path);
     }
 
+    /// Initiates a builder to read NBT data from a memory-mapped file.
+    ///
+    /// Uncompressed files are decoded straight from the mapped memory without any stream layers
+    /// or intermediate copies. Compressed files are decompressed directly from the mapping.
+    ///
+    /// @param path The path to the file.
+    /// @return An NBTReader Builder.
+    @Contract("_ -> new")
+    public static NBTReader.Builder fromMappedFile(Path path) {
+        return NBTReader.mappedBuilder(path);
+    }
+
     /// Initiates a builder to read NBT data from a [DataInput].
     ///
     /// @param input The data input source.
@@ -87,6 +103,70 @@ public class NBT {
         return fromBytes(data).compressType(compressType).littleEndian(littleEndian).getTag();
     }
 
+    /// Streams the NBT data of a file through a visitor without building a tag tree.
+    ///
+    /// @param path    The path to the file.
+    /// @param visitor The visitor that receives the decoded events.
+    /// @throws IOException If an I/O error occurs.
+    public static void visit(Path path, NBTVisitor visitor) throws IOException {
+        fromPath(path).visit(visitor);
+    }
+
+    /// Streams NBT data from a byte array through a visitor without building a tag tree.
+    ///
+    /// @param data    The byte array containing NBT data.
+    /// @param visitor The visitor that receives the decoded events.
+    /// @throws IOException If an I/O error occurs.
+    public static void visit(byte[] data, NBTVisitor visitor) throws IOException {
+        fromBytes(data).visit(visitor);
+    }
+
+    /// Checks the structure of an NBT file without building a tag tree, with automatic settings.
+    ///
+    /// This is much cheaper than [#read(Path)] when only the integrity of many files matters.
+    ///
+    /// @param path The path to the file.
+    /// @return The report, with the byte offset of the first problem if there is one.
+    /// @throws IOException If the file cannot be opened.
+    /// @see NBTReader.Builder#validate()
+    public static NBTValidationReport validate(Path path) throws IOException {
+        return fromPath(path).validate();
+    }
+
+    /// Checks the structure of NBT data in a byte array without building a tag tree, with
+    /// automatic settings.
+    ///
+    /// @param data The byte array containing NBT data.
+    /// @return The report, with the byte offset of the first problem if there is one.
+    /// @throws IOException If an I/O error occurs.
+    /// @see NBTReader.Builder#validate()
+    public static NBTValidationReport validate(byte[] data) throws IOException {
+        return fromBytes(data).validate();
+    }
+
+    /// Computes the content hash of an NBT file without building a tag tree, with automatic settings.
+    ///
+    /// @param path   The path to the file.
+    /// @param hasher The hasher, which decides whether compound entries are hashed in order.
+    /// @return The same hash as [CompoundTag#contentHash(boolean)] of the root compound.
+    /// @throws IOException If an I/O error occurs or the NBT format is invalid.
+    /// @see NBTReader.Builder#hash(NBTHasher)
+    public static NBTHash hash(Path path, NBTHasher hasher) throws IOException {
+        return fromPath(path).hash(hasher);
+    }
+
+    /// Computes the content hash of NBT data in a byte array without building a tag tree, with
+    /// automatic settings.
+    ///
+    /// @param data   The byte array containing NBT data.
+    /// @param hasher The hasher, which decides whether compound entries are hashed in order.
+    /// @return The same hash as [CompoundTag#contentHash(boolean)] of the root compound.
+    /// @throws IOException If an I/O error occurs or the NBT format is invalid.
+    /// @see NBTReader.Builder#hash(NBTHasher)
+    public static NBTHash hash(byte[] data, NBTHasher hasher) throws IOException {
+        return fromBytes(data).hash(hasher);
+    }
+
     /// Initiates a builder to write NBT data to a file path.
     ///
     /// @param tag  The root `CompoundTag` to write.
@@ -189,4 +269,68 @@ public class NBT {
     public static byte[] toBytes(CompoundTag tag, NBTCompressType compressType, boolean littleEndian) throws IOException {
         return NBTWriter.builder(tag).compressType(compressType).littleEndian(littleEndian).toByteArray();
     }
+
+    /// Encodes the root NBT tag uncompressed and in Big Endian at the position of a `ByteBuffer`.
+    ///
+    /// @param tag    The root `CompoundTag` to serialize.
+    /// @param buffer The destination buffer.
+    /// @return The buffer holding the data; see [#toBuffer(CompoundTag, ByteBuffer, boolean)].
+    /// @throws IOException If an I/O error occurs.
+    public static ByteBuffer toBuffer(CompoundTag tag, ByteBuffer buffer) throws IOException {
+        return NBTWriter.toBuffer(tag, buffer, false);
+    }
+
+    /// Encodes the root NBT tag uncompressed at the position of a `ByteBuffer`.
+    ///
+    /// Primitives are written with absolute puts straight into the buffer, which may be direct,
+    /// and the position is advanced past the data. The byte order of the buffer itself is ignored.
+    /// When fewer bytes remain than the tag needs, a larger buffer of the same kind is allocated,
+    /// the bytes before the position are copied into it, and the tag is written there instead;
+    /// always continue with the returned buffer.
+    ///
+    /// @param tag          The root `CompoundTag` to serialize.
+    /// @param buffer       The destination buffer.
+    /// @param littleEndian Whether to use Little Endian byte order.
+    /// @return `buffer`, or the grown buffer if `buffer` was too small.
+    /// @throws IOException If an I/O error occurs.
+    public static ByteBuffer toBuffer(CompoundTag tag, ByteBuffer buffer, boolean littleEndian) throws IOException {
+        return NBTWriter.toBuffer(tag, buffer, littleEndian);
+    }
+
+    /// Encodes the root NBT tag uncompressed and in Big Endian at the start of a `MemorySegment`.
+    ///
+    /// @param tag     The root `CompoundTag` to serialize.
+    /// @param segment The destination segment.
+    /// @return The number of bytes written.
+    /// @throws BufferOverflowException If the segment is too small; nothing is written then.
+    /// @throws IOException             If an I/O error occurs.
+    public static long toSegment(CompoundTag tag, MemorySegment segment) throws IOException {
+        return NBTWriter.toSegment(tag, segment, false);
+    }
+
+    /// Encodes the root NBT tag uncompressed at the start of a `MemorySegment`.
+    ///
+    /// The encoded size is checked before anything is written, so a segment that is too small
+    /// fails fast and keeps its contents. Write at an offset by passing a slice.
+    ///
+    /// @param tag          The root `CompoundTag` to serialize.
+    /// @param segment      The destination segment.
+    /// @param littleEndian Whether to use Little Endian byte order.
+    /// @return The number of bytes written.
+    /// @throws BufferOverflowException If the segment is too small; nothing is written then.
+    /// @throws IOException             If an I/O error occurs.
+    public static long toSegment(CompoundTag tag, MemorySegment segment, boolean littleEndian) throws IOException {
+        return NBTWriter.toSegment(tag, segment, littleEndian);
+    }
+
+    /// Encodes the root NBT tag uncompressed into a new segment of exactly the encoded size.
+    ///
+    /// @param tag          The root `CompoundTag` to serialize.
+    /// @param allocator    The allocator for the segment, such as an `Arena`.
+    /// @param littleEndian Whether to use Little Endian byte order.
+    /// @return The segment holding the data.
+    /// @throws IOException If an I/O error occurs.
+    public static MemorySegment toSegment(CompoundTag tag, SegmentAllocator allocator, boolean littleEndian) throws IOException {
+        return NBTWriter.toSegment(tag, allocator, littleEndian);
+    }
 }
@@ -0,0 +1,51 @@
+package tech.minediamond.micanbt.nbt;
+
+/// Counts what one read has used against an [NBTQuota].
+///
+/// Readers call [#enter()] and [#exit()] around every compound and list, [#countTag()] for
+/// every tag and [#charge(long)] before allocating array or string data.
+final class NBTAccounter {
+    private final NBTQuota quota;
+    private int depth;
+    private long tags;
+    private long bytes;
+
+    NBTAccounter(NBTQuota quota) {
+        this.quota = quota;
+    }
+
+    void enter() throws NBTQuotaExceededException {
+        if (++depth > quota.maxDepth()) {
+            throw new NBTQuotaExceededException("NBT nesting depth exceeds the quota of " + quota.maxDepth());
+        }
+    }
+
+    void exit() {
+        depth--;
+    }
+
+    void countTag() throws NBTQuotaExceededException {
+        if (++tags > quota.maxTags()) {
+            throw new NBTQuotaExceededException("NBT tag count exceeds the quota of " + quota.maxTags());
+        }
+    }
+
+    void countTags(long count) throws NBTQuotaExceededException {
+        if (count > quota.maxTags() - tags) {
+            throw new NBTQuotaExceededException("NBT tag count exceeds the quota of " + quota.maxTags());
+        }
+        tags += count;
+    }
+
+    void charge(long size) throws NBTQuotaExceededException {
+        if (size > quota.maxBytes() - bytes) {
+            throw new NBTQuotaExceededException("NBT data of " + size + " more bytes exceeds the quota of " +
+                    quota.maxBytes() + " bytes, " + bytes + " of which are used");
+        }
+        bytes += size;
+    }
+
+    void chargeString(String value) throws NBTQuotaExceededException {
+        charge(2L * value.length());
+    }
+}
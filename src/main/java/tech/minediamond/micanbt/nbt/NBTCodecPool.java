@@ -0,0 +1,303 @@
+package tech.minediamond.micanbt.nbt;
+
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/// A pool of [Inflater]s, [Deflater]s and stream buffers for GZIP and ZLIB compressed NBT.
+///
+/// Every `Inflater` and `Deflater` owns native zlib state (a deflater needs about 256 KiB), and the
+/// JDK streams create and end a fresh one per stream. For small files that setup cost dominates
+/// throughput. Streams obtained from a pool borrow a codec and an 8 KiB buffer on creation and
+/// return them when closed, so repeated reads and writes reuse the same native state.
+///
+/// Two strategies are available:
+/// - [#threadLocal()] keeps one idle instance of each kind per thread, which suits a fixed set of
+///   worker threads.
+/// - [#bounded(int)] keeps up to `maxIdle` idle instances of each kind in shared queues, which suits
+///   short-lived or many threads.
+///
+/// Codecs beyond what a pool keeps are ended as soon as they are returned. [#close()] ends all idle
+/// codecs immediately instead of waiting for the garbage collector; a closed pool keeps working but
+/// no longer retains anything. [#shared()] is the pool [NBTReader] and [NBTWriter] use by default.
+public final class NBTCodecPool implements AutoCloseable {
+    /// The size of the buffers handed to pooled streams.
+    static final int BUFFER_SIZE = 8192;
+    // The block size LZ4BlockOutputStream uses by default
+    private static final int LZ4_BLOCK_SIZE = 1 << 16;
+
+    private static final NBTCodecPool SHARED = bounded(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private final Store<Inflater> gzipInflaters;
+    private final Store<Inflater> zlibInflaters;
+    private final Store<Deflater> gzipDeflaters;
+    private final Store<Deflater> zlibDeflaters;
+    private final Store<byte[]> buffers;
+
+    private NBTCodecPool(StoreFactory factory) {
+        this.gzipInflaters = factory.create(Inflater::end);
+        this.zlibInflaters = factory.create(Inflater::end);
+        this.gzipDeflaters = factory.create(Deflater::end);
+        this.zlibDeflaters = factory.create(Deflater::end);
+        this.buffers = factory.create(buffer -> {
+        });
+    }
+
+    /// Creates a pool that keeps one idle codec of each kind per thread.
+    ///
+    /// Idle codecs of threads that have terminated stay alive until the pool is closed.
+    ///
+    /// @return A new pool.
+    public static NBTCodecPool threadLocal() {
+        return new NBTCodecPool(ThreadLocalStore::new);
+    }
+
+    /// Creates a pool that keeps up to `maxIdle` idle codecs of each kind, shared by all threads.
+    ///
+    /// @param maxIdle The maximum number of idle codecs of each kind.
+    /// @return A new pool.
+    /// @throws IllegalArgumentException If `maxIdle` is not positive.
+    public static NBTCodecPool bounded(int maxIdle) {
+        if (maxIdle <= 0) {
+            throw new IllegalArgumentException("Max idle count must be positive, but was " + maxIdle);
+        }
+        return new NBTCodecPool(new StoreFactory() {
+            @Override
+            public <T> Store<T> create(Consumer<T> disposer) {
+                return new QueueStore<>(maxIdle, disposer);
+            }
+        });
+    }
+
+    /// Gets the process-wide pool, which keeps up to one idle codec of each kind per available
+    /// processor.
+    ///
+    /// @return The shared pool.
+    public static NBTCodecPool shared() {
+        return SHARED;
+    }
+
+    /// Wraps a stream so that it decompresses its content.
+    ///
+    /// GZIP and ZLIB streams borrow their codec and buffer from this pool and return them when
+    /// closed. Closing the returned stream closes `in`.
+    ///
+    /// @param in           The compressed stream.
+    /// @param compressType The compression of `in`.
+    /// @return A stream of the decompressed content; `in` itself if it is uncompressed.
+    /// @throws IOException If the stream header is invalid.
+    public InputStream decompress(InputStream in, NBTCompressType compressType) throws IOException {
+        return switch (compressType) {
+            case UNCOMPRESSED -> in;
+            case GZIP -> new PooledInflaterInputStream(in, this, true);
+            case ZLIB -> new PooledInflaterInputStream(in, this, false);
+            case LZ4 -> new LZ4BlockInputStream(in);
+        };
+    }
+
+    /// Wraps a stream so that everything written to it is compressed.
+    ///
+    /// GZIP and ZLIB streams borrow their codec and buffer from this pool and return them when
+    /// closed. Closing the returned stream finishes the compressed data and closes `out`.
+    ///
+    /// @param out          The stream that receives the compressed data.
+    /// @param compressType The compression to apply.
+    /// @return A compressing stream; `out` itself for no compression.
+    /// @throws IOException If an I/O error occurs while writing the stream header.
+    public OutputStream compress(OutputStream out, NBTCompressType compressType) throws IOException {
+        return switch (compressType) {
+            case UNCOMPRESSED -> out;
+            case GZIP -> new PooledDeflaterOutputStream(out, this, true);
+            case ZLIB -> new PooledDeflaterOutputStream(out, this, false);
+            case LZ4 -> new LZ4BlockOutputStream(out);
+        };
+    }
+
+    /// Wraps a stream so that everything written to it is compressed by tasks on `executor`.
+    ///
+    /// GZIP and ZLIB data is cut into blocks of `blockSize` bytes that are deflated concurrently
+    /// and still form one standard stream; see [NBTWriter.Builder#parallelCompression(Executor, int)].
+    /// Other compression types are handled like [#compress(OutputStream, NBTCompressType)].
+    ///
+    /// @param out          The stream that receives the compressed data.
+    /// @param compressType The compression to apply.
+    /// @param executor     The executor that runs the block compression tasks.
+    /// @param blockSize    The number of uncompressed bytes per block.
+    /// @return A compressing stream; `out` itself for no compression.
+    /// @throws IOException If an I/O error occurs while writing the stream header.
+    public OutputStream compress(OutputStream out, NBTCompressType compressType, Executor executor, int blockSize) throws IOException {
+        return compress(out, compressType, Deflater.DEFAULT_COMPRESSION, NBTDeflateStrategy.DEFAULT, NBTLZ4Mode.FAST, executor, blockSize);
+    }
+
+    /// Wraps a stream with the compression settings of an [NBTWriter.Builder].
+    ///
+    /// @param level     The deflate level, or [Deflater#DEFAULT_COMPRESSION].
+    /// @param executor  The executor for parallel GZIP and ZLIB compression, or `null` to compress
+    ///                  on the calling thread.
+    /// @param blockSize The number of uncompressed bytes per parallel block.
+    OutputStream compress(OutputStream out, NBTCompressType compressType, int level, NBTDeflateStrategy strategy, NBTLZ4Mode lz4Mode, @Nullable Executor executor, int blockSize) throws IOException {
+        boolean gzip = compressType == NBTCompressType.GZIP;
+        return switch (compressType) {
+            case UNCOMPRESSED -> out;
+            case GZIP, ZLIB -> executor != null
+                    ? new ParallelDeflaterOutputStream(out, this, executor, blockSize, gzip, level, strategy.value())
+                    : new PooledDeflaterOutputStream(out, this, gzip, level, strategy.value());
+            case LZ4 -> lz4Mode == NBTLZ4Mode.HIGH
+                    ? new LZ4BlockOutputStream(out, LZ4_BLOCK_SIZE, LZ4Factory.fastestInstance().highCompressor())
+                    : new LZ4BlockOutputStream(out);
+        };
+    }
+
+    Inflater acquireInflater(boolean nowrap) {
+        Inflater inflater = (nowrap ? gzipInflaters : zlibInflaters).poll();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    void release(Inflater inflater, boolean nowrap) {
+        inflater.reset();
+        (nowrap ? gzipInflaters : zlibInflaters).offer(inflater);
+    }
+
+    Deflater acquireDeflater(int level, int strategy, boolean nowrap) {
+        Deflater deflater = (nowrap ? gzipDeflaters : zlibDeflaters).poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, nowrap);
+        } else {
+            deflater.setLevel(level);
+        }
+        deflater.setStrategy(strategy);
+        return deflater;
+    }
+
+    void release(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        deflater.setLevel(Deflater.DEFAULT_COMPRESSION);
+        deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+        (nowrap ? gzipDeflaters : zlibDeflaters).offer(deflater);
+    }
+
+    byte[] acquireBuffer() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    void release(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    /// Ends all idle codecs. Codecs that are in use are ended when their stream is closed.
+    @Override
+    public void close() {
+        gzipInflaters.close();
+        zlibInflaters.close();
+        gzipDeflaters.close();
+        zlibDeflaters.close();
+        buffers.close();
+    }
+
+    private interface StoreFactory {
+        <T> Store<T> create(Consumer<T> disposer);
+    }
+
+    private abstract static class Store<T> {
+        final Consumer<T> disposer;
+        volatile boolean closed;
+
+        Store(Consumer<T> disposer) {
+            this.disposer = disposer;
+        }
+
+        abstract @Nullable T poll();
+
+        // Keeps the value for reuse, or disposes of it if there is no room
+        abstract void offer(T value);
+
+        abstract void close();
+    }
+
+    private static final class QueueStore<T> extends Store<T> {
+        private final ArrayBlockingQueue<T> idle;
+
+        QueueStore(int capacity, Consumer<T> disposer) {
+            super(disposer);
+            this.idle = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        @Nullable T poll() {
+            return idle.poll();
+        }
+
+        @Override
+        void offer(T value) {
+            if (closed || !idle.offer(value)) {
+                disposer.accept(value);
+            } else if (closed && idle.remove(value)) {
+                // Raced with close()
+                disposer.accept(value);
+            }
+        }
+
+        @Override
+        void close() {
+            closed = true;
+            T value;
+            while ((value = idle.poll()) != null) {
+                disposer.accept(value);
+            }
+        }
+    }
+
+    private static final class ThreadLocalStore<T> extends Store<T> {
+        private final Set<AtomicReference<T>> slots = ConcurrentHashMap.newKeySet();
+        private final ThreadLocal<AtomicReference<T>> slot = ThreadLocal.withInitial(() -> {
+            AtomicReference<T> reference = new AtomicReference<>();
+            slots.add(reference);
+            return reference;
+        });
+
+        ThreadLocalStore(Consumer<T> disposer) {
+            super(disposer);
+        }
+
+        @Override
+        @Nullable T poll() {
+            return slot.get().getAndSet(null);
+        }
+
+        @Override
+        void offer(T value) {
+            AtomicReference<T> reference = slot.get();
+            if (closed || !reference.compareAndSet(null, value)) {
+                disposer.accept(value);
+            } else if (closed && reference.compareAndSet(value, null)) {
+                // Raced with close()
+                disposer.accept(value);
+            }
+        }
+
+        @Override
+        void close() {
+            closed = true;
+            for (AtomicReference<T> reference : slots) {
+                T value = reference.getAndSet(null);
+                if (value != null) {
+                    disposer.accept(value);
+                }
+            }
+        }
+    }
+}
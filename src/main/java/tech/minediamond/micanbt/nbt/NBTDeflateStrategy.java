@@ -0,0 +1,26 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.util.zip.Deflater;
+
+/// The [Deflater] strategy used for GZIP and ZLIB output.
+public enum NBTDeflateStrategy {
+    /// The regular mix of string matching and Huffman coding.
+    DEFAULT(Deflater.DEFAULT_STRATEGY),
+    /// Favors Huffman coding over short matches, for data with many small, noisy values.
+    FILTERED(Deflater.FILTERED),
+    /// Huffman coding only, without string matching. Fastest, with the lowest ratio.
+    HUFFMAN_ONLY(Deflater.HUFFMAN_ONLY);
+
+    private final int value;
+
+    NBTDeflateStrategy(int value) {
+        this.value = value;
+    }
+
+    /// Gets the constant for [Deflater#setStrategy(int)].
+    ///
+    /// @return The strategy constant.
+    public int value() {
+        return value;
+    }
+}
@@ -0,0 +1,584 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.path.NBTPath;
+import tech.minediamond.micanbt.path.nbtpathtoken.IndexToken;
+import tech.minediamond.micanbt.path.nbtpathtoken.KeyToken;
+import tech.minediamond.micanbt.path.nbtpathtoken.PathToken;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/// Computes compact binary patches between two compound trees and applies them.
+///
+/// A patch is a sequence of operations, each addressed by an [NBTPath] relative to the root:
+/// - **set** puts a tag under a compound key or replaces a list element;
+/// - **remove** removes a compound entry or a list element;
+/// - **insert** inserts a list element, moving the following elements up;
+/// - **array range** resizes a byte, int or long array if needed and overwrites a run of elements.
+///
+/// Unchanged subtrees produce no operations. They are skipped without being visited when both sides
+/// are the same tag instance, or when both already keep a [content hash][Tag#getCachedContentHash()]
+/// and the hashes are equal. Arrays are compared in bulk and only the changed runs are sent. Lists
+/// whose length changed are matched on their common prefix and suffix, so removing or adding an
+/// element in the middle costs one operation. Where a list or value changes its type, the whole new
+/// tag is set. The order of compound entries is not part of a patch; new entries are appended.
+///
+/// ### Format
+///
+/// A version byte ({@value #VERSION}) is followed by the operations and a terminating zero byte.
+/// Each operation is an opcode byte followed by its path: the number of tokens as an unsigned
+/// LEB128 varint, then per token either `0` and a key as a Modified UTF-8 string with an unsigned
+/// short length, or `1` and a varint list index. Set and insert continue with the tag in the nameless
+/// network format of [NBTNetworkCodec#JAVA]. An array range continues with the type ID of the
+/// array, the varint new length, start index and element count, and the big-endian elements.
+public final class NBTDiff {
+    /// The version of the patch format written by [#diff(CompoundTag, CompoundTag)].
+    public static final int VERSION = 1;
+
+    private static final int END = 0;
+    private static final int SET = 1;
+    private static final int REMOVE = 2;
+    private static final int INSERT = 3;
+    private static final int ARRAY_RANGE = 4;
+    private static final int KEY = 0;
+    private static final int INDEX = 1;
+    // About the size of an operation header with a short path; shorter unchanged runs inside an
+    // array are sent again rather than starting a new range
+    private static final int MIN_GAP_BYTES = 16;
+
+    private NBTDiff() {
+    }
+
+    /// Computes the patch that turns `a` into `b`.
+    ///
+    /// Neither tree is modified. Applying the result to `a`, or to any tree with the same content,
+    /// with [#apply(byte[], CompoundTag)] gives a tree with the content of `b`, apart from the order
+    /// of compound entries.
+    ///
+    /// @param a The old tree.
+    /// @param b The new tree.
+    /// @return The patch; two bytes long if the trees have the same content.
+    /// @throws IOException If a string or key in `b` is too long to encode.
+    public static byte[] diff(CompoundTag a, CompoundTag b) throws IOException {
+        Differ differ = new Differ();
+        differ.ensure(1);
+        differ.out.put((byte) VERSION);
+        if (a != b) {
+            differ.compound(a, b, 0);
+        }
+        differ.ensure(1);
+        differ.out.put((byte) END);
+        return Arrays.copyOf(differ.out.array(), differ.out.position());
+    }
+
+    /// Applies a patch produced by [#diff(CompoundTag, CompoundTag)] to `tag` in place.
+    ///
+    /// Operations are applied one by one, so `tag` is left partly patched if one fails.
+    ///
+    /// @param patch The patch.
+    /// @param tag   The tree to modify.
+    /// @throws NBTParseException       If the patch is malformed or of an unknown version.
+    /// @throws IllegalArgumentException If the patch does not fit the structure of `tag`.
+    /// @throws IOException              If a string in the patch is not validly encoded.
+    public static void apply(byte[] patch, CompoundTag tag) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(patch);
+        try {
+            int version = in.get() & 0xFF;
+            if (version != VERSION) {
+                throw new NBTParseException("Unsupported patch version: " + version);
+            }
+            StringCodec strings = new StringCodec(true);
+            for (int op; (op = in.get() & 0xFF) != END; ) {
+                apply(op, readPath(in, strings), in, tag);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new NBTParseException("Unexpected end of patch", e);
+        }
+    }
+
+    private static void apply(int op, PathToken[] tokens, ByteBuffer in, CompoundTag root) throws IOException {
+        if (tokens.length == 0) {
+            throw new NBTParseException("Patch operation without a path");
+        }
+        PathToken last = tokens[tokens.length - 1];
+        NBTPath parentPath = NBTPath.fromParts(Arrays.copyOf(tokens, tokens.length - 1));
+        Tag parent = root.at(parentPath);
+        switch (op) {
+            case SET -> {
+                if (last instanceof KeyToken(String key) && parent instanceof CompoundTag compoundTag) {
+                    compoundTag.put(readValue(in, key));
+                } else if (last instanceof IndexToken(int index) && parent instanceof ListTag<?> listTag) {
+                    checkIndex(index, listTag.size(), tokens);
+                    listOf(listTag).set(index, readValue(in, ""));
+                } else {
+                    throw mismatch(tokens);
+                }
+            }
+            case REMOVE -> {
+                if (last instanceof KeyToken(String key) && parent instanceof CompoundTag compoundTag) {
+                    if (compoundTag.remove(key) == null) {
+                        throw mismatch(tokens);
+                    }
+                } else if (last instanceof IndexToken(int index) && parent instanceof ListTag<?> listTag) {
+                    checkIndex(index, listTag.size(), tokens);
+                    listTag.remove(index);
+                } else {
+                    throw mismatch(tokens);
+                }
+            }
+            case INSERT -> {
+                if (last instanceof IndexToken(int index) && parent instanceof ListTag<?> listTag) {
+                    checkIndex(index, listTag.size() + 1, tokens);
+                    listOf(listTag).add(readValue(in, ""), index);
+                } else {
+                    throw mismatch(tokens);
+                }
+            }
+            case ARRAY_RANGE -> {
+                Tag target = parent == null ? null : last.navigate(parent);
+                int typeId = in.get() & 0xFF;
+                int newLength = readVarInt(in);
+                int start = readVarInt(in);
+                int count = readVarInt(in);
+                if (target == null || target.getTagId() != typeId) {
+                    throw mismatch(tokens);
+                }
+                if (start > newLength || count > newLength - start) {
+                    throw new NBTParseException("Array range " + start + "+" + count + " exceeds the new length " + newLength);
+                }
+                applyRange(target, newLength, start, count, in);
+            }
+            default -> throw new NBTParseException("Unknown patch operation: " + op);
+        }
+    }
+
+    private static void applyRange(Tag target, int newLength, int start, int count, ByteBuffer in) {
+        switch (target) {
+            case ByteArrayTag byteArrayTag -> {
+                if (byteArrayTag.size() == newLength) {
+                    for (int i = start; i < start + count; i++) {
+                        byteArrayTag.setValue(i, in.get());
+                    }
+                } else {
+                    byte[] values = Arrays.copyOf(byteArrayTag.getRawValue(), newLength);
+                    in.get(values, start, count);
+                    byteArrayTag.setValue(values);
+                }
+            }
+            case IntArrayTag intArrayTag -> {
+                if (intArrayTag.size() == newLength) {
+                    for (int i = start; i < start + count; i++) {
+                        intArrayTag.setValue(i, in.getInt());
+                    }
+                } else {
+                    int[] values = Arrays.copyOf(intArrayTag.getRawValue(), newLength);
+                    for (int i = start; i < start + count; i++) {
+                        values[i] = in.getInt();
+                    }
+                    intArrayTag.setValue(values);
+                }
+            }
+            case LongArrayTag longArrayTag -> {
+                if (longArrayTag.size() == newLength) {
+                    for (int i = start; i < start + count; i++) {
+                        longArrayTag.setValue(i, in.getLong());
+                    }
+                } else {
+                    long[] values = Arrays.copyOf(longArrayTag.getRawValue(), newLength);
+                    for (int i = start; i < start + count; i++) {
+                        values[i] = in.getLong();
+                    }
+                    longArrayTag.setValue(values);
+                }
+            }
+            default -> throw new IllegalArgumentException("Not an array tag: " + target.getClass().getSimpleName());
+        }
+    }
+
+    @SuppressWarnings("unchecked") // The list checks the type of every element it receives
+    private static ListTag<Tag> listOf(ListTag<?> listTag) {
+        return (ListTag<Tag>) listTag;
+    }
+
+    private static Tag readValue(ByteBuffer in, String name) throws IOException {
+        Tag value = NBTNetworkCodec.JAVA.readTag(in, name);
+        if (value == null) {
+            throw new NBTParseException("Patch value is TAG_End");
+        }
+        return value;
+    }
+
+    private static void checkIndex(int index, int size, PathToken[] tokens) {
+        if (index >= size) {
+            throw mismatch(tokens);
+        }
+    }
+
+    private static IllegalArgumentException mismatch(PathToken[] tokens) {
+        return new IllegalArgumentException("Patch does not fit the tag at " + NBTPath.fromParts(tokens));
+    }
+
+    private static PathToken[] readPath(ByteBuffer in, StringCodec strings) throws IOException {
+        PathToken[] tokens = new PathToken[readVarInt(in)];
+        for (int i = 0; i < tokens.length; i++) {
+            int kind = in.get() & 0xFF;
+            if (kind == KEY) {
+                int length = in.getShort() & 0xFFFF;
+                in.get(strings.buffer(length), 0, length);
+                tokens[i] = new KeyToken(strings.decode(length));
+            } else if (kind == INDEX) {
+                tokens[i] = new IndexToken(readVarInt(in));
+            } else {
+                throw new NBTParseException("Unknown path token kind: " + kind);
+            }
+        }
+        return tokens;
+    }
+
+    private static int readVarInt(ByteBuffer in) throws NBTParseException {
+        int value = 0;
+        for (int shift = 0; shift <= 28; shift += 7) {
+            byte b = in.get();
+            if (shift == 28 && (b & 0xF8) != 0) {
+                // More than 31 bits, or a fifth byte that continues
+                break;
+            }
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new NBTParseException("Malformed varint in patch");
+    }
+
+    // Content equality without emitting anything, for matching list prefixes and suffixes
+    private static boolean same(Tag a, Tag b) {
+        if (a == b) {
+            return true;
+        }
+        if (a.getTagId() != b.getTagId()) {
+            return false;
+        }
+        NBTHash hashA = a.getCachedContentHash();
+        NBTHash hashB = b.getCachedContentHash();
+        if (hashA != null && hashB != null) {
+            return hashA.equals(hashB);
+        }
+        switch (a) {
+            case CompoundTag compoundA -> {
+                CompoundTag compoundB = (CompoundTag) b;
+                if (compoundA.size() != compoundB.size()) {
+                    return false;
+                }
+                for (Tag entry : compoundA) {
+                    Tag other = compoundB.get(entry.getName());
+                    if (other == null || !same(entry, other)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case ListTag<?> listA -> {
+                ListTag<?> listB = (ListTag<?>) b;
+                if (listA.getElementTypeId() != listB.getElementTypeId() || listA.size() != listB.size()) {
+                    return false;
+                }
+                if (listA.isPrimitive() && listB.isPrimitive()) {
+                    return Objects.deepEquals(listA.getPrimitiveArray(), listB.getPrimitiveArray());
+                }
+                for (int i = 0; i < listA.size(); i++) {
+                    if (!same(element(listA, i), element(listB, i))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case ByteArrayTag byteArrayTag -> {
+                return Arrays.equals(byteArrayTag.getRawValue(), ((ByteArrayTag) b).getRawValue());
+            }
+            case IntArrayTag intArrayTag -> {
+                return Arrays.equals(intArrayTag.getRawValue(), ((IntArrayTag) b).getRawValue());
+            }
+            case LongArrayTag longArrayTag -> {
+                return Arrays.equals(longArrayTag.getRawValue(), ((LongArrayTag) b).getRawValue());
+            }
+            // Boxed equality compares floats and doubles by their bits, like the encoding does
+            default -> {
+                return a.getRawValue().equals(b.getRawValue());
+            }
+        }
+    }
+
+    // Gets an element of a list; a primitive list is read from its array, so that it stays primitive
+    private static Tag element(ListTag<?> list, int index) {
+        return switch (list.getPrimitiveArray()) {
+            case byte[] values -> new ByteTag("", values[index]);
+            case short[] values -> new ShortTag("", values[index]);
+            case int[] values -> new IntTag("", values[index]);
+            case long[] values -> new LongTag("", values[index]);
+            case float[] values -> new FloatTag("", values[index]);
+            case double[] values -> new DoubleTag("", values[index]);
+            case null, default -> list.get(index);
+        };
+    }
+
+    // Walks both trees and writes the operations; the path of the current tag is kept in two arrays
+    private static final class Differ {
+        private final StringCodec strings = new StringCodec(true);
+        private ByteBuffer out = ByteBuffer.allocate(256);
+        private @Nullable String[] keys = new String[16];
+        private int[] indices = new int[16];
+
+        private void compound(CompoundTag a, CompoundTag b, int depth) throws IOException {
+            for (Tag entry : a) {
+                if (!b.contains(entry.getName())) {
+                    key(depth, entry.getName());
+                    op(REMOVE, depth + 1);
+                }
+            }
+            for (Tag entry : b) {
+                Tag old = a.get(entry.getName());
+                key(depth, entry.getName());
+                if (old == null) {
+                    value(SET, depth + 1, entry);
+                } else {
+                    tag(old, entry, depth + 1);
+                }
+            }
+        }
+
+        // Diffs two tags found at the current path of length `depth`
+        private void tag(Tag a, Tag b, int depth) throws IOException {
+            if (a == b) {
+                return;
+            }
+            if (a.getTagId() != b.getTagId()) {
+                value(SET, depth, b);
+                return;
+            }
+            NBTHash hashA = a.getCachedContentHash();
+            NBTHash hashB = b.getCachedContentHash();
+            if (hashA != null && hashB != null && hashA.equals(hashB)) {
+                return;
+            }
+            switch (b) {
+                case CompoundTag compoundTag -> compound((CompoundTag) a, compoundTag, depth);
+                case ListTag<?> listTag -> list((ListTag<?>) a, listTag, depth);
+                case ByteArrayTag byteArrayTag -> {
+                    byte[] old = ((ByteArrayTag) a).getRawValue();
+                    array(old, old.length, byteArrayTag.getRawValue(), byteArrayTag.size(), ByteArrayTag.ID, depth);
+                }
+                case IntArrayTag intArrayTag -> {
+                    int[] old = ((IntArrayTag) a).getRawValue();
+                    array(old, old.length, intArrayTag.getRawValue(), intArrayTag.size(), IntArrayTag.ID, depth);
+                }
+                case LongArrayTag longArrayTag -> {
+                    long[] old = ((LongArrayTag) a).getRawValue();
+                    array(old, old.length, longArrayTag.getRawValue(), longArrayTag.size(), LongArrayTag.ID, depth);
+                }
+                default -> {
+                    if (!a.getRawValue().equals(b.getRawValue())) {
+                        value(SET, depth, b);
+                    }
+                }
+            }
+        }
+
+        private void list(ListTag<?> a, ListTag<?> b, int depth) throws IOException {
+            if (a.getElementTypeId() != b.getElementTypeId()) {
+                value(SET, depth, b);
+                return;
+            }
+            int sizeA = a.size();
+            int sizeB = b.size();
+            int min = Math.min(sizeA, sizeB);
+            int prefix = 0;
+            int suffix = 0;
+            if (sizeA != sizeB) {
+                while (prefix < min && same(element(a, prefix), element(b, prefix))) {
+                    prefix++;
+                }
+                while (suffix < min - prefix && same(element(a, sizeA - 1 - suffix), element(b, sizeB - 1 - suffix))) {
+                    suffix++;
+                }
+            }
+            // Elements between the prefix and the suffix are compared by position; the indices of
+            // the surplus come after them, so the earlier operations do not shift them
+            int common = min - prefix - suffix;
+            Object primitivesA = a.getPrimitiveArray();
+            Object primitivesB = b.getPrimitiveArray();
+            if (primitivesA != null && primitivesB != null) {
+                // Only the changed numbers are set, found in bulk on the arrays
+                int end = prefix + common;
+                for (int i = prefix, found; i < end && (found = mismatch(primitivesA, primitivesB, i, end)) >= 0; i += found + 1) {
+                    index(depth, i + found);
+                    value(SET, depth + 1, element(b, i + found));
+                }
+            } else {
+                for (int i = prefix; i < prefix + common; i++) {
+                    index(depth, i);
+                    tag(element(a, i), element(b, i), depth + 1);
+                }
+            }
+            int at = prefix + common;
+            index(depth, at);
+            for (int i = sizeB; i < sizeA; i++) {
+                op(REMOVE, depth + 1);
+            }
+            for (int i = 0; i < sizeB - sizeA; i++) {
+                index(depth, at + i);
+                value(INSERT, depth + 1, element(b, at + i));
+            }
+        }
+
+        private void array(Object a, int sizeA, Object b, int sizeB, int typeId, int depth) throws IOException {
+            int width = typeId == ByteArrayTag.ID ? Byte.BYTES : typeId == IntArrayTag.ID ? Integer.BYTES : Long.BYTES;
+            int gap = Math.max(1, MIN_GAP_BYTES / width);
+            int overlap = Math.min(sizeA, sizeB);
+            boolean written = false;
+            int from = 0;
+            while (from < overlap) {
+                int found = mismatch(a, b, from, overlap);
+                if (found < 0) {
+                    break;
+                }
+                int start = from + found;
+                int end = start + 1;
+                // Take in further changes that follow within the gap
+                for (int next; end < overlap && (next = mismatch(a, b, end, Math.min(overlap, end + gap))) >= 0; ) {
+                    end += next + 1;
+                }
+                if (sizeB > sizeA && sizeA - end < gap) {
+                    end = sizeB;
+                }
+                range(typeId, depth, b, sizeB, start, end);
+                written = true;
+                from = end;
+            }
+            if (sizeB > sizeA && from < sizeB) {
+                range(typeId, depth, b, sizeB, sizeA, sizeB);
+            } else if (sizeB < sizeA && !written) {
+                range(typeId, depth, b, sizeB, sizeB, sizeB);
+            }
+        }
+
+        private static int mismatch(Object a, Object b, int from, int to) {
+            return switch (a) {
+                case byte[] values -> Arrays.mismatch(values, from, to, (byte[]) b, from, to);
+                case int[] values -> Arrays.mismatch(values, from, to, (int[]) b, from, to);
+                case long[] values -> Arrays.mismatch(values, from, to, (long[]) b, from, to);
+                case short[] values -> Arrays.mismatch(values, from, to, (short[]) b, from, to);
+                case float[] values -> Arrays.mismatch(values, from, to, (float[]) b, from, to);
+                case double[] values -> Arrays.mismatch(values, from, to, (double[]) b, from, to);
+                default -> throw new IllegalArgumentException("Not a primitive array: " + a.getClass());
+            };
+        }
+
+        private void range(int typeId, int depth, Object values, int newLength, int start, int end) throws IOException {
+            int count = end - start;
+            ensure(1 + pathSize(depth) + 1 + 15 + count * 8L);
+            out.put((byte) ARRAY_RANGE);
+            path(depth);
+            out.put((byte) typeId);
+            putVarInt(newLength);
+            putVarInt(start);
+            putVarInt(count);
+            switch (values) {
+                case byte[] bytes -> out.put(bytes, start, count);
+                case int[] ints -> {
+                    for (int i = start; i < end; i++) {
+                        out.putInt(ints[i]);
+                    }
+                }
+                case long[] longs -> {
+                    for (int i = start; i < end; i++) {
+                        out.putLong(longs[i]);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Not a primitive array: " + values.getClass());
+            }
+        }
+
+        private void op(int op, int depth) throws IOException {
+            ensure(1 + pathSize(depth));
+            out.put((byte) op);
+            path(depth);
+        }
+
+        private void value(int op, int depth, Tag value) throws IOException {
+            long size = NBTNetworkCodec.JAVA.size(value);
+            op(op, depth);
+            ensure(size);
+            NBTNetworkCodec.JAVA.write(value, out);
+        }
+
+        private void key(int depth, String key) {
+            grow(depth);
+            keys[depth] = key;
+        }
+
+        private void index(int depth, int index) {
+            grow(depth);
+            keys[depth] = null;
+            indices[depth] = index;
+        }
+
+        private void grow(int depth) {
+            if (depth == keys.length) {
+                keys = Arrays.copyOf(keys, depth * 2);
+                indices = Arrays.copyOf(indices, depth * 2);
+            }
+        }
+
+        // An upper bound; a key costs at most three bytes per char
+        private long pathSize(int depth) {
+            long size = 5;
+            for (int i = 0; i < depth; i++) {
+                String key = keys[i];
+                size += key != null ? 3 + 3L * key.length() : 6;
+            }
+            return size;
+        }
+
+        private void path(int depth) throws IOException {
+            putVarInt(depth);
+            for (int i = 0; i < depth; i++) {
+                String key = keys[i];
+                if (key != null) {
+                    out.put((byte) KEY);
+                    int length = strings.encode(key, StringCodec.MAX_LENGTH);
+                    out.putShort((short) length);
+                    out.put(strings.buffer(), 0, length);
+                } else {
+                    out.put((byte) INDEX);
+                    putVarInt(indices[i]);
+                }
+            }
+        }
+
+        private void putVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            out.put((byte) value);
+        }
+
+        private void ensure(long bytes) {
+            if (bytes > out.remaining()) {
+                long capacity = Math.max(out.capacity() * 2L, out.position() + bytes);
+                if (capacity > Integer.MAX_VALUE - 8) {
+                    throw new OutOfMemoryError("Patch exceeds the maximum array size");
+                }
+                ByteBuffer grown = ByteBuffer.allocate((int) capacity);
+                grown.put(out.array(), 0, out.position());
+                out = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package tech.minediamond.micanbt.nbt;
+
+/// A 128-bit content hash computed by [NBTHasher].
+///
+/// @param high The upper 64 bits.
+/// @param low  The lower 64 bits.
+public record NBTHash(long high, long low) {
+
+    /// Gets the hash as 16 big-endian bytes.
+    ///
+    /// @return A new array holding [#high()] followed by [#low()].
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (low >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    /// Gets the hash as 32 lowercase hexadecimal digits.
+    ///
+    /// @return The hexadecimal form of [#toByteArray()].
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
@@ -0,0 +1,577 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/// Computes a stable 128-bit content hash of NBT, either straight from the binary encoding or from a
+/// tag tree.
+///
+/// Both ways give the same [NBTHash] for the same content, so a document can be hashed while it is
+/// streamed from disk and compared with trees already in memory. The hash does not depend on the byte
+/// order or string encoding of the input, nor on the name of the root tag; it does depend on the
+/// names of compound entries, the tag types and the values.
+///
+/// The hash is built like a Merkle tree: every tag is hashed on its own, and lists and compounds
+/// hash the hashes of their elements. Compound entries are combined in order by [#ORDERED]. With
+/// [#ORDER_INDEPENDENT], the hash of each entry is computed on its own and the entries are summed,
+/// so compounds that differ only in the order of their entries hash the same. Lists are always
+/// ordered. Values and strings are mixed 64 bits at a time with the block and finalization functions
+/// of MurmurHash3 x64/128; the hash is fast and well distributed, but not cryptographic.
+///
+/// Streaming allocates nothing per tag: strings are hashed from their encoded bytes and arrays
+/// are hashed block by block. For trees, [Tag#contentHash()] keeps the hash of every string,
+/// array and number tag once computed.
+public final class NBTHasher {
+    /// Hashes compound entries in the order they are stored.
+    public static final NBTHasher ORDERED = new NBTHasher(false);
+    /// Hashes compound entries regardless of their order.
+    public static final NBTHasher ORDER_INDEPENDENT = new NBTHasher(true);
+
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong SEGMENT_LONG_BE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final int MAX_ID = 12;
+    // Cannot be the length of a compound key, which is an unsigned short
+    private static final long END_OF_COMPOUND = -1;
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final boolean orderIndependent;
+
+    private NBTHasher(boolean orderIndependent) {
+        this.orderIndependent = orderIndependent;
+    }
+
+    /// Gets the hasher for the given compound ordering.
+    ///
+    /// @param orderIndependent `true` for [#ORDER_INDEPENDENT], `false` for [#ORDERED].
+    /// @return The hasher.
+    public static NBTHasher of(boolean orderIndependent) {
+        return orderIndependent ? ORDER_INDEPENDENT : ORDERED;
+    }
+
+    /// Checks whether this hasher ignores the order of compound entries.
+    ///
+    /// @return `true` for [#ORDER_INDEPENDENT].
+    public boolean isOrderIndependent() {
+        return orderIndependent;
+    }
+
+    /// Hashes a tag tree.
+    ///
+    /// The hashes of string, array and number tags below `tag` are taken from and stored in their
+    /// [Tag#contentHash()] cache. Lists and compounds are combined anew on every call, except
+    /// [frozen][Tag#freeze()] ones, which keep their ordered hash.
+    ///
+    /// @param tag The tag to hash. Its own name is not part of the hash.
+    /// @return The hash.
+    public NBTHash hash(Tag tag) {
+        if (tag instanceof CompoundTag || tag instanceof ListTag<?>) {
+            return new Walker(null).tree(tag, 0);
+        }
+        return leaf(tag);
+    }
+
+    /// Hashes the uncompressed document at the current position of `in` without building tags.
+    ///
+    /// Input created by this package is hashed according to its byte order, with UTF-8 strings
+    /// for little-endian input. Any other [DataInput] is read as big-endian with Modified UTF-8
+    /// strings, like [NBTReader] does. Compressed data and files are hashed with
+    /// [NBTReader.Builder#hash(NBTHasher)].
+    ///
+    /// @param in The input positioned at the root type ID.
+    /// @return The same hash as [#hash(Tag)] gives for the decoded root compound.
+    /// @throws IOException If an I/O error occurs or the data is not valid NBT.
+    public NBTHash hash(DataInput in) throws IOException {
+        int id = in.readUnsignedByte();
+        if (id != CompoundTag.ID) {
+            throw new NBTParseException("NBT root must be a CompoundTag (ID 10), but found ID " + id);
+        }
+        NBTSkipper.skipFully(in, in.readUnsignedShort());
+        Walker walker = new Walker(in);
+        walker.payload(CompoundTag.ID, 0);
+        return new NBTHash(walker.states[0].h1, walker.states[0].h2);
+    }
+
+    private static NBTHash leaf(Tag tag) {
+        return switch (tag.getTagId()) {
+            case ByteTag.ID -> number(ByteTag.ID, ((ByteTag) tag).getRawValue());
+            case ShortTag.ID -> number(ShortTag.ID, ((ShortTag) tag).getRawValue());
+            case IntTag.ID -> number(IntTag.ID, ((IntTag) tag).getRawValue());
+            case LongTag.ID -> number(LongTag.ID, ((LongTag) tag).getRawValue());
+            // The same bits the writers produce, with NaN collapsed to its canonical form
+            case FloatTag.ID -> number(FloatTag.ID, Float.floatToIntBits(((FloatTag) tag).getRawValue()));
+            case DoubleTag.ID -> number(DoubleTag.ID, Double.doubleToLongBits(((DoubleTag) tag).getRawValue()));
+            case StringTag.ID -> {
+                State state = new State();
+                state.add(StringTag.ID);
+                state.string(((StringTag) tag).getRawValue());
+                yield state.result();
+            }
+            case ByteArrayTag.ID -> {
+                byte[] values = ((ByteArrayTag) tag).getRawValue();
+                State state = new State();
+                state.add(ByteArrayTag.ID);
+                state.add(values.length);
+                state.bytes(values, 0, values.length);
+                yield state.result();
+            }
+            case IntArrayTag.ID -> {
+                int[] values = ((IntArrayTag) tag).getRawValue();
+                State state = new State();
+                state.add(IntArrayTag.ID);
+                state.add(values.length);
+                for (int i = 0; i < values.length; i += 2) {
+                    long word = (long) values[i] << 32;
+                    if (i + 1 < values.length) {
+                        word |= values[i + 1] & 0xFFFFFFFFL;
+                    }
+                    state.add(word);
+                }
+                yield state.result();
+            }
+            case LongArrayTag.ID -> {
+                long[] values = ((LongArrayTag) tag).getRawValue();
+                State state = new State();
+                state.add(LongArrayTag.ID);
+                state.add(values.length);
+                for (long value : values) {
+                    state.add(value);
+                }
+                yield state.result();
+            }
+            default -> throw new IllegalArgumentException("Unknown tag type: " + tag.getClass().getName());
+        };
+    }
+
+    // Small enough to inline, so the state does not need to be allocated
+    private static NBTHash number(int id, long value) {
+        State state = new State();
+        state.add(id);
+        state.add(value);
+        return state.result();
+    }
+
+    // One pass over a tree or a document; keeps a hash state per nesting level
+    private final class Walker {
+        private final @Nullable DataInput in;
+        private final @Nullable ByteOrder order;
+        private final @Nullable StringCodec utf8Strings;
+        private final StringCodec strings = new StringCodec(true);
+        private State[] states = new State[8];
+        private byte @Nullable [] scratch;
+
+        private Walker(@Nullable DataInput in) {
+            this.in = in;
+            this.order = in == null ? null : PrimitiveArrayCodec.orderOf(in);
+            this.utf8Strings = order == ByteOrder.LITTLE_ENDIAN ? new StringCodec(false) : null;
+        }
+
+        private State state(int depth) {
+            if (depth == states.length) {
+                states = Arrays.copyOf(states, depth * 2);
+            }
+            State state = states[depth];
+            if (state == null) {
+                state = new State();
+                states[depth] = state;
+            }
+            state.reset();
+            return state;
+        }
+
+        private NBTHash tree(Tag tag, int depth) {
+            State state = state(depth);
+            state.add(tag.getTagId());
+            if (tag instanceof ListTag<?> listTag) {
+                state.add(listTag.getElementTypeId());
+                state.add(listTag.size());
+                Object primitives = listTag.getPrimitiveArray();
+                if (primitives != null) {
+                    primitives(state, listTag.getElementTypeId(), primitives);
+                } else {
+                    for (Tag element : listTag) {
+                        state.add(child(element, depth + 1));
+                    }
+                }
+            } else if (!orderIndependent) {
+                for (Tag entry : (CompoundTag) tag) {
+                    state.string(entry.getName());
+                    state.add(child(entry, depth + 1));
+                }
+                state.add(END_OF_COMPOUND);
+            } else {
+                long sumHigh = 0;
+                long sumLow = 0;
+                int count = 0;
+                for (Tag entry : (CompoundTag) tag) {
+                    State entryState = state(depth + 1);
+                    entryState.string(entry.getName());
+                    entryState.add(child(entry, depth + 2));
+                    entryState.finish();
+                    sumHigh += entryState.h1;
+                    sumLow += entryState.h2;
+                    count++;
+                }
+                state.add(count);
+                state.add(sumHigh);
+                state.add(sumLow);
+            }
+            return state.result();
+        }
+
+        // Adds the hashes the element tags of a primitive list would have, without creating them
+        private static void primitives(State state, int typeId, Object primitives) {
+            switch (typeId) {
+                case ByteTag.ID -> {
+                    for (byte value : (byte[]) primitives) {
+                        state.add(number(typeId, value));
+                    }
+                }
+                case ShortTag.ID -> {
+                    for (short value : (short[]) primitives) {
+                        state.add(number(typeId, value));
+                    }
+                }
+                case IntTag.ID -> {
+                    for (int value : (int[]) primitives) {
+                        state.add(number(typeId, value));
+                    }
+                }
+                case LongTag.ID -> {
+                    for (long value : (long[]) primitives) {
+                        state.add(number(typeId, value));
+                    }
+                }
+                case FloatTag.ID -> {
+                    for (float value : (float[]) primitives) {
+                        state.add(number(typeId, Float.floatToIntBits(value)));
+                    }
+                }
+                case DoubleTag.ID -> {
+                    for (double value : (double[]) primitives) {
+                        state.add(number(typeId, Double.doubleToLongBits(value)));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown list element type: " + typeId);
+            }
+        }
+
+        private NBTHash child(Tag tag, int depth) {
+            if (tag instanceof CompoundTag || tag instanceof ListTag<?>) {
+                // A frozen subtree keeps its ordered hash, so a variant sharing it is hashed along the changed path only
+                if (!orderIndependent && tag.isFrozen()) {
+                    return tag.contentHash();
+                }
+                return tree(tag, depth);
+            }
+            return tag.contentHash();
+        }
+
+        // Leaves the hash of the payload in states[depth]
+        private void payload(int id, int depth) throws IOException {
+            DataInput in = this.in;
+            assert in != null;
+            State state = state(depth);
+            state.add(id);
+            switch (id) {
+                case ByteTag.ID -> state.add(in.readByte());
+                case ShortTag.ID -> state.add(in.readShort());
+                case IntTag.ID -> state.add(in.readInt());
+                case LongTag.ID -> state.add(in.readLong());
+                case FloatTag.ID -> state.add(Float.floatToIntBits(in.readFloat()));
+                case DoubleTag.ID -> state.add(Double.doubleToLongBits(in.readDouble()));
+                case ByteArrayTag.ID -> {
+                    int length = arrayLength(in);
+                    state.add(length);
+                    bytes(state, length);
+                }
+                case StringTag.ID -> string(state);
+                case ListTag.ID -> {
+                    int typeId = in.readUnsignedByte();
+                    int count = in.readInt();
+                    if (typeId > MAX_ID) {
+                        throw new NBTParseException("Could not find tag with ID \"" + typeId + "\".");
+                    }
+                    if (count < 0) {
+                        throw new NBTParseException("Negative list length: " + count);
+                    }
+                    if (count > 0 && typeId == 0) {
+                        throw new NBTParseException("ListTag type is TAG_End but count is > 0");
+                    }
+                    state.add(typeId);
+                    state.add(count);
+                    for (int i = 0; i < count; i++) {
+                        payload(typeId, depth + 1);
+                        state.add(states[depth + 1]);
+                    }
+                }
+                case CompoundTag.ID -> {
+                    if (!orderIndependent) {
+                        for (int entryId; (entryId = in.readUnsignedByte()) != 0; ) {
+                            string(state);
+                            payload(entryId, depth + 1);
+                            state.add(states[depth + 1]);
+                        }
+                        state.add(END_OF_COMPOUND);
+                    } else {
+                        long sumHigh = 0;
+                        long sumLow = 0;
+                        int count = 0;
+                        for (int entryId; (entryId = in.readUnsignedByte()) != 0; ) {
+                            State entryState = state(depth + 1);
+                            string(entryState);
+                            payload(entryId, depth + 2);
+                            entryState.add(states[depth + 2]);
+                            entryState.finish();
+                            sumHigh += entryState.h1;
+                            sumLow += entryState.h2;
+                            count++;
+                        }
+                        state.add(count);
+                        state.add(sumHigh);
+                        state.add(sumLow);
+                    }
+                }
+                case IntArrayTag.ID -> {
+                    int length = arrayLength(in);
+                    state.add(length);
+                    if (order == ByteOrder.BIG_ENDIAN) {
+                        // Pairs of big-endian ints are exactly the words the tree side builds
+                        bytes(state, (long) length * Integer.BYTES);
+                    } else {
+                        for (int i = 0; i < length; i += 2) {
+                            long word = (long) in.readInt() << 32;
+                            if (i + 1 < length) {
+                                word |= in.readInt() & 0xFFFFFFFFL;
+                            }
+                            state.add(word);
+                        }
+                    }
+                }
+                case LongArrayTag.ID -> {
+                    int length = arrayLength(in);
+                    state.add(length);
+                    if (order == ByteOrder.BIG_ENDIAN) {
+                        bytes(state, (long) length * Long.BYTES);
+                    } else {
+                        for (int i = 0; i < length; i++) {
+                            state.add(in.readLong());
+                        }
+                    }
+                }
+                default -> throw new NBTParseException("Could not find tag with ID \"" + id + "\".");
+            }
+            state.finish();
+        }
+
+        private static int arrayLength(DataInput in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                throw new NBTParseException("Negative array length: " + length);
+            }
+            return length;
+        }
+
+        // Adds the length and Modified UTF-8 bytes of the next string in the input
+        private void string(State state) throws IOException {
+            DataInput in = this.in;
+            assert in != null;
+            StringCodec utf8Strings = this.utf8Strings;
+            if (utf8Strings == null) {
+                int length = strings.readBytes(in);
+                state.add(length);
+                state.bytes(strings.buffer(), 0, length);
+                return;
+            }
+            int length = utf8Strings.readBytes(in);
+            byte[] bytes = utf8Strings.buffer();
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] <= 0) {
+                    // Only ASCII without NUL is encoded the same way in UTF-8 and Modified UTF-8
+                    length = strings.encode(utf8Strings.decode(length), Integer.MAX_VALUE);
+                    bytes = strings.buffer();
+                    break;
+                }
+            }
+            state.add(length);
+            state.bytes(bytes, 0, length);
+        }
+
+        // Adds the next `length` bytes of the input, zero-padded to whole big-endian words
+        private void bytes(State state, long length) throws IOException {
+            DataInput in = this.in;
+            assert in != null;
+            if (in instanceof MemorySegmentDataInput source) {
+                MemorySegment segment = source.segment();
+                long offset = source.position();
+                source.skipFully(length);
+                long end = offset + length;
+                for (; offset + Long.BYTES <= end; offset += Long.BYTES) {
+                    state.add(segment.get(SEGMENT_LONG_BE, offset));
+                }
+                if (offset < end) {
+                    long word = 0;
+                    for (int i = 0; i < Long.BYTES; i++) {
+                        word = word << 8 | (offset + i < end ? segment.get(ValueLayout.JAVA_BYTE, offset + i) & 0xFF : 0);
+                    }
+                    state.add(word);
+                }
+                return;
+            }
+            if (scratch == null) {
+                scratch = new byte[SCRATCH_SIZE];
+            }
+            byte[] buffer = scratch;
+            while (length > 0) {
+                // A multiple of 8, so only the last block can end in a partial word
+                int n = (int) Math.min(length, buffer.length);
+                in.readFully(buffer, 0, n);
+                state.bytes(buffer, 0, n);
+                length -= n;
+            }
+        }
+    }
+
+    // The running MurmurHash3 x64/128 state over a sequence of 64-bit words
+    private static final class State {
+        private static final long C1 = 0x87c37b91114253d5L;
+        private static final long C2 = 0x4cf5ad432745937fL;
+
+        private long h1;
+        private long h2;
+        private long pending;
+        private long words;
+        private @Nullable StringCodec strings;
+
+        void reset() {
+            h1 = 0;
+            h2 = 0;
+            words = 0;
+        }
+
+        void add(long word) {
+            if ((words++ & 1) == 0) {
+                pending = word;
+                return;
+            }
+            long k1 = pending * C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            long k2 = word * C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        // Adds the finished hash of another state
+        void add(State other) {
+            add(other.h1);
+            add(other.h2);
+        }
+
+        void add(NBTHash hash) {
+            add(hash.high());
+            add(hash.low());
+        }
+
+        // Adds the length and Modified UTF-8 bytes of a string
+        void string(String value) {
+            int length = value.length();
+            // For ASCII without NUL, UTF-8 from the JDK's intrinsic encoder equals Modified UTF-8
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            if (utf8.length == length && indexOfNul(utf8) < 0) {
+                add(length);
+                bytes(utf8, 0, length);
+                return;
+            }
+            if (strings == null) {
+                strings = new StringCodec(true);
+            }
+            int encodedLength;
+            try {
+                encodedLength = strings.encode(value, Integer.MAX_VALUE);
+            } catch (UTFDataFormatException e) {
+                // Not thrown without a length limit
+                throw new UncheckedIOException(e);
+            }
+            add(encodedLength);
+            bytes(strings.buffer(), 0, encodedLength);
+        }
+
+        private static int indexOfNul(byte[] bytes) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Adds bytes as big-endian words, zero-padding the last one
+        void bytes(byte[] bytes, int offset, int length) {
+            int end = offset + length;
+            for (; offset + Long.BYTES <= end; offset += Long.BYTES) {
+                add((long) LONG_BE.get(bytes, offset));
+            }
+            if (offset < end) {
+                long word = 0;
+                for (int i = 0; i < Long.BYTES; i++) {
+                    word = word << 8 | (offset + i < end ? bytes[offset + i] & 0xFF : 0);
+                }
+                add(word);
+            }
+        }
+
+        NBTHash result() {
+            finish();
+            return new NBTHash(h1, h2);
+        }
+
+        // Leaves the result in h1 and h2
+        void finish() {
+            if ((words & 1) != 0) {
+                long k1 = pending * C1;
+                k1 = Long.rotateLeft(k1, 31);
+                k1 *= C2;
+                h1 ^= k1;
+            }
+            long length = words * Long.BYTES;
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = mix(h1);
+            h2 = mix(h2);
+            h1 += h2;
+            h2 += h1;
+        }
+
+        private static long mix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb53e1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
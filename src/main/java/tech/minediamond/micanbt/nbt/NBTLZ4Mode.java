@@ -0,0 +1,9 @@
+package tech.minediamond.micanbt.nbt;
+
+/// The LZ4 compressor used for LZ4 output. Both produce the same format and decompress equally fast.
+public enum NBTLZ4Mode {
+    /// The fast compressor, which favors throughput.
+    FAST,
+    /// The high-compression (HC) compressor, which is several times slower but writes smaller blocks.
+    HIGH
+}
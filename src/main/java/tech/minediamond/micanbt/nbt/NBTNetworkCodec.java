@@ -0,0 +1,523 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.tag.*;
+import tech.minediamond.micanbt.util.map.OrderedListMap;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/// Reads and writes the NBT variants used in network packets, directly on [ByteBuffer]s.
+///
+/// Three wire formats are available:
+/// - [#JAVA]: Java Edition since 1.20.2. Big-endian, and the root tag has a type ID but no name.
+/// - [#JAVA_NAMED]: Java Edition before 1.20.2. Like the file format, with a named root.
+/// - [#BEDROCK]: Bedrock Edition network NBT. Little-endian with a named root, where ints, longs and
+///   all lengths are zigzag-encoded varints, and string lengths are unsigned varints.
+///
+/// Big-endian formats use Modified UTF-8 and Bedrock uses standard UTF-8. Values are read and written
+/// at the position of the buffer, which is advanced past them; no stream or intermediate array is
+/// involved, apart from the scratch buffer a string is decoded through. The byte order of the
+/// buffer itself is ignored and left unchanged. All packet data is uncompressed.
+///
+/// Reading rejects compounds and lists nested deeper than {@value #MAX_DEPTH} levels, the limit of
+/// the Java Edition protocol, so that a small crafted packet cannot overflow the stack.
+///
+/// The codecs are immutable and can be used from any thread.
+public final class NBTNetworkCodec {
+    /// Java Edition network NBT since 1.20.2, with a nameless root.
+    public static final NBTNetworkCodec JAVA = new NBTNetworkCodec(false, false, false);
+    /// Java Edition network NBT before 1.20.2, with a named root.
+    public static final NBTNetworkCodec JAVA_NAMED = new NBTNetworkCodec(true, false, false);
+    /// Bedrock Edition network NBT, with varint integers and lengths.
+    public static final NBTNetworkCodec BEDROCK = new NBTNetworkCodec(true, true, true);
+    /// The deepest nesting of compounds and lists that is read; the root compound is at depth 1.
+    public static final int MAX_DEPTH = 512;
+
+    private final boolean namedRoot;
+    private final boolean littleEndian;
+    private final boolean varInts;
+    private final ByteOrder order;
+
+    private NBTNetworkCodec(boolean namedRoot, boolean littleEndian, boolean varInts) {
+        this.namedRoot = namedRoot;
+        this.littleEndian = littleEndian;
+        this.varInts = varInts;
+        this.order = littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+    }
+
+    /// Reads a document whose root must be a compound.
+    ///
+    /// @param in The buffer positioned at the root type ID.
+    /// @return The root compound.
+    /// @throws NBTParseException If the data is malformed, ends early or has another root type.
+    /// @throws IOException       If a string is not validly encoded.
+    public CompoundTag read(ByteBuffer in) throws IOException {
+        Tag root = readTag(in);
+        if (root instanceof CompoundTag compoundTag) {
+            return compoundTag;
+        }
+        throw new NBTParseException("NBT root must be a CompoundTag, but found: " +
+                (root == null ? "null" : root.getClass().getSimpleName()));
+    }
+
+    /// Reads a document with a root of any type.
+    ///
+    /// A lone TAG_End, which packets use for "no data", reads as `null`. On failure, the position
+    /// of `in` is undefined.
+    ///
+    /// @param in The buffer positioned at the root type ID.
+    /// @return The root tag, or `null` for TAG_End.
+    /// @throws NBTParseException If the data is malformed or ends early.
+    /// @throws IOException       If a string is not validly encoded.
+    public @Nullable Tag readTag(ByteBuffer in) throws IOException {
+        return readTag(in, null);
+    }
+
+    /// Reads a document with a root of any type, giving a nameless root the name `name`.
+    ///
+    /// @param in   The buffer positioned at the root type ID.
+    /// @param name The name of the root tag, or `null` for the name in the data of named formats
+    ///             and a blank name otherwise.
+    /// @return The root tag, or `null` for TAG_End.
+    /// @throws NBTParseException If the data is malformed or ends early.
+    /// @throws IOException       If a string is not validly encoded.
+    @Nullable Tag readTag(ByteBuffer in, @Nullable String name) throws IOException {
+        ByteOrder original = in.order();
+        in.order(order);
+        try {
+            Decoder decoder = new Decoder(in);
+            int id = in.get() & 0xFF;
+            if (id == 0) {
+                return null;
+            }
+            String rootName = namedRoot ? decoder.readString() : "";
+            return decoder.readPayload(id, name != null ? name : rootName);
+        } catch (BufferUnderflowException e) {
+            throw new NBTParseException("Unexpected end of NBT data", e);
+        } finally {
+            in.order(original);
+        }
+    }
+
+    /// Writes a document with `tag` as its root.
+    ///
+    /// The size is checked before anything is written, so a buffer that is too small is left
+    /// untouched. Nameless formats ignore the name of the root.
+    ///
+    /// @param tag The root tag.
+    /// @param out The destination buffer.
+    /// @throws BufferOverflowException If fewer than [#size(Tag)] bytes remain in `out`.
+    /// @throws IOException             If a string is too long to encode.
+    public void write(Tag tag, ByteBuffer out) throws IOException {
+        if (size(tag) > out.remaining()) {
+            throw new BufferOverflowException();
+        }
+        ByteOrder original = out.order();
+        out.order(order);
+        try {
+            Encoder encoder = new Encoder(out);
+            out.put((byte) tag.getTagId());
+            if (namedRoot) {
+                encoder.writeString(tag.getName());
+            }
+            encoder.writePayload(tag);
+        } finally {
+            out.order(original);
+        }
+    }
+
+    /// Computes the number of bytes [#write(Tag, ByteBuffer)] produces.
+    ///
+    /// @param tag The root tag.
+    /// @return The encoded size in bytes.
+    public long size(Tag tag) {
+        return 1 + (namedRoot ? stringSize(tag.getName()) : 0) + payloadSize(tag);
+    }
+
+    private long payloadSize(Tag tag) {
+        if (!varInts) {
+            return NBTSizer.payloadSize(tag, littleEndian);
+        }
+        return switch (tag) {
+            case ByteTag ignored -> Byte.BYTES;
+            case ShortTag ignored -> Short.BYTES;
+            case IntTag intTag -> varIntSize(zigzag(intTag.getRawValue()));
+            case LongTag longTag -> varLongSize(zigzag(longTag.getRawValue()));
+            case FloatTag ignored -> Float.BYTES;
+            case DoubleTag ignored -> Double.BYTES;
+            case StringTag stringTag -> stringSize(stringTag.getRawValue());
+            case ByteArrayTag byteArrayTag -> lengthSize(byteArrayTag.size()) + (long) byteArrayTag.size();
+            case IntArrayTag intArrayTag -> {
+                long size = lengthSize(intArrayTag.size());
+                for (int value : intArrayTag.getRawValue()) {
+                    size += varIntSize(zigzag(value));
+                }
+                yield size;
+            }
+            case LongArrayTag longArrayTag -> {
+                long size = lengthSize(longArrayTag.size());
+                for (long value : longArrayTag.getRawValue()) {
+                    size += varLongSize(zigzag(value));
+                }
+                yield size;
+            }
+            case ListTag<?> listTag -> {
+                long size = 1 + lengthSize(listTag.size());
+                Object primitives = listTag.getPrimitiveArray();
+                if (primitives instanceof int[] values) {
+                    for (int value : values) {
+                        size += varIntSize(zigzag(value));
+                    }
+                } else if (primitives instanceof long[] values) {
+                    for (long value : values) {
+                        size += varLongSize(zigzag(value));
+                    }
+                } else if (primitives != null) {
+                    size += (long) NBTSkipper.fixedWidth(listTag.getElementTypeId()) * listTag.size();
+                } else {
+                    for (Tag element : listTag) {
+                        size += payloadSize(element);
+                    }
+                }
+                yield size;
+            }
+            case CompoundTag compoundTag -> {
+                long size = 1;
+                for (Tag entry : compoundTag) {
+                    size += 1 + stringSize(entry.getName()) + payloadSize(entry);
+                }
+                yield size;
+            }
+            default -> throw new IllegalArgumentException("Unsupported tag type: " + tag.getClass().getName());
+        };
+    }
+
+    private long stringSize(String s) {
+        int length = StringCodec.encodedLength(s, !littleEndian);
+        return (varInts ? varIntSize(length) : Short.BYTES) + (long) length;
+    }
+
+    private int lengthSize(int length) {
+        return varInts ? varIntSize(zigzag(length)) : Integer.BYTES;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varIntSize(int value) {
+        return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    private static int varLongSize(long value) {
+        return (70 - Long.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    private final class Decoder {
+        private final ByteBuffer in;
+        private final StringCodec strings = new StringCodec(!littleEndian);
+        private int depth;
+
+        Decoder(ByteBuffer in) {
+            this.in = in;
+        }
+
+        Tag readPayload(int id, String name) throws IOException {
+            return switch (id) {
+                case 1 -> new ByteTag(name, in.get());
+                case 2 -> new ShortTag(name, in.getShort());
+                case 3 -> new IntTag(name, readInt());
+                case 4 -> new LongTag(name, readLong());
+                case 5 -> new FloatTag(name, in.getFloat());
+                case 6 -> new DoubleTag(name, in.getDouble());
+                case 7 -> {
+                    byte[] value = new byte[readArrayLength(Byte.BYTES)];
+                    in.get(value);
+                    yield new ByteArrayTag(name, value);
+                }
+                case 8 -> new StringTag(name, readString());
+                case 9 -> readList(name);
+                case 10 -> readCompound(name);
+                case 11 -> new IntArrayTag(name, readInts());
+                case 12 -> new LongArrayTag(name, readLongs());
+                default -> throw new NBTParseException("Could not find tag with ID \"" + id + "\".");
+            };
+        }
+
+        private ListTag<Tag> readList(String name) throws IOException {
+            int typeId = in.get() & 0xFF;
+            int count = readLength();
+            if (count > 0 && typeId == 0) {
+                throw new NBTParseException("ListTag type is TAG_End but count is > 0");
+            }
+            // Every element takes at least one byte, which bounds what a corrupt count can allocate
+            if (count > in.remaining()) {
+                throw new NBTParseException("ListTag count " + count + " exceeds the remaining " + in.remaining() + " bytes");
+            }
+            ListTag<Tag> listTag = new ListTag<>(name, typeId);
+            enter();
+            for (int index = 0; index < count; index++) {
+                listTag.add(readPayload(typeId, ""));
+            }
+            depth--;
+            return listTag;
+        }
+
+        private CompoundTag readCompound(String name) throws IOException {
+            OrderedListMap<String, Tag> entries = new OrderedListMap<>();
+            enter();
+            int id;
+            while ((id = in.get() & 0xFF) != 0) {
+                String key = readString();
+                entries.put(key, readPayload(id, key));
+            }
+            depth--;
+            return new ReorderableCompoundTag(name, entries);
+        }
+
+        private void enter() throws NBTParseException {
+            if (++depth > MAX_DEPTH) {
+                throw new NBTParseException("NBT nesting depth exceeds the limit of " + MAX_DEPTH);
+            }
+        }
+
+        private int[] readInts() throws NBTParseException {
+            int[] values = new int[readArrayLength(varInts ? 1 : Integer.BYTES)];
+            if (varInts) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readInt();
+                }
+            } else {
+                in.asIntBuffer().get(values);
+                in.position(in.position() + values.length * Integer.BYTES);
+            }
+            return values;
+        }
+
+        private long[] readLongs() throws NBTParseException {
+            long[] values = new long[readArrayLength(varInts ? 1 : Long.BYTES)];
+            if (varInts) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readLong();
+                }
+            } else {
+                in.asLongBuffer().get(values);
+                in.position(in.position() + values.length * Long.BYTES);
+            }
+            return values;
+        }
+
+        private int readArrayLength(int minElementSize) throws NBTParseException {
+            int length = readLength();
+            if (length < 0) {
+                throw new NBTParseException("Negative array length: " + length);
+            }
+            if ((long) length * minElementSize > in.remaining()) {
+                throw new NBTParseException("Array length " + length + " exceeds the remaining " + in.remaining() + " bytes");
+            }
+            return length;
+        }
+
+        String readString() throws IOException {
+            int length = varInts ? readVarInt() : in.getShort() & 0xFFFF;
+            if (length < 0 || length > in.remaining()) {
+                throw new NBTParseException("String length " + Integer.toUnsignedString(length) + " exceeds the remaining " + in.remaining() + " bytes");
+            }
+            in.get(strings.buffer(length), 0, length);
+            return strings.decode(length);
+        }
+
+        private int readLength() throws NBTParseException {
+            return varInts ? readInt() : in.getInt();
+        }
+
+        private int readInt() throws NBTParseException {
+            if (!varInts) {
+                return in.getInt();
+            }
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readLong() throws NBTParseException {
+            if (!varInts) {
+                return in.getLong();
+            }
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return (value >>> 1) ^ -(value & 1);
+                }
+            }
+            throw new NBTParseException("VarLong is too long");
+        }
+
+        private int readVarInt() throws NBTParseException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new NBTParseException("VarInt is too long");
+        }
+    }
+
+    private final class Encoder {
+        private final ByteBuffer out;
+        private final StringCodec strings = new StringCodec(!littleEndian);
+
+        Encoder(ByteBuffer out) {
+            this.out = out;
+        }
+
+        void writePayload(Tag tag) throws IOException {
+            switch (tag) {
+                case CompoundTag compoundTag -> {
+                    for (Tag entry : compoundTag) {
+                        out.put((byte) entry.getTagId());
+                        writeString(entry.getName());
+                        writePayload(entry);
+                    }
+                    out.put((byte) 0);
+                }
+                case ListTag<?> listTag -> {
+                    out.put((byte) listTag.getElementTypeId());
+                    writeLength(listTag.size());
+                    Object primitives = listTag.getPrimitiveArray();
+                    if (primitives != null) {
+                        for (int i = 0; i < listTag.size(); i++) {
+                            writeElement(listTag.getElementTypeId(), primitives, i);
+                        }
+                    } else {
+                        for (Tag element : listTag.getRawValue()) {
+                            writePayload(element);
+                        }
+                    }
+                }
+                case StringTag stringTag -> writeString(stringTag.getRawValue());
+                case ByteArrayTag byteArrayTag -> {
+                    writeLength(byteArrayTag.size());
+                    out.put(byteArrayTag.getRawValue());
+                }
+                case IntArrayTag intArrayTag -> {
+                    int[] values = intArrayTag.getRawValue();
+                    writeLength(values.length);
+                    if (varInts) {
+                        for (int value : values) {
+                            writeVarInt(zigzag(value));
+                        }
+                    } else {
+                        out.asIntBuffer().put(values);
+                        out.position(out.position() + values.length * Integer.BYTES);
+                    }
+                }
+                case LongArrayTag longArrayTag -> {
+                    long[] values = longArrayTag.getRawValue();
+                    writeLength(values.length);
+                    if (varInts) {
+                        for (long value : values) {
+                            writeVarLong(zigzag(value));
+                        }
+                    } else {
+                        out.asLongBuffer().put(values);
+                        out.position(out.position() + values.length * Long.BYTES);
+                    }
+                }
+                case ByteTag byteTag -> out.put(byteTag.getRawValue());
+                case ShortTag shortTag -> out.putShort(shortTag.getRawValue());
+                case IntTag intTag -> {
+                    if (varInts) {
+                        writeVarInt(zigzag(intTag.getRawValue()));
+                    } else {
+                        out.putInt(intTag.getRawValue());
+                    }
+                }
+                case LongTag longTag -> {
+                    if (varInts) {
+                        writeVarLong(zigzag(longTag.getRawValue()));
+                    } else {
+                        out.putLong(longTag.getRawValue());
+                    }
+                }
+                // The bits the file writers produce, with NaN collapsed
+                case FloatTag floatTag -> out.putInt(Float.floatToIntBits(floatTag.getRawValue()));
+                case DoubleTag doubleTag -> out.putLong(Double.doubleToLongBits(doubleTag.getRawValue()));
+                default -> throw new IOException("Unsupported tag type: " + tag.getClass().getName());
+            }
+        }
+
+        // Writes an element of a list of numbers kept in an array, like writePayload writes its tag
+        private void writeElement(int typeId, Object primitives, int index) throws IOException {
+            switch (typeId) {
+                case ByteTag.ID -> out.put(((byte[]) primitives)[index]);
+                case ShortTag.ID -> out.putShort(((short[]) primitives)[index]);
+                case IntTag.ID -> {
+                    int value = ((int[]) primitives)[index];
+                    if (varInts) {
+                        writeVarInt(zigzag(value));
+                    } else {
+                        out.putInt(value);
+                    }
+                }
+                case LongTag.ID -> {
+                    long value = ((long[]) primitives)[index];
+                    if (varInts) {
+                        writeVarLong(zigzag(value));
+                    } else {
+                        out.putLong(value);
+                    }
+                }
+                case FloatTag.ID -> out.putInt(Float.floatToIntBits(((float[]) primitives)[index]));
+                case DoubleTag.ID -> out.putLong(Double.doubleToLongBits(((double[]) primitives)[index]));
+                default -> throw new IOException("Unsupported list element type: " + typeId);
+            }
+        }
+
+        void writeString(String s) throws IOException {
+            int length = strings.encode(s, varInts ? Integer.MAX_VALUE : StringCodec.MAX_LENGTH);
+            if (varInts) {
+                writeVarInt(length);
+            } else {
+                out.putShort((short) length);
+            }
+            out.put(strings.buffer(), 0, length);
+        }
+
+        private void writeLength(int length) {
+            if (varInts) {
+                writeVarInt(zigzag(length));
+            } else {
+                out.putInt(length);
+            }
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            out.put((byte) value);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            out.put((byte) value);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package tech.minediamond.micanbt.nbt;
+
+import tech.minediamond.micanbt.path.NBTPath;
+import tech.minediamond.micanbt.path.nbtpathtoken.IndexToken;
+import tech.minediamond.micanbt.path.nbtpathtoken.KeyToken;
+import tech.minediamond.micanbt.path.nbtpathtoken.PathToken;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/// Overwrites values in uncompressed NBT data in place, without decoding the document.
+///
+/// A path is resolved in a single forward pass: entries and elements in front of the target are
+/// passed over with [NBTSkipper], which only follows length prefixes, and keys are compared as
+/// encoded bytes. The payload found there is then overwritten directly. Only changes that keep the
+/// encoded size are possible, which are numbers of the same type and arrays of the same type and
+/// length; anything else needs the data to be read, modified and written again.
+///
+/// Paths are made of [KeyToken]s and [IndexToken]s and are resolved against the root compound, as
+/// with [Tag#at(NBTPath)]. Negative indices count from the end of a list.
+///
+/// ```java
+/// byte[] data = Files.readAllBytes(path); // uncompressed
+/// NBTPatcher.of(data).set("Data.Time", new LongTag("", 24000L));
+/// ```
+///
+/// The data is modified through the segment given at creation, so a patcher on a
+/// [mapped][java.nio.channels.FileChannel#map] segment writes to the file. A patcher is not
+/// thread-safe.
+public final class NBTPatcher {
+    private final MemorySegment segment;
+    private final MemorySegmentDataInput in;
+    private final StringCodec strings;
+    private final ValueLayout.OfShort shortLayout;
+    private final ValueLayout.OfInt intLayout;
+    private final ValueLayout.OfLong longLayout;
+    // The type ID of the payload found by the last call to locate
+    private int foundTypeId;
+
+    private NBTPatcher(MemorySegment segment, boolean littleEndian) {
+        ByteOrder order = littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        this.segment = segment;
+        this.in = new MemorySegmentDataInput(segment, littleEndian);
+        // Keys are compared in the encoding of the data: Modified UTF-8, or UTF-8 for little endian
+        this.strings = new StringCodec(!littleEndian);
+        this.shortLayout = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(order);
+        this.intLayout = ValueLayout.JAVA_INT_UNALIGNED.withOrder(order);
+        this.longLayout = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order);
+    }
+
+    /// Creates a patcher for big-endian data in a byte array.
+    ///
+    /// @param data The uncompressed document; modified in place.
+    /// @return A new patcher.
+    public static NBTPatcher of(byte[] data) {
+        return of(data, false);
+    }
+
+    /// Creates a patcher for data in a byte array.
+    ///
+    /// @param data         The uncompressed document; modified in place.
+    /// @param littleEndian Whether the data is in Little Endian byte order.
+    /// @return A new patcher.
+    public static NBTPatcher of(byte[] data, boolean littleEndian) {
+        return of(MemorySegment.ofArray(data), littleEndian);
+    }
+
+    /// Creates a patcher for the data between the position and the limit of a buffer.
+    ///
+    /// The byte order of the buffer itself is ignored and its position is not changed.
+    ///
+    /// @param buffer       The buffer holding the uncompressed document, which may be a
+    ///                     [java.nio.MappedByteBuffer].
+    /// @param littleEndian Whether the data is in Little Endian byte order.
+    /// @return A new patcher.
+    public static NBTPatcher of(ByteBuffer buffer, boolean littleEndian) {
+        return of(MemorySegment.ofBuffer(buffer), littleEndian);
+    }
+
+    /// Creates a patcher for data in a segment, which starts at the root type ID.
+    ///
+    /// @param segment      The segment holding the uncompressed document, such as a mapped file.
+    /// @param littleEndian Whether the data is in Little Endian byte order.
+    /// @return A new patcher.
+    public static NBTPatcher of(MemorySegment segment, boolean littleEndian) {
+        return new NBTPatcher(segment, littleEndian);
+    }
+
+    /// Finds the offset of the payload of the tag at a path.
+    ///
+    /// The payload of a number is its value; for an array it starts with the length.
+    ///
+    /// @param path The path from the root compound.
+    /// @return The offset in the segment, or `-1` if there is no tag at the path.
+    /// @throws NBTParseException       If the data is malformed or ends before the tag is found.
+    /// @throws IllegalArgumentException If the path has tokens other than keys and indices.
+    /// @throws IOException              If a key of the path is too long to encode.
+    public long offsetOf(NBTPath path) throws IOException {
+        return locate(path.getTokens());
+    }
+
+    /// Overwrites the tag at a path with the value of `value`.
+    ///
+    /// @param path  The path from the root compound.
+    /// @param value The new value. Its name is ignored.
+    /// @return `true` if the value was written, `false` if there is no tag at the path.
+    /// @throws IllegalArgumentException If the tag at the path has another type, is an array of another
+    ///                                  length, or cannot be changed in place; or if the path has tokens
+    ///                                  other than keys and indices.
+    /// @throws NBTParseException        If the data is malformed or ends before the tag is found.
+    /// @throws IOException              If a key of the path is too long to encode.
+    public boolean set(NBTPath path, Tag value) throws IOException {
+        long offset = locate(path.getTokens());
+        if (offset < 0) {
+            return false;
+        }
+        if (foundTypeId != value.getTagId()) {
+            throw new IllegalArgumentException("Tag at " + path + " has type ID " + foundTypeId + ", not " + value.getTagId());
+        }
+        switch (value) {
+            case ByteTag byteTag -> segment.set(ValueLayout.JAVA_BYTE, offset, byteTag.getRawValue());
+            case ShortTag shortTag -> segment.set(shortLayout, offset, shortTag.getRawValue());
+            case IntTag intTag -> segment.set(intLayout, offset, intTag.getRawValue());
+            case LongTag longTag -> segment.set(longLayout, offset, longTag.getRawValue());
+            // The bits the writers produce, with NaN collapsed
+            case FloatTag floatTag -> segment.set(intLayout, offset, Float.floatToIntBits(floatTag.getRawValue()));
+            case DoubleTag doubleTag -> segment.set(longLayout, offset, Double.doubleToLongBits(doubleTag.getRawValue()));
+            case ByteArrayTag byteArrayTag -> {
+                byte[] bytes = byteArrayTag.getRawValue();
+                checkLength(path, offset, bytes.length);
+                MemorySegment.copy(bytes, 0, segment, ValueLayout.JAVA_BYTE, offset + Integer.BYTES, bytes.length);
+            }
+            case IntArrayTag intArrayTag -> {
+                int[] ints = intArrayTag.getRawValue();
+                checkLength(path, offset, ints.length);
+                MemorySegment.copy(ints, 0, segment, intLayout, offset + Integer.BYTES, ints.length);
+            }
+            case LongArrayTag longArrayTag -> {
+                long[] longs = longArrayTag.getRawValue();
+                checkLength(path, offset, longs.length);
+                MemorySegment.copy(longs, 0, segment, longLayout, offset + Integer.BYTES, longs.length);
+            }
+            default -> throw new IllegalArgumentException(value.getClass().getSimpleName() + " at " + path +
+                    " cannot be changed in place");
+        }
+        return true;
+    }
+
+    /// Overwrites the tag at a path with the value of `value`.
+    ///
+    /// This is a convenience method that internally calls [NBTPath#of(String)].
+    ///
+    /// @param path  The path from the root compound.
+    /// @param value The new value. Its name is ignored.
+    /// @return `true` if the value was written, `false` if there is no tag at the path.
+    /// @throws IOException If the data is malformed or a key is too long to encode.
+    /// @see #set(NBTPath, Tag)
+    public boolean set(String path, Tag value) throws IOException {
+        return set(NBTPath.of(path), value);
+    }
+
+    private void checkLength(NBTPath path, long offset, int length) {
+        int current = segment.get(intLayout, offset);
+        if (current != length) {
+            throw new IllegalArgumentException("Array at " + path + " has " + current + " elements, not " + length);
+        }
+    }
+
+    private long locate(PathToken[] tokens) throws IOException {
+        in.position(0);
+        try {
+            int typeId = in.readUnsignedByte();
+            if (typeId != 10) {
+                throw new NBTParseException("NBT root must be a CompoundTag (ID 10), but found ID " + typeId);
+            }
+            NBTSkipper.skipFully(in, in.readUnsignedShort());
+            for (PathToken token : tokens) {
+                switch (token) {
+                    case KeyToken(String key) -> typeId = typeId == 10 ? findEntry(key) : 0;
+                    case IndexToken(int index) -> typeId = typeId == 9 ? findElement(index) : 0;
+                    default -> throw new IllegalArgumentException("Only keys and indices can be patched, found " +
+                            token.getClass().getSimpleName());
+                }
+                if (typeId == 0) {
+                    return -1;
+                }
+            }
+            foundTypeId = typeId;
+            return in.position();
+        } catch (EOFException e) {
+            throw new NBTParseException("Unexpected end of data", e);
+        }
+    }
+
+    // Moves to the payload of the entry named `key` in the compound at the position; 0 if it is absent
+    private int findEntry(String key) throws IOException {
+        int keyLength = strings.encode(key, StringCodec.MAX_LENGTH);
+        MemorySegment keyBytes = MemorySegment.ofArray(strings.buffer());
+        int id;
+        while ((id = in.readUnsignedByte()) != 0) {
+            int length = in.readUnsignedShort();
+            long start = in.position();
+            NBTSkipper.skipFully(in, length);
+            if (length == keyLength && MemorySegment.mismatch(segment, start, start + length, keyBytes, 0, length) < 0) {
+                return id;
+            }
+            NBTSkipper.skipTag(in, id);
+        }
+        return 0;
+    }
+
+    // Moves to the element at `index` of the list at the position; 0 if it is out of range
+    private int findElement(int index) throws IOException {
+        int typeId = in.readUnsignedByte();
+        int count = in.readInt();
+        int listIndex = index >= 0 ? index : count + index;
+        if (listIndex < 0 || listIndex >= count) {
+            return 0;
+        }
+        NBTSkipper.skipListElements(in, typeId, listIndex);
+        return typeId;
+    }
+}
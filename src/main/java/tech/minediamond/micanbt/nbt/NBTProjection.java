@@ -0,0 +1,155 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.path.NBTPath;
+import tech.minediamond.micanbt.path.nbtpathtoken.FilterToken;
+import tech.minediamond.micanbt.path.nbtpathtoken.IndexToken;
+import tech.minediamond.micanbt.path.nbtpathtoken.KeyToken;
+import tech.minediamond.micanbt.path.nbtpathtoken.PathToken;
+import tech.minediamond.micanbt.tag.Tag;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/// A trie of [NBTPath]s that tells a reader which parts of a document to materialize.
+///
+/// Each node stands for one container on the way to a requested tag. [KeyToken]s select
+/// compound entries and [IndexToken]s select list elements (negative indices are resolved
+/// against the list size once it is known). A [FilterToken] keeps the keys its pattern refers
+/// to, so that the filter can still be evaluated on the projected tree. Any other token, and
+/// the end of a path, keeps the whole subtree.
+final class NBTProjection {
+    private boolean keepAll;
+    private @Nullable Map<String, NBTProjection> keys;
+    private @Nullable Map<Integer, NBTProjection> indices;
+
+    private NBTProjection() {
+    }
+
+    static NBTProjection of(NBTPath... paths) {
+        NBTProjection root = new NBTProjection();
+        for (NBTPath path : paths) {
+            root.add(path.getTokens(), 0);
+        }
+        return root;
+    }
+
+    private static NBTProjection keepingAll() {
+        NBTProjection projection = new NBTProjection();
+        projection.keepAll = true;
+        return projection;
+    }
+
+    private void add(PathToken[] tokens, int from) {
+        if (keepAll) {
+            return;
+        }
+        if (from == tokens.length) {
+            keepAll = true;
+            keys = null;
+            indices = null;
+            return;
+        }
+        PathToken token = tokens[from];
+        if (token instanceof KeyToken keyToken) {
+            if (keys == null) {
+                keys = new HashMap<>();
+            }
+            keys.computeIfAbsent(keyToken.key(), k -> new NBTProjection()).add(tokens, from + 1);
+        } else if (token instanceof IndexToken indexToken) {
+            if (indices == null) {
+                indices = new HashMap<>();
+            }
+            indices.computeIfAbsent(indexToken.index(), i -> new NBTProjection()).add(tokens, from + 1);
+        } else if (token instanceof FilterToken filterToken) {
+            if (keys == null) {
+                keys = new HashMap<>();
+            }
+            for (Tag tag : filterToken.pattern()) {
+                keys.put(tag.getName(), keepingAll());
+            }
+            add(tokens, from + 1);
+        } else {
+            keepAll = true;
+            keys = null;
+            indices = null;
+        }
+    }
+
+    /// @return `true` if the whole subtree below this node is requested.
+    boolean keepsAll() {
+        return keepAll;
+    }
+
+    /// Gets the projection for a compound entry.
+    ///
+    /// @param key The key of the entry.
+    /// @return The projection of the entry, or `null` if the entry is not requested.
+    @Nullable NBTProjection key(String key) {
+        if (keepAll) {
+            return this;
+        }
+        return keys == null ? null : keys.get(key);
+    }
+
+    /// Gets the projection for a list element.
+    ///
+    /// @param index The index of the element.
+    /// @param count The size of the list.
+    /// @return The projection of the element, or `null` if the element is not requested.
+    @Nullable NBTProjection element(int index, int count) {
+        if (keepAll) {
+            return this;
+        }
+        if (indices == null) {
+            return null;
+        }
+        NBTProjection fromStart = indices.get(index);
+        NBTProjection fromEnd = indices.get(index - count);
+        if (fromStart == null || fromEnd == null) {
+            return fromStart != null ? fromStart : fromEnd;
+        }
+        return fromStart.merge(fromEnd);
+    }
+
+    /// Gets how many leading elements of a list must be kept so that every requested index
+    /// still resolves to the same element.
+    ///
+    /// @param count The size of the list.
+    /// @return The number of elements to keep.
+    int retainedLength(int count) {
+        if (keepAll) {
+            return count;
+        }
+        if (indices == null) {
+            return 0;
+        }
+        int length = 0;
+        for (int index : indices.keySet()) {
+            if (index < 0) {
+                return count;
+            }
+            length = Math.max(length, index + 1);
+        }
+        return Math.min(length, count);
+    }
+
+    private NBTProjection merge(NBTProjection other) {
+        if (keepAll || other.keepAll) {
+            return keepingAll();
+        }
+        NBTProjection merged = new NBTProjection();
+        merged.keys = mergeChildren(keys, other.keys);
+        merged.indices = mergeChildren(indices, other.indices);
+        return merged;
+    }
+
+    private static <K> @Nullable Map<K, NBTProjection> mergeChildren(@Nullable Map<K, NBTProjection> a, @Nullable Map<K, NBTProjection> b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        Map<K, NBTProjection> merged = new HashMap<>(a);
+        b.forEach((key, projection) -> merged.merge(key, projection, NBTProjection::merge));
+        return merged;
+    }
+}
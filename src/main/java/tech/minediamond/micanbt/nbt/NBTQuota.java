@@ -0,0 +1,34 @@
+package tech.minediamond.micanbt.nbt;
+
+/// Limits on the resources a single read may use, for input that cannot be trusted.
+///
+/// A quota is set with [NBTReader.Builder#quota(NBTQuota)] and checked while the document is
+/// decoded; the first limit that is crossed ends the read with an [NBTQuotaExceededException].
+///
+/// - **maxDepth** limits the nesting of compounds and lists. The root compound is at depth 1.
+/// - **maxTags** limits the number of tags, counting the root, every compound entry and every
+///   list element.
+/// - **maxBytes** limits the payload data that is decoded: the elements of byte, int and long
+///   arrays and of lists of numbers at their encoded size, and two bytes per character of strings
+///   and keys. Arrays and lists of numbers are charged before they are allocated, so a forged
+///   length is rejected without allocating it.
+///
+/// Tag objects themselves are limited by maxTags rather than counted in bytes. Together the limits
+/// bound the memory of one read, whatever the input declares.
+///
+/// @param maxDepth The largest depth of nested compounds and lists.
+/// @param maxTags  The largest number of tags.
+/// @param maxBytes The largest number of array and string bytes.
+public record NBTQuota(int maxDepth, long maxTags, long maxBytes) {
+    /// No limits; the default of a reader.
+    public static final NBTQuota UNLIMITED = new NBTQuota(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /// Creates a quota.
+    ///
+    /// @throws IllegalArgumentException If a limit is not positive.
+    public NBTQuota {
+        if (maxDepth <= 0 || maxTags <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("Quota limits must be positive: " + maxDepth + ", " + maxTags + ", " + maxBytes);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.Serial;
+
+/// Thrown when a read crosses one of the limits of its [NBTQuota].
+public class NBTQuotaExceededException extends NBTParseException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public NBTQuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,15 +1,23 @@
 package tech.minediamond.micanbt.nbt;
 
-import net.jpountz.lz4.LZ4BlockInputStream;
 import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.path.NBTPath;
 import tech.minediamond.micanbt.tag.*;
+import tech.minediamond.micanbt.util.map.OrderedListMap;
 
 import java.io.*;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.ZipException;
 
 /**
  * A reader for Named Binary Tag (NBT) data.
@@ -17,17 +25,65 @@ import java.util.zip.InflaterInputStream;
  * This class provides functionality to parse NBT data from various sources including
  * files, byte arrays, and {@link DataInput} streams. It supports automatic inference
  * of compression types (GZIP, ZLIB, or Uncompressed) and configurable byte order.
+ * <p>
+ * Byte arrays and memory-mapped files are decoded directly from memory through a
+ * {@link MemorySegment}; uncompressed data never passes through an {@link InputStream}.
+ * <p>
+ * In {@linkplain Builder#lazy(boolean) lazy} mode, compounds and lists are returned as
+ * deferred tags that remember their offset in the source and decode their children the first
+ * time they are accessed.
+ * <p>
+ * A {@linkplain Builder#columnar(boolean) columnar} read keeps lists of compounds in
+ * {@link CompoundColumns}, one column per key, instead of one map per element.
+ * <p>
+ * A {@linkplain Builder#project(NBTPath...) projected} read only materializes the subtrees on
+ * the requested paths and skips everything else using the length prefixes of the encoding.
  */
 public class NBTReader {
     private static final byte[] LZ4_MAGIC = new byte[]{'L', 'Z', '4', 'B', 'l', 'o', 'c', 'k'};
+    private static final int MAX_INITIAL_LIST_CAPACITY = 1024;
+    private static final int COMPOUND = -1;
+    // Columnar lists read their nested containers with createTag, so a columnar list inside the
+    // element of another one uses the call stack; past this nesting they are read as plain lists
+    private static final int MAX_COLUMNAR_NESTING = 64;
 
     private final @Nullable Path path;
     private final byte @Nullable [] data;
     private DataInput in;
     private @Nullable NBTCompressType compressType;
     private final boolean littleEndian;
-
-    private final CompoundTag tag;
+    private final boolean mapped;
+    private final boolean lazy;
+    private final boolean columnar;
+    private final @Nullable NBTVisitor visitor;
+    private final @Nullable NBTProjection projection;
+    private final PrimitiveArrayCodec arrays = new PrimitiveArrayCodec();
+    private final @Nullable KeyInterner keyInterner;
+    private final @Nullable StringPool stringPool;
+    private final NBTCodecPool codecPool;
+    private final StringCodec strings = new StringCodec(true);
+    private @Nullable StringCodec utf8Strings;
+
+    private final @Nullable CompoundTag tag;
+    private final boolean validating;
+    private @Nullable NBTValidationReport report;
+    private final @Nullable NBTHasher hasher;
+    private @Nullable NBTHash hash;
+    private final NBTAccounter accounter;
+    // The open compounds and lists of the tree being decoded: an OrderedListMap for a compound or a
+    // List of elements, the element type ID or COMPOUND, and the number of elements left in a list
+    private Object[] frames = new Object[16];
+    private int[] frameTypes = new int[16];
+    private int[] frameRemaining = new int[16];
+    private int depth;
+    private int columnarNesting;
+    private @Nullable Deferral deferral;
+
+    // What a deferred subtree of a lazy read needs to be decoded later. Loaders capture this instead
+    // of the reader, so a retained subtree does not keep the reader, its buffers or the root alive.
+    private record Deferral(boolean littleEndian, boolean columnar, @Nullable KeyInterner keyInterner,
+                            @Nullable StringPool stringPool, NBTCodecPool codecPool) {
+    }
 
     private NBTReader(Builder builder) throws IOException {
         if (builder.path == null && builder.data == null && builder.dataInput == null) {
@@ -37,14 +93,49 @@ public class NBTReader {
         this.data = builder.data;
         this.compressType = builder.compressType;
         this.littleEndian = builder.littleEndian;
+        this.mapped = builder.mapped;
+        this.visitor = builder.visitor;
+        this.validating = builder.validating;
+        this.hasher = builder.hasher;
+        this.lazy = builder.lazy && visitor == null && !validating && hasher == null && builder.quota.equals(NBTQuota.UNLIMITED);
+        this.columnar = builder.columnar;
+        this.accounter = new NBTAccounter(builder.quota);
+        this.projection = builder.projection;
+        this.keyInterner = builder.keyInterner;
+        this.stringPool = builder.stringPool;
+        this.codecPool = builder.codecPool;
         this.in = builder.dataInput;
         if (in != null) {
-            tag = readRoot();
+            tag = decode();
         } else {
             tag = inferenceAndRead();
         }
     }
 
+    // Decodes a single deferred subtree of a lazy read
+    private NBTReader(Deferral deferral, MemorySegment segment, long offset) {
+        this.path = null;
+        this.data = null;
+        this.compressType = NBTCompressType.UNCOMPRESSED;
+        this.littleEndian = deferral.littleEndian();
+        this.mapped = false;
+        this.lazy = true;
+        this.columnar = deferral.columnar();
+        this.visitor = null;
+        this.validating = false;
+        this.hasher = null;
+        this.accounter = new NBTAccounter(NBTQuota.UNLIMITED);
+        this.projection = null;
+        this.keyInterner = deferral.keyInterner();
+        this.stringPool = deferral.stringPool();
+        this.codecPool = deferral.codecPool();
+        this.deferral = deferral;
+        MemorySegmentDataInput input = new MemorySegmentDataInput(segment, littleEndian);
+        input.position(offset);
+        this.in = input;
+        this.tag = null;
+    }
+
     /**
      * Creates a new {@link Builder} to read NBT data from a file path.
      *
@@ -55,6 +146,20 @@ public class NBTReader {
         return new Builder(path);
     }
 
+    /**
+     * Creates a new {@link Builder} to read NBT data from a memory-mapped file.
+     * <p>
+     * The file is mapped read-only for the duration of the read and unmapped as soon as the
+     * root tag has been decoded. In lazy mode the mapping stays alive until all tags that may
+     * still read from it become unreachable.
+     *
+     * @param path The path to the NBT file.
+     * @return A new Builder instance.
+     */
+    public static Builder mappedBuilder(Path path) {
+        return new Builder(path, true);
+    }
+
     /**
      * Creates a new {@link Builder} to read NBT data from a {@link DataInput} source.
      *
@@ -81,28 +186,54 @@ public class NBTReader {
      * @return The parsed root {@link Tag}.
      */
     public CompoundTag getTag() {
-        return tag;
+        return Objects.requireNonNull(tag);
     }
 
-    private CompoundTag inferenceAndRead() throws IOException {
+    private @Nullable CompoundTag inferenceAndRead() throws IOException {
         return warpSource();
     }
 
-    private CompoundTag warpSource() throws IOException {
+    private @Nullable CompoundTag warpSource() throws IOException {
         if (path != null) {
+            if (mapped) {
+                return readMapped(path);
+            }
             try (InputStream is = new BufferedInputStream(Files.newInputStream(path))) {
                 return inferenceCompressType(is);
             }
         } else if (data != null) {
-            try (InputStream is = new ByteArrayInputStream(data)) {
-                return inferenceCompressType(is);
-            }
+            return inferenceCompressType(MemorySegment.ofArray(data));
         } else {
             throw new IOException("No input source provided to NBTReader");
         }
     }
 
-    private CompoundTag inferenceCompressType(InputStream is) throws IOException {
+    private @Nullable CompoundTag readMapped(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (lazy) {
+                // Deferred tags keep reading from the mapping, so leave unmapping to the garbage collector
+                return inferenceCompressType(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto()));
+            }
+            try (Arena arena = Arena.ofConfined()) {
+                return inferenceCompressType(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+            }
+        }
+    }
+
+    private @Nullable CompoundTag inferenceCompressType(MemorySegment segment) throws IOException {
+        if (compressType == null) {
+            byte[] header = new byte[(int) Math.min(8, segment.byteSize())];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, 0, header, 0, header.length);
+            compressType = detectCompressType(header, header.length);
+        }
+
+        if (compressType == NBTCompressType.UNCOMPRESSED) {
+            return readSegment(segment);
+        }
+        return inferenceCompressType(new MemorySegmentInputStream(segment));
+    }
+
+    private @Nullable CompoundTag inferenceCompressType(InputStream is) throws IOException {
         if (compressType == null) {
 
             byte[] header = new byte[8];
@@ -116,29 +247,57 @@ public class NBTReader {
             }
             is.reset();
 
-            if (read >= 3 && header[0] == 0x1f && header[1] == (byte) 0x8b && header[2] == 0x08) {
-                compressType = NBTCompressType.GZIP;
-            } else if (read >= 2 && (header[0] & 0x0F) == 8 && (header[0] >>> 4) <= 7 && (header[0] * 256 + header[1]) % 31 == 0) {
-                compressType = NBTCompressType.ZLIB;
-            } else if (read >= 8 && Arrays.equals(LZ4_MAGIC, header)) {
-                compressType = NBTCompressType.LZ4;
-            } else {
-                compressType = NBTCompressType.UNCOMPRESSED;
-            }
+            compressType = detectCompressType(header, read);
         }
 
-        try (InputStream in = switch (compressType) {
-            case UNCOMPRESSED -> is;
-            case GZIP -> new GZIPInputStream(is);
-            case ZLIB -> new InflaterInputStream(is);
-            case LZ4 -> new LZ4BlockInputStream(is);
-        }) {
+        try (InputStream in = codecPool.decompress(is, compressType)) {
+            if (lazy) {
+                // Deferred tags need random access to the decompressed payload
+                return readSegment(MemorySegment.ofArray(in.readAllBytes()));
+            }
             return inferenceLittleEndian(in);
         }
     }
 
-    private CompoundTag inferenceLittleEndian(InputStream in) throws IOException {
+    private static NBTCompressType detectCompressType(byte[] header, int read) {
+        if (read >= 3 && header[0] == 0x1f && header[1] == (byte) 0x8b && header[2] == 0x08) {
+            return NBTCompressType.GZIP;
+        } else if (read >= 2 && (header[0] & 0x0F) == 8 && (header[0] >>> 4) <= 7 && ((header[0] & 0xFF) * 256 + (header[1] & 0xFF)) % 31 == 0) {
+            return NBTCompressType.ZLIB;
+        } else if (read >= 8 && Arrays.equals(LZ4_MAGIC, header)) {
+            return NBTCompressType.LZ4;
+        } else {
+            return NBTCompressType.UNCOMPRESSED;
+        }
+    }
+
+    private @Nullable CompoundTag readSegment(MemorySegment segment) throws IOException {
+        this.in = new MemorySegmentDataInput(segment, littleEndian);
+        return decode();
+    }
+
+    private @Nullable CompoundTag inferenceLittleEndian(InputStream in) throws IOException {
+        if (validating && !(in instanceof BufferedInputStream)) {
+            // Validation mostly skips, and a decompressing stream skips by inflating into a fresh buffer per call
+            in = new BufferedInputStream(in, NBTCodecPool.BUFFER_SIZE);
+        }
         this.in = littleEndian ? new LittleEndianDataInputStream(in) : new DataInputStream(in);
+        return decode();
+    }
+
+    private @Nullable CompoundTag decode() throws IOException {
+        if (validating) {
+            report = NBTValidator.validate(in);
+            return null;
+        }
+        if (hasher != null) {
+            hash = hasher.hash(in);
+            return null;
+        }
+        if (visitor != null) {
+            new NBTStreamReader(in, visitor, accounter).readRoot();
+            return null;
+        }
         return readRoot();
     }
 
@@ -157,15 +316,63 @@ public class NBTReader {
         if (id == 0) {
             return null;
         }
-        String name = in.readUTF();
+        String name = readKey();
+        if (projection != null) {
+            return createProjectedTag(id, name, projection);
+        }
         return createTag(id, name);
     }
 
-    private Tag readAnonymousTag(int id) throws IOException {
-        return createTag(id, "");
+    // Gets the codec matching the string encoding of the input, or null for a DataInput that decodes its own strings
+    private @Nullable StringCodec codec() {
+        if (in instanceof DataInputStream) {
+            return strings;
+        } else if (in instanceof MemorySegmentDataInput || in instanceof LittleEndianDataInputStream) {
+            if (!littleEndian) {
+                return strings;
+            }
+            if (utf8Strings == null) {
+                utf8Strings = new StringCodec(false);
+            }
+            return utf8Strings;
+        }
+        return null;
     }
 
+    private String readUTF() throws IOException {
+        StringCodec codec = codec();
+        String value = codec != null ? codec.read(in) : in.readUTF();
+        accounter.chargeString(value);
+        return value;
+    }
+
+    private String readKey() throws IOException {
+        StringCodec codec = codec();
+        String key;
+        if (codec == null) {
+            key = in.readUTF();
+        } else if (keyInterner == null) {
+            key = codec.read(in);
+        } else {
+            key = keyInterner.intern(codec, codec.readBytes(in));
+        }
+        accounter.chargeString(key);
+        return key;
+    }
+
+    // Decodes a tag and everything below it. Compounds and lists are not decoded by recursion: they
+    // are opened as frames on an explicit stack and filled by the loop in readFrames, so the nesting
+    // of the document never reaches the call stack
     private Tag createTag(int id, String name) throws IOException {
+        int base = depth;
+        Tag tag = openTag(id, name);
+        readFrames(base);
+        return tag;
+    }
+
+    // Reads a leaf, or creates an empty compound or list and pushes a frame to fill it
+    private Tag openTag(int id, String name) throws IOException {
+        accounter.countTag();
         return switch (id) {
             case 1 -> new ByteTag(name, in.readByte());
             case 2 -> new ShortTag(name, in.readShort());
@@ -174,63 +381,320 @@ public class NBTReader {
             case 5 -> new FloatTag(name, in.readFloat());
             case 6 -> new DoubleTag(name, in.readDouble());
             case 7 -> readByteArrayTag(name);
-            case 8 -> new StringTag(name, in.readUTF());
-            case 9 -> readListTag(name);
-            case 10 -> readCompoundTag(name);
+            case 8 -> stringPool != null ? new StringTag(name, readUTF(), stringPool) : new StringTag(name, readUTF());
+            case 9 -> openListTag(name);
+            case 10 -> openCompoundTag(name);
             case 11 -> readIntArrayTag(name);
             case 12 -> readLongArrayTag(name);
             default -> throw new NBTParseException("Could not find tag with ID \"" + id + "\".");
         };
     }
 
-    private CompoundTag readCompoundTag(String name) throws IOException {
-        CompoundTag compoundTag = new ReorderableCompoundTag(name);
+    // Fills the frames above `base` until they are all closed
+    @SuppressWarnings("unchecked")
+    private void readFrames(int base) throws IOException {
         try {
-            Tag tag;
-            while ((tag = readNamedTag()) != null) {
-                compoundTag.put(tag);
+            while (depth > base) {
+                int top = depth - 1;
+                Object container = frames[top];
+                int typeId = frameTypes[top];
+                if (typeId == COMPOUND) {
+                    int id = in.readUnsignedByte();
+                    if (id == 0) {
+                        pop();
+                    } else {
+                        String key = readKey();
+                        ((OrderedListMap<String, Tag>) container).put(key, openTag(id, key));
+                    }
+                } else if (frameRemaining[top] > 0) {
+                    frameRemaining[top]--;
+                    ((List<Tag>) container).add(openTag(typeId, ""));
+                } else {
+                    pop();
+                }
             }
         } catch (EOFException e) {
             throw new NBTParseException("Closing EndTag was not found!");
         }
+    }
+
+    private void push(Object container, int typeId, int remaining) throws NBTQuotaExceededException {
+        accounter.enter();
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+            frameTypes = Arrays.copyOf(frameTypes, depth * 2);
+            frameRemaining = Arrays.copyOf(frameRemaining, depth * 2);
+        }
+        frames[depth] = container;
+        frameTypes[depth] = typeId;
+        frameRemaining[depth] = remaining;
+        depth++;
+    }
+
+    private void pop() {
+        frames[--depth] = null;
+        accounter.exit();
+    }
+
+    private CompoundTag openCompoundTag(String name) throws IOException {
+        if (lazy && in instanceof MemorySegmentDataInput source) {
+            MemorySegment segment = source.segment();
+            long offset = source.position();
+            NBTSkipper.skipCompoundEntries(in);
+            Deferral deferral = deferral();
+            return ReorderableCompoundTag.deferred(name, () -> {
+                try {
+                    return new NBTReader(deferral, segment, offset).readCompoundEntries();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        OrderedListMap<String, Tag> entries = new OrderedListMap<>();
+        push(entries, COMPOUND, 0);
+        return new ReorderableCompoundTag(name, entries);
+    }
 
-        return compoundTag;
+    private Deferral deferral() {
+        if (deferral == null) {
+            deferral = new Deferral(littleEndian, columnar, keyInterner, stringPool, codecPool);
+        }
+        return deferral;
     }
 
-    private ListTag<Tag> readListTag(String name) throws IOException {
+    private OrderedListMap<String, Tag> readCompoundEntries() throws IOException {
+        OrderedListMap<String, Tag> entries = new OrderedListMap<>();
+        int base = depth;
+        push(entries, COMPOUND, 0);
+        readFrames(base);
+        return entries;
+    }
+
+    private ListTag<?> openListTag(String name) throws IOException {
         int typeId = in.readUnsignedByte();
-        ListTag<Tag> listTag = new ListTag<>(name, typeId);
         int count = in.readInt();
 
         if (count > 0 && typeId == 0) {
             throw new NBTParseException("ListTag type is TAG_End but count is > 0");
         }
+        // Columns are already a compact form, so a lazy read fills them instead of deferring the list
+        if (columnar && typeId == 10 && columnarNesting < MAX_COLUMNAR_NESTING) {
+            return readColumnarListTag(name, count);
+        }
+        if (lazy && in instanceof MemorySegmentDataInput source) {
+            MemorySegment segment = source.segment();
+            long offset = source.position();
+            NBTSkipper.skipListElements(in, typeId, count);
+            Deferral deferral = deferral();
+            return ListTag.deferred(name, typeId, () -> {
+                try {
+                    return new NBTReader(deferral, segment, offset).readListElements(typeId, count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        if (NBTSkipper.fixedWidth(typeId) > 0) {
+            return readPrimitiveListTag(name, typeId, count);
+        }
+        ListTag<Tag> listTag = new ListTag<>(name, typeId);
+        openElements(listTag.getRawValue(), typeId, count);
+        return listTag;
+    }
+
+    // Numbers are kept in a primitive array; their tags are only created if they are accessed as tags
+    private ListTag<?> readPrimitiveListTag(String name, int typeId, int count) throws IOException {
+        int length = Math.max(count, 0);
+        accounter.enter();
+        accounter.countTags(length);
+        // Charged before the array is allocated, like the elements of an array tag
+        accounter.charge((long) length * NBTSkipper.fixedWidth(typeId));
+        ListTag<?> listTag = switch (typeId) {
+            case 1 -> ListTag.of(name, arrays.readByteArray(in, length));
+            case 2 -> ListTag.of(name, arrays.readShortArray(in, length));
+            case 3 -> ListTag.of(name, arrays.readIntArray(in, length));
+            case 4 -> ListTag.of(name, arrays.readLongArray(in, length));
+            case 5 -> ListTag.of(name, arrays.readFloatArray(in, length));
+            case 6 -> ListTag.of(name, arrays.readDoubleArray(in, length));
+            default -> throw new NBTParseException("Could not find tag with ID \"" + typeId + "\".");
+        };
+        accounter.exit();
+        return listTag;
+    }
+
+    // The entries of the elements go straight into the columns; numbers and strings create no tags
+    private ListTag<CompoundTag> readColumnarListTag(String name, int count) throws IOException {
+        CompoundColumns columns = new CompoundColumns(Math.clamp(count, 0, MAX_INITIAL_LIST_CAPACITY));
+        columnarNesting++;
+        accounter.enter();
         for (int index = 0; index < count; index++) {
-            listTag.add(readAnonymousTag(typeId));
+            accounter.countTag();
+            accounter.enter();
+            int row = columns.addRow();
+            for (int id = in.readUnsignedByte(); id != 0; id = in.readUnsignedByte()) {
+                String key = readKey();
+                switch (id) {
+                    case 1 -> {
+                        accounter.countTag();
+                        columns.putByte(row, key, in.readByte());
+                    }
+                    case 2 -> {
+                        accounter.countTag();
+                        columns.putShort(row, key, in.readShort());
+                    }
+                    case 3 -> {
+                        accounter.countTag();
+                        columns.putInt(row, key, in.readInt());
+                    }
+                    case 4 -> {
+                        accounter.countTag();
+                        columns.putLong(row, key, in.readLong());
+                    }
+                    case 5 -> {
+                        accounter.countTag();
+                        columns.putFloat(row, key, in.readFloat());
+                    }
+                    case 6 -> {
+                        accounter.countTag();
+                        columns.putDouble(row, key, in.readDouble());
+                    }
+                    case 8 -> {
+                        accounter.countTag();
+                        String value = readUTF();
+                        columns.putString(row, key, stringPool != null ? stringPool.intern(value) : value);
+                    }
+                    default -> columns.put(row, createTag(id, key));
+                }
+            }
+            accounter.exit();
+        }
+        accounter.exit();
+        columnarNesting--;
+        return ListTag.of(name, columns);
+    }
+
+    private List<Tag> readListElements(int typeId, int count) throws IOException {
+        // The count is not trusted with the allocation; the list grows as elements arrive
+        List<Tag> elements = new ArrayList<>(Math.clamp(count, 0, MAX_INITIAL_LIST_CAPACITY));
+        int base = depth;
+        openElements(elements, typeId, count);
+        readFrames(base);
+        return elements;
+    }
+
+    // Elements that are compounds or lists are left to a frame; any other elements are read right away
+    private void openElements(List<Tag> elements, int typeId, int count) throws IOException {
+        if (typeId == 9 || typeId == 10) {
+            push(elements, typeId, count);
+            return;
         }
+        accounter.enter();
+        for (int index = 0; index < count; index++) {
+            elements.add(openTag(typeId, ""));
+        }
+        accounter.exit();
+    }
+
+    private Tag createProjectedTag(int id, String name, NBTProjection projection) throws IOException {
+        if (projection.keepsAll()) {
+            return createTag(id, name);
+        }
+        return switch (id) {
+            case 9 -> readProjectedListTag(name, projection);
+            case 10 -> readProjectedCompoundTag(name, projection);
+            default -> createTag(id, name);
+        };
+    }
+
+    private CompoundTag readProjectedCompoundTag(String name, NBTProjection projection) throws IOException {
+        OrderedListMap<String, Tag> entries = new OrderedListMap<>();
+        accounter.countTag();
+        accounter.enter();
+        try {
+            int id;
+            while ((id = in.readUnsignedByte()) != 0) {
+                String key = readKey();
+                NBTProjection child = projection.key(key);
+                if (child == null) {
+                    NBTSkipper.skipTag(in, id);
+                } else {
+                    entries.put(key, createProjectedTag(id, key, child));
+                }
+            }
+        } catch (EOFException e) {
+            throw new NBTParseException("Closing EndTag was not found!");
+        }
+        accounter.exit();
+        return new ReorderableCompoundTag(name, entries);
+    }
+
+    private ListTag<?> readProjectedListTag(String name, NBTProjection projection) throws IOException {
+        int typeId = in.readUnsignedByte();
+        int count = in.readInt();
+
+        if (count > 0 && typeId == 0) {
+            throw new NBTParseException("ListTag type is TAG_End but count is > 0");
+        }
+        accounter.countTag();
+        if (NBTSkipper.fixedWidth(typeId) > 0) {
+            // Skipping a primitive costs as much as decoding it
+            return readPrimitiveListTag(name, typeId, count);
+        }
+        // Elements before a requested index are kept as empty placeholders so that indices still resolve
+        int retained = projection.retainedLength(count);
+        List<Tag> elements = new ArrayList<>(Math.min(retained, MAX_INITIAL_LIST_CAPACITY));
+        accounter.enter();
+        for (int index = 0; index < retained; index++) {
+            NBTProjection child = projection.element(index, count);
+            if (child == null) {
+                NBTSkipper.skipTag(in, typeId);
+                elements.add(emptyTag(typeId));
+            } else {
+                elements.add(createProjectedTag(typeId, "", child));
+            }
+        }
+        accounter.exit();
+        NBTSkipper.skipListElements(in, typeId, count - retained);
+        ListTag<Tag> listTag = new ListTag<>(name, typeId);
+        listTag.setValue(elements);
         return listTag;
     }
 
+    private static Tag emptyTag(int id) throws NBTParseException {
+        return switch (id) {
+            case 7 -> new ByteArrayTag("", new byte[0]);
+            case 8 -> new StringTag("", "");
+            case 9 -> new ListTag<>("");
+            case 10 -> new ReorderableCompoundTag("");
+            case 11 -> new IntArrayTag("", new int[0]);
+            case 12 -> new LongArrayTag("", new long[0]);
+            default -> throw new NBTParseException("Could not find tag with ID \"" + id + "\".");
+        };
+    }
+
     private ByteArrayTag readByteArrayTag(String name) throws IOException {
-        byte[] value = new byte[in.readInt()];
-        in.readFully(value);
-        return new ByteArrayTag(name, value);
+        int length = readArrayLength(Byte.BYTES);
+        return new ByteArrayTag(name, arrays.readByteArray(in, length));
     }
 
     private IntArrayTag readIntArrayTag(String name) throws IOException {
-        int[] value = new int[in.readInt()];
-        for (int i = 0; i < value.length; i++) {
-            value[i] = in.readInt();
-        }
-        return new IntArrayTag(name, value);
+        int length = readArrayLength(Integer.BYTES);
+        return new IntArrayTag(name, arrays.readIntArray(in, length));
     }
 
     private LongArrayTag readLongArrayTag(String name) throws IOException {
-        long[] value = new long[in.readInt()];
-        for (int i = 0; i < value.length; i++) {
-            value[i] = in.readLong();
+        int length = readArrayLength(Long.BYTES);
+        return new LongArrayTag(name, arrays.readLongArray(in, length));
+    }
+
+    // Reads an array length and charges the elements to the quota before they are allocated
+    private int readArrayLength(int width) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new NBTParseException("Negative array length: " + length);
         }
-        return new LongArrayTag(name, value);
+        accounter.charge((long) length * width);
+        return length;
     }
 
     /**
@@ -244,11 +708,27 @@ public class NBTReader {
         // compressed and littleEndian are only required when using path, not needed when using dataInput
         private @Nullable NBTCompressType compressType; // When not specified, it is automatically inferred; otherwise, the specified value is used.
         private boolean littleEndian = false;
+        private boolean mapped = false;
+        private boolean lazy = false;
+        private boolean columnar = false;
+        private @Nullable NBTVisitor visitor;
+        private boolean validating = false;
+        private @Nullable NBTHasher hasher;
+        private @Nullable NBTProjection projection;
+        private @Nullable KeyInterner keyInterner;
+        private @Nullable StringPool stringPool;
+        private NBTCodecPool codecPool = NBTCodecPool.shared();
+        private NBTQuota quota = NBTQuota.UNLIMITED;
 
         private Builder(Path path) {
             this.path = path;
         }
 
+        private Builder(Path path, boolean mapped) {
+            this.path = path;
+            this.mapped = mapped;
+        }
+
         private Builder(DataInput dataInput) {
             this.dataInput = dataInput;
         }
@@ -281,6 +761,159 @@ public class NBTReader {
             return this;
         }
 
+        /**
+         * Sets whether compounds and lists should be decoded lazily.
+         * <p>
+         * When enabled, every compound and list is returned as a deferred tag that only records
+         * its offset into the source and decodes its children the first time they are accessed.
+         * Unread subtrees are skipped structurally and allocate nothing. Compressed input is
+         * decompressed into memory once so that deferred tags can return to it later; a byte array
+         * source must therefore not be modified while deferred tags are still unread.
+         * <p>
+         * Deferred tags decode on first access without locking, so a lazily read tree must not be
+         * shared between threads until it is frozen with {@link Tag#freeze()}, which decodes it
+         * completely. Each deferred tag skips over its own subtrees again when it is decoded, so
+         * decoding all of a deeply nested tree costs more than an eager read; this option pays off
+         * when most of the tree is never accessed.
+         * <p>
+         * Decoding errors inside a deferred subtree surface as an {@link UncheckedIOException} on
+         * first access. This option has no effect when reading from a {@link DataInput}.
+         * Default is {@code false}.
+         *
+         * @param lazy {@code true} to defer decoding of subtrees.
+         * @return This builder instance.
+         */
+        public Builder lazy(boolean lazy) {
+            this.lazy = lazy;
+            return this;
+        }
+
+        /**
+         * Sets whether lists of compounds should be read into columns.
+         * <p>
+         * When enabled, every list of compounds is returned as a
+         * {@linkplain ListTag#of(String, CompoundColumns) columnar list}: the values of each key are
+         * kept together in one column of {@link CompoundColumns}, numbers in primitive arrays and
+         * strings in a {@code String[]}, and the elements are views of one row each. Lists whose
+         * elements share their keys, such as {@code Items} or {@code Entities}, then take a
+         * fraction of the memory of a map per element, and a scan over one key is a loop over an
+         * array. Entries of an element are iterated in the order they were read.
+         * <p>
+         * A {@linkplain #lazy(boolean) lazy} read does not defer lists of compounds but fills their
+         * columns as soon as the compound or list holding them is decoded; the compounds and other
+         * lists nested in their elements stay deferred. Default is {@code false}.
+         *
+         * @param columnar {@code true} to read lists of compounds into columns.
+         * @return This builder instance.
+         */
+        public Builder columnar(boolean columnar) {
+            this.columnar = columnar;
+            return this;
+        }
+
+        /**
+         * Sets the interner used to canonicalize compound keys.
+         * <p>
+         * Every key is looked up by its encoded bytes first; a hit returns the shared
+         * {@link String} instance without decoding the key at all. Sharing one interner between
+         * readers makes all trees read through it share their key strings, for example
+         * {@link KeyInterner#shared()}. Keys read from a {@link DataInput} of an unknown
+         * implementation are not interned. Default is {@code null} (no interning).
+         *
+         * @param keyInterner The interner, or {@code null} to disable interning.
+         * @return This builder instance.
+         */
+        public Builder keyInterner(@Nullable KeyInterner keyInterner) {
+            this.keyInterner = keyInterner;
+            return this;
+        }
+
+        /**
+         * Sets the pool that supplies inflaters and buffers for GZIP and ZLIB input.
+         * Default is {@link NBTCodecPool#shared()}.
+         *
+         * @param codecPool The codec pool.
+         * @return This builder instance.
+         */
+        public Builder codecPool(NBTCodecPool codecPool) {
+            this.codecPool = codecPool;
+            return this;
+        }
+
+        /**
+         * Sets the pool used to deduplicate the values of {@link StringTag}s.
+         * <p>
+         * Equal values read through the same pool share one {@link String} instance. The
+         * counters of the pool tell how many duplicates were dropped. Default is {@code null}
+         * (no pooling).
+         *
+         * @param stringPool The pool, or {@code null} to disable pooling.
+         * @return This builder instance.
+         */
+        public Builder stringPool(@Nullable StringPool stringPool) {
+            this.stringPool = stringPool;
+            return this;
+        }
+
+        /**
+         * Sets the limits on depth, tag count and allocated bytes of a read.
+         * <p>
+         * The quota is checked while the tree is built and while a {@linkplain #visit(NBTVisitor)
+         * visitor} is fed, and a read that crosses a limit fails with an
+         * {@link NBTQuotaExceededException}. Array lengths are charged before the array is
+         * allocated. Independently of the quota, arrays are never allocated at a declared length
+         * the input cannot back: lengths are checked against the remaining size of a byte array or
+         * mapped file, and arrays read from a stream grow as their data arrives. The
+         * {@linkplain #lazy(boolean) lazy} option is ignored when a quota is set, since deferred
+         * subtrees would be decoded outside the read. Default is {@link NBTQuota#UNLIMITED}.
+         *
+         * @param quota The limits.
+         * @return This builder instance.
+         */
+        public Builder quota(NBTQuota quota) {
+            this.quota = Objects.requireNonNull(quota, "quota");
+            return this;
+        }
+
+        /**
+         * Restricts decoding to the subtrees addressed by the given paths.
+         * <p>
+         * Paths are resolved against the root compound while parsing. Compound entries that no
+         * path goes through are skipped without being decoded, using the length prefixes of
+         * strings and arrays and a structural skip for compounds and lists. In lists of
+         * compounds, lists, strings or arrays, elements in front of a requested index are
+         * replaced by empty tags of the same type and trailing elements are dropped, unless a
+         * negative index requires the full length. Lists of primitives are always kept whole.
+         * Filter tokens keep the keys their pattern refers to; match tokens keep the whole list.
+         * <p>
+         * The resulting tree is partial, but {@link Tag#at(String)} resolves every projected path
+         * to the same tag as on a full read. Calling this method again replaces the previous
+         * projection; calling it with no paths disables projection. The {@linkplain #lazy(boolean)
+         * lazy} option still applies to the subtrees that are kept.
+         *
+         * @param paths The paths to keep.
+         * @return This builder instance.
+         */
+        public Builder project(NBTPath... paths) {
+            this.projection = paths.length == 0 ? null : NBTProjection.of(paths);
+            return this;
+        }
+
+        /**
+         * Restricts decoding to the subtrees addressed by the given paths.
+         *
+         * @param paths The paths to keep, in NBT path syntax.
+         * @return This builder instance.
+         * @see #project(NBTPath...)
+         */
+        public Builder project(String... paths) {
+            NBTPath[] parsed = new NBTPath[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                parsed[i] = NBTPath.of(paths[i]);
+            }
+            return project(parsed);
+        }
+
         /**
          * Constructs the {@link NBTReader} and performs the reading operation.
          *
@@ -291,6 +924,71 @@ public class NBTReader {
             return new NBTReader(this);
         }
 
+        /**
+         * Streams the NBT data through the given visitor instead of building a tag tree.
+         * <p>
+         * Decompression, byte order and source handling follow the same settings as
+         * {@link #getTag()}; the {@linkplain #lazy(boolean) lazy} option is ignored.
+         *
+         * @param visitor The visitor that receives the decoded events.
+         * @throws IOException If an I/O error occurs during reading.
+         * @see NBTStreamReader
+         */
+        public void visit(NBTVisitor visitor) throws IOException {
+            this.visitor = visitor;
+            try {
+                new NBTReader(this);
+            } finally {
+                this.visitor = null;
+            }
+        }
+
+        /**
+         * Checks the structure of the NBT data without building a tag tree.
+         * <p>
+         * The data is walked once, checking the root type, every tag ID and list element type,
+         * length bounds and closing End tags; payloads are skipped and no {@link Tag} is
+         * allocated. Malformed or truncated data, including a corrupt compressed stream, is
+         * reported rather than thrown. Decompression, byte order and source handling follow the
+         * same settings as {@link #getTag()}; the {@linkplain #lazy(boolean) lazy} option is ignored.
+         *
+         * @return The report, with the byte offset of the first problem if there is one.
+         * @throws IOException If the source cannot be opened.
+         */
+        public NBTValidationReport validate() throws IOException {
+            this.validating = true;
+            try {
+                return Objects.requireNonNull(new NBTReader(this).report);
+            } catch (ZipException | EOFException e) {
+                // The compression header could not be read
+                return new NBTValidationReport("Could not read data: " + e.getMessage(), 0, 0, 0, 0);
+            } finally {
+                this.validating = false;
+            }
+        }
+
+        /**
+         * Computes the content hash of the NBT data without building a tag tree.
+         * <p>
+         * The document is hashed while it is decoded, allocating nothing per tag. The result equals
+         * {@link Tag#contentHash(boolean)} of the root compound that {@link #getTag()} would return.
+         * Decompression, byte order and source handling follow the same settings as
+         * {@link #getTag()}; the {@linkplain #lazy(boolean) lazy} and projection options are ignored.
+         *
+         * @param hasher The hasher, which decides whether compound entries are hashed in order.
+         * @return The hash.
+         * @throws IOException If an I/O error occurs or the NBT format is invalid.
+         * @see NBTHasher
+         */
+        public NBTHash hash(NBTHasher hasher) throws IOException {
+            this.hasher = hasher;
+            try {
+                return Objects.requireNonNull(new NBTReader(this).hash);
+            } finally {
+                this.hasher = null;
+            }
+        }
+
         /**
          * A convenience method that builds the reader and returns the root tag immediately.
          *
@@ -0,0 +1,112 @@
+package tech.minediamond.micanbt.nbt;
+
+import tech.minediamond.micanbt.tag.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/// Computes the exact number of bytes a tag occupies in the uncompressed binary format.
+///
+/// The result matches what [NBTWriter] produces byte for byte, so it can be used to allocate an
+/// output buffer once, or to check a protocol size limit before encoding anything. Strings are
+/// measured in Modified UTF-8 for big-endian output and in standard UTF-8 for little-endian output,
+/// like the writer encodes them.
+///
+/// Sizing walks the tree once without allocating. Deferred tags of a lazy read are materialized.
+public final class NBTSizer {
+    private NBTSizer() {
+    }
+
+    /// Computes the size of a big-endian document with `tag` as its named root.
+    ///
+    /// @param tag The root tag.
+    /// @return The encoded size in bytes.
+    public static long uncompressedSize(Tag tag) {
+        return uncompressedSize(tag, false);
+    }
+
+    /// Computes the size of a document with `tag` as its named root.
+    ///
+    /// @param tag          The root tag.
+    /// @param littleEndian Whether the document is written in little-endian byte order.
+    /// @return The encoded size in bytes.
+    public static long uncompressedSize(Tag tag, boolean littleEndian) {
+        return 1 + stringSize(tag.getName(), littleEndian) + payloadSize(tag, littleEndian);
+    }
+
+    /// Computes the size of the payload of a tag, without its type ID and name.
+    ///
+    /// @param tag          The tag.
+    /// @param littleEndian Whether the tag is written in little-endian byte order.
+    /// @return The encoded size in bytes.
+    public static long payloadSize(Tag tag, boolean littleEndian) {
+        // Containers are walked with an explicit stack, like NBTWriter, so depth is not bounded by the call stack
+        Iterator<?>[] frames = new Iterator<?>[16];
+        boolean[] compoundFrames = new boolean[16];
+        int depth = 0;
+        long size = 0;
+        Tag next = tag;
+        while (next != null) {
+            Iterator<?> children = null;
+            switch (next.getTagId()) {
+                case ListTag.ID -> {
+                    ListTag<?> listTag = (ListTag<?>) next;
+                    size += 1 + Integer.BYTES;
+                    int fixedWidth = NBTSkipper.fixedWidth(listTag.getElementTypeId());
+                    if (fixedWidth > 0) {
+                        size += (long) fixedWidth * listTag.size();
+                    } else {
+                        children = listTag.iterator();
+                    }
+                }
+                case CompoundTag.ID -> {
+                    size += 1;
+                    children = ((CompoundTag) next).iterator();
+                }
+                default -> size += leafSize(next, littleEndian);
+            }
+            if (children != null) {
+                if (depth == frames.length) {
+                    frames = Arrays.copyOf(frames, depth * 2);
+                    compoundFrames = Arrays.copyOf(compoundFrames, depth * 2);
+                }
+                frames[depth] = children;
+                compoundFrames[depth++] = next.getTagId() == CompoundTag.ID;
+            }
+
+            next = null;
+            while (depth > 0) {
+                Iterator<?> iterator = frames[depth - 1];
+                if (iterator.hasNext()) {
+                    next = (Tag) iterator.next();
+                    if (compoundFrames[depth - 1]) {
+                        size += 1 + stringSize(next.getName(), littleEndian);
+                    }
+                    break;
+                }
+                frames[--depth] = null;
+            }
+        }
+        return size;
+    }
+
+    private static long leafSize(Tag tag, boolean littleEndian) {
+        return switch (tag.getTagId()) {
+            case ByteTag.ID -> Byte.BYTES;
+            case ShortTag.ID -> Short.BYTES;
+            case IntTag.ID -> Integer.BYTES;
+            case LongTag.ID -> Long.BYTES;
+            case FloatTag.ID -> Float.BYTES;
+            case DoubleTag.ID -> Double.BYTES;
+            case StringTag.ID -> stringSize(((StringTag) tag).getRawValue(), littleEndian);
+            case ByteArrayTag.ID -> Integer.BYTES + (long) ((ByteArrayTag) tag).size();
+            case IntArrayTag.ID -> Integer.BYTES + (long) ((IntArrayTag) tag).size() * Integer.BYTES;
+            case LongArrayTag.ID -> Integer.BYTES + (long) ((LongArrayTag) tag).size() * Long.BYTES;
+            default -> throw new IllegalArgumentException("Unsupported tag type: " + tag.getClass().getName());
+        };
+    }
+
+    private static long stringSize(String s, boolean littleEndian) {
+        return Short.BYTES + StringCodec.encodedLength(s, !littleEndian);
+    }
+}
@@ -0,0 +1,187 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/// Skips over encoded tag payloads without decoding them.
+///
+/// Fixed-width payloads and arrays are skipped by their length prefixes; compounds and lists
+/// are walked structurally so that no [tech.minediamond.micanbt.tag.Tag] is allocated. The readers
+/// of this package use it to pass over data they do not need, and custom readers working on a
+/// [DataInput] can do the same. Inputs created by this package skip in constant time.
+///
+/// Nested compounds and lists are tracked on a stack of their own instead of the call stack, so
+/// any depth of nesting can be skipped.
+public final class NBTSkipper {
+    private NBTSkipper() {
+    }
+
+    // The count of an open compound on the stack of skip(); lists with no elements left are never pushed
+    private static final int COMPOUND = -1;
+
+    /// Skips the payload of a tag whose type ID has already been read.
+    ///
+    /// @param in The input positioned at the start of the payload.
+    /// @param id The type ID of the tag.
+    /// @throws IOException If the input ends early or contains an unknown type ID.
+    public static void skipTag(DataInput in, int id) throws IOException {
+        switch (id) {
+            case 9 -> {
+                int typeId = in.readUnsignedByte();
+                skipListElements(in, typeId, in.readInt());
+            }
+            case 10 -> skipCompoundEntries(in);
+            default -> skipValue(in, id);
+        }
+    }
+
+    /// Skips the elements of a list whose header has already been read.
+    ///
+    /// @param in     The input positioned at the first element.
+    /// @param typeId The element type ID.
+    /// @param count  The number of elements.
+    /// @throws IOException If the input ends early or contains an unknown type ID.
+    public static void skipListElements(DataInput in, int typeId, int count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        int width = fixedWidth(typeId);
+        if (width > 0) {
+            skipFully(in, (long) width * count);
+            return;
+        }
+        skip(in, typeId, count);
+    }
+
+    /// Skips named entries up to and including the closing TAG_End of a compound.
+    ///
+    /// @param in The input positioned at the first entry.
+    /// @throws IOException If the input ends early or contains an unknown type ID.
+    public static void skipCompoundEntries(DataInput in) throws IOException {
+        skip(in, 10, COMPOUND);
+    }
+
+    // Walks nested compounds and lists with a stack of their element types and remaining counts,
+    // so that the nesting of the input never reaches the call stack
+    private static void skip(DataInput in, int typeId, int count) throws IOException {
+        int[] typeIds = new int[16];
+        int[] counts = new int[16];
+        typeIds[0] = typeId;
+        counts[0] = count;
+        int depth = 1;
+        try {
+            while (depth > 0) {
+                int top = depth - 1;
+                int id;
+                if (counts[top] == COMPOUND) {
+                    id = in.readUnsignedByte();
+                    if (id == 0) {
+                        depth--;
+                        continue;
+                    }
+                    skipFully(in, in.readUnsignedShort());
+                } else {
+                    id = typeIds[top];
+                    if (--counts[top] == 0) {
+                        depth--;
+                    }
+                }
+
+                int nestedTypeId;
+                int nestedCount;
+                if (id == 10) {
+                    nestedTypeId = 10;
+                    nestedCount = COMPOUND;
+                } else if (id == 9) {
+                    nestedTypeId = in.readUnsignedByte();
+                    nestedCount = in.readInt();
+                    if (nestedCount <= 0) {
+                        continue;
+                    }
+                    int width = fixedWidth(nestedTypeId);
+                    if (width > 0) {
+                        skipFully(in, (long) width * nestedCount);
+                        continue;
+                    }
+                } else {
+                    skipValue(in, id);
+                    continue;
+                }
+                if (depth == typeIds.length) {
+                    typeIds = Arrays.copyOf(typeIds, depth * 2);
+                    counts = Arrays.copyOf(counts, depth * 2);
+                }
+                typeIds[depth] = nestedTypeId;
+                counts[depth] = nestedCount;
+                depth++;
+            }
+        } catch (EOFException e) {
+            // Only an open compound is missing a closing TAG_End
+            for (int i = 0; i < depth; i++) {
+                if (counts[i] == COMPOUND) {
+                    throw new NBTParseException("Closing EndTag was not found!");
+                }
+            }
+            throw e;
+        }
+    }
+
+    // Skips a payload that contains no other tags
+    private static void skipValue(DataInput in, int id) throws IOException {
+        switch (id) {
+            case 1 -> skipFully(in, Byte.BYTES);
+            case 2 -> skipFully(in, Short.BYTES);
+            case 3, 5 -> skipFully(in, Integer.BYTES);
+            case 4, 6 -> skipFully(in, Long.BYTES);
+            case 7 -> skipFully(in, readLength(in));
+            case 8 -> skipFully(in, in.readUnsignedShort());
+            case 11 -> skipFully(in, (long) readLength(in) * Integer.BYTES);
+            case 12 -> skipFully(in, (long) readLength(in) * Long.BYTES);
+            default -> throw new NBTParseException("Could not find tag with ID \"" + id + "\".");
+        }
+    }
+
+    /// Skips exactly `length` bytes.
+    ///
+    /// @param in     The input to skip.
+    /// @param length The number of bytes to skip.
+    /// @throws IOException If fewer than `length` bytes remain.
+    public static void skipFully(DataInput in, long length) throws IOException {
+        if (in instanceof MemorySegmentDataInput segmentInput) {
+            segmentInput.skipFully(length);
+            return;
+        }
+        while (length > 0) {
+            int skipped = in.skipBytes((int) Math.min(length, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                in.readByte(); // Throws EOFException at the end of the input
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    /// Gets the encoded size of a fixed-width payload.
+    ///
+    /// @param id The type ID.
+    /// @return The size in bytes, or `0` if the payload has a variable size.
+    public static int fixedWidth(int id) {
+        return switch (id) {
+            case 1 -> Byte.BYTES;
+            case 2 -> Short.BYTES;
+            case 3, 5 -> Integer.BYTES;
+            case 4, 6 -> Long.BYTES;
+            default -> 0;
+        };
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new NBTParseException("Negative array length: " + length);
+        }
+        return length;
+    }
+}
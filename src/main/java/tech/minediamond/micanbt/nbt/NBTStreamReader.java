@@ -0,0 +1,256 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.nbt.NBTVisitor.Result;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/// A streaming NBT decoder that reports the document to an [NBTVisitor] instead of building
+/// a tree of [tech.minediamond.micanbt.tag.Tag] objects.
+///
+/// Memory use is independent of the document size: apart from the strings handed to the
+/// visitor, the only allocations are scratch arrays for array payloads, which are reused
+/// across arrays. When reading from a byte array or a mapped file, array payloads are
+/// passed as views of the source and not copied at all.
+///
+/// Usually obtained through [NBTReader.Builder#visit(NBTVisitor)], which takes care of
+/// decompression and byte order.
+public class NBTStreamReader {
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final long[] EMPTY_LONGS = new long[0];
+    // The remaining count of an open compound, which ends at its TAG_End instead
+    private static final int COMPOUND = -1;
+
+    private final DataInput in;
+    private final NBTVisitor visitor;
+    private final NBTAccounter accounter;
+    private boolean stopped;
+
+    // The element type ID and remaining count of each open container, so that the nesting of the
+    // input never reaches the call stack
+    private int[] frameTypes = new int[16];
+    private int[] frameRemaining = new int[16];
+    private int depth;
+
+    private byte[] byteScratch = EMPTY_BYTES;
+    private int[] intScratch = EMPTY_INTS;
+    private long[] longScratch = EMPTY_LONGS;
+    private final PrimitiveArrayCodec arrays = new PrimitiveArrayCodec();
+    private final StringCodec strings = new StringCodec(true);
+
+    /// Creates a stream reader over an uncompressed input.
+    ///
+    /// @param in      The input positioned at the root tag.
+    /// @param visitor The visitor to report to.
+    public NBTStreamReader(DataInput in, NBTVisitor visitor) {
+        this(in, visitor, new NBTAccounter(NBTQuota.UNLIMITED));
+    }
+
+    NBTStreamReader(DataInput in, NBTVisitor visitor, NBTAccounter accounter) {
+        this.in = in;
+        this.visitor = visitor;
+        this.accounter = accounter;
+    }
+
+    /// Decodes one root compound from `in` and reports it to `visitor`.
+    ///
+    /// @param in      The input positioned at the root tag.
+    /// @param visitor The visitor to report to.
+    /// @throws IOException If an I/O error occurs or the NBT format is invalid.
+    public static void read(DataInput in, NBTVisitor visitor) throws IOException {
+        new NBTStreamReader(in, visitor).readRoot();
+    }
+
+    /// Decodes one root compound and reports it to the visitor.
+    ///
+    /// Decoding ends after the closing TAG_End of the root, or earlier if the visitor returns
+    /// [Result#STOP] or [Result#SKIP] for the root.
+    ///
+    /// @throws IOException If an I/O error occurs or the NBT format is invalid.
+    public void readRoot() throws IOException {
+        int id = in.readUnsignedByte();
+        if (id != 10) {
+            throw new NBTParseException("NBT root must be a CompoundTag, but found tag ID: " + id);
+        }
+        depth = 0;
+        visitTag(id, readUTF());
+        try {
+            while (depth > 0 && !stopped) {
+                int top = depth - 1;
+                if (frameRemaining[top] == COMPOUND) {
+                    int entryId = in.readUnsignedByte();
+                    if (entryId == 0) {
+                        close();
+                    } else {
+                        visitTag(entryId, readUTF());
+                    }
+                } else if (frameRemaining[top] > 0) {
+                    frameRemaining[top]--;
+                    visitTag(frameTypes[top], "");
+                } else {
+                    close();
+                }
+            }
+        } catch (EOFException e) {
+            throw new NBTParseException("Closing EndTag was not found!");
+        }
+    }
+
+    /// Checks whether the visitor has returned [Result#STOP].
+    ///
+    /// @return `true` if decoding was stopped by the visitor.
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    private void visitTag(int id, String name) throws IOException {
+        accounter.countTag();
+        switch (id) {
+            case 1 -> handle(visitor.visitByte(name, in.readByte()));
+            case 2 -> handle(visitor.visitShort(name, in.readShort()));
+            case 3 -> handle(visitor.visitInt(name, in.readInt()));
+            case 4 -> handle(visitor.visitLong(name, in.readLong()));
+            case 5 -> handle(visitor.visitFloat(name, in.readFloat()));
+            case 6 -> handle(visitor.visitDouble(name, in.readDouble()));
+            case 7 -> visitByteArray(name);
+            case 8 -> handle(visitor.visitString(name, readUTF()));
+            case 9 -> visitList(name);
+            case 10 -> visitCompound(name);
+            case 11 -> visitIntArray(name);
+            case 12 -> visitLongArray(name);
+            default -> throw new NBTParseException("Could not find tag with ID \"" + id + "\".");
+        }
+    }
+
+    private void handle(Result result) {
+        if (result == Result.STOP) {
+            stopped = true;
+        }
+    }
+
+    private void visitCompound(String name) throws IOException {
+        Result result = visitor.visitCompoundStart(name);
+        if (result == Result.STOP) {
+            stopped = true;
+            return;
+        }
+        if (result == Result.SKIP) {
+            NBTSkipper.skipCompoundEntries(in);
+            return;
+        }
+        open(10, COMPOUND);
+    }
+
+    private void visitList(String name) throws IOException {
+        int typeId = in.readUnsignedByte();
+        int count = in.readInt();
+        if (count > 0 && typeId == 0) {
+            throw new NBTParseException("ListTag type is TAG_End but count is > 0");
+        }
+        Result result = visitor.visitListStart(name, typeId, count);
+        if (result == Result.STOP) {
+            stopped = true;
+            return;
+        }
+        if (result == Result.SKIP) {
+            NBTSkipper.skipListElements(in, typeId, count);
+            return;
+        }
+        open(typeId, Math.max(count, 0));
+    }
+
+    // Pushes a container whose start the visitor accepted; readRoot() visits its children
+    private void open(int typeId, int remaining) throws NBTQuotaExceededException {
+        accounter.enter();
+        if (depth == frameTypes.length) {
+            frameTypes = Arrays.copyOf(frameTypes, depth * 2);
+            frameRemaining = Arrays.copyOf(frameRemaining, depth * 2);
+        }
+        frameTypes[depth] = typeId;
+        frameRemaining[depth] = remaining;
+        depth++;
+    }
+
+    private void close() {
+        depth--;
+        accounter.exit();
+        handle(visitor.visitEnd());
+    }
+
+    private void visitByteArray(String name) throws IOException {
+        int length = readLength(Byte.BYTES);
+        ByteBuffer view = sourceView(length);
+        if (view == null) {
+            if (byteScratch.length < length) {
+                byteScratch = arrays.readByteArray(in, length);
+            } else {
+                in.readFully(byteScratch, 0, length);
+            }
+            view = ByteBuffer.wrap(byteScratch, 0, length).asReadOnlyBuffer();
+        }
+        handle(visitor.visitByteArray(name, view));
+    }
+
+    private void visitIntArray(String name) throws IOException {
+        int length = readLength(Integer.BYTES);
+        ByteBuffer view = sourceView((long) length * Integer.BYTES);
+        if (view != null) {
+            handle(visitor.visitIntArray(name, view.asIntBuffer()));
+            return;
+        }
+        if (intScratch.length < length) {
+            intScratch = arrays.readIntArray(in, length);
+        } else {
+            arrays.readInts(in, intScratch, length);
+        }
+        handle(visitor.visitIntArray(name, IntBuffer.wrap(intScratch, 0, length).asReadOnlyBuffer()));
+    }
+
+    private void visitLongArray(String name) throws IOException {
+        int length = readLength(Long.BYTES);
+        ByteBuffer view = sourceView((long) length * Long.BYTES);
+        if (view != null) {
+            handle(visitor.visitLongArray(name, view.asLongBuffer()));
+            return;
+        }
+        if (longScratch.length < length) {
+            longScratch = arrays.readLongArray(in, length);
+        } else {
+            arrays.readLongs(in, longScratch, length);
+        }
+        handle(visitor.visitLongArray(name, LongBuffer.wrap(longScratch, 0, length).asReadOnlyBuffer()));
+    }
+
+    // Returns a read-only view of the next `size` bytes when the input is backed by memory, or null for streams
+    private @Nullable ByteBuffer sourceView(long size) throws IOException {
+        if (!(in instanceof MemorySegmentDataInput source) || size > Integer.MAX_VALUE) {
+            return null;
+        }
+        long offset = source.position();
+        source.skipFully(size);
+        return source.segment().asSlice(offset, size).asByteBuffer().asReadOnlyBuffer().order(source.order());
+    }
+
+    private String readUTF() throws IOException {
+        String value = in instanceof DataInputStream ? strings.read(in) : in.readUTF();
+        accounter.chargeString(value);
+        return value;
+    }
+
+    private int readLength(int width) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new NBTParseException("Negative array length: " + length);
+        }
+        accounter.charge((long) length * width);
+        return length;
+    }
+}
@@ -0,0 +1,74 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+
+/// The result of a structural validation with [NBT#validate(java.nio.file.Path)].
+///
+/// Offsets count bytes of the uncompressed document, starting with the type ID of the root at
+/// offset 0. Validation stops at the first problem, since nothing after a corrupt length or type ID
+/// can be interpreted reliably.
+public final class NBTValidationReport {
+    private final @Nullable String error;
+    private final long errorOffset;
+    private final long size;
+    private final long tagCount;
+    private final int maxDepth;
+
+    NBTValidationReport(@Nullable String error, long errorOffset, long size, long tagCount, int maxDepth) {
+        this.error = error;
+        this.errorOffset = errorOffset;
+        this.size = size;
+        this.tagCount = tagCount;
+        this.maxDepth = maxDepth;
+    }
+
+    /// Checks whether the document is structurally valid.
+    ///
+    /// @return `true` if no problem was found.
+    public boolean isValid() {
+        return error == null;
+    }
+
+    /// Gets a description of the problem that was found.
+    ///
+    /// @return The problem, or `null` if the document is valid.
+    public @Nullable String getError() {
+        return error;
+    }
+
+    /// Gets the offset of the tag, length or byte where the problem was found.
+    ///
+    /// @return The offset in bytes, or `-1` if the document is valid.
+    public long getErrorOffset() {
+        return errorOffset;
+    }
+
+    /// Gets the number of bytes that were checked; the whole document if it is valid.
+    ///
+    /// @return The number of bytes.
+    public long getSize() {
+        return size;
+    }
+
+    /// Gets the number of tags that were checked, including the root and list elements.
+    ///
+    /// @return The number of tags.
+    public long getTagCount() {
+        return tagCount;
+    }
+
+    /// Gets the deepest nesting of compounds and lists that was seen; the root compound is depth 1.
+    ///
+    /// @return The maximum depth.
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public String toString() {
+        if (error == null) {
+            return "NBTValidationReport{valid, size=" + size + ", tags=" + tagCount + ", maxDepth=" + maxDepth + "}";
+        }
+        return "NBTValidationReport{invalid at offset " + errorOffset + ": " + error + ", tags=" + tagCount + "}";
+    }
+}
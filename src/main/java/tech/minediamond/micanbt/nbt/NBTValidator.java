@@ -0,0 +1,174 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/// Checks the structure of an uncompressed document without building any tags.
+///
+/// The walk verifies the root type, every tag ID and list element type, that lengths are not
+/// negative and fit in the remaining input when its size is known, and that every compound has a
+/// closing TAG_End. Payloads themselves are skipped with [NBTSkipper#skipFully(DataInput, long)].
+/// Open compounds and lists are kept in an explicit stack of primitive arrays, so deeply nested
+/// input cannot overflow the thread's stack and nothing is allocated per tag.
+final class NBTValidator {
+    private static final int MAX_ID = 12;
+    private static final int COMPOUND = -1;
+
+    private final DataInput in;
+    private final long limit;
+    private long offset;
+    private long tagCount;
+    private int depth;
+    private int maxDepth;
+    private long errorOffset;
+    // The element type of each open list, or COMPOUND, and the elements the list has left
+    private int[] frameTypes = new int[16];
+    private int[] frameRemaining = new int[16];
+
+    private NBTValidator(DataInput in) {
+        this.in = in;
+        this.limit = in instanceof MemorySegmentDataInput source ? source.segment().byteSize() - source.position() : Long.MAX_VALUE;
+    }
+
+    /// Validates the document at the current position of `in`.
+    ///
+    /// Problems with the data, including errors raised by a decompressing stream underneath,
+    /// end up in the report. Nothing is thrown.
+    ///
+    /// @param in The input positioned at the root type ID.
+    /// @return The report.
+    static NBTValidationReport validate(DataInput in) {
+        return new NBTValidator(in).run();
+    }
+
+    private NBTValidationReport run() {
+        try {
+            int id = readUnsignedByte();
+            if (id != 10) {
+                throw invalid(0, "NBT root must be a CompoundTag (ID 10), but found ID " + id);
+            }
+            skipString();
+            tagCount = 1;
+            push(COMPOUND, 0);
+            while (depth > 0) {
+                int top = depth - 1;
+                if (frameTypes[top] == COMPOUND) {
+                    long start = offset;
+                    id = readUnsignedByte();
+                    if (id == 0) {
+                        depth--;
+                        continue;
+                    }
+                    if (id > MAX_ID) {
+                        throw invalid(start, "Could not find tag with ID \"" + id + "\".");
+                    }
+                    skipString();
+                    tagCount++;
+                    value(id, start);
+                } else if (frameRemaining[top] > 0) {
+                    frameRemaining[top]--;
+                    tagCount++;
+                    value(frameTypes[top], offset);
+                } else {
+                    depth--;
+                }
+            }
+            return new NBTValidationReport(null, -1, offset, tagCount, maxDepth);
+        } catch (NBTParseException e) {
+            return new NBTValidationReport(e.getMessage(), errorOffset, offset, tagCount, maxDepth);
+        } catch (EOFException e) {
+            return new NBTValidationReport(depth > 0 ? "Unexpected end of data inside an open compound or list" : "Unexpected end of data", offset, offset, tagCount, maxDepth);
+        } catch (IOException e) {
+            return new NBTValidationReport("Could not read data: " + e.getMessage(), offset, offset, tagCount, maxDepth);
+        }
+    }
+
+    // Checks a payload; compounds and lists are opened on the stack and checked by the main loop
+    private void value(int id, long start) throws IOException {
+        switch (id) {
+            case 7 -> skip(arrayLength(start, Byte.BYTES), start);
+            case 8 -> skipString();
+            case 9 -> {
+                int typeId = readUnsignedByte();
+                int count = readInt();
+                if (typeId > MAX_ID) {
+                    throw invalid(start, "ListTag has unknown element type ID " + typeId);
+                }
+                if (count < 0) {
+                    throw invalid(start, "Negative list length: " + count);
+                }
+                if (count > 0 && typeId == 0) {
+                    throw invalid(start, "ListTag type is TAG_End but count is > 0");
+                }
+                int width = NBTSkipper.fixedWidth(typeId);
+                if (width > 0) {
+                    tagCount += count;
+                    skip((long) width * count, start);
+                } else if (count > 0) {
+                    push(typeId, count);
+                }
+            }
+            case 10 -> push(COMPOUND, 0);
+            case 11 -> skip(arrayLength(start, Integer.BYTES), start);
+            case 12 -> skip(arrayLength(start, Long.BYTES), start);
+            default -> skip(NBTSkipper.fixedWidth(id), start);
+        }
+    }
+
+    private long arrayLength(long start, int elementSize) throws IOException {
+        int length = readInt();
+        if (length < 0) {
+            throw invalid(start, "Negative array length: " + length);
+        }
+        return (long) length * elementSize;
+    }
+
+    private void skipString() throws IOException {
+        long start = offset;
+        skip(readUnsignedShort(), start);
+    }
+
+    private void skip(long length, long start) throws IOException {
+        if (length > limit - offset) {
+            throw invalid(start, "Length of " + length + " bytes exceeds the remaining " + (limit - offset) + " bytes");
+        }
+        NBTSkipper.skipFully(in, length);
+        offset += length;
+    }
+
+    private void push(int type, int remaining) {
+        if (depth == frameTypes.length) {
+            frameTypes = Arrays.copyOf(frameTypes, depth * 2);
+            frameRemaining = Arrays.copyOf(frameRemaining, depth * 2);
+        }
+        frameTypes[depth] = type;
+        frameRemaining[depth] = remaining;
+        depth++;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    private int readUnsignedByte() throws IOException {
+        int value = in.readUnsignedByte();
+        offset += Byte.BYTES;
+        return value;
+    }
+
+    private int readUnsignedShort() throws IOException {
+        int value = in.readUnsignedShort();
+        offset += Short.BYTES;
+        return value;
+    }
+
+    private int readInt() throws IOException {
+        int value = in.readInt();
+        offset += Integer.BYTES;
+        return value;
+    }
+
+    private NBTParseException invalid(long offset, String message) {
+        this.errorOffset = offset;
+        return new NBTParseException(message);
+    }
+}
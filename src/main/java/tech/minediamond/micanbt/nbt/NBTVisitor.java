@@ -0,0 +1,120 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+/// Receives the contents of an NBT document as a stream of events, without building a tree.
+///
+/// Compounds are reported as [#visitCompoundStart] followed by one event per entry and a final
+/// [#visitEnd]; lists are reported the same way starting with [#visitListStart]. Entries of a
+/// compound carry their key as `name`, elements of a list have an empty name.
+///
+/// Every callback returns a [Result]. Returning [Result#SKIP] from a start callback prunes the
+/// whole container: its payload is skipped without being decoded and no matching [#visitEnd] is
+/// reported. Returning [Result#STOP] from any callback ends decoding immediately.
+///
+/// All callbacks default to [Result#CONTINUE], so a visitor only overrides what it needs.
+///
+/// @see NBTStreamReader
+public interface NBTVisitor {
+
+    /// Tells the decoder how to proceed after a callback.
+    enum Result {
+        /// Keep decoding, descending into the container if the callback started one.
+        CONTINUE,
+        /// Skip the container that was just started. Equivalent to [#CONTINUE] for other callbacks.
+        SKIP,
+        /// Stop decoding altogether.
+        STOP
+    }
+
+    default Result visitByte(String name, byte value) {
+        return Result.CONTINUE;
+    }
+
+    default Result visitShort(String name, short value) {
+        return Result.CONTINUE;
+    }
+
+    default Result visitInt(String name, int value) {
+        return Result.CONTINUE;
+    }
+
+    default Result visitLong(String name, long value) {
+        return Result.CONTINUE;
+    }
+
+    default Result visitFloat(String name, float value) {
+        return Result.CONTINUE;
+    }
+
+    default Result visitDouble(String name, double value) {
+        return Result.CONTINUE;
+    }
+
+    default Result visitString(String name, String value) {
+        return Result.CONTINUE;
+    }
+
+    /// Visits a TAG_Byte_Array.
+    ///
+    /// The buffer is read-only and only valid for the duration of the call; it may be a view of
+    /// the source or of a scratch array that is reused for the next array.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements of the array.
+    /// @return How to proceed.
+    default Result visitByteArray(String name, ByteBuffer values) {
+        return Result.CONTINUE;
+    }
+
+    /// Visits a TAG_Int_Array.
+    ///
+    /// The buffer is read-only and only valid for the duration of the call; it may be a view of
+    /// the source or of a scratch array that is reused for the next array.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements of the array.
+    /// @return How to proceed.
+    default Result visitIntArray(String name, IntBuffer values) {
+        return Result.CONTINUE;
+    }
+
+    /// Visits a TAG_Long_Array.
+    ///
+    /// The buffer is read-only and only valid for the duration of the call; it may be a view of
+    /// the source or of a scratch array that is reused for the next array.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements of the array.
+    /// @return How to proceed.
+    default Result visitLongArray(String name, LongBuffer values) {
+        return Result.CONTINUE;
+    }
+
+    /// Visits the start of a TAG_Compound.
+    ///
+    /// @param name The name of the tag.
+    /// @return [Result#SKIP] to skip the entries of this compound.
+    default Result visitCompoundStart(String name) {
+        return Result.CONTINUE;
+    }
+
+    /// Visits the start of a TAG_List.
+    ///
+    /// @param name   The name of the tag.
+    /// @param typeId The type ID of the elements.
+    /// @param count  The number of elements.
+    /// @return [Result#SKIP] to skip the elements of this list.
+    default Result visitListStart(String name, int typeId, int count) {
+        return Result.CONTINUE;
+    }
+
+    /// Visits the end of the innermost compound or list that was not skipped.
+    ///
+    /// @return How to proceed.
+    default Result visitEnd() {
+        return Result.CONTINUE;
+    }
+}
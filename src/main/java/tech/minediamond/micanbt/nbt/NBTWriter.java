@@ -1,26 +1,51 @@
 package tech.minediamond.micanbt.nbt;
 
-import net.jpountz.lz4.LZ4BlockOutputStream;
 import org.jetbrains.annotations.Nullable;
 import tech.minediamond.micanbt.tag.*;
 
 import java.io.*;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SegmentAllocator;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
 
 public class NBTWriter {
     CompoundTag tag;
     NBTCompressType compressType;
     boolean littleEndian;
+    NBTCodecPool codecPool;
+    int compressionLevel;
+    NBTDeflateStrategy deflateStrategy;
+    NBTLZ4Mode lz4Mode;
+    @Nullable Executor compressionExecutor;
+    int compressionBlockSize;
 
     DataOutput dataOutput;
+    private final PrimitiveArrayCodec arrays = new PrimitiveArrayCodec();
+    private final StringCodec strings = new StringCodec(true);
+    // The iterators of the open compounds and lists, and whether each belongs to a compound
+    private Iterator<?>[] frames = new Iterator<?>[16];
+    private boolean[] compoundFrames = new boolean[16];
+    private int depth;
 
     private NBTWriter(Builder builder) throws IOException {
         this.tag = builder.tag;
         this.compressType = builder.compressType;
         this.littleEndian = builder.littleEndian;
+        this.codecPool = builder.codecPool;
+        this.compressionLevel = builder.compressionLevel;
+        this.deflateStrategy = builder.deflateStrategy;
+        this.lz4Mode = builder.lz4Mode;
+        this.compressionExecutor = builder.compressionExecutor;
+        this.compressionBlockSize = builder.compressionBlockSize;
 
         if (builder.path != null) {
             writePath(builder.path);
@@ -33,6 +58,20 @@ public class NBTWriter {
         }
     }
 
+    private NBTWriter(Builder builder, DataOutput dataOutput) throws IOException {
+        this.tag = builder.tag;
+        this.compressType = builder.compressType;
+        this.littleEndian = builder.littleEndian;
+        this.codecPool = builder.codecPool;
+        this.compressionLevel = builder.compressionLevel;
+        this.deflateStrategy = builder.deflateStrategy;
+        this.lz4Mode = builder.lz4Mode;
+        this.compressionExecutor = builder.compressionExecutor;
+        this.compressionBlockSize = builder.compressionBlockSize;
+
+        writeDirect(dataOutput);
+    }
+
     public static Builder builder(CompoundTag tag, Path path) {
         return new Builder(tag, path);
     }
@@ -49,35 +88,92 @@ public class NBTWriter {
         return new Builder(tag);
     }
 
+    /// Encodes an uncompressed document into the start of `segment`.
+    ///
+    /// The size is computed first, so nothing is written when the document does not fit.
+    ///
+    /// @return The number of bytes written.
+    /// @throws BufferOverflowException If the segment is smaller than the document.
+    static long toSegment(CompoundTag tag, MemorySegment segment, boolean littleEndian) throws IOException {
+        if (segment.isReadOnly()) {
+            throw new IllegalArgumentException("Segment is read-only");
+        }
+        long size = NBTSizer.uncompressedSize(tag, littleEndian);
+        if (size > segment.byteSize()) {
+            throw new BufferOverflowException();
+        }
+        writeUncompressed(tag, segment, littleEndian);
+        return size;
+    }
+
+    /// Encodes an uncompressed document into a segment of exactly its size obtained from `allocator`.
+    static MemorySegment toSegment(CompoundTag tag, SegmentAllocator allocator, boolean littleEndian) throws IOException {
+        MemorySegment segment = allocator.allocate(NBTSizer.uncompressedSize(tag, littleEndian));
+        writeUncompressed(tag, segment, littleEndian);
+        return segment;
+    }
+
+    /// Encodes an uncompressed document at the position of `buffer` and advances the position past it.
+    ///
+    /// If fewer bytes remain than the document needs, a larger buffer of the same kind (heap or direct)
+    /// and byte order is allocated, the bytes before the position are copied over, and the document is
+    /// written there instead. The original buffer is left untouched in that case.
+    ///
+    /// @return `buffer`, or the grown buffer that now holds the data.
+    static ByteBuffer toBuffer(CompoundTag tag, ByteBuffer buffer, boolean littleEndian) throws IOException {
+        if (buffer.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        long size = NBTSizer.uncompressedSize(tag, littleEndian);
+        ByteBuffer target = size > buffer.remaining() ? grow(buffer, size) : buffer;
+        int position = target.position();
+        writeUncompressed(tag, MemorySegment.ofBuffer(target), littleEndian);
+        target.position(position + (int) size);
+        return target;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, long size) throws IOException {
+        int position = buffer.position();
+        long required = position + size;
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IOException("Encoded NBT is too large for a ByteBuffer: " + size + " bytes");
+        }
+        int capacity = (int) Math.max(required, Math.min((long) buffer.capacity() * 2, Integer.MAX_VALUE - 8));
+        ByteBuffer grown = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        grown.order(buffer.order());
+        grown.put(0, buffer, 0, position);
+        grown.position(position);
+        return grown;
+    }
+
+    private static void writeUncompressed(CompoundTag tag, MemorySegment segment, boolean littleEndian) throws IOException {
+        Builder builder = builder(tag).compressType(NBTCompressType.UNCOMPRESSED).littleEndian(littleEndian);
+        new NBTWriter(builder, new MemorySegmentDataOutput(segment, littleEndian));
+    }
+
     private void writePath(Path path) throws IOException {
         Path parent = path.getParent();
         if (parent != null && Files.notExists(parent)) {
             Files.createDirectories(parent);
         }
 
-        try (OutputStream fos = Files.newOutputStream(path); BufferedOutputStream bos = new BufferedOutputStream(fos); OutputStream out = switch (compressType) {
-            case GZIP -> new GZIPOutputStream(bos);
-            case ZLIB -> new DeflaterOutputStream(bos);
-            case LZ4 -> new LZ4BlockOutputStream(bos);
-            case UNCOMPRESSED -> bos;
-        }; FilterOutputStream dos = littleEndian ? new LittleEndianDataOutputStream(out) : new DataOutputStream(out)) {
+        try (OutputStream fos = Files.newOutputStream(path); BufferedOutputStream bos = new BufferedOutputStream(fos); OutputStream out = compress(bos); FilterOutputStream dos = littleEndian ? new LittleEndianDataOutputStream(out) : new DataOutputStream(out)) {
             this.dataOutput = (DataOutput) dos;
             writeNamedTag(this.tag);
         }
     }
 
     private void writeStream(OutputStream ops) throws IOException {
-        try (BufferedOutputStream bos = new BufferedOutputStream(ops); OutputStream out = switch (compressType) {
-            case GZIP -> new GZIPOutputStream(bos);
-            case ZLIB -> new DeflaterOutputStream(bos);
-            case LZ4 -> new LZ4BlockOutputStream(bos);
-            case UNCOMPRESSED -> bos;
-        }; FilterOutputStream dos = littleEndian ? new LittleEndianDataOutputStream(out) : new DataOutputStream(out)) {
+        try (BufferedOutputStream bos = new BufferedOutputStream(ops); OutputStream out = compress(bos); FilterOutputStream dos = littleEndian ? new LittleEndianDataOutputStream(out) : new DataOutputStream(out)) {
             this.dataOutput = (DataOutput) dos;
             writeNamedTag(this.tag);
         }
     }
 
+    private OutputStream compress(OutputStream out) throws IOException {
+        return codecPool.compress(out, compressType, compressionLevel, deflateStrategy, lz4Mode, compressionExecutor, compressionBlockSize);
+    }
+
     private void writeDirect(DataOutput dataOutput) throws IOException {
         this.dataOutput = dataOutput;
         writeNamedTag(this.tag);
@@ -85,46 +181,106 @@ public class NBTWriter {
 
     private void writeNamedTag(Tag tag) throws IOException {
         dataOutput.writeByte(tag.getTagId());
-        dataOutput.writeUTF(tag.getName());
-        writeTagValue(tag);
-    }
-
-    private void writeAnonymousTag(Tag tag) throws IOException {
-        writeTagValue(tag);
-    }
-
-    private void writeTagValue(Tag tag) throws IOException {
-        switch (tag) {
-            case CompoundTag compoundTag -> writeCompoundTag(compoundTag);
-            case ListTag<?> listTag -> writeListTag(listTag);
-            case StringTag stringTag -> dataOutput.writeUTF(stringTag.getRawValue());
-            case ByteArrayTag byteArrayTag -> writeByteArrayTag(byteArrayTag);
-            case IntArrayTag intArrayTag -> writeIntArray(intArrayTag);
-            case LongArrayTag longArrayTag -> writeLongArray(longArrayTag);
-            case ByteTag byteTag -> dataOutput.writeByte(byteTag.getRawValue());
-            case ShortTag shortTag -> dataOutput.writeShort(shortTag.getRawValue());
-            case IntTag intTag -> dataOutput.writeInt(intTag.getRawValue());
-            case LongTag longTag -> dataOutput.writeLong(longTag.getRawValue());
-            case FloatTag floatTag -> dataOutput.writeFloat(floatTag.getRawValue());
-            case DoubleTag doubleTag -> dataOutput.writeDouble(doubleTag.getRawValue());
+        writeUTF(tag.getName());
+        writeTag(tag);
+    }
+
+    // DataOutputStream.writeUTF is final and allocates per call, so encode through the shared codec instead
+    private void writeUTF(String s) throws IOException {
+        if (dataOutput instanceof DataOutputStream) {
+            strings.write(dataOutput, s);
+        } else {
+            dataOutput.writeUTF(s);
+        }
+    }
+
+    // Writes the payload of a tag and everything below it. Compounds and lists are not written by
+    // recursion: their iterators are kept on an explicit stack, so the nesting of the tree never
+    // reaches the call stack
+    private void writeTag(Tag tag) throws IOException {
+        int base = depth;
+        openTag(tag);
+        while (depth > base) {
+            int top = depth - 1;
+            Iterator<?> iterator = frames[top];
+            if (!iterator.hasNext()) {
+                if (compoundFrames[top]) {
+                    dataOutput.writeByte(0);
+                }
+                frames[--depth] = null;
+            } else if (compoundFrames[top]) {
+                Tag child = (Tag) iterator.next();
+                dataOutput.writeByte(child.getTagId());
+                writeUTF(child.getName());
+                openTag(child);
+            } else {
+                openTag((Tag) iterator.next());
+            }
+        }
+    }
+
+    // Writes a leaf, or the header of a compound or list and pushes a frame for its children.
+    // Switching on the tag ID compiles to a jump table; a switch over types tests the classes in turn
+    private void openTag(Tag tag) throws IOException {
+        switch (tag.getTagId()) {
+            case CompoundTag.ID -> push(((CompoundTag) tag).iterator(), true);
+            case ListTag.ID -> openListTag((ListTag<?>) tag);
+            case StringTag.ID -> writeUTF(((StringTag) tag).getRawValue());
+            case ByteArrayTag.ID -> writeByteArrayTag((ByteArrayTag) tag);
+            case IntArrayTag.ID -> writeIntArray((IntArrayTag) tag);
+            case LongArrayTag.ID -> writeLongArray((LongArrayTag) tag);
+            case ByteTag.ID -> dataOutput.writeByte(((ByteTag) tag).getRawValue());
+            case ShortTag.ID -> dataOutput.writeShort(((ShortTag) tag).getRawValue());
+            case IntTag.ID -> dataOutput.writeInt(((IntTag) tag).getRawValue());
+            case LongTag.ID -> dataOutput.writeLong(((LongTag) tag).getRawValue());
+            case FloatTag.ID -> dataOutput.writeFloat(((FloatTag) tag).getRawValue());
+            case DoubleTag.ID -> dataOutput.writeDouble(((DoubleTag) tag).getRawValue());
             default -> throw new IOException("Unsupported tag type: " + tag.getClass().getName());
         }
     }
 
-    private void writeCompoundTag(CompoundTag tag) throws IOException {
-        for (Tag subTag : tag) {
-            writeNamedTag(subTag);
+    private void openListTag(ListTag<?> listTag) throws IOException {
+        int typeId = listTag.getElementTypeId();
+        Object primitives = listTag.getPrimitiveArray();
+        if (primitives != null) {
+            dataOutput.writeByte(typeId);
+            dataOutput.writeInt(listTag.size());
+            writePrimitives(typeId, primitives);
+            return;
+        }
+        List<? extends Tag> elements = listTag.getRawValue();
+        dataOutput.writeByte(typeId);
+        dataOutput.writeInt(elements.size());
+        if (typeId == ListTag.ID || typeId == CompoundTag.ID) {
+            push(elements.iterator(), false);
+            return;
         }
+        // Elements of any other type are leaves and are written right away
+        for (Tag element : elements) {
+            openTag(element);
+        }
+    }
 
-        dataOutput.writeByte(0);
+    private void writePrimitives(int typeId, Object primitives) throws IOException {
+        switch (typeId) {
+            case ByteTag.ID -> dataOutput.write((byte[]) primitives);
+            case ShortTag.ID -> arrays.writeShorts(dataOutput, (short[]) primitives);
+            case IntTag.ID -> arrays.writeInts(dataOutput, (int[]) primitives);
+            case LongTag.ID -> arrays.writeLongs(dataOutput, (long[]) primitives);
+            case FloatTag.ID -> arrays.writeFloats(dataOutput, (float[]) primitives);
+            case DoubleTag.ID -> arrays.writeDoubles(dataOutput, (double[]) primitives);
+            default -> throw new IOException("Unsupported list element type: " + typeId);
+        }
     }
 
-    private void writeListTag(ListTag<?> listTag) throws IOException {
-        dataOutput.writeByte(listTag.getElementTypeId());
-        dataOutput.writeInt(listTag.size());
-        for (Tag tag : listTag.getRawValue()) {
-            writeAnonymousTag(tag);
+    private void push(Iterator<?> iterator, boolean compound) {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+            compoundFrames = Arrays.copyOf(compoundFrames, depth * 2);
         }
+        frames[depth] = iterator;
+        compoundFrames[depth] = compound;
+        depth++;
     }
 
     private void writeByteArrayTag(ByteArrayTag byteArrayTag) throws IOException {
@@ -134,16 +290,12 @@ public class NBTWriter {
 
     private void writeIntArray(IntArrayTag intArrayTag) throws IOException {
         dataOutput.writeInt(intArrayTag.size());
-        for (int i : intArrayTag.getRawValue()) {
-            dataOutput.writeInt(i);
-        }
+        arrays.writeInts(dataOutput, intArrayTag.getRawValue());
     }
 
     private void writeLongArray(LongArrayTag longArrayTag) throws IOException {
         dataOutput.writeInt(longArrayTag.size());
-        for (long l : longArrayTag.getRawValue()) {
-            dataOutput.writeLong(l);
-        }
+        arrays.writeLongs(dataOutput, longArrayTag.getRawValue());
     }
 
     public static class Builder {
@@ -154,6 +306,12 @@ public class NBTWriter {
         private final CompoundTag tag;
         private NBTCompressType compressType = NBTCompressType.GZIP;
         private boolean littleEndian = false;
+        private NBTCodecPool codecPool = NBTCodecPool.shared();
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private NBTDeflateStrategy deflateStrategy = NBTDeflateStrategy.DEFAULT;
+        private NBTLZ4Mode lz4Mode = NBTLZ4Mode.FAST;
+        private @Nullable Executor compressionExecutor = null;
+        private int compressionBlockSize;
 
         private Builder(CompoundTag tag) {
             this.tag = tag;
@@ -184,11 +342,79 @@ public class NBTWriter {
             return this;
         }
 
+        public Builder codecPool(NBTCodecPool codecPool) {
+            this.codecPool = codecPool;
+            return this;
+        }
+
+        /// Sets the deflate level of GZIP and ZLIB output.
+        ///
+        /// Lower levels are faster and higher levels smaller; 1 suits frequent autosaves and 9 suits
+        /// archives. Other compression types ignore the level.
+        ///
+        /// @param compressionLevel A level from 0 (store only) to 9, or -1 for the zlib default (6).
+        /// @return This builder.
+        public Builder compressionLevel(int compressionLevel) {
+            if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("Compression level must be between -1 and 9: " + compressionLevel);
+            }
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        /// Sets the deflate strategy of GZIP and ZLIB output. Other compression types ignore it.
+        ///
+        /// @param deflateStrategy The strategy.
+        /// @return This builder.
+        public Builder deflateStrategy(NBTDeflateStrategy deflateStrategy) {
+            this.deflateStrategy = deflateStrategy;
+            return this;
+        }
+
+        /// Selects the compressor of LZ4 output. Other compression types ignore it.
+        ///
+        /// @param lz4Mode The LZ4 mode.
+        /// @return This builder.
+        public Builder lz4Mode(NBTLZ4Mode lz4Mode) {
+            this.lz4Mode = lz4Mode;
+            return this;
+        }
+
+        /// Compresses GZIP and ZLIB output on several threads.
+        ///
+        /// The uncompressed data is cut into blocks of `blockSize` bytes, which tasks on `executor`
+        /// deflate concurrently. Each block uses the end of the previous block as a preset dictionary,
+        /// so the ratio stays close to single-threaded compression, and the output remains one
+        /// standard stream that any GZIP or ZLIB reader accepts. Blocks of 128 KiB to 1 MiB suit
+        /// large files; small documents gain nothing from this. Other compression types ignore it.
+        ///
+        /// @param executor  The executor that runs the block compression tasks.
+        /// @param blockSize The number of uncompressed bytes per block.
+        /// @return This builder.
+        public Builder parallelCompression(Executor executor, int blockSize) {
+            if (blockSize <= 0) {
+                throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+            }
+            this.compressionExecutor = executor;
+            this.compressionBlockSize = blockSize;
+            return this;
+        }
+
         public void write() throws IOException {
             new NBTWriter(this);
         }
 
         public byte[] toByteArray() throws IOException {
+            if (compressType == NBTCompressType.UNCOMPRESSED) {
+                // The exact size is known up front, so encode straight into the result
+                long size = NBTSizer.uncompressedSize(tag, littleEndian);
+                if (size > Integer.MAX_VALUE - 8) {
+                    throw new IOException("Encoded NBT is too large for a byte array: " + size + " bytes");
+                }
+                byte[] bytes = new byte[(int) size];
+                new NBTWriter(this, new MemorySegmentDataOutput(MemorySegment.ofArray(bytes), littleEndian));
+                return bytes;
+            }
             try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
                 this.stream = bos;
                 new NBTWriter(this);
@@ -0,0 +1,228 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/// An output stream that writes one GZIP or ZLIB stream and deflates it on several threads.
+///
+/// The data is cut into blocks of a fixed size, and each block is deflated as raw DEFLATE by its
+/// own task on an [Executor]. Like pigz does, every block but the first is primed with the last
+/// 32 KiB of the block before it as a preset dictionary, so matches across the boundary are not
+/// lost. Non-final blocks end with a sync flush, which aligns them to a byte boundary so that their
+/// output can simply be concatenated. The caller's thread computes the checksum, writes the header
+/// and trailer, and writes the deflated blocks in order.
+///
+/// The result is a single standard stream that any GZIP or ZLIB decoder reads. At most a few blocks
+/// per available processor are in flight; writing more blocks waits for the oldest one first.
+class ParallelDeflaterOutputStream extends OutputStream {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int WINDOW_SIZE = 32 * 1024;
+
+    private final OutputStream out;
+    private final NBTCodecPool pool;
+    private final Executor executor;
+    private final boolean gzip;
+    private final int level;
+    private final int strategy;
+    private final Checksum checksum;
+    private final int maxInFlight;
+    private final ArrayDeque<FutureTask<byte[]>> inFlight = new ArrayDeque<>();
+    private final ArrayDeque<byte[]> pendingBlocks = new ArrayDeque<>();
+    private final ArrayDeque<byte[]> freeBlocks = new ArrayDeque<>();
+
+    private byte[] block;
+    private int count;
+    private byte @Nullable [] dictionary;
+    private long totalIn;
+    private boolean closed;
+
+    public ParallelDeflaterOutputStream(OutputStream out, NBTCodecPool pool, Executor executor, int blockSize, boolean gzip, int level, int strategy) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.out = out;
+        this.pool = pool;
+        this.executor = executor;
+        this.gzip = gzip;
+        this.level = level;
+        this.strategy = strategy;
+        this.checksum = gzip ? new CRC32() : new Adler32();
+        this.maxInFlight = 2 * Math.max(1, Runtime.getRuntime().availableProcessors());
+        this.block = new byte[blockSize];
+        out.write(gzip ? GZIP_HEADER : zlibHeader(level));
+    }
+
+    // CMF 0x78 is DEFLATE with a 32 KiB window; FLEVEL mirrors what zlib writes for the level
+    private static byte[] zlibHeader(int level) {
+        int flevel = level == Deflater.DEFAULT_COMPRESSION || level == 6 ? 2 : level >= 7 ? 3 : level >= 2 ? 1 : 0;
+        int header = 0x7800 | flevel << 6;
+        header += (31 - header % 31) % 31;
+        return new byte[]{(byte) (header >> 8), (byte) header};
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        Objects.checkFromIndexSize(off, len, b.length);
+        checksum.update(b, off, len);
+        totalIn += len;
+        while (len > 0) {
+            int n = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == block.length) {
+                submit(false);
+            }
+        }
+    }
+
+    /// Writes all blocks that are already deflated, then flushes the underlying stream.
+    ///
+    /// Buffered data that does not fill a block yet stays buffered.
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+            writeFirst();
+        }
+        out.flush();
+    }
+
+    /// Deflates the last block, waits for all blocks and writes them followed by the trailer.
+    ///
+    /// The underlying stream is closed afterwards, also if writing fails.
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try (out) {
+            submit(true);
+            while (!inFlight.isEmpty()) {
+                writeFirst();
+            }
+            long value = checksum.getValue();
+            if (gzip) {
+                out.write(new byte[]{
+                        (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24),
+                        (byte) totalIn, (byte) (totalIn >> 8), (byte) (totalIn >> 16), (byte) (totalIn >> 24)
+                });
+            } else {
+                out.write(new byte[]{(byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value});
+            }
+        } finally {
+            closed = true;
+            for (FutureTask<byte[]> task : inFlight) {
+                task.cancel(false);
+            }
+            inFlight.clear();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] input = block;
+        int length = count;
+        byte @Nullable [] preset = dictionary;
+        // The next block needs this tail as its dictionary, but the block array itself is recycled
+        dictionary = length == 0 ? preset : Arrays.copyOfRange(input, Math.max(0, length - WINDOW_SIZE), length);
+
+        FutureTask<byte[]> task = new FutureTask<>(() -> deflate(input, length, preset, last));
+        while (inFlight.size() >= maxInFlight) {
+            writeFirst();
+        }
+        executor.execute(task);
+        inFlight.addLast(task);
+
+        // Recycled once the task has finished with it
+        pendingBlocks.addLast(input);
+        if (!last) {
+            byte[] next = freeBlocks.pollFirst();
+            block = next != null ? next : new byte[input.length];
+            count = 0;
+        }
+    }
+
+    private void writeFirst() throws IOException {
+        FutureTask<byte[]> task = inFlight.removeFirst();
+        byte[] deflated;
+        try {
+            deflated = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a compressed block");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to compress a block", cause);
+        }
+        freeBlocks.addLast(pendingBlocks.removeFirst());
+        out.write(deflated);
+    }
+
+    private byte[] deflate(byte[] input, int length, byte @Nullable [] preset, boolean last) {
+        Deflater deflater = pool.acquireDeflater(level, strategy, true);
+        try {
+            byte[] output = new byte[length + (length >> 3) + 64];
+            // A pooled deflater applies a changed level or strategy on its next deflate call, and that
+            // call compresses nothing; make it now, before there is input or a dictionary
+            int size = deflater.deflate(output);
+            if (preset != null) {
+                deflater.setDictionary(preset);
+            }
+            deflater.setInput(input, 0, length);
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    if (size == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    size += deflater.deflate(output, size, output.length - size);
+                }
+            } else {
+                // A sync flush is complete once it leaves room in the output buffer
+                while (true) {
+                    if (size == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    int space = output.length - size;
+                    int n = deflater.deflate(output, size, space, Deflater.SYNC_FLUSH);
+                    size += n;
+                    if (n < space) {
+                        break;
+                    }
+                }
+            }
+            return Arrays.copyOf(output, size);
+        } finally {
+            pool.release(deflater, true);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/// A [DeflaterOutputStream] for GZIP or ZLIB data whose deflater and buffer come from a [NBTCodecPool].
+///
+/// GZIP output carries the same header and trailer as [java.util.zip.GZIPOutputStream] writes; the
+/// JDK class cannot be used because it always ends its own deflater. Closing the stream finishes
+/// the data and returns the deflater and the buffer to the pool.
+class PooledDeflaterOutputStream extends DeflaterOutputStream {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final NBTCodecPool pool;
+    private final boolean gzip;
+    private final CRC32 crc = new CRC32();
+    private boolean released;
+
+    public PooledDeflaterOutputStream(OutputStream out, NBTCodecPool pool, boolean gzip) throws IOException {
+        this(out, pool, gzip, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+    }
+
+    public PooledDeflaterOutputStream(OutputStream out, NBTCodecPool pool, boolean gzip, int level, int strategy) throws IOException {
+        super(out, pool.acquireDeflater(level, strategy, gzip), 1);
+        this.pool = pool;
+        this.gzip = gzip;
+        this.buf = pool.acquireBuffer();
+        if (gzip) {
+            try {
+                out.write(GZIP_HEADER);
+            } catch (IOException e) {
+                release();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        if (gzip) {
+            crc.update(b, off, len);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (released || def.finished()) {
+            return;
+        }
+        super.finish();
+        if (gzip) {
+            long checksum = crc.getValue();
+            long size = def.getBytesRead();
+            out.write(new byte[]{
+                    (byte) checksum, (byte) (checksum >> 8), (byte) (checksum >> 16), (byte) (checksum >> 24),
+                    (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)
+            });
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        if (!released) {
+            released = true;
+            pool.release(def, gzip);
+            pool.release(buf);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/// An [InflaterInputStream] for GZIP or ZLIB data whose inflater and buffer come from a [NBTCodecPool].
+///
+/// GZIP members are parsed like [java.util.zip.GZIPInputStream] does, including concatenated
+/// members and trailer verification; the JDK class cannot be used because it always ends its own
+/// inflater. Closing the stream returns the inflater and the buffer to the pool.
+class PooledInflaterInputStream extends InflaterInputStream {
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final NBTCodecPool pool;
+    private final boolean gzip;
+    private final CRC32 crc = new CRC32();
+    private boolean eos;
+    private boolean released;
+
+    public PooledInflaterInputStream(InputStream in, NBTCodecPool pool, boolean gzip) throws IOException {
+        super(in, pool.acquireInflater(gzip), 1);
+        this.pool = pool;
+        this.gzip = gzip;
+        this.buf = pool.acquireBuffer();
+        if (gzip) {
+            try {
+                readHeader(in);
+            } catch (IOException e) {
+                release();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (eos) {
+            return -1;
+        }
+        int n = super.read(b, off, len);
+        if (n == -1) {
+            if (!gzip || readTrailer()) {
+                eos = true;
+            } else {
+                return this.read(b, off, len);
+            }
+        } else if (gzip) {
+            crc.update(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        if (!released) {
+            released = true;
+            pool.release(inf, gzip);
+            pool.release(buf);
+        }
+    }
+
+    // Reads a GZIP member header and returns its size in bytes
+    private int readHeader(InputStream in) throws IOException {
+        crc.reset();
+        if (readUShort(in) != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (readUByte(in) != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = readUByte(in);
+        skipBytes(in, 6);
+        int n = 2 + 2 + 6;
+        if ((flags & FEXTRA) == FEXTRA) {
+            int length = readUShort(in);
+            skipBytes(in, length);
+            n += length + 2;
+        }
+        if ((flags & FNAME) == FNAME) {
+            do {
+                n++;
+            } while (readUByte(in) != 0);
+        }
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            do {
+                n++;
+            } while (readUByte(in) != 0);
+        }
+        if ((flags & FHCRC) == FHCRC) {
+            skipBytes(in, 2);
+            n += 2;
+        }
+        crc.reset();
+        return n;
+    }
+
+    // Verifies the trailer of the current member and returns true if no further member follows
+    private boolean readTrailer() throws IOException {
+        InputStream in = this.in;
+        int n = inf.getRemaining();
+        if (n > 0) {
+            in = new SequenceInputStream(new ByteArrayInputStream(buf, len - n, n), new FilterInputStream(in) {
+                @Override
+                public void close() {
+                }
+            });
+        }
+        if (readUInt(in) != crc.getValue() || readUInt(in) != (inf.getBytesWritten() & 0xFFFFFFFFL)) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+        if (this.in.available() > 0 || n > 26) {
+            int m = 8;
+            try {
+                m += readHeader(in);
+            } catch (IOException e) {
+                // Trailing garbage after the last member
+                return true;
+            }
+            inf.reset();
+            if (n > m) {
+                inf.setInput(buf, len - n + m, n - m);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static long readUInt(InputStream in) throws IOException {
+        long s = readUShort(in);
+        return ((long) readUShort(in) << 16) | s;
+    }
+
+    private static int readUShort(InputStream in) throws IOException {
+        int b = readUByte(in);
+        return (readUByte(in) << 8) | b;
+    }
+
+    private static int readUByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static void skipBytes(InputStream in, int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readUByte(in);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/// Decodes and encodes the payload of int and long arrays, and of lists of numbers, in bulk.
+///
+/// Instead of one `readInt`/`writeInt` call per element, the payload is moved through a scratch
+/// byte buffer in blocks and converted with the bulk `get`/`put` of an [java.nio.IntBuffer],
+/// [java.nio.LongBuffer] or similar view in the byte order of the stream. Segment-backed input and output are
+/// copied straight between the segment and the array. Streams whose byte order is unknown, such as a
+/// user-supplied [DataInput], fall back to element-wise access.
+///
+/// An instance owns its scratch buffer and is not thread-safe; readers and writers keep one each.
+final class PrimitiveArrayCodec {
+    private static final int SCRATCH_SIZE = 8192;
+    // Arrays up to this many bytes are allocated at their declared length straight away
+    private static final int TRUSTED_ARRAY_BYTES = 1 << 20;
+    // Shorter runs, such as the 3 doubles of a position, are cheaper to read one by one than to copy in bulk
+    private static final int BULK_THRESHOLD = 16;
+
+    private byte @Nullable [] scratch;
+
+    private byte[] scratch() {
+        if (scratch == null) {
+            scratch = new byte[SCRATCH_SIZE];
+        }
+        return scratch;
+    }
+
+    /// Gets the byte order of one of the streams created by this package.
+    ///
+    /// @param in The input.
+    /// @return The byte order of `in`, or `null` if it is not known.
+    static @Nullable ByteOrder orderOf(DataInput in) {
+        if (in instanceof MemorySegmentDataInput source) {
+            return source.order();
+        } else if (in instanceof LittleEndianDataInputStream) {
+            return ByteOrder.LITTLE_ENDIAN;
+        } else if (in.getClass() == DataInputStream.class) {
+            return ByteOrder.BIG_ENDIAN;
+        }
+        return null;
+    }
+
+    /// Gets the byte order of one of the streams created by this package.
+    ///
+    /// @param out The output.
+    /// @return The byte order of `out`, or `null` if it is not known.
+    static @Nullable ByteOrder orderOf(DataOutput out) {
+        if (out instanceof MemorySegmentDataOutput target) {
+            return target.order();
+        } else if (out instanceof LittleEndianDataOutputStream) {
+            return ByteOrder.LITTLE_ENDIAN;
+        } else if (out.getClass() == DataOutputStream.class) {
+            return ByteOrder.BIG_ENDIAN;
+        }
+        return null;
+    }
+
+    /// Reads `length` ints into `values`, starting at index 0.
+    ///
+    /// @param in     The input.
+    /// @param values The destination array.
+    /// @param length The number of elements to read.
+    /// @throws IOException If an I/O error occurs.
+    void readInts(DataInput in, int[] values, int length) throws IOException {
+        readInts(in, values, 0, length);
+    }
+
+    private void readInts(DataInput in, int[] values, int from, int to) throws IOException {
+        ByteOrder order = orderOf(in);
+        if (order == null || to - from < BULK_THRESHOLD) {
+            for (int i = from; i < to; i++) {
+                values[i] = in.readInt();
+            }
+        } else if (in instanceof MemorySegmentDataInput source) {
+            long offset = source.position();
+            source.skipFully((long) (to - from) * Integer.BYTES);
+            MemorySegment.copy(source.segment(), ValueLayout.JAVA_INT_UNALIGNED.withOrder(order), offset, values, from, to - from);
+        } else {
+            byte[] buffer = scratch();
+            ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+            for (int done = from; done < to; ) {
+                int n = Math.min(to - done, buffer.length / Integer.BYTES);
+                in.readFully(buffer, 0, n * Integer.BYTES);
+                view.asIntBuffer().get(values, done, n);
+                done += n;
+            }
+        }
+    }
+
+    /// Reads `length` longs into `values`, starting at index 0.
+    ///
+    /// @param in     The input.
+    /// @param values The destination array.
+    /// @param length The number of elements to read.
+    /// @throws IOException If an I/O error occurs.
+    void readLongs(DataInput in, long[] values, int length) throws IOException {
+        readLongs(in, values, 0, length);
+    }
+
+    private void readLongs(DataInput in, long[] values, int from, int to) throws IOException {
+        ByteOrder order = orderOf(in);
+        if (order == null || to - from < BULK_THRESHOLD) {
+            for (int i = from; i < to; i++) {
+                values[i] = in.readLong();
+            }
+        } else if (in instanceof MemorySegmentDataInput source) {
+            long offset = source.position();
+            source.skipFully((long) (to - from) * Long.BYTES);
+            MemorySegment.copy(source.segment(), ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order), offset, values, from, to - from);
+        } else {
+            byte[] buffer = scratch();
+            ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+            for (int done = from; done < to; ) {
+                int n = Math.min(to - done, buffer.length / Long.BYTES);
+                in.readFully(buffer, 0, n * Long.BYTES);
+                view.asLongBuffer().get(values, done, n);
+                done += n;
+            }
+        }
+    }
+
+    private void readShorts(DataInput in, short[] values, int from, int to) throws IOException {
+        ByteOrder order = orderOf(in);
+        if (order == null || to - from < BULK_THRESHOLD) {
+            for (int i = from; i < to; i++) {
+                values[i] = in.readShort();
+            }
+        } else if (in instanceof MemorySegmentDataInput source) {
+            long offset = source.position();
+            source.skipFully((long) (to - from) * Short.BYTES);
+            MemorySegment.copy(source.segment(), ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(order), offset, values, from, to - from);
+        } else {
+            byte[] buffer = scratch();
+            ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+            for (int done = from; done < to; ) {
+                int n = Math.min(to - done, buffer.length / Short.BYTES);
+                in.readFully(buffer, 0, n * Short.BYTES);
+                view.asShortBuffer().get(values, done, n);
+                done += n;
+            }
+        }
+    }
+
+    private void readFloats(DataInput in, float[] values, int from, int to) throws IOException {
+        ByteOrder order = orderOf(in);
+        if (order == null || to - from < BULK_THRESHOLD) {
+            for (int i = from; i < to; i++) {
+                values[i] = in.readFloat();
+            }
+        } else if (in instanceof MemorySegmentDataInput source) {
+            long offset = source.position();
+            source.skipFully((long) (to - from) * Float.BYTES);
+            MemorySegment.copy(source.segment(), ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(order), offset, values, from, to - from);
+        } else {
+            byte[] buffer = scratch();
+            ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+            for (int done = from; done < to; ) {
+                int n = Math.min(to - done, buffer.length / Float.BYTES);
+                in.readFully(buffer, 0, n * Float.BYTES);
+                view.asFloatBuffer().get(values, done, n);
+                done += n;
+            }
+        }
+    }
+
+    private void readDoubles(DataInput in, double[] values, int from, int to) throws IOException {
+        ByteOrder order = orderOf(in);
+        if (order == null || to - from < BULK_THRESHOLD) {
+            for (int i = from; i < to; i++) {
+                values[i] = in.readDouble();
+            }
+        } else if (in instanceof MemorySegmentDataInput source) {
+            long offset = source.position();
+            source.skipFully((long) (to - from) * Double.BYTES);
+            MemorySegment.copy(source.segment(), ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(order), offset, values, from, to - from);
+        } else {
+            byte[] buffer = scratch();
+            ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+            for (int done = from; done < to; ) {
+                int n = Math.min(to - done, buffer.length / Double.BYTES);
+                in.readFully(buffer, 0, n * Double.BYTES);
+                view.asDoubleBuffer().get(values, done, n);
+                done += n;
+            }
+        }
+    }
+
+    /// Reads a new array of `length` bytes without trusting `length` for the allocation.
+    ///
+    /// Input of known size is checked against the bytes it has left before anything is allocated.
+    /// Other input is read into an array of at most 1 MiB that doubles as data arrives, so a length
+    /// prefix larger than the data ends in an [EOFException] after allocating about twice the data
+    /// that was actually there.
+    ///
+    /// @param in     The input.
+    /// @param length The declared number of elements.
+    /// @return The elements.
+    /// @throws IOException If an I/O error occurs or the input ends early.
+    byte[] readByteArray(DataInput in, int length) throws IOException {
+        int done = initialLength(in, length, Byte.BYTES);
+        byte[] values = new byte[done];
+        in.readFully(values, 0, done);
+        while (done < length) {
+            int next = grow(done, length);
+            values = Arrays.copyOf(values, next);
+            in.readFully(values, done, next - done);
+            done = next;
+        }
+        return values;
+    }
+
+    /// Reads a new array of `length` ints without trusting `length` for the allocation.
+    ///
+    /// @param in     The input.
+    /// @param length The declared number of elements.
+    /// @return The elements.
+    /// @throws IOException If an I/O error occurs or the input ends early.
+    /// @see #readByteArray(DataInput, int)
+    int[] readIntArray(DataInput in, int length) throws IOException {
+        int done = initialLength(in, length, Integer.BYTES);
+        int[] values = new int[done];
+        readInts(in, values, 0, done);
+        while (done < length) {
+            int next = grow(done, length);
+            values = Arrays.copyOf(values, next);
+            readInts(in, values, done, next);
+            done = next;
+        }
+        return values;
+    }
+
+    /// Reads a new array of `length` longs without trusting `length` for the allocation.
+    ///
+    /// @param in     The input.
+    /// @param length The declared number of elements.
+    /// @return The elements.
+    /// @throws IOException If an I/O error occurs or the input ends early.
+    /// @see #readByteArray(DataInput, int)
+    long[] readLongArray(DataInput in, int length) throws IOException {
+        int done = initialLength(in, length, Long.BYTES);
+        long[] values = new long[done];
+        readLongs(in, values, 0, done);
+        while (done < length) {
+            int next = grow(done, length);
+            values = Arrays.copyOf(values, next);
+            readLongs(in, values, done, next);
+            done = next;
+        }
+        return values;
+    }
+
+    /// Reads a new array of `length` shorts without trusting `length` for the allocation.
+    ///
+    /// @param in     The input.
+    /// @param length The declared number of elements.
+    /// @return The elements.
+    /// @throws IOException If an I/O error occurs or the input ends early.
+    /// @see #readByteArray(DataInput, int)
+    short[] readShortArray(DataInput in, int length) throws IOException {
+        int done = initialLength(in, length, Short.BYTES);
+        short[] values = new short[done];
+        readShorts(in, values, 0, done);
+        while (done < length) {
+            int next = grow(done, length);
+            values = Arrays.copyOf(values, next);
+            readShorts(in, values, done, next);
+            done = next;
+        }
+        return values;
+    }
+
+    /// Reads a new array of `length` floats without trusting `length` for the allocation.
+    ///
+    /// @param in     The input.
+    /// @param length The declared number of elements.
+    /// @return The elements.
+    /// @throws IOException If an I/O error occurs or the input ends early.
+    /// @see #readByteArray(DataInput, int)
+    float[] readFloatArray(DataInput in, int length) throws IOException {
+        int done = initialLength(in, length, Float.BYTES);
+        float[] values = new float[done];
+        readFloats(in, values, 0, done);
+        while (done < length) {
+            int next = grow(done, length);
+            values = Arrays.copyOf(values, next);
+            readFloats(in, values, done, next);
+            done = next;
+        }
+        return values;
+    }
+
+    /// Reads a new array of `length` doubles without trusting `length` for the allocation.
+    ///
+    /// @param in     The input.
+    /// @param length The declared number of elements.
+    /// @return The elements.
+    /// @throws IOException If an I/O error occurs or the input ends early.
+    /// @see #readByteArray(DataInput, int)
+    double[] readDoubleArray(DataInput in, int length) throws IOException {
+        int done = initialLength(in, length, Double.BYTES);
+        double[] values = new double[done];
+        readDoubles(in, values, 0, done);
+        while (done < length) {
+            int next = grow(done, length);
+            values = Arrays.copyOf(values, next);
+            readDoubles(in, values, done, next);
+            done = next;
+        }
+        return values;
+    }
+
+    private static int initialLength(DataInput in, int length, int width) throws EOFException {
+        if (in instanceof MemorySegmentDataInput source) {
+            if ((long) length * width > source.segment().byteSize() - source.position()) {
+                throw new EOFException();
+            }
+            return length;
+        }
+        return Math.min(length, TRUSTED_ARRAY_BYTES / width);
+    }
+
+    private static int grow(int done, int length) {
+        return (int) Math.min(length, 2L * done);
+    }
+
+    /// Writes all elements of `values`.
+    ///
+    /// @param out    The output.
+    /// @param values The elements to write.
+    /// @throws IOException If an I/O error occurs.
+    void writeInts(DataOutput out, int[] values) throws IOException {
+        ByteOrder order = orderOf(out);
+        if (order == null) {
+            for (int value : values) {
+                out.writeInt(value);
+            }
+            return;
+        } else if (out instanceof MemorySegmentDataOutput target) {
+            long offset = target.advance((long) values.length * Integer.BYTES);
+            MemorySegment.copy(values, 0, target.segment(), ValueLayout.JAVA_INT_UNALIGNED.withOrder(order), offset, values.length);
+            return;
+        }
+        byte[] buffer = scratch();
+        ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+        for (int done = 0; done < values.length; ) {
+            int n = Math.min(values.length - done, buffer.length / Integer.BYTES);
+            view.asIntBuffer().put(values, done, n);
+            out.write(buffer, 0, n * Integer.BYTES);
+            done += n;
+        }
+    }
+
+    /// Writes all elements of `values`.
+    ///
+    /// @param out    The output.
+    /// @param values The elements to write.
+    /// @throws IOException If an I/O error occurs.
+    void writeLongs(DataOutput out, long[] values) throws IOException {
+        ByteOrder order = orderOf(out);
+        if (order == null) {
+            for (long value : values) {
+                out.writeLong(value);
+            }
+            return;
+        } else if (out instanceof MemorySegmentDataOutput target) {
+            long offset = target.advance((long) values.length * Long.BYTES);
+            MemorySegment.copy(values, 0, target.segment(), ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order), offset, values.length);
+            return;
+        }
+        byte[] buffer = scratch();
+        ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+        for (int done = 0; done < values.length; ) {
+            int n = Math.min(values.length - done, buffer.length / Long.BYTES);
+            view.asLongBuffer().put(values, done, n);
+            out.write(buffer, 0, n * Long.BYTES);
+            done += n;
+        }
+    }
+
+    /// Writes all elements of `values`.
+    ///
+    /// @param out    The output.
+    /// @param values The elements to write.
+    /// @throws IOException If an I/O error occurs.
+    void writeShorts(DataOutput out, short[] values) throws IOException {
+        ByteOrder order = orderOf(out);
+        if (order == null) {
+            for (short value : values) {
+                out.writeShort(value);
+            }
+            return;
+        } else if (out instanceof MemorySegmentDataOutput target) {
+            long offset = target.advance((long) values.length * Short.BYTES);
+            MemorySegment.copy(values, 0, target.segment(), ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(order), offset, values.length);
+            return;
+        }
+        byte[] buffer = scratch();
+        ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+        for (int done = 0; done < values.length; ) {
+            int n = Math.min(values.length - done, buffer.length / Short.BYTES);
+            view.asShortBuffer().put(values, done, n);
+            out.write(buffer, 0, n * Short.BYTES);
+            done += n;
+        }
+    }
+
+    /// Writes all elements of `values`.
+    ///
+    /// @param out    The output.
+    /// @param values The elements to write.
+    /// @throws IOException If an I/O error occurs.
+    void writeFloats(DataOutput out, float[] values) throws IOException {
+        ByteOrder order = orderOf(out);
+        if (order == null) {
+            for (float value : values) {
+                out.writeFloat(value);
+            }
+            return;
+        } else if (out instanceof MemorySegmentDataOutput target) {
+            long offset = target.advance((long) values.length * Float.BYTES);
+            MemorySegment.copy(values, 0, target.segment(), ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(order), offset, values.length);
+            // The bulk copy keeps the bits of a NaN, while writeFloat writes the canonical NaN
+            for (int i = 0; i < values.length; i++) {
+                if (Float.isNaN(values[i])) {
+                    target.segment().set(ValueLayout.JAVA_INT_UNALIGNED.withOrder(order), offset + (long) i * Float.BYTES, Float.floatToIntBits(values[i]));
+                }
+            }
+            return;
+        }
+        byte[] buffer = scratch();
+        ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+        for (int done = 0; done < values.length; ) {
+            int n = Math.min(values.length - done, buffer.length / Float.BYTES);
+            view.asFloatBuffer().put(values, done, n);
+            for (int i = 0; i < n; i++) {
+                if (Float.isNaN(values[done + i])) {
+                    view.putInt(i * Float.BYTES, Float.floatToIntBits(values[done + i]));
+                }
+            }
+            out.write(buffer, 0, n * Float.BYTES);
+            done += n;
+        }
+    }
+
+    /// Writes all elements of `values`.
+    ///
+    /// @param out    The output.
+    /// @param values The elements to write.
+    /// @throws IOException If an I/O error occurs.
+    void writeDoubles(DataOutput out, double[] values) throws IOException {
+        ByteOrder order = orderOf(out);
+        if (order == null) {
+            for (double value : values) {
+                out.writeDouble(value);
+            }
+            return;
+        } else if (out instanceof MemorySegmentDataOutput target) {
+            long offset = target.advance((long) values.length * Double.BYTES);
+            MemorySegment.copy(values, 0, target.segment(), ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(order), offset, values.length);
+            for (int i = 0; i < values.length; i++) {
+                if (Double.isNaN(values[i])) {
+                    target.segment().set(ValueLayout.JAVA_LONG_UNALIGNED.withOrder(order), offset + (long) i * Double.BYTES, Double.doubleToLongBits(values[i]));
+                }
+            }
+            return;
+        }
+        byte[] buffer = scratch();
+        ByteBuffer view = ByteBuffer.wrap(buffer).order(order);
+        for (int done = 0; done < values.length; ) {
+            int n = Math.min(values.length - done, buffer.length / Double.BYTES);
+            view.asDoubleBuffer().put(values, done, n);
+            for (int i = 0; i < n; i++) {
+                if (Double.isNaN(values[done + i])) {
+                    view.putLong(i * Double.BYTES, Double.doubleToLongBits(values[done + i]));
+                }
+            }
+            out.write(buffer, 0, n * Double.BYTES);
+            done += n;
+        }
+    }
+}
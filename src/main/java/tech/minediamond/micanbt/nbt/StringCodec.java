@@ -0,0 +1,221 @@
+package tech.minediamond.micanbt.nbt;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+
+/// Decodes and encodes length-prefixed NBT strings with reusable scratch buffers.
+///
+/// Java edition NBT stores strings in the Modified UTF-8 of [DataInput#readUTF]; the little-endian
+/// (Bedrock) streams of this package use standard UTF-8 instead. Both share the unsigned short
+/// length prefix, written in the byte order of the stream.
+///
+/// Pure ASCII strings, which covers nearly all keys, take a fast path in both directions: they are
+/// turned into a compact Latin-1 `String` with a single copy, and encoded without computing
+/// multi-byte sequences. Apart from the resulting `String`, decoding and encoding allocate nothing
+/// once the scratch buffers have grown to the longest string seen.
+///
+/// An instance is not thread-safe; every reader, writer and stream keeps its own.
+final class StringCodec {
+    static final int MAX_LENGTH = 65535;
+
+    private final boolean modified;
+    private byte[] bytes = new byte[64];
+    private char[] chars = new char[64];
+
+    /// @param modified `true` for Modified UTF-8, `false` for standard UTF-8.
+    StringCodec(boolean modified) {
+        this.modified = modified;
+    }
+
+    /// @return `true` if this codec uses Modified UTF-8.
+    boolean isModified() {
+        return modified;
+    }
+
+    /// Reads a length-prefixed string.
+    ///
+    /// @param in The input.
+    /// @return The decoded string.
+    /// @throws IOException If an I/O error occurs or the encoding is malformed.
+    String read(DataInput in) throws IOException {
+        return decode(readBytes(in));
+    }
+
+    /// Reads the encoded bytes of a length-prefixed string into [#buffer()] without decoding them.
+    ///
+    /// @param in The input.
+    /// @return The number of encoded bytes.
+    /// @throws IOException If an I/O error occurs.
+    int readBytes(DataInput in) throws IOException {
+        int length = in.readUnsignedShort();
+        in.readFully(buffer(length), 0, length);
+        return length;
+    }
+
+    /// Gets the scratch buffer filled by [#readBytes(DataInput)].
+    ///
+    /// @return The scratch buffer; only valid until the next call on this codec.
+    byte[] buffer() {
+        return bytes;
+    }
+
+    /// Gets the scratch buffer, grown to hold at least `length` bytes, for callers that fill it
+    /// themselves before calling [#decode(int)].
+    ///
+    /// @param length The number of encoded bytes that will be stored.
+    /// @return The scratch buffer; only valid until the next call on this codec.
+    byte[] buffer(int length) {
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, Math.min(bytes.length * 2, MAX_LENGTH))];
+        }
+        return bytes;
+    }
+
+    /// Decodes the first `length` bytes of [#buffer()].
+    ///
+    /// @param length The number of encoded bytes.
+    /// @return The decoded string.
+    /// @throws UTFDataFormatException If the bytes are not valid Modified UTF-8.
+    String decode(int length) throws UTFDataFormatException {
+        byte[] bytes = this.bytes;
+        int ascii = 0;
+        while (ascii < length && bytes[ascii] > 0) {
+            ascii++;
+        }
+        if (ascii == length) {
+            return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+        }
+        if (!modified) {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        if (chars.length < length) {
+            chars = new char[Math.max(length, Math.min(chars.length * 2, MAX_LENGTH))];
+        }
+        char[] chars = this.chars;
+        for (int i = 0; i < ascii; i++) {
+            chars[i] = (char) bytes[i];
+        }
+        int count = ascii;
+        int charCount = ascii;
+        while (count < length) {
+            int c = bytes[count] & 0xFF;
+            switch (c >> 4) {
+                case 0, 1, 2, 3, 4, 5, 6, 7 -> {
+                    count++;
+                    chars[charCount++] = (char) c;
+                }
+                case 12, 13 -> {
+                    count += 2;
+                    if (count > length) {
+                        throw new UTFDataFormatException("malformed input: partial character at end");
+                    }
+                    int c2 = bytes[count - 1];
+                    if ((c2 & 0xC0) != 0x80) {
+                        throw new UTFDataFormatException("malformed input around byte " + count);
+                    }
+                    chars[charCount++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+                }
+                case 14 -> {
+                    count += 3;
+                    if (count > length) {
+                        throw new UTFDataFormatException("malformed input: partial character at end");
+                    }
+                    int c2 = bytes[count - 2];
+                    int c3 = bytes[count - 1];
+                    if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80) {
+                        throw new UTFDataFormatException("malformed input around byte " + (count - 1));
+                    }
+                    chars[charCount++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+                }
+                default -> throw new UTFDataFormatException("malformed input around byte " + count);
+            }
+        }
+        return new String(chars, 0, charCount);
+    }
+
+    /// Writes a length-prefixed string.
+    ///
+    /// @param out The output.
+    /// @param s   The string to write.
+    /// @throws IOException If an I/O error occurs or the encoded string is longer than 65535 bytes.
+    void write(DataOutput out, String s) throws IOException {
+        int encodedLength = encode(s, MAX_LENGTH);
+        out.writeShort(encodedLength);
+        out.write(bytes, 0, encodedLength);
+    }
+
+    /// Encodes a string into [#buffer()] without a length prefix.
+    ///
+    /// @param s         The string to encode.
+    /// @param maxLength The largest encoded length that is accepted.
+    /// @return The number of encoded bytes.
+    /// @throws UTFDataFormatException If the encoded string is longer than `maxLength` bytes.
+    int encode(String s, int maxLength) throws UTFDataFormatException {
+        int length = s.length();
+        int encodedLength = encodedLength(s, modified);
+        if (encodedLength > maxLength) {
+            throw new UTFDataFormatException("encoded string (" + s.substring(0, 8) + "...) too long: " + encodedLength + " bytes");
+        }
+        byte[] bytes = buffer(encodedLength);
+
+        int ascii = 0;
+        for (char c; ascii < length && (c = s.charAt(ascii)) > 0 && c < 0x80; ascii++) {
+            bytes[ascii] = (byte) c;
+        }
+        int count = ascii;
+        for (int i = ascii; i < length; i++) {
+            char c = s.charAt(i);
+            if (c > 0 && c < 0x80) {
+                bytes[count++] = (byte) c;
+            } else if (c < 0x800 && (c != 0 || modified)) {
+                bytes[count++] = (byte) (0xC0 | (c >> 6));
+                bytes[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == 0) {
+                bytes[count++] = 0;
+            } else if (modified || !Character.isSurrogate(c)) {
+                bytes[count++] = (byte) (0xE0 | (c >> 12));
+                bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                bytes[count++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                // Same replacement as String.getBytes for an unpaired surrogate
+                bytes[count++] = '?';
+            }
+        }
+        return encodedLength;
+    }
+
+    /// Computes the number of bytes a string occupies after the length prefix.
+    ///
+    /// @param s        The string.
+    /// @param modified `true` for Modified UTF-8, `false` for standard UTF-8.
+    /// @return The encoded length in bytes.
+    static int encodedLength(String s, boolean modified) {
+        int length = s.length();
+        int encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80 || (c == 0 && modified)) {
+                if (c < 0x800) {
+                    encodedLength += 1;
+                } else if (modified || !Character.isSurrogate(c)) {
+                    encodedLength += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    // Four bytes for two chars
+                    encodedLength += 2;
+                    i++;
+                }
+            }
+        }
+        return encodedLength;
+    }
+}
@@ -1,6 +1,7 @@
 package tech.minediamond.micanbt.path.nbtpathtoken;
 
 import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.tag.CompoundTag;
 import tech.minediamond.micanbt.tag.ListTag;
 import tech.minediamond.micanbt.tag.Tag;
 
@@ -20,11 +21,27 @@ public record MatchToken(Tag pattern) implements PathToken{
     private int findIndex(Tag container) {
         if (container instanceof ListTag<?> list) {
             for (int i = 0; i < list.size(); i++) {
-                if (list.get(i).equals(pattern)) {
+                if (matches(list.get(i))) {
                     return i;
                 }
             }
         }
         return -1;
     }
+
+    // A compound pattern matches every compound that has its entries, like a FilterToken; other patterns match equal tags
+    private boolean matches(Tag element) {
+        if (pattern instanceof CompoundTag compoundPattern) {
+            if (!(element instanceof CompoundTag compound)) {
+                return false;
+            }
+            for (Tag tag : compoundPattern) {
+                if (!compound.contains(tag)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return element.equals(pattern);
+    }
 }
@@ -1,6 +1,7 @@
 package tech.minediamond.micanbt.snbt;
 
 import org.jetbrains.annotations.Contract;
+import tech.minediamond.micanbt.tag.StringPool;
 import tech.minediamond.micanbt.tag.Tag;
 
 import java.io.IOException;
@@ -46,6 +47,18 @@ public class SNBT {
         return new SNBTReader(SNBTText).getTag();
     }
 
+    /**
+     * Parses an SNBT-formatted string back into a {@link Tag} object, deduplicating string values.
+     *
+     * @param SNBTText   A string conforming to the SNBT specification.
+     * @param stringPool The pool that supplies shared instances of string values.
+     * @return The parsed NBT tag.
+     * @throws SNBTParseException If SNBT syntax is incorrect and causes parsing to fail
+     */
+    public static Tag parse(String SNBTText, StringPool stringPool) {
+        return new SNBTReader(SNBTText, stringPool).getTag();
+    }
+
     /**
      * Parses an SNBT-formatted string back into a {@link Tag} object from a file.
      *
@@ -7,6 +7,8 @@ import tech.minediamond.micanbt.util.primitivearray.ByteArray;
 import tech.minediamond.micanbt.util.primitivearray.IntArray;
 import tech.minediamond.micanbt.util.primitivearray.LongArray;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -14,12 +16,18 @@ import java.nio.file.Path;
 public class SNBTReader {
     private final CharReader snbtBuffer;
     private final Tag tag;
+    private final @Nullable StringPool stringPool;
 
     private int depth = 0;
     private final StringBuilder reusableBuilder = new StringBuilder();
 
     public SNBTReader(String SNBTText) {
+        this(SNBTText, null);
+    }
+
+    public SNBTReader(String SNBTText, @Nullable StringPool stringPool) {
         this.snbtBuffer = new CharReader(SNBTText);
+        this.stringPool = stringPool;
         try {
             tag = readRoot();
         } catch (Exception e) {
@@ -28,7 +36,12 @@ public class SNBTReader {
     }
 
     public SNBTReader(Path path) throws IOException {
+        this(path, null);
+    }
+
+    public SNBTReader(Path path, @Nullable StringPool stringPool) throws IOException {
         this.snbtBuffer = new CharReader(Files.readString(path));
+        this.stringPool = stringPool;
         try {
             tag = readRoot();
         } catch (Exception e) {
@@ -209,7 +222,7 @@ public class SNBTReader {
         if (value.equalsIgnoreCase(Tokens.LITERAL_FALSE)) return new ByteTag(name, (byte) 0);
 
         if (value.isEmpty() || !Tokens.isDigit(value.charAt(0))) {
-            return new StringTag(name, value);
+            return newStringTag(name, value);
         }
 
         char suffix = Character.toLowerCase(value.charAt(value.length() - 1));
@@ -269,10 +282,14 @@ public class SNBTReader {
             if (e.getMessage().contains("Value out of range.")) {
                 throw e;
             }
-            return new StringTag(name, value); // So this is unquoted string
+            return newStringTag(name, value); // So this is unquoted string
         }
     }
 
+    private StringTag newStringTag(String name, String value) {
+        return stringPool != null ? new StringTag(name, value, stringPool) : new StringTag(name, value);
+    }
+
     private Tag getSignedTag(String name, String value, char suffix, int radix, String numPart) {
         return switch (suffix) {
             case Tokens.TYPE_BYTE -> new ByteTag(name, Byte.parseByte(numPart, radix));
@@ -282,7 +299,7 @@ public class SNBTReader {
             case Tokens.TYPE_LONG -> new LongTag(name, Long.parseLong(numPart, radix));
             case Tokens.TYPE_FLOAT -> new FloatTag(name, Float.parseFloat(numPart));
             case Tokens.TYPE_DOUBLE -> new DoubleTag(name, Double.parseDouble(numPart));
-            default -> new StringTag(name, value); // Unquoted string
+            default -> newStringTag(name, value); // Unquoted string
         };
     }
 
@@ -303,7 +320,7 @@ public class SNBTReader {
             case Tokens.TYPE_INT, '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' ->
                     new IntTag(name, Integer.parseUnsignedInt(numPart, radix));
             case Tokens.TYPE_LONG -> new LongTag(name, Long.parseUnsignedLong(numPart, radix));
-            default -> new StringTag(name, value); // Unquoted string
+            default -> newStringTag(name, value); // Unquoted string
         };
     }
 
@@ -50,31 +50,23 @@ public class SNBTWriter {
 
     // For primitive data types, do not care the surrounding tabs;
     // CompoundTag/ListTag/ArrayTag should pay attention and fill in appropriate new lines and tabs for their subTags.
+    // Dispatching on the tag ID jumps straight to the type instead of testing each class in turn.
     private void stringify(Tag tag) {
-        if (tag instanceof CompoundTag compoundTag) {
-            stringifyCompoundTag(compoundTag);
-        } else if (tag instanceof ListTag<?> listTag) {
-            stringifyListTag(listTag);
-        } else if (tag instanceof StringTag stringTag) {
-            stringifyStringTag(stringTag);
-        } else if (tag instanceof ByteArrayTag byteArrayTag) {
-            stringifyByteArrayTag(byteArrayTag);
-        } else if (tag instanceof IntArrayTag intArrayTag) {
-            stringifyIntArrayTag(intArrayTag);
-        } else if (tag instanceof LongArrayTag longArrayTag) {
-            stringifyLongArrayTag(longArrayTag);
-        } else if (tag instanceof ByteTag byteTag) {
-            builder.append(byteTag.getRawValue()).append(Tokens.TYPE_BYTE);
-        } else if (tag instanceof ShortTag shortTag) {
-            builder.append(shortTag.getRawValue()).append(Tokens.TYPE_SHORT);
-        } else if (tag instanceof IntTag intTag) {
-            builder.append(intTag.getRawValue());
-        } else if (tag instanceof LongTag longTag) {
-            builder.append(longTag.getRawValue()).append(Tokens.TYPE_LONG_UPPER);
-        } else if (tag instanceof FloatTag floatTag) {
-            builder.append(floatTag.getRawValue()).append(Tokens.TYPE_FLOAT);
-        } else if (tag instanceof DoubleTag doubleTag) {
-            builder.append(doubleTag.getRawValue()).append(Tokens.TYPE_DOUBLE);
+        switch (tag.getTagId()) {
+            case CompoundTag.ID -> stringifyCompoundTag((CompoundTag) tag);
+            case ListTag.ID -> stringifyListTag((ListTag<?>) tag);
+            case StringTag.ID -> stringifyStringTag((StringTag) tag);
+            case ByteArrayTag.ID -> stringifyByteArrayTag((ByteArrayTag) tag);
+            case IntArrayTag.ID -> stringifyIntArrayTag((IntArrayTag) tag);
+            case LongArrayTag.ID -> stringifyLongArrayTag((LongArrayTag) tag);
+            case ByteTag.ID -> builder.append(((ByteTag) tag).getRawValue()).append(Tokens.TYPE_BYTE);
+            case ShortTag.ID -> builder.append(((ShortTag) tag).getRawValue()).append(Tokens.TYPE_SHORT);
+            case IntTag.ID -> builder.append(((IntTag) tag).getRawValue());
+            case LongTag.ID -> builder.append(((LongTag) tag).getRawValue()).append(Tokens.TYPE_LONG_UPPER);
+            case FloatTag.ID -> builder.append(((FloatTag) tag).getRawValue()).append(Tokens.TYPE_FLOAT);
+            case DoubleTag.ID -> builder.append(((DoubleTag) tag).getRawValue()).append(Tokens.TYPE_DOUBLE);
+            default -> {
+            }
         }
     }
 
@@ -127,14 +119,25 @@ public class SNBTWriter {
             depth++;
             newLineAndAddTab();
         }
-        for (Tag subTag : listTag) {
-            if (isFirst) {
-                isFirst = false;
-            } else {
-                addValueSeparator();
+        Object primitives = listTag.getPrimitiveArray();
+        if (primitives != null) {
+            // Numbers kept in an array are written from it, without creating their tags
+            for (int i = 0; i < listTag.size(); i++) {
+                if (i > 0) {
+                    addValueSeparator();
+                }
+                stringifyElement(listTag.getElementTypeId(), primitives, i);
             }
+        } else {
+            for (Tag subTag : listTag) {
+                if (isFirst) {
+                    isFirst = false;
+                } else {
+                    addValueSeparator();
+                }
 
-            stringify(subTag);
+                stringify(subTag);
+            }
         }
         if (snbtStyle == SNBTStyle.INDENTED) {
             depth--;
@@ -143,6 +146,19 @@ public class SNBTWriter {
         builder.append(Tokens.ARRAY_END);
     }
 
+    private void stringifyElement(int typeId, Object primitives, int index) {
+        switch (typeId) {
+            case ByteTag.ID -> builder.append(((byte[]) primitives)[index]).append(Tokens.TYPE_BYTE);
+            case ShortTag.ID -> builder.append(((short[]) primitives)[index]).append(Tokens.TYPE_SHORT);
+            case IntTag.ID -> builder.append(((int[]) primitives)[index]);
+            case LongTag.ID -> builder.append(((long[]) primitives)[index]).append(Tokens.TYPE_LONG_UPPER);
+            case FloatTag.ID -> builder.append(((float[]) primitives)[index]).append(Tokens.TYPE_FLOAT);
+            case DoubleTag.ID -> builder.append(((double[]) primitives)[index]).append(Tokens.TYPE_DOUBLE);
+            default -> {
+            }
+        }
+    }
+
     private void stringifyStringTag(StringTag stringTag) {
         stringifyString(stringTag.getRawValue());
     }
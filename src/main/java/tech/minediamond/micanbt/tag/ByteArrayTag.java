@@ -47,7 +47,9 @@ public class ByteArrayTag extends Tag {
     /// @param value New value of this tag.
     /// @throws NullPointerException The value passed in is null
     public void setValue(byte[] value) {
+        checkMutable();
         this.value = value.clone();
+        invalidateContentHash();
     }
 
     /// Gets a value in this tag's array.
@@ -65,7 +67,9 @@ public class ByteArrayTag extends Tag {
     /// @param value Value to set.
     /// @throws IndexOutOfBoundsException If the index is out of range
     public void setValue(int index, byte value) {
+        checkMutable();
         this.value[index] = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -74,6 +78,11 @@ public class ByteArrayTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitByteArray(this);
+    }
+
     /// Gets the length of this tag's array.
     ///
     /// @return This tag's array length.
@@ -93,6 +102,7 @@ public class ByteArrayTag extends Tag {
 
     @Override
     public int hashCode() {
-        return 31 * super.hashCode() + Arrays.hashCode(value);
+        int hash = cachedHashCode();
+        return hash != 0 ? hash : cacheHashCode(31 * super.hashCode() + Arrays.hashCode(value));
     }
 }
@@ -42,7 +42,9 @@ public class ByteTag extends Tag {
     ///
     /// @param value New value of this tag.
     public void setValue(byte value) {
+        checkMutable();
         this.value = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -51,6 +53,11 @@ public class ByteTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitByte(this);
+    }
+
     @Override
     public ByteTag copy() {
         return new ByteTag(this.getName(), this.getClonedValue());
@@ -33,11 +33,13 @@ public class CommonCompoundTag extends CompoundTag {
 
     @Override
     public void setValue(Map<String, Tag> value) {
+        checkMutable();
         this.value = new LinkedHashMap<>(value);
     }
 
     @Override
     public void put(Tag tag) {
+        checkMutable();
         this.value.put(tag.getName(), tag);
     }
 
@@ -46,6 +48,7 @@ public class CommonCompoundTag extends CompoundTag {
     ///
     /// @param other The compound tag to copy data from.
     public void putAll(CommonCompoundTag other) {
+        checkMutable();
         this.value.putAll(other.getRawValue());
     }
 
@@ -61,11 +64,13 @@ public class CommonCompoundTag extends CompoundTag {
 
     @Override
     public Tag computeIfAbsent(String key, java.util.function.Function<? super String, ? extends Tag> mappingFunction) {
+        checkMutable();
         return this.value.computeIfAbsent(key, mappingFunction);
     }
 
     @Override
     public Tag remove(String tagName) {
+        checkMutable();
         return this.value.remove(tagName);
     }
 
@@ -86,9 +91,9 @@ public class CommonCompoundTag extends CompoundTag {
 
     /// Returns a view of all tags contained in this compound.
     ///
-    /// @return A collection of tags.
+    /// @return A collection of tags, unmodifiable if this compound is frozen.
     public Collection<Tag> values() {
-        return this.value.values();
+        return isFrozen() ? Collections.unmodifiableCollection(this.value.values()) : this.value.values();
     }
 
     @Override
@@ -98,6 +103,7 @@ public class CommonCompoundTag extends CompoundTag {
 
     @Override
     public void clear() {
+        checkMutable();
         this.value.clear();
     }
 
@@ -117,7 +123,7 @@ public class CommonCompoundTag extends CompoundTag {
 
     @Override
     public Map<String, Tag> getRawValue() {
-        return this.value;
+        return isFrozen() ? Collections.unmodifiableMap(this.value) : this.value;
     }
 
     @Override
@@ -130,13 +136,9 @@ public class CommonCompoundTag extends CompoundTag {
         return new CommonCompoundTag(this.getName(), newMap);
     }
 
+    /// Shares the frozen entries with the new compound instead of copying them.
     @Override
-    public boolean equals(Object o) {
-        return super.equals(o) && value.equals(((CommonCompoundTag) o).value);
-    }
-
-    @Override
-    public int hashCode() {
-        return 31 * super.hashCode() + Objects.hashCode(value);
+    public CommonCompoundTag thaw() {
+        return isFrozen() ? new CommonCompoundTag(this.getName(), this.value) : this;
     }
 }
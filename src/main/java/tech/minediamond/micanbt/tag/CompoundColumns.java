@@ -0,0 +1,876 @@
+package tech.minediamond.micanbt.tag;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/// The elements of a list of compounds, stored by key instead of by element.
+///
+/// Lists such as `Items`, `Entities` or `block_entities` hold compounds that nearly all have the
+/// same keys. A [ListTag] created by [ListTag#of(String, CompoundColumns)] keeps them here, in one
+/// column per key that holds the value of the key for every row. The keys are stored once for the
+/// whole list. Numbers are kept in a primitive array, `byte[]` for a byte key and so on, strings in
+/// a `String[]`, and every other value as a tag. A key whose rows hold values of different types
+/// keeps them as tags too.
+///
+/// Scans over one key read its column as an array loop, without creating tags or looking up keys
+/// per element:
+///
+/// ```java
+/// byte[] counts = columns.getByteColumn("Count");
+/// int total = 0;
+/// for (byte count : counts) {
+///     total += count;
+/// }
+/// ```
+///
+/// A row that has no value for a key holds `0`, or `null`, in the column of that key.
+///
+/// The elements of the list are flyweight views of one row each. Reading an entry reads the column,
+/// and [CompoundTag#put(Tag)] and [CompoundTag#remove(String)] write it. Number and string entries
+/// are returned as new tags, so a change to such a tag reaches the row only once the tag is put
+/// back. The entries of a row are iterated in the order they were put, so a list written back from
+/// its columns has the bytes it was read from; only a row whose keys come in another order than the
+/// columns keeps that order separately. A view stands for a row position, so after rows are
+/// inserted or removed before it, it shows the row that moved into its place.
+///
+/// The columns of a [frozen][Tag#freeze()] list are frozen with it: they throw on every
+/// modification, and its views and the tags they return are frozen too.
+public final class CompoundColumns {
+    /// The type ID reported for a column that holds values of more than one type.
+    public static final int MIXED = -1;
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final Map<String, Column> byKey = new HashMap<>();
+    private final List<Column> columns = new ArrayList<>();
+    private final List<CompoundTag> rowList = new RowList();
+    // Per row, the indices of its columns in the order of its entries, or null where that is the
+    // order of the columns; the array itself is null while every row is in that order
+    private int @Nullable [] @Nullable [] orders;
+    private int rows;
+    private int capacity;
+    private boolean frozen;
+
+    /// Creates columns without rows.
+    public CompoundColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /// Creates columns without rows, with room for `initialCapacity` rows in each column.
+    ///
+    /// @param initialCapacity The number of rows to allocate columns for.
+    /// @throws IllegalArgumentException If the capacity is negative.
+    public CompoundColumns(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        }
+        this.capacity = initialCapacity;
+    }
+
+    /// Creates columns with one row for each compound, in order.
+    ///
+    /// @param compounds The compounds.
+    /// @return New columns holding the entries of the compounds.
+    public static CompoundColumns of(Iterable<? extends CompoundTag> compounds) {
+        CompoundColumns columns = new CompoundColumns(compounds instanceof Collection<?> collection ? collection.size() : DEFAULT_CAPACITY);
+        for (CompoundTag compound : compounds) {
+            columns.addRow(compound);
+        }
+        return columns;
+    }
+
+    /// Checks whether these columns belong to a [frozen][Tag#freeze()] list.
+    ///
+    /// @return `true` if the columns can no longer be modified.
+    @Contract(pure = true)
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /// Gets the number of rows.
+    ///
+    /// @return The number of rows, which is the size of the list.
+    @Contract(pure = true)
+    public int getRowCount() {
+        return this.rows;
+    }
+
+    /// Gets the keys that have a column, in the order they were first seen.
+    ///
+    /// @return An unmodifiable list of the keys.
+    @Contract(pure = true)
+    public List<String> getKeys() {
+        List<String> keys = new ArrayList<>(this.columns.size());
+        for (Column column : this.columns) {
+            keys.add(column.key);
+        }
+        return Collections.unmodifiableList(keys);
+    }
+
+    /// Gets the type ID of the values in the column of a key.
+    ///
+    /// @param key The key.
+    /// @return The tag ID of the values, [#MIXED] if they have different types, or 0 if the key has no column.
+    @Contract(pure = true)
+    public int getTypeId(String key) {
+        Column column = this.byKey.get(key);
+        return column == null ? 0 : column.typeId;
+    }
+
+    /// Counts the rows that have a value for a key.
+    ///
+    /// @param key The key.
+    /// @return The number of rows with the key; [#getRowCount()] if every row has it.
+    @Contract(pure = true)
+    public int countPresent(String key) {
+        Column column = this.byKey.get(key);
+        return column == null ? 0 : column.presentCount;
+    }
+
+    /// Checks whether a row has a value for a key.
+    ///
+    /// @param row The row.
+    /// @param key The key.
+    /// @return `true` if the row has the key.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    @Contract(pure = true)
+    public boolean isPresent(int row, String key) {
+        Objects.checkIndex(row, this.rows);
+        Column column = this.byKey.get(key);
+        return column != null && column.present[row];
+    }
+
+    /// Gets the array that holds the values of a key.
+    ///
+    /// The array has one element per row and is a `byte[]`, `short[]`, `int[]`, `long[]`,
+    /// `float[]` or `double[]` for numbers, a `String[]` for strings and a `Tag[]` otherwise.
+    /// Modifying it modifies the rows that have the key; use [#isPresent(int, String)] to tell
+    /// which those are. The array is replaced when rows are added or removed, or when a value of
+    /// another type is put for the key.
+    ///
+    /// @param key The key.
+    /// @return The array, or `null` if the key has no column.
+    public @Nullable Object getColumn(String key) {
+        Column column = this.byKey.get(key);
+        if (column == null) {
+            return null;
+        }
+        trimToSize();
+        return column.values;
+    }
+
+    /// Gets the values of a byte key.
+    ///
+    /// @param key The key.
+    /// @return The array of [#getColumn(String)], or `null` if the key has no column.
+    /// @throws NBTTypeException If the column does not hold bytes.
+    public byte @Nullable [] getByteColumn(String key) {
+        return (byte[]) typedColumn(key, ByteTag.ID);
+    }
+
+    /// Gets the values of a short key.
+    ///
+    /// @param key The key.
+    /// @return The array of [#getColumn(String)], or `null` if the key has no column.
+    /// @throws NBTTypeException If the column does not hold shorts.
+    public short @Nullable [] getShortColumn(String key) {
+        return (short[]) typedColumn(key, ShortTag.ID);
+    }
+
+    /// Gets the values of an int key.
+    ///
+    /// @param key The key.
+    /// @return The array of [#getColumn(String)], or `null` if the key has no column.
+    /// @throws NBTTypeException If the column does not hold ints.
+    public int @Nullable [] getIntColumn(String key) {
+        return (int[]) typedColumn(key, IntTag.ID);
+    }
+
+    /// Gets the values of a long key.
+    ///
+    /// @param key The key.
+    /// @return The array of [#getColumn(String)], or `null` if the key has no column.
+    /// @throws NBTTypeException If the column does not hold longs.
+    public long @Nullable [] getLongColumn(String key) {
+        return (long[]) typedColumn(key, LongTag.ID);
+    }
+
+    /// Gets the values of a float key.
+    ///
+    /// @param key The key.
+    /// @return The array of [#getColumn(String)], or `null` if the key has no column.
+    /// @throws NBTTypeException If the column does not hold floats.
+    public float @Nullable [] getFloatColumn(String key) {
+        return (float[]) typedColumn(key, FloatTag.ID);
+    }
+
+    /// Gets the values of a double key.
+    ///
+    /// @param key The key.
+    /// @return The array of [#getColumn(String)], or `null` if the key has no column.
+    /// @throws NBTTypeException If the column does not hold doubles.
+    public double @Nullable [] getDoubleColumn(String key) {
+        return (double[]) typedColumn(key, DoubleTag.ID);
+    }
+
+    /// Gets the values of a string key.
+    ///
+    /// @param key The key.
+    /// @return The array of [#getColumn(String)], or `null` if the key has no column.
+    /// @throws NBTTypeException If the column does not hold strings.
+    public String @Nullable [] getStringColumn(String key) {
+        return (String[]) typedColumn(key, StringTag.ID);
+    }
+
+    private @Nullable Object typedColumn(String key, int typeId) {
+        Column column = this.byKey.get(key);
+        if (column == null) {
+            return null;
+        }
+        if (column.typeId != typeId) {
+            throw new NBTTypeException(String.format("Tag type mismatch. Expected ID: %d, got: %d", typeId, column.typeId));
+        }
+        trimToSize();
+        return column.values;
+    }
+
+    /// Appends an empty row.
+    ///
+    /// @return The index of the new row.
+    public int addRow() {
+        checkMutable();
+        ensureCapacity(this.rows + 1);
+        return this.rows++;
+    }
+
+    /// Appends a row holding the entries of a compound.
+    ///
+    /// Number and string values are copied into the columns; other tags are kept as they are.
+    ///
+    /// @param compound The compound.
+    /// @return The index of the new row.
+    public int addRow(CompoundTag compound) {
+        List<Tag> entries = entries(compound);
+        int row = addRow();
+        putAll(row, entries);
+        return row;
+    }
+
+    /// Gets the entry of a row as a tag.
+    ///
+    /// @param row The row.
+    /// @param key The key of the entry.
+    /// @return A new tag for a number or string, the kept tag otherwise, or `null` if the row has no such entry.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    @Contract(pure = true)
+    public @Nullable Tag get(int row, String key) {
+        Objects.checkIndex(row, this.rows);
+        Column column = this.byKey.get(key);
+        return column != null && column.present[row] ? share(column.tag(row)) : null;
+    }
+
+    /// Sets the entry of a row that has the name of `tag` as its key.
+    ///
+    /// @param row The row.
+    /// @param tag The entry.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public void put(int row, Tag tag) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        Column column = column(tag.getName(), tag.getTagId());
+        switch (column.values) {
+            case byte[] values -> values[row] = ((ByteTag) tag).getRawValue();
+            case short[] values -> values[row] = ((ShortTag) tag).getRawValue();
+            case int[] values -> values[row] = ((IntTag) tag).getRawValue();
+            case long[] values -> values[row] = ((LongTag) tag).getRawValue();
+            case float[] values -> values[row] = ((FloatTag) tag).getRawValue();
+            case double[] values -> values[row] = ((DoubleTag) tag).getRawValue();
+            case String[] values -> values[row] = ((StringTag) tag).getRawValue();
+            case Tag[] values -> values[row] = tag;
+            default -> throw new IllegalStateException("Not a column: " + column.values.getClass().getName());
+        }
+        mark(column, row);
+    }
+
+    /// Sets a byte entry of a row without creating a tag.
+    ///
+    /// @param row   The row.
+    /// @param key   The key of the entry.
+    /// @param value The value.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public void putByte(int row, String key, byte value) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        Column column = column(key, ByteTag.ID);
+        if (column.values instanceof byte[] values) {
+            values[row] = value;
+            mark(column, row);
+        } else {
+            put(row, new ByteTag(key, value));
+        }
+    }
+
+    /// Sets a short entry of a row without creating a tag.
+    ///
+    /// @param row   The row.
+    /// @param key   The key of the entry.
+    /// @param value The value.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public void putShort(int row, String key, short value) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        Column column = column(key, ShortTag.ID);
+        if (column.values instanceof short[] values) {
+            values[row] = value;
+            mark(column, row);
+        } else {
+            put(row, new ShortTag(key, value));
+        }
+    }
+
+    /// Sets an int entry of a row without creating a tag.
+    ///
+    /// @param row   The row.
+    /// @param key   The key of the entry.
+    /// @param value The value.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public void putInt(int row, String key, int value) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        Column column = column(key, IntTag.ID);
+        if (column.values instanceof int[] values) {
+            values[row] = value;
+            mark(column, row);
+        } else {
+            put(row, new IntTag(key, value));
+        }
+    }
+
+    /// Sets a long entry of a row without creating a tag.
+    ///
+    /// @param row   The row.
+    /// @param key   The key of the entry.
+    /// @param value The value.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public void putLong(int row, String key, long value) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        Column column = column(key, LongTag.ID);
+        if (column.values instanceof long[] values) {
+            values[row] = value;
+            mark(column, row);
+        } else {
+            put(row, new LongTag(key, value));
+        }
+    }
+
+    /// Sets a float entry of a row without creating a tag.
+    ///
+    /// @param row   The row.
+    /// @param key   The key of the entry.
+    /// @param value The value.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public void putFloat(int row, String key, float value) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        Column column = column(key, FloatTag.ID);
+        if (column.values instanceof float[] values) {
+            values[row] = value;
+            mark(column, row);
+        } else {
+            put(row, new FloatTag(key, value));
+        }
+    }
+
+    /// Sets a double entry of a row without creating a tag.
+    ///
+    /// @param row   The row.
+    /// @param key   The key of the entry.
+    /// @param value The value.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public void putDouble(int row, String key, double value) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        Column column = column(key, DoubleTag.ID);
+        if (column.values instanceof double[] values) {
+            values[row] = value;
+            mark(column, row);
+        } else {
+            put(row, new DoubleTag(key, value));
+        }
+    }
+
+    /// Sets a string entry of a row without creating a tag.
+    ///
+    /// @param row   The row.
+    /// @param key   The key of the entry.
+    /// @param value The value.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public void putString(int row, String key, String value) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        Column column = column(key, StringTag.ID);
+        if (column.values instanceof String[] values) {
+            values[row] = Objects.requireNonNull(value, "value");
+            mark(column, row);
+        } else {
+            put(row, new StringTag(key, value));
+        }
+    }
+
+    /// Removes the entry of a row.
+    ///
+    /// @param row The row.
+    /// @param key The key of the entry.
+    /// @return The removed entry as by [#get(int, String)], or `null` if the row had no such entry.
+    /// @throws IndexOutOfBoundsException If the row is out of range.
+    public @Nullable Tag remove(int row, String key) {
+        checkMutable();
+        Tag tag = get(row, key);
+        if (tag != null) {
+            clear(this.byKey.get(key), row);
+        }
+        return tag;
+    }
+
+    /// Creates a deep copy of these columns.
+    ///
+    /// @return New columns with the same rows.
+    @Contract(pure = true)
+    public CompoundColumns copy() {
+        return copy(true);
+    }
+
+    // With deep false the tags of the columns are shared rather than copied, for thawing a frozen list
+    CompoundColumns copy(boolean deep) {
+        CompoundColumns copy = new CompoundColumns(this.rows);
+        for (Column column : this.columns) {
+            Object values = resize(column.values, this.rows);
+            if (deep && values instanceof Tag[] tags) {
+                for (int row = 0; row < tags.length; row++) {
+                    if (tags[row] != null) {
+                        tags[row] = tags[row].copy();
+                    }
+                }
+            }
+            Column columnCopy = new Column(column.key, column.index, column.typeId, values, Arrays.copyOf(column.present, this.rows));
+            columnCopy.presentCount = column.presentCount;
+            copy.byKey.put(column.key, columnCopy);
+            copy.columns.add(columnCopy);
+        }
+        // The orders of the rows are replaced rather than modified, so they can be shared
+        copy.orders = this.orders == null ? null : Arrays.copyOf(this.orders, this.rows);
+        copy.rows = this.rows;
+        return copy;
+    }
+
+    // Trims the columns, so that no read has to, and adds the tags they hold to be frozen
+    void freeze(Deque<Tag> pending) {
+        trimToSize();
+        this.frozen = true;
+        for (Column column : this.columns) {
+            if (column.values instanceof Tag[] tags) {
+                for (Tag tag : tags) {
+                    if (tag != null && !tag.isFrozen()) {
+                        pending.push(tag);
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkMutable() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("Columns are frozen");
+        }
+    }
+
+    // Tags handed out by frozen columns are frozen as well
+    private Tag share(Tag tag) {
+        if (this.frozen) {
+            tag.markFrozen();
+        }
+        return tag;
+    }
+
+    // The live list of row views that backs a columnar ListTag
+    List<CompoundTag> rows() {
+        return this.rowList;
+    }
+
+    int size(int row) {
+        int size = 0;
+        for (Column column : this.columns) {
+            if (column.present[row]) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    void clearRow(int row) {
+        checkMutable();
+        Objects.checkIndex(row, this.rows);
+        for (Column column : this.columns) {
+            if (column.present[row]) {
+                column.clear(row);
+            }
+        }
+        if (this.orders != null) {
+            this.orders[row] = null;
+        }
+    }
+
+    Iterator<Tag> iterator(int row) {
+        Objects.checkIndex(row, this.rows);
+        int[] order = this.orders == null ? null : this.orders[row];
+        if (order != null) {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return this.next < order.length;
+                }
+
+                @Override
+                public Tag next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return share(columns.get(order[this.next++]).tag(row));
+                }
+            };
+        }
+        return new Iterator<>() {
+            private int next = advance(0);
+
+            private int advance(int from) {
+                while (from < columns.size() && !columns.get(from).present[row]) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.next < columns.size();
+            }
+
+            @Override
+            public Tag next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Tag tag = share(columns.get(this.next).tag(row));
+                this.next = advance(this.next + 1);
+                return tag;
+            }
+        };
+    }
+
+    // A detached compound holding the entries of a row, for the element a list modification replaces
+    private CompoundTag detach(int row) {
+        ReorderableCompoundTag compound = new ReorderableCompoundTag("");
+        for (Iterator<Tag> iterator = iterator(row); iterator.hasNext(); ) {
+            compound.put(iterator.next());
+        }
+        return compound;
+    }
+
+    // The entries are taken before the rows change, since the compound may be a view of these columns
+    private static List<Tag> entries(CompoundTag compound) {
+        List<Tag> entries = new ArrayList<>(compound.size());
+        for (Tag tag : compound) {
+            entries.add(tag);
+        }
+        return entries;
+    }
+
+    private void putAll(int row, List<Tag> entries) {
+        for (Tag tag : entries) {
+            put(row, tag);
+        }
+    }
+
+    private void insertRow(int index) {
+        checkMutable();
+        Objects.checkIndex(index, this.rows + 1);
+        ensureCapacity(this.rows + 1);
+        for (Column column : this.columns) {
+            System.arraycopy(column.values, index, column.values, index + 1, this.rows - index);
+            System.arraycopy(column.present, index, column.present, index + 1, this.rows - index);
+            column.present[index] = false;
+            column.zero(index);
+        }
+        if (this.orders != null) {
+            System.arraycopy(this.orders, index, this.orders, index + 1, this.rows - index);
+            this.orders[index] = null;
+        }
+        this.rows++;
+    }
+
+    private void removeRow(int index) {
+        checkMutable();
+        Objects.checkIndex(index, this.rows);
+        int last = this.rows - 1;
+        for (Column column : this.columns) {
+            if (column.present[index]) {
+                column.presentCount--;
+            }
+            System.arraycopy(column.values, index + 1, column.values, index, last - index);
+            System.arraycopy(column.present, index + 1, column.present, index, last - index);
+            column.present[last] = false;
+            column.zero(last);
+        }
+        if (this.orders != null) {
+            System.arraycopy(this.orders, index + 1, this.orders, index, last - index);
+            this.orders[last] = null;
+        }
+        this.rows = last;
+    }
+
+    private void clearRows() {
+        checkMutable();
+        this.byKey.clear();
+        this.columns.clear();
+        this.orders = null;
+        this.rows = 0;
+        this.capacity = DEFAULT_CAPACITY;
+    }
+
+    // Finds the column of a key, creating it or turning it into a column of tags when the type differs
+    private Column column(String key, int typeId) {
+        Column column = this.byKey.get(key);
+        if (column == null) {
+            column = new Column(key, this.columns.size(), typeId, newArray(typeId, this.capacity), new boolean[this.capacity]);
+            this.byKey.put(key, column);
+            this.columns.add(column);
+        } else if (column.typeId != typeId && column.typeId != MIXED) {
+            if (!(column.values instanceof Tag[])) {
+                Tag[] tags = new Tag[this.capacity];
+                for (int row = 0; row < this.rows; row++) {
+                    if (column.present[row]) {
+                        tags[row] = column.tag(row);
+                    }
+                }
+                column.values = tags;
+            }
+            column.typeId = MIXED;
+        }
+        return column;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > this.capacity) {
+            int newCapacity = Math.max(minCapacity, Math.max(this.capacity + (this.capacity >> 1), DEFAULT_CAPACITY));
+            setCapacity(newCapacity);
+        }
+    }
+
+    private void trimToSize() {
+        if (this.capacity != this.rows) {
+            setCapacity(this.rows);
+        }
+    }
+
+    private void setCapacity(int newCapacity) {
+        for (Column column : this.columns) {
+            column.values = resize(column.values, newCapacity);
+            column.present = Arrays.copyOf(column.present, newCapacity);
+        }
+        if (this.orders != null) {
+            this.orders = Arrays.copyOf(this.orders, newCapacity);
+        }
+        this.capacity = newCapacity;
+    }
+
+    // Marks a value as present, keeping track of where a new entry goes in the order of its row
+    private void mark(Column column, int row) {
+        if (column.present[row]) {
+            return;
+        }
+        column.mark(row);
+        int[] order = this.orders == null ? null : this.orders[row];
+        if (order != null) {
+            order = Arrays.copyOf(order, order.length + 1);
+            order[order.length - 1] = column.index;
+            this.orders[row] = order;
+            return;
+        }
+        // A new entry comes last, which is the order of the columns unless a later column is present
+        int size = 0;
+        boolean inOrder = true;
+        for (Column other : this.columns) {
+            if (other != column && other.present[row]) {
+                size++;
+                inOrder &= other.index < column.index;
+            }
+        }
+        if (inOrder) {
+            return;
+        }
+        order = new int[size + 1];
+        int i = 0;
+        for (Column other : this.columns) {
+            if (other != column && other.present[row]) {
+                order[i++] = other.index;
+            }
+        }
+        order[size] = column.index;
+        if (this.orders == null) {
+            this.orders = new int[this.capacity][];
+        }
+        this.orders[row] = order;
+    }
+
+    private void clear(Column column, int row) {
+        column.clear(row);
+        int[] order = this.orders == null ? null : this.orders[row];
+        if (order != null) {
+            int[] remaining = new int[order.length - 1];
+            int i = 0;
+            boolean inOrder = true;
+            for (int index : order) {
+                if (index != column.index) {
+                    inOrder &= i == 0 || remaining[i - 1] < index;
+                    remaining[i++] = index;
+                }
+            }
+            this.orders[row] = inOrder ? null : remaining;
+        }
+    }
+
+    private static Object newArray(int typeId, int length) {
+        return switch (typeId) {
+            case ByteTag.ID -> new byte[length];
+            case ShortTag.ID -> new short[length];
+            case IntTag.ID -> new int[length];
+            case LongTag.ID -> new long[length];
+            case FloatTag.ID -> new float[length];
+            case DoubleTag.ID -> new double[length];
+            case StringTag.ID -> new String[length];
+            default -> new Tag[length];
+        };
+    }
+
+    private static Object resize(Object values, int length) {
+        return switch (values) {
+            case byte[] array -> Arrays.copyOf(array, length);
+            case short[] array -> Arrays.copyOf(array, length);
+            case int[] array -> Arrays.copyOf(array, length);
+            case long[] array -> Arrays.copyOf(array, length);
+            case float[] array -> Arrays.copyOf(array, length);
+            case double[] array -> Arrays.copyOf(array, length);
+            case Object[] array -> Arrays.copyOf(array, length);
+            default -> throw new IllegalStateException("Not a column: " + values.getClass().getName());
+        };
+    }
+
+    private static final class Column {
+        private final String key;
+        // The position of the column in the list of columns
+        private final int index;
+        private int typeId;
+        // A primitive array, String[] or Tag[] of at least the capacity of the columns
+        private Object values;
+        private boolean[] present;
+        private int presentCount;
+
+        private Column(String key, int index, int typeId, Object values, boolean[] present) {
+            this.key = key;
+            this.index = index;
+            this.typeId = typeId;
+            this.values = values;
+            this.present = present;
+        }
+
+        private Tag tag(int row) {
+            return switch (this.values) {
+                case byte[] values -> new ByteTag(this.key, values[row]);
+                case short[] values -> new ShortTag(this.key, values[row]);
+                case int[] values -> new IntTag(this.key, values[row]);
+                case long[] values -> new LongTag(this.key, values[row]);
+                case float[] values -> new FloatTag(this.key, values[row]);
+                case double[] values -> new DoubleTag(this.key, values[row]);
+                case String[] values -> new StringTag(this.key, values[row]);
+                case Tag[] values -> values[row];
+                default -> throw new IllegalStateException("Not a column: " + this.values.getClass().getName());
+            };
+        }
+
+        private void mark(int row) {
+            if (!this.present[row]) {
+                this.present[row] = true;
+                this.presentCount++;
+            }
+        }
+
+        private void clear(int row) {
+            this.present[row] = false;
+            this.presentCount--;
+            zero(row);
+        }
+
+        private void zero(int row) {
+            switch (this.values) {
+                case byte[] values -> values[row] = 0;
+                case short[] values -> values[row] = 0;
+                case int[] values -> values[row] = 0;
+                case long[] values -> values[row] = 0;
+                case float[] values -> values[row] = 0;
+                case double[] values -> values[row] = 0;
+                case Object[] values -> values[row] = null;
+                default -> throw new IllegalStateException("Not a column: " + this.values.getClass().getName());
+            }
+        }
+    }
+
+    // The rows as a list of views; modifications move the values of every column
+    private final class RowList extends AbstractList<CompoundTag> implements RandomAccess {
+        @Override
+        public CompoundTag get(int index) {
+            Objects.checkIndex(index, rows);
+            return (CompoundTag) share(new CompoundRow(CompoundColumns.this, index));
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+
+        @Override
+        public CompoundTag set(int index, CompoundTag compound) {
+            checkMutable();
+            List<Tag> entries = entries(compound);
+            CompoundTag previous = detach(index);
+            clearRow(index);
+            putAll(index, entries);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, CompoundTag compound) {
+            List<Tag> entries = entries(compound);
+            insertRow(index);
+            putAll(index, entries);
+            this.modCount++;
+        }
+
+        @Override
+        public CompoundTag remove(int index) {
+            CompoundTag previous = detach(index);
+            removeRow(index);
+            this.modCount++;
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            clearRows();
+            this.modCount++;
+        }
+    }
+}
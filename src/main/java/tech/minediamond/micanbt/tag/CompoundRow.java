@@ -0,0 +1,129 @@
+package tech.minediamond.micanbt.tag;
+
+import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.util.map.OrderedListMap;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+
+/// A compound that reads and writes one row of [CompoundColumns].
+///
+/// Views hold nothing but the columns and the row, so one is created for every access to an
+/// element of a columnar list. Like every compound, a view equals any compound with the same name
+/// and entries.
+final class CompoundRow extends CompoundTag {
+    private final CompoundColumns columns;
+    private final int row;
+
+    CompoundRow(CompoundColumns columns, int row) {
+        this.columns = columns;
+        this.row = row;
+    }
+
+    @Override
+    public void setValue(Map<String, Tag> map) {
+        this.columns.clearRow(this.row);
+        for (Tag tag : map.values()) {
+            this.columns.put(this.row, tag);
+        }
+    }
+
+    @Override
+    public void put(Tag tag) {
+        this.columns.put(this.row, tag);
+    }
+
+    @Override
+    public @Nullable Tag get(String tagName) {
+        return this.columns.get(this.row, tagName);
+    }
+
+    @Override
+    public Tag getOrDefault(String key, Tag defaultValue) {
+        Tag tag = get(key);
+        return tag != null ? tag : defaultValue;
+    }
+
+    @Override
+    public Tag computeIfAbsent(String key, Function<? super String, ? extends Tag> mappingFunction) {
+        Tag tag = get(key);
+        if (tag == null) {
+            tag = mappingFunction.apply(key);
+            if (tag != null) {
+                put(tag);
+            }
+        }
+        return tag;
+    }
+
+    @Override
+    public @Nullable Tag remove(String tagName) {
+        return this.columns.remove(this.row, tagName);
+    }
+
+    @Override
+    public boolean contains(String tagName) {
+        return this.columns.isPresent(this.row, tagName);
+    }
+
+    @Override
+    public boolean contains(Tag tag) {
+        for (Tag entry : this) {
+            if (entry.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.columns.size(this.row);
+    }
+
+    @Override
+    public void clear() {
+        this.columns.clearRow(this.row);
+    }
+
+    @Override
+    public ReorderableCompoundTag copy() {
+        return new ReorderableCompoundTag(getName(), getClonedValue());
+    }
+
+    /// Shares the frozen nested tags of the row with the new compound instead of copying them.
+    @Override
+    public CompoundTag thaw() {
+        return isFrozen() ? new ReorderableCompoundTag(getName(), getRawValue()) : this;
+    }
+
+    @Override
+    public OrderedListMap<String, Tag> getClonedValue() {
+        OrderedListMap<String, Tag> copy = new OrderedListMap<>();
+        for (Tag tag : this) {
+            copy.put(tag.getName(), tag.copy());
+        }
+        return copy;
+    }
+
+    /// Gets the entries of the row. The map is a snapshot; modifying it does not modify the row.
+    @Override
+    public OrderedListMap<String, Tag> getRawValue() {
+        OrderedListMap<String, Tag> entries = new OrderedListMap<>();
+        for (Tag tag : this) {
+            entries.put(tag.getName(), tag);
+        }
+        return entries;
+    }
+
+    @Override
+    public Iterator<Tag> iterator() {
+        return this.columns.iterator(this.row);
+    }
+}
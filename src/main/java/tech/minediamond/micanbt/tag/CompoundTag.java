@@ -2,7 +2,10 @@ package tech.minediamond.micanbt.tag;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.nbt.NBTHash;
+import tech.minediamond.micanbt.nbt.NBTHasher;
 
+import java.util.Deque;
 import java.util.Map;
 import java.util.function.Predicate;
 
@@ -120,4 +123,74 @@ public abstract class CompoundTag extends Tag implements Iterable<Tag> {
     public int getTagId() {
         return ID;
     }
+
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitCompound(this);
+    }
+
+    /// Combines the hashes of the elements anew, so that changes to them are always seen. A frozen
+    /// compound keeps its ordered hash like any other tag.
+    @Override
+    public NBTHash contentHash(boolean orderIndependent) {
+        if (isFrozen() && !orderIndependent) {
+            return super.contentHash(false);
+        }
+        return NBTHasher.of(orderIndependent).hash(this);
+    }
+
+    @Override
+    public CompoundTag freeze() {
+        super.freeze();
+        return this;
+    }
+
+    /// Copies a frozen compound; implementations override this to share the frozen entries instead.
+    @Override
+    public CompoundTag thaw() {
+        return isFrozen() ? copy() : this;
+    }
+
+    /// Compounds are equal when they have the same name and equal entries, whatever their
+    /// implementation and the order of their entries. Earlier versions compared a
+    /// [ReorderableCompoundTag] by name only and never found a [CommonCompoundTag] equal to a
+    /// compound of another class.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompoundTag other) || !getName().equals(other.getName()) || size() != other.size()) {
+            return false;
+        }
+        for (Tag tag : this) {
+            if (!tag.equals(other.get(tag.getName()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /// Independent of the implementation and of the order of the entries, like [#equals(Object)].
+    @Override
+    public int hashCode() {
+        int hash = cachedHashCode();
+        if (hash != 0) {
+            return hash;
+        }
+        int entries = 0;
+        for (Tag tag : this) {
+            entries += tag.hashCode();
+        }
+        return cacheHashCode(31 * getName().hashCode() + entries);
+    }
+
+    @Override
+    void freezeChildren(Deque<Tag> pending) {
+        for (Tag tag : this) {
+            if (!tag.isFrozen()) {
+                pending.push(tag);
+            }
+        }
+    }
 }
@@ -42,7 +42,9 @@ public class DoubleTag extends Tag {
     ///
     /// @param value New value of this tag.
     public void setValue(double value) {
+        checkMutable();
         this.value = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -51,6 +53,11 @@ public class DoubleTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitDouble(this);
+    }
+
     @Override
     public DoubleTag copy() {
         return new DoubleTag(this.getName(), this.getClonedValue());
@@ -42,7 +42,9 @@ public class FloatTag extends Tag {
     ///
     /// @param value New value of this tag.
     public void setValue(float value) {
+        checkMutable();
         this.value = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -51,6 +53,11 @@ public class FloatTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitFloat(this);
+    }
+
     @Override
     public FloatTag copy() {
         return new FloatTag(this.getName(), this.getClonedValue());
@@ -48,7 +48,9 @@ public class IntArrayTag extends Tag {
     /// @param value New value of this tag.
     /// @throws NullPointerException The value passed in is null
     public void setValue(int[] value) {
+        checkMutable();
         this.value = value.clone();
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -57,6 +59,11 @@ public class IntArrayTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitIntArray(this);
+    }
+
     /// Gets a value in this tag's array.
     ///
     /// @param index Index of the value to read.
@@ -72,7 +79,9 @@ public class IntArrayTag extends Tag {
     /// @param value Value to set.
     /// @throws IndexOutOfBoundsException If the index is out of range
     public void setValue(int index, int value) {
+        checkMutable();
         this.value[index] = value;
+        invalidateContentHash();
     }
 
     /// Gets the length of this tag's array.
@@ -94,6 +103,7 @@ public class IntArrayTag extends Tag {
 
     @Override
     public int hashCode() {
-        return 31 * super.hashCode() + Arrays.hashCode(value);
+        int hash = cachedHashCode();
+        return hash != 0 ? hash : cacheHashCode(31 * super.hashCode() + Arrays.hashCode(value));
     }
 }
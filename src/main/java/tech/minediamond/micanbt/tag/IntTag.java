@@ -42,7 +42,9 @@ public class IntTag extends Tag {
     ///
     /// @param value New value of this tag.
     public void setValue(int value) {
+        checkMutable();
         this.value = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -51,6 +53,11 @@ public class IntTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitInt(this);
+    }
+
     @Override
     public IntTag copy() {
         return new IntTag(this.getName(), this.getClonedValue());
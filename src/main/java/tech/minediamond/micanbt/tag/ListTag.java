@@ -3,9 +3,13 @@ package tech.minediamond.micanbt.tag;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.nbt.NBTHash;
+import tech.minediamond.micanbt.nbt.NBTHasher;
 
+import java.lang.reflect.Array;
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /// TAG_List (ID: {@value #ID}).
@@ -13,12 +17,32 @@ import java.util.stream.Stream;
 /// A sequential collection of unnamed tags. All tags within a list must be of the same type.
 /// The type of the list is determined by the first tag added or defined at construction.
 ///
+/// A list created by [#deferred(String,int,Supplier)] decodes its elements only when they are
+/// first accessed.
+///
+/// Lists of numbers created by one of the `of` factories, as [NBTReader][tech.minediamond.micanbt.nbt.NBTReader]
+/// creates them, keep their elements in a primitive array: a `double[]` of 3 positions instead of
+/// three [DoubleTag] objects. Reading them with [#getDouble(int)] and the other primitive getters,
+/// writing, hashing and copying them does not create tags. The element tags are created the first
+/// time any element is accessed as a tag, through [#get(int)], iteration, [#getRawValue()] or a
+/// modification; from then on the list holds them like any other list.
+///
+/// A list of compounds created by [#of(String, CompoundColumns)] keeps its elements in
+/// [CompoundColumns], one column per key, and exposes them as views of a row each. Modifications
+/// of the list and of its elements write the columns, so the list stays columnar.
+///
 /// @param <T> The type of Tag stored in this list. Must extend [Tag].
 public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     public static final int ID = 9;
     /// The NBT Tag ID of the elements contained within this list. Defaults to 0 (TAG_End) for empty lists.
     private int typeId;
-    private final List<T> value;
+    private @Nullable List<T> value;
+    private @Nullable Supplier<? extends List<T>> loader;
+    // The elements of a list of numbers as a byte[], short[], int[], long[], float[] or double[],
+    // until they are first accessed as tags
+    private @Nullable Object primitives;
+    // The columns that back the elements of a columnar list of compounds
+    private @Nullable CompoundColumns columns;
 
     /// Creates a tag with blank name.
     public ListTag() {
@@ -56,21 +80,216 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
         this.setValue(value);
     }
 
+    private ListTag(String name, int typeId, @Nullable Supplier<? extends List<T>> loader, @Nullable Object primitives) {
+        super(name);
+
+        this.typeId = typeId;
+        this.loader = loader;
+        this.primitives = primitives;
+    }
+
+    /// Creates a list whose elements are supplied by `loader` the first time any of them is accessed.
+    ///
+    /// The loader is trusted to return a mutable list whose elements all have the given type ID.
+    /// Loading the elements is not synchronized, so a deferred list must not be shared between
+    /// threads until it is materialized. [#freeze()] materializes the whole tree first.
+    ///
+    /// @param name   The name of the tag.
+    /// @param typeId The NBT Tag ID of the elements the loader will supply.
+    /// @param loader Supplies the elements of the list. It is called at most once.
+    /// @param <T>    The type of Tag stored in the list.
+    /// @return A new deferred list tag.
+    public static <T extends Tag> ListTag<T> deferred(String name, int typeId, Supplier<? extends List<T>> loader) {
+        return new ListTag<>(name, typeId, Objects.requireNonNull(loader, "loader"), null);
+    }
+
+    /// Creates a list of [ByteTag] that keeps its elements in `values`.
+    ///
+    /// The array is not copied. Element tags are created only when an element is first accessed as a tag.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements.
+    /// @return A new list tag.
+    public static ListTag<ByteTag> of(String name, byte[] values) {
+        return new ListTag<>(name, ByteTag.ID, null, Objects.requireNonNull(values, "values"));
+    }
+
+    /// Creates a list of [ShortTag] that keeps its elements in `values`.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements.
+    /// @return A new list tag.
+    /// @see #of(String, byte[])
+    public static ListTag<ShortTag> of(String name, short[] values) {
+        return new ListTag<>(name, ShortTag.ID, null, Objects.requireNonNull(values, "values"));
+    }
+
+    /// Creates a list of [IntTag] that keeps its elements in `values`.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements.
+    /// @return A new list tag.
+    /// @see #of(String, byte[])
+    public static ListTag<IntTag> of(String name, int[] values) {
+        return new ListTag<>(name, IntTag.ID, null, Objects.requireNonNull(values, "values"));
+    }
+
+    /// Creates a list of [LongTag] that keeps its elements in `values`.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements.
+    /// @return A new list tag.
+    /// @see #of(String, byte[])
+    public static ListTag<LongTag> of(String name, long[] values) {
+        return new ListTag<>(name, LongTag.ID, null, Objects.requireNonNull(values, "values"));
+    }
+
+    /// Creates a list of [FloatTag] that keeps its elements in `values`.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements.
+    /// @return A new list tag.
+    /// @see #of(String, byte[])
+    public static ListTag<FloatTag> of(String name, float[] values) {
+        return new ListTag<>(name, FloatTag.ID, null, Objects.requireNonNull(values, "values"));
+    }
+
+    /// Creates a list of [DoubleTag] that keeps its elements in `values`.
+    ///
+    /// @param name   The name of the tag.
+    /// @param values The elements.
+    /// @return A new list tag.
+    /// @see #of(String, byte[])
+    public static ListTag<DoubleTag> of(String name, double[] values) {
+        return new ListTag<>(name, DoubleTag.ID, null, Objects.requireNonNull(values, "values"));
+    }
+
+    /// Creates a list of compounds whose elements are the rows of `columns`.
+    ///
+    /// The columns are not copied; the list and the columns share the rows.
+    ///
+    /// @param name    The name of the tag.
+    /// @param columns The columns.
+    /// @return A new list tag.
+    public static ListTag<CompoundTag> of(String name, CompoundColumns columns) {
+        ListTag<CompoundTag> listTag = new ListTag<>(name, CompoundTag.ID, null, null);
+        listTag.columns = columns;
+        listTag.value = columns.rows();
+        return listTag;
+    }
+
+    /// Checks whether the elements of this list have been decoded.
+    ///
+    /// @return `false` if this is a [deferred][#deferred(String,int,Supplier)] list that has not been accessed yet.
+    public boolean isMaterialized() {
+        return this.loader == null;
+    }
+
+    /// Checks whether the elements of this list are kept in a primitive array rather than as tags.
+    ///
+    /// @return `true` for a list of numbers created by one of the `of` factories whose elements have
+    ///         not been accessed as tags yet.
+    /// @see #getPrimitiveArray()
+    public boolean isPrimitive() {
+        return this.primitives != null;
+    }
+
+    /// Gets the columns that hold the elements of a list created by [#of(String, CompoundColumns)].
+    ///
+    /// @return The columns, or `null` if the elements are held as tags.
+    @Contract(pure = true)
+    public @Nullable CompoundColumns getColumns() {
+        return this.columns;
+    }
+
+    /// Gets the array that holds the elements of a [primitive][#isPrimitive()] list.
+    ///
+    /// The array is the `byte[]`, `short[]`, `int[]`, `long[]`, `float[]` or `double[]` that matches
+    /// the element type. Modifying it modifies the list.
+    ///
+    /// @return The array, or `null` if the elements are held as tags.
+    @Contract(pure = true)
+    public @Nullable Object getPrimitiveArray() {
+        return this.primitives;
+    }
+
+    private List<T> value() {
+        List<T> list = this.value;
+        if (list == null) {
+            Object primitives = this.primitives;
+            if (primitives != null) {
+                list = wrapAll(primitives);
+                if (isFrozen()) {
+                    // A frozen list keeps its array, so that reading it never changes its state
+                    for (T tag : list) {
+                        tag.markFrozen();
+                    }
+                    return Collections.unmodifiableList(list);
+                }
+                this.primitives = null;
+            } else {
+                list = Objects.requireNonNull(Objects.requireNonNull(this.loader).get(), "loader returned null");
+                this.loader = null;
+            }
+            this.value = list;
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked") // Safe cast: the array type matches the element type ID
+    private static <T extends Tag> List<T> wrapAll(Object primitives) {
+        int length = Array.getLength(primitives);
+        List<T> list = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            list.add((T) wrap(primitives, i));
+        }
+        return list;
+    }
+
+    private static Tag wrap(Object primitives, int index) {
+        return switch (primitives) {
+            case byte[] values -> new ByteTag("", values[index]);
+            case short[] values -> new ShortTag("", values[index]);
+            case int[] values -> new IntTag("", values[index]);
+            case long[] values -> new LongTag("", values[index]);
+            case float[] values -> new FloatTag("", values[index]);
+            case double[] values -> new DoubleTag("", values[index]);
+            default -> throw new IllegalStateException("Not a primitive array: " + primitives.getClass().getName());
+        };
+    }
+
+    private static Object cloneArray(Object primitives) {
+        return switch (primitives) {
+            case byte[] values -> values.clone();
+            case short[] values -> values.clone();
+            case int[] values -> values.clone();
+            case long[] values -> values.clone();
+            case float[] values -> values.clone();
+            case double[] values -> values.clone();
+            default -> throw new IllegalStateException("Not a primitive array: " + primitives.getClass().getName());
+        };
+    }
+
     @Override
     @SuppressWarnings("unchecked") // Safe cast: tag.copy() returns a Tag of the same concrete type
     @Contract(pure = true)
     public List<T> getClonedValue() {
-        List<T> clonedList = new ArrayList<>(Math.max(this.value.size(), 10));
-        for (T tag : value) {
+        Object primitives = this.primitives;
+        if (primitives != null) {
+            return wrapAll(primitives);
+        }
+        List<T> clonedList = new ArrayList<>(Math.max(this.value().size(), 10));
+        for (T tag : value()) {
             clonedList.add((T) tag.copy());
         }
         return clonedList;
     }
 
+    /// Gets the list of elements, unmodifiable if this list is frozen.
     @Override
     @Contract(pure = true)
     public List<T> getRawValue() {
-        return this.value;
+        return isFrozen() ? Collections.unmodifiableList(this.value()) : this.value();
     }
 
     /// Replaces the contents of this ListTag.
@@ -78,9 +297,18 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @param value The new list of tags.
     /// @throws IllegalArgumentException If the tags in the list are not of the same type or a tag is null.
     public void setValue(List<T> value) {
+        checkMutable();
         checkType(value);
-        this.value.clear();
-        this.value.addAll(value);
+        List<T> list = this.value;
+        if (list == null) {
+            list = new ArrayList<>(value.size());
+            this.value = list;
+            this.loader = null;
+            this.primitives = null;
+        } else {
+            list.clear();
+        }
+        list.addAll(value);
     }
 
     @Override
@@ -88,6 +316,66 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitList(this);
+    }
+
+    /// Combines the hashes of the elements anew, so that changes to them are always seen. A frozen
+    /// list keeps its ordered hash like any other tag.
+    @Override
+    public NBTHash contentHash(boolean orderIndependent) {
+        if (isFrozen() && !orderIndependent) {
+            return super.contentHash(false);
+        }
+        return NBTHasher.of(orderIndependent).hash(this);
+    }
+
+    @Override
+    public ListTag<T> freeze() {
+        super.freeze();
+        return this;
+    }
+
+    /// Shares the frozen elements with the new list instead of copying them. The array of a
+    /// primitive list is copied.
+    @Override
+    public ListTag<T> thaw() {
+        if (!isFrozen()) {
+            return this;
+        }
+        Object primitives = this.primitives;
+        if (primitives != null) {
+            return new ListTag<>(this.getName(), this.typeId, null, cloneArray(primitives));
+        }
+        CompoundColumns columns = this.columns;
+        if (columns != null) {
+            @SuppressWarnings("unchecked") // Safe cast: a columnar list is a list of CompoundTag
+            ListTag<T> thawed = (ListTag<T>) of(this.getName(), columns.copy(false));
+            return thawed;
+        }
+        ListTag<T> thawed = new ListTag<>(this.getName(), this.typeId);
+        thawed.value().addAll(this.value());
+        return thawed;
+    }
+
+    @Override
+    void freezeChildren(Deque<Tag> pending) {
+        if (this.primitives != null) {
+            return;
+        }
+        CompoundColumns columns = this.columns;
+        if (columns != null) {
+            columns.freeze(pending);
+            return;
+        }
+        for (T tag : value()) {
+            if (!tag.isFrozen()) {
+                pending.push(tag);
+            }
+        }
+    }
+
     /// Gets the NBT Tag ID of the elements stored in this ListTag.
     ///
     /// @return The element type ID, or 0 if the list is empty and has no defined type.
@@ -101,8 +389,9 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @param tag The tag to add. Must not be null.
     /// @throws IllegalArgumentException If the tag's type does not match the list's element type.
     public void add(@NotNull T tag) {
+        checkMutable();
         checkType(tag);
-        this.value.add(tag);
+        this.value().add(tag);
     }
 
     /// Inserts a tag at the specified position in this list.
@@ -111,8 +400,9 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @param index The index at which to insert.
     /// @throws IllegalArgumentException If the tag's type does not match the list's element type.
     public void add(@NotNull T tag, int index) {
+        checkMutable();
         checkType(tag);
-        this.value.add(index, tag);
+        this.value().add(index, tag);
     }
 
     /// Appends all tags from the specified collection to this list.
@@ -120,8 +410,9 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @param tags The collection of tags to add.
     /// @throws IllegalArgumentException If any tag fails the type check.
     public void addAll(Collection<T> tags) throws IllegalArgumentException {
+        checkMutable();
         checkType(tags);
-        this.value.addAll(tags);
+        this.value().addAll(tags);
     }
 
     /// Removes the first occurrence of the specified tag from this list.
@@ -129,7 +420,8 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @param tag The tag to remove.
     /// @return `true` if the list contained the specified element.
     public boolean remove(T tag) {
-        return this.value.remove(tag);
+        checkMutable();
+        return this.value().remove(tag);
     }
 
     /// Removes the tag at the specified position in this list.
@@ -137,7 +429,8 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @param index The index of the tag to remove.
     /// @return The tag that was removed.
     public T remove(int index) {
-        return this.value.remove(index);
+        checkMutable();
+        return this.value().remove(index);
     }
 
     /// Returns the tag at the specified position in this list.
@@ -146,8 +439,93 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @return The tag at the specified index.
     /// @throws IndexOutOfBoundsException If the index is out of range.
     @Contract(pure = true)
+    @SuppressWarnings("unchecked") // Safe cast: the array type matches the element type ID
     public T get(int index) {
-        return this.value.get(index);
+        Object primitives = this.primitives;
+        if (primitives != null && isFrozen()) {
+            Tag tag = wrap(primitives, index);
+            tag.markFrozen();
+            return (T) tag;
+        }
+        return this.value().get(index);
+    }
+
+    /// Returns the value of the [ByteTag] at the specified position, without creating element tags.
+    ///
+    /// @param index Index of the element.
+    /// @return The value of the element.
+    /// @throws NBTTypeException         If this is not a list of [ByteTag].
+    /// @throws IndexOutOfBoundsException If the index is out of range.
+    @Contract(pure = true)
+    public byte getByte(int index) {
+        checkElementType(ByteTag.ID);
+        return this.primitives instanceof byte[] values ? values[index] : ((ByteTag) get(index)).getRawValue();
+    }
+
+    /// Returns the value of the [ShortTag] at the specified position, without creating element tags.
+    ///
+    /// @param index Index of the element.
+    /// @return The value of the element.
+    /// @throws NBTTypeException         If this is not a list of [ShortTag].
+    /// @throws IndexOutOfBoundsException If the index is out of range.
+    @Contract(pure = true)
+    public short getShort(int index) {
+        checkElementType(ShortTag.ID);
+        return this.primitives instanceof short[] values ? values[index] : ((ShortTag) get(index)).getRawValue();
+    }
+
+    /// Returns the value of the [IntTag] at the specified position, without creating element tags.
+    ///
+    /// @param index Index of the element.
+    /// @return The value of the element.
+    /// @throws NBTTypeException         If this is not a list of [IntTag].
+    /// @throws IndexOutOfBoundsException If the index is out of range.
+    @Contract(pure = true)
+    public int getInt(int index) {
+        checkElementType(IntTag.ID);
+        return this.primitives instanceof int[] values ? values[index] : ((IntTag) get(index)).getRawValue();
+    }
+
+    /// Returns the value of the [LongTag] at the specified position, without creating element tags.
+    ///
+    /// @param index Index of the element.
+    /// @return The value of the element.
+    /// @throws NBTTypeException         If this is not a list of [LongTag].
+    /// @throws IndexOutOfBoundsException If the index is out of range.
+    @Contract(pure = true)
+    public long getLong(int index) {
+        checkElementType(LongTag.ID);
+        return this.primitives instanceof long[] values ? values[index] : ((LongTag) get(index)).getRawValue();
+    }
+
+    /// Returns the value of the [FloatTag] at the specified position, without creating element tags.
+    ///
+    /// @param index Index of the element.
+    /// @return The value of the element.
+    /// @throws NBTTypeException         If this is not a list of [FloatTag].
+    /// @throws IndexOutOfBoundsException If the index is out of range.
+    @Contract(pure = true)
+    public float getFloat(int index) {
+        checkElementType(FloatTag.ID);
+        return this.primitives instanceof float[] values ? values[index] : ((FloatTag) get(index)).getRawValue();
+    }
+
+    /// Returns the value of the [DoubleTag] at the specified position, without creating element tags.
+    ///
+    /// @param index Index of the element.
+    /// @return The value of the element.
+    /// @throws NBTTypeException         If this is not a list of [DoubleTag].
+    /// @throws IndexOutOfBoundsException If the index is out of range.
+    @Contract(pure = true)
+    public double getDouble(int index) {
+        checkElementType(DoubleTag.ID);
+        return this.primitives instanceof double[] values ? values[index] : ((DoubleTag) get(index)).getRawValue();
+    }
+
+    private void checkElementType(int id) {
+        if (this.typeId != id) {
+            throw new NBTTypeException(String.format("Tag type mismatch. Expected ID: %d, got: %d", id, this.typeId));
+        }
     }
 
     /// Replaces the tag at the specified position in this list.
@@ -157,8 +535,9 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @return The tag previously at the position.
     /// @throws IllegalArgumentException If the new tag's type does not match.
     public T set(int index, @NotNull T tag) {
+        checkMutable();
         checkType(tag);
-        return value.set(index, tag);
+        return value().set(index, tag);
     }
 
     /// Returns the index of the first occurrence of the specified tag.
@@ -167,11 +546,12 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @return The index of the tag, or -1 if not found.
     @Contract(pure = true)
     public int indexOf(@Nullable T tag) {
-        return this.value.indexOf(tag);
+        return this.value().indexOf(tag);
     }
 
     @Contract(pure = true)
     public int indexOf(Predicate<? super T> predicate) {
+        List<T> value = value();
         for (int i = 0; i < value.size(); i++) {
             if (predicate.test(value.get(i))) {
                 return i;
@@ -182,7 +562,7 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
 
     @Contract(pure = true)
     public @Nullable T find(Predicate<? super T> predicate) {
-        for (T t : value) {
+        for (T t : value()) {
             if (predicate.test(t)) {
                 return t;
             }
@@ -195,7 +575,8 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @return The size of the list.
     @Contract(pure = true)
     public int size() {
-        return this.value.size();
+        Object primitives = this.primitives;
+        return primitives != null ? Array.getLength(primitives) : this.value().size();
     }
 
     /// Checks if the list is empty.
@@ -203,12 +584,18 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     /// @return `true` if the list contains no tags.
     @Contract(pure = true)
     public boolean isEmpty() {
-        return value.isEmpty();
+        return size() == 0;
     }
 
     /// Removes all tags from this list. Does not reset the element type ID.
     public void clear() {
-        this.value.clear();
+        checkMutable();
+        if (this.primitives != null) {
+            this.primitives = null;
+            this.value = new ArrayList<>();
+        } else {
+            this.value().clear();
+        }
     }
 
     /// Checks if this list contains a tag with the specified name.
@@ -220,7 +607,7 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
         if (tagName == null) {
             return false;
         }
-        for (T tag : this.value) {
+        for (T tag : this.value()) {
             if (tag.getName().equals(tagName)) {
                 return true;
             }
@@ -237,18 +624,19 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
         if (tag == null || tag.getTagId() != this.typeId) {
             return false;
         }
-        return this.value.contains(tag);
+        return this.value().contains(tag);
     }
 
     @Override
     public Iterator<T> iterator() {
-        return this.value.iterator();
+        Iterator<T> iterator = this.value().iterator();
+        return isFrozen() ? readOnly(iterator) : iterator;
     }
 
     /// Returns a sequential Stream with this list as its source.
     @Contract(pure = true)
     public Stream<T> stream() {
-        return value.stream();
+        return value().stream();
     }
 
     /// Validates that the tag's type matches the list's defined type.
@@ -285,8 +673,16 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     @Override
     @SuppressWarnings("unchecked") // Safe cast: tag.copy() returns a Tag of the same concrete type
     public ListTag<T> copy() {
+        Object primitives = this.primitives;
+        if (primitives != null) {
+            return new ListTag<>(this.getName(), this.typeId, null, cloneArray(primitives));
+        }
+        CompoundColumns columns = this.columns;
+        if (columns != null) {
+            return (ListTag<T>) of(this.getName(), columns.copy());
+        }
         ListTag<T> copy = new ListTag<>(this.getName(), this.typeId);
-        for (T tag : this.value) {
+        for (T tag : this.value()) {
             copy.add((T) tag.copy());
         }
         return copy;
@@ -296,13 +692,67 @@ public class ListTag<T extends Tag> extends Tag implements Iterable<T> {
     public boolean equals(Object o) {
         if (super.equals(o)) {
             ListTag<?> listTag = (ListTag<?>) o;
-            return this.typeId == listTag.typeId && this.value.equals(listTag.value);
+            if (this.typeId != listTag.typeId) {
+                return false;
+            }
+            Object primitives = this.primitives;
+            Object otherPrimitives = listTag.primitives;
+            if (primitives != null && otherPrimitives != null) {
+                // The array comparison treats floating point values like FloatTag and DoubleTag do
+                return Objects.deepEquals(primitives, otherPrimitives);
+            }
+            if (primitives != null) {
+                return elementsEqual(primitives, listTag.value());
+            }
+            if (otherPrimitives != null) {
+                return elementsEqual(otherPrimitives, this.value());
+            }
+            return this.value().equals(listTag.value());
         }
         return false;
     }
 
+    // Compares the array of a primitive list with element tags one by one, so that comparing keeps the array
+    private static boolean elementsEqual(Object primitives, List<? extends Tag> tags) {
+        int length = Array.getLength(primitives);
+        if (length != tags.size()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!wrap(primitives, i).equals(tags.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), typeId, value);
+        int hash = cachedHashCode();
+        return hash != 0 ? hash : cacheHashCode(Objects.hash(super.hashCode(), typeId, elementsHashCode()));
+    }
+
+    // The hash code of the list of element tags, computed from the array for a primitive list
+    private int elementsHashCode() {
+        Object primitives = this.primitives;
+        if (primitives == null) {
+            return value().hashCode();
+        }
+        // An element tag has an empty name, so its hash code is that of its value
+        int hash = 1;
+        int length = Array.getLength(primitives);
+        for (int i = 0; i < length; i++) {
+            int element = switch (primitives) {
+                case byte[] values -> Byte.hashCode(values[i]);
+                case short[] values -> Short.hashCode(values[i]);
+                case int[] values -> Integer.hashCode(values[i]);
+                case long[] values -> Long.hashCode(values[i]);
+                case float[] values -> Float.hashCode(values[i]);
+                case double[] values -> Double.hashCode(values[i]);
+                default -> throw new IllegalStateException("Not a primitive array: " + primitives.getClass().getName());
+            };
+            hash = 31 * hash + element;
+        }
+        return hash;
     }
 }
@@ -48,7 +48,9 @@ public class LongArrayTag extends Tag {
     /// @param value New value of this tag.
     /// @throws NullPointerException The value passed in is null
     public void setValue(long[] value) {
+        checkMutable();
         this.value = value.clone();
+        invalidateContentHash();
     }
 
     /// Gets a value in this tag's array.
@@ -66,7 +68,9 @@ public class LongArrayTag extends Tag {
     /// @param value Value to set.
     /// @throws IndexOutOfBoundsException If the index is out of range
     public void setValue(int index, long value) {
+        checkMutable();
         this.value[index] = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -75,6 +79,11 @@ public class LongArrayTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitLongArray(this);
+    }
+
     /// Gets the length of this tag's array.
     ///
     /// @return This tag's array length.
@@ -94,6 +103,7 @@ public class LongArrayTag extends Tag {
 
     @Override
     public int hashCode() {
-        return 31 * super.hashCode() + Arrays.hashCode(value);
+        int hash = cachedHashCode();
+        return hash != 0 ? hash : cacheHashCode(31 * super.hashCode() + Arrays.hashCode(value));
     }
 }
@@ -42,7 +42,9 @@ public class LongTag extends Tag {
     ///
     /// @param value New value of this tag.
     public void setValue(long value) {
+        checkMutable();
         this.value = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -51,6 +53,11 @@ public class LongTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitLong(this);
+    }
+
     @Override
     public LongTag copy() {
         return new LongTag(this.getName(), this.getClonedValue());
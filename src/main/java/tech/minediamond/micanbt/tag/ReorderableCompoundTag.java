@@ -1,5 +1,6 @@
 package tech.minediamond.micanbt.tag;
 
+import org.jetbrains.annotations.Nullable;
 import tech.minediamond.micanbt.util.map.OrderedListMap;
 
 import java.util.Comparator;
@@ -8,6 +9,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /// Extended [CompoundTag] supporting indexed access and manual reordering.
 ///
@@ -18,8 +20,12 @@ import java.util.function.Predicate;
 /// **in-place updates**, allowing a tag's name to be changed without altering its
 /// position. Some position-based operations such as [#swap], [#moveTo],
 /// [#sort(Comparator)] are also provided.
+///
+/// A tag created by [#deferred(String,Supplier)] decodes its entries only when they are
+/// first accessed.
 public class ReorderableCompoundTag extends CompoundTag {
-    OrderedListMap<String, Tag> value;
+    private @Nullable OrderedListMap<String, Tag> value;
+    private @Nullable Supplier<? extends OrderedListMap<String, Tag>> loader;
 
     /// Creates a tag with blank name.
     public ReorderableCompoundTag() {
@@ -47,21 +53,63 @@ public class ReorderableCompoundTag extends CompoundTag {
         this.value = new OrderedListMap<>(map);
     }
 
+    private ReorderableCompoundTag(String name, Supplier<? extends OrderedListMap<String, Tag>> loader) {
+        super(name);
+        this.loader = loader;
+    }
+
+    /// Creates a tag whose entries are supplied by `loader` the first time any of them is accessed.
+    ///
+    /// Until then the tag holds nothing but its name and the loader, which makes it cheap to
+    /// create placeholders for subtrees that may never be read.
+    ///
+    /// Loading the entries is not synchronized, so a deferred tag must not be shared between
+    /// threads until it is materialized. [#freeze()] materializes the whole tree first.
+    ///
+    /// @param name   The name of the tag.
+    /// @param loader Supplies the entries of the tag. It is called at most once.
+    /// @return A new deferred tag.
+    public static ReorderableCompoundTag deferred(String name, Supplier<? extends OrderedListMap<String, Tag>> loader) {
+        return new ReorderableCompoundTag(name, Objects.requireNonNull(loader, "loader"));
+    }
+
+    /// Checks whether the entries of this tag have been decoded.
+    ///
+    /// @return `false` if this is a [deferred][#deferred(String,Supplier)] tag that has not been accessed yet.
+    public boolean isMaterialized() {
+        return this.loader == null;
+    }
+
+    private OrderedListMap<String, Tag> value() {
+        OrderedListMap<String, Tag> map = this.value;
+        if (map == null) {
+            map = Objects.requireNonNull(Objects.requireNonNull(this.loader).get(), "loader returned null");
+            this.value = map;
+            this.loader = null;
+        }
+        return map;
+    }
+
     @Override
     public void setValue(Map<String, Tag> map) {
+        checkMutable();
         this.value = new OrderedListMap<>(map);
+        this.loader = null;
     }
 
     /// Sets the internal map to the provided [OrderedListMap].
     ///
     /// @param map The new ordered map.
     public void setValue(OrderedListMap<String, Tag> map) {
+        checkMutable();
         this.value = map;
+        this.loader = null;
     }
 
     @Override
     public void put(Tag tag) {
-        this.value.put(tag.getName(), tag);
+        checkMutable();
+        this.value().put(tag.getName(), tag);
     }
 
     /// Inserts a tag at a specific index.
@@ -69,14 +117,16 @@ public class ReorderableCompoundTag extends CompoundTag {
     /// @param index The target position.
     /// @param tag   The tag to insert.
     public void put(int index, Tag tag) {
-        this.value.put(tag.getName(), tag, index);
+        checkMutable();
+        this.value().put(tag.getName(), tag, index);
     }
 
     /// Adds all tags from another reorderable compound tag.
     ///
     /// @param other The source tag.
     public void putAll(ReorderableCompoundTag other) {
-        this.value.putAll(other.getRawValue());
+        checkMutable();
+        this.value().putAll(other.getRawValue());
     }
 
     /// Replaces the tag at a specific index with a new tag.
@@ -85,7 +135,8 @@ public class ReorderableCompoundTag extends CompoundTag {
     /// @param tag   The new tag.
     /// @return The old tag that was replaced.
     public Tag set(int index, Tag tag) {
-        return this.value.replaceAt(index, tag.getName(), tag);
+        checkMutable();
+        return this.value().replaceAt(index, tag.getName(), tag);
     }
 
     /// Replaces an existing tag with a new one. The tag to be replaced is identified by the name of oldTag. The position of the tag remains unchanged.
@@ -94,13 +145,14 @@ public class ReorderableCompoundTag extends CompoundTag {
     /// @param newTag The new tag.
     /// @return The old tag that was replaced.
     public Tag replace(Tag oldTag, Tag newTag) {
+        checkMutable();
         Objects.requireNonNull(oldTag, "tag to replace is null");
-        return this.value.replaceAt(oldTag.getName(), newTag.getName(), newTag);
+        return this.value().replaceAt(oldTag.getName(), newTag.getName(), newTag);
     }
 
     @Override
     public Tag get(String tagName) {
-        return this.value.get(tagName);
+        return this.value().get(tagName);
     }
 
     /// Retrieves the tag at the specified index.
@@ -108,20 +160,22 @@ public class ReorderableCompoundTag extends CompoundTag {
     /// @param index The index of the tag.
     /// @return The tag at that index.
     public Tag get(int index) {
-        return this.value.get(index);
+        return this.value().get(index);
     }
 
     @Override
     public Tag getOrDefault(String tagName, Tag defaultTag) {
-        return this.value.getOrDefault(tagName, defaultTag);
+        return this.value().getOrDefault(tagName, defaultTag);
     }
 
     @Override
     public Tag computeIfAbsent(String key, Function<? super String, ? extends Tag> mappingFunction) {
-        return this.value.computeIfAbsent(key, mappingFunction);
+        checkMutable();
+        return this.value().computeIfAbsent(key, mappingFunction);
     }
 
     public int indexOf(Predicate<? super Tag> predicate) {
+        OrderedListMap<String, Tag> value = value();
         for (int i = 0; i < value.size(); i++) {
             if (predicate.test(value.get(i))) {
                 return i;
@@ -132,22 +186,23 @@ public class ReorderableCompoundTag extends CompoundTag {
 
     @Override
     public Tag remove(String tagName) {
-        return this.value.remove(tagName);
+        checkMutable();
+        return this.value().remove(tagName);
     }
 
     @Override
     public boolean contains(String tagName) {
-        return this.value.containsKey(tagName);
+        return this.value().containsKey(tagName);
     }
 
     @Override
     public boolean contains(Tag tag) {
-        return this.value.containsValue(tag);
+        return this.value().containsValue(tag);
     }
 
     @Override
     public boolean isEmpty() {
-        return this.value.isEmpty();
+        return this.value().isEmpty();
     }
 
     /// Swaps the positions of two tags within the compound.
@@ -155,7 +210,8 @@ public class ReorderableCompoundTag extends CompoundTag {
     /// @param fromIndex The first index.
     /// @param toIndex   The second index.
     public void swap(int fromIndex, int toIndex) {
-        this.value.swap(fromIndex, toIndex);
+        checkMutable();
+        this.value().swap(fromIndex, toIndex);
     }
 
     /// Moves a tag from one index to another.
@@ -163,7 +219,8 @@ public class ReorderableCompoundTag extends CompoundTag {
     /// @param fromIndex The current index.
     /// @param toIndex   The target index.
     public void moveTo(int fromIndex, int toIndex) {
-        this.value.moveTo(fromIndex, toIndex);
+        checkMutable();
+        this.value().moveTo(fromIndex, toIndex);
     }
 
     /// Moves a tag with a specific name to a new index.
@@ -171,14 +228,16 @@ public class ReorderableCompoundTag extends CompoundTag {
     /// @param tagName The name of the tag to move.
     /// @param toIndex The target index.
     public void moveTo(String tagName, int toIndex) {
-        this.value.moveTo(tagName, toIndex);
+        checkMutable();
+        this.value().moveTo(tagName, toIndex);
     }
 
     /// Sorts the tags in this compound using the provided comparator for the tag names.
     ///
     /// @param comparator The comparator to define the order.
     public void sort(Comparator<String> comparator) {
-        this.value.sort(comparator);
+        checkMutable();
+        this.value().sort(comparator);
     }
 
     /// Finds the index of a tag by its name.
@@ -186,40 +245,56 @@ public class ReorderableCompoundTag extends CompoundTag {
     /// @param tagName The name of the tag.
     /// @return The index, or -1 if not found.
     public int indexOf(String tagName) {
-        return this.value.indexOf(tagName);
+        return this.value().indexOf(tagName);
     }
 
     @Override
     public int size() {
-        return this.value.size();
+        return this.value().size();
     }
 
     @Override
     public void clear() {
-        this.value.clear();
+        checkMutable();
+        this.value().clear();
     }
 
+    /// Copies every entry, as [Tag#getClonedValue()] requires; the nested tags of the copy are not shared with
+    /// this compound. Earlier versions shared the entries themselves, so [#copy()] was a shallow copy.
     @Override
     public OrderedListMap<String, Tag> getClonedValue() {
         OrderedListMap<String, Tag> copy = new OrderedListMap<>();
-        for (Tag tag : value) {
-            copy.put(tag.getName(), tag);
+        for (Tag tag : value()) {
+            copy.put(tag.getName(), tag.copy());
         }
         return copy;
     }
 
+    /// Gets the map of entries; a copy of it for a frozen compound, since the map itself can always be modified.
     @Override
     public OrderedListMap<String, Tag> getRawValue() {
-        return value;
+        if (isFrozen()) {
+            OrderedListMap<String, Tag> entries = new OrderedListMap<>();
+            entries.putAll(value());
+            return entries;
+        }
+        return value();
     }
 
     @Override
     public Iterator<Tag> iterator() {
-        return this.value.iterator();
+        Iterator<Tag> iterator = this.value().iterator();
+        return isFrozen() ? readOnly(iterator) : iterator;
     }
 
     @Override
     public ReorderableCompoundTag copy() {
         return new ReorderableCompoundTag(getName(), getClonedValue());
     }
+
+    /// Shares the frozen entries with the new compound instead of copying them.
+    @Override
+    public ReorderableCompoundTag thaw() {
+        return isFrozen() ? new ReorderableCompoundTag(getName(), getRawValue()) : this;
+    }
 }
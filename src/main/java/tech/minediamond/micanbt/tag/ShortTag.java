@@ -42,7 +42,9 @@ public class ShortTag extends Tag {
     ///
     /// @param value New value of this tag.
     public void setValue(short value) {
+        checkMutable();
         this.value = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -51,6 +53,11 @@ public class ShortTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitShort(this);
+    }
+
     @Override
     public ShortTag copy() {
         return new ShortTag(this.getName(), this.getClonedValue());
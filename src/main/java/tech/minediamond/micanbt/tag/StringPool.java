@@ -0,0 +1,139 @@
+package tech.minediamond.micanbt.tag;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/// A bounded pool that deduplicates the values of [StringTag]s.
+///
+/// Values such as block palette names (`minecraft:stone`, `minecraft:air`, ...) repeat millions of
+/// times across loaded data. Passing the same pool to every reader, or to
+/// [StringTag#StringTag(String, String, StringPool)], makes equal values share one `String`
+/// instance, and the duplicates become garbage right after decoding.
+///
+/// The pool holds at most [#capacity()] values in a two-way set-associative table: a value can
+/// live in one of two adjacent slots, and a new value evicts the less recently inserted of the two.
+/// Lookups and replacements are plain atomic reads and writes, so a pool is lock-free and safe to
+/// share between threads. Values longer than [#maxLength()] chars are passed through unpooled.
+///
+/// The counters report how effective the pool is: every hit is one duplicate `String` that is not
+/// retained, and [#savedChars()] sums their lengths.
+public final class StringPool {
+    private final AtomicReferenceArray<String> table;
+    private final int mask;
+    private final int maxLength;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder savedChars = new LongAdder();
+
+    private StringPool(int capacity, int maxLength) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /// Creates a pool that keeps values of up to 256 chars.
+    ///
+    /// @param capacity The maximum number of pooled values, rounded up to a power of two of at least 2.
+    /// @return A new, empty pool.
+    /// @throws IllegalArgumentException If `capacity` is not positive or greater than 2^30.
+    public static StringPool create(int capacity) {
+        return create(capacity, 256);
+    }
+
+    /// Creates a pool.
+    ///
+    /// @param capacity  The maximum number of pooled values, rounded up to a power of two of at least 2.
+    /// @param maxLength The longest value, in chars, that is pooled.
+    /// @return A new, empty pool.
+    /// @throws IllegalArgumentException If `capacity` is not positive or greater than 2^30, or `maxLength` is negative.
+    public static StringPool create(int capacity, int maxLength) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but was " + capacity);
+        }
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Max length must not be negative, but was " + maxLength);
+        }
+        return new StringPool(capacity, maxLength);
+    }
+
+    /// Returns the pooled instance equal to `value`, adding `value` to the pool if there is none.
+    ///
+    /// @param value The value to deduplicate.
+    /// @return An instance equal to `value`.
+    public String intern(String value) {
+        if (value.length() > maxLength) {
+            return value;
+        }
+        int hash = value.hashCode();
+        int first = (hash ^ (hash >>> 16)) & mask & ~1;
+
+        String recent = table.getAcquire(first);
+        if (value.equals(recent)) {
+            return hit(recent);
+        }
+        String older = table.getAcquire(first + 1);
+        if (value.equals(older)) {
+            return hit(older);
+        }
+        misses.increment();
+        if (recent != null) {
+            if (older != null) {
+                evictions.increment();
+            }
+            table.setRelease(first + 1, recent);
+        }
+        table.setRelease(first, value);
+        return value;
+    }
+
+    private String hit(String pooled) {
+        hits.increment();
+        savedChars.add(pooled.length());
+        return pooled;
+    }
+
+    /// @return The maximum number of pooled values.
+    public int capacity() {
+        return table.length();
+    }
+
+    /// @return The longest value, in chars, that is pooled.
+    public int maxLength() {
+        return maxLength;
+    }
+
+    /// @return The number of [#intern] calls that returned an already pooled instance.
+    public long hits() {
+        return hits.sum();
+    }
+
+    /// @return The number of [#intern] calls that added their value to the pool.
+    public long misses() {
+        return misses.sum();
+    }
+
+    /// @return The number of values that were evicted to make room for another.
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /// @return The total length, in chars, of the duplicates replaced by pooled instances.
+    public long savedChars() {
+        return savedChars.sum();
+    }
+
+    /// Resets all counters to zero, keeping the pooled values.
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        savedChars.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool{capacity=" + capacity() + ", hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + "}";
+    }
+}
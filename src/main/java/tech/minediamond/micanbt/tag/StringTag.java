@@ -30,6 +30,15 @@ public class StringTag extends Tag {
         this.value = value;
     }
 
+    /// Creates a tag with the specified name and a value deduplicated through a pool.
+    ///
+    /// @param name  The name of the tag.
+    /// @param value The value of the tag.
+    /// @param pool  The pool that supplies the shared instance of `value`.
+    public StringTag(String name, String value, StringPool pool) {
+        this(name, pool.intern(value));
+    }
+
     @Override
     public String getClonedValue() {
         return this.value;
@@ -44,7 +53,9 @@ public class StringTag extends Tag {
     ///
     /// @param value New value of this tag.
     public void setValue(String value) {
+        checkMutable();
         this.value = value;
+        invalidateContentHash();
     }
 
     /// @return {@value #ID}
@@ -53,6 +64,11 @@ public class StringTag extends Tag {
         return ID;
     }
 
+    @Override
+    public <R> R accept(TagVisitor<R> visitor) {
+        return visitor.visitString(this);
+    }
+
     @Override
     public StringTag copy() {
         return new StringTag(this.getName(), this.getClonedValue());
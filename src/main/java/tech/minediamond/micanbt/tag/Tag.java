@@ -2,6 +2,8 @@ package tech.minediamond.micanbt.tag;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Nullable;
+import tech.minediamond.micanbt.nbt.NBTHash;
+import tech.minediamond.micanbt.nbt.NBTHasher;
 import tech.minediamond.micanbt.path.NBTFinder;
 import tech.minediamond.micanbt.path.NBTPath;
 import tech.minediamond.micanbt.path.NBTPathParseException;
@@ -9,6 +11,10 @@ import tech.minediamond.micanbt.path.nbtpathtoken.PathToken;
 import tech.minediamond.micanbt.snbt.SNBT;
 import tech.minediamond.micanbt.snbt.SNBTStyle;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
 /// The base class for all NBT (Named Binary Tag) structures.
 ///
 /// NBT tags are used to store structured data in a tree-like format. Each tag
@@ -32,9 +38,31 @@ import tech.minediamond.micanbt.snbt.SNBTStyle;
 /// | TAG_Int_Array  | [IntArrayTag]  | {@value IntArrayTag#ID}  |
 /// | TAG_Long_Array | [LongArrayTag] | {@value LongArrayTag#ID} |
 ///
+/// ### Frozen tags
+///
+/// [#freeze()] makes a tag and everything below it immutable, so that one tree can be shared by
+/// any number of threads without copying it. Every method that would modify a frozen tag throws an
+/// [UnsupportedOperationException], and reading one changes no state that other readers see, apart
+/// from the hashes it keeps. [#thaw()] gives a modifiable tag with the same content that shares the
+/// frozen tags below it, so a variant of a frozen tree costs a copy of the path that changes:
+///
+/// ```java
+/// CompoundTag variant = template.thaw();
+/// CompoundTag pool = ((CompoundTag) variant.get("pool")).thaw();
+/// pool.put(new IntTag("rolls", 3));
+/// variant.put(pool);
+/// variant.freeze();
+/// ```
+///
 /// @see <a href="https://minecraft.wiki/w/NBT_format#TAG_definition">Minecraft Wiki: NBT format</a>
 public abstract class Tag {
+    // Marks a frozen tag whose hashes have not been computed yet
+    private static final Frozen FROZEN = new Frozen(null, 0);
+
     private final String name;
+    // The content hash of a modifiable tag, or a Frozen once the tag is frozen. Keeping the frozen
+    // state here rather than in a field of its own leaves the size of every tag unchanged
+    private @Nullable Object hashState;
 
     /// Creates a tag with blank name.
     public Tag() {
@@ -133,12 +161,162 @@ public abstract class Tag {
     @Contract(pure = true)
     public abstract int getTagId();
 
+    /// Calls the method of `visitor` for the concrete type of this tag.
+    ///
+    /// @param visitor The visitor.
+    /// @param <R>     The result type of the visitor.
+    /// @return The result of the visitor.
+    public abstract <R> R accept(TagVisitor<R> visitor);
+
     /// Creates and returns a copy of this tag.
     ///
     /// @return a new tag with the same content.
     @Contract(pure = true)
     public abstract Tag copy();
 
+    /// Gets the 128-bit content hash of this tag, with compound entries hashed in order.
+    ///
+    /// @return The hash.
+    /// @see #contentHash(boolean)
+    public final NBTHash contentHash() {
+        return contentHash(false);
+    }
+
+    /// Gets the 128-bit content hash of this tag, as computed by [NBTHasher].
+    ///
+    /// The name of this tag is not part of the hash. String, array and number tags compute their
+    /// hash once and keep it until one of their setters changes the value; lists and compounds
+    /// combine the kept hashes of their elements on every call, so changes anywhere below them
+    /// are always seen. Modifying the array returned by [#getRawValue()] in place is not seen.
+    ///
+    /// @param orderIndependent `true` to hash compound entries regardless of their order.
+    /// @return The hash.
+    public NBTHash contentHash(boolean orderIndependent) {
+        Object state = this.hashState;
+        if (state instanceof NBTHash hash) {
+            return hash;
+        }
+        if (state instanceof Frozen frozen && frozen.contentHash != null) {
+            return frozen.contentHash;
+        }
+        NBTHash hash = NBTHasher.of(orderIndependent).hash(this);
+        // Racing threads may store a Frozen each; they hold the same hashes, so either one will do
+        this.hashState = state instanceof Frozen frozen ? new Frozen(hash, frozen.objectHashCode) : hash;
+        return hash;
+    }
+
+    /// Gets the hash kept by [#contentHash(boolean)] without computing one.
+    ///
+    /// @return The kept hash, or `null` if none has been computed since the value last changed.
+    public final @Nullable NBTHash getCachedContentHash() {
+        Object state = this.hashState;
+        if (state instanceof Frozen frozen) {
+            return frozen.contentHash;
+        }
+        return (NBTHash) state;
+    }
+
+    /// Drops the hash kept by [#contentHash(boolean)]; called whenever the value changes.
+    protected final void invalidateContentHash() {
+        if (!(this.hashState instanceof Frozen)) {
+            this.hashState = null;
+        }
+    }
+
+    /// Makes this tag and every tag below it immutable.
+    ///
+    /// Deferred subtrees are decoded first, so nothing is left to load later. Tags below this one
+    /// that are frozen already are not visited again, which keeps freezing a variant made with
+    /// [#thaw()] proportional to the tags that were replaced. The arrays returned by
+    /// `getRawValue()` of array tags, [ListTag#getPrimitiveArray()] and [CompoundColumns] are the
+    /// storage of the frozen tags and must not be modified.
+    ///
+    /// @return This tag.
+    public Tag freeze() {
+        if (isFrozen()) {
+            return this;
+        }
+        // Iterative, so the nesting of the tree never reaches the call stack
+        Deque<Tag> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            Tag tag = pending.pop();
+            if (!tag.isFrozen()) {
+                tag.freezeChildren(pending);
+                tag.markFrozen();
+            }
+        }
+        return this;
+    }
+
+    /// Checks whether this tag is [frozen][#freeze()].
+    ///
+    /// @return `true` if this tag can no longer be modified.
+    @Contract(pure = true)
+    public final boolean isFrozen() {
+        return this.hashState instanceof Frozen;
+    }
+
+    /// Gets a modifiable tag with the same content as this tag.
+    ///
+    /// For a frozen list or compound, the new tag holds the same frozen elements, which can be
+    /// replaced but not modified in place; thaw an element and put it back to change it. A frozen
+    /// number, string or array is copied.
+    ///
+    /// @return A new modifiable tag if this tag is frozen, otherwise this tag.
+    @Contract(pure = true)
+    public Tag thaw() {
+        return isFrozen() ? copy() : this;
+    }
+
+    /// Throws if this tag is frozen; called before every modification.
+    ///
+    /// @throws UnsupportedOperationException If this tag is [frozen][#freeze()].
+    protected final void checkMutable() {
+        if (isFrozen()) {
+            throw new UnsupportedOperationException("Tag \"" + this.name + "\" is frozen");
+        }
+    }
+
+    // Adds the tags below this one that are not frozen yet, after loading any deferred content
+    void freezeChildren(Deque<Tag> pending) {
+    }
+
+    final void markFrozen() {
+        Object state = this.hashState;
+        if (!(state instanceof Frozen)) {
+            this.hashState = state instanceof NBTHash hash ? new Frozen(hash, 0) : FROZEN;
+        }
+    }
+
+    // The hash code kept for a frozen tag by cacheHashCode, or 0 if there is none
+    final int cachedHashCode() {
+        return this.hashState instanceof Frozen frozen ? frozen.objectHashCode : 0;
+    }
+
+    // Keeps the hash code of a frozen tag, whose content can no longer change
+    final int cacheHashCode(int hashCode) {
+        if (this.hashState instanceof Frozen frozen) {
+            this.hashState = new Frozen(frozen.contentHash, hashCode);
+        }
+        return hashCode;
+    }
+
+    // Wraps the iterator of a frozen container so that its remove() throws
+    static <E> Iterator<E> readOnly(Iterator<E> iterator) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return iterator.next();
+            }
+        };
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o != null && getClass() == o.getClass()) {
@@ -169,4 +347,8 @@ public abstract class Tag {
     public String toString(boolean stringifyRootTagName, SNBTStyle snbtStyle) {
         return SNBT.stringify(this, stringifyRootTagName, snbtStyle);
     }
+
+    // The hashes of a frozen tag; replaced, never modified, so that threads can share it without locking
+    private record Frozen(@Nullable NBTHash contentHash, int objectHashCode) {
+    }
 }
@@ -0,0 +1,36 @@
+package tech.minediamond.micanbt.tag;
+
+/// Performs an operation on a tag, chosen by its concrete type.
+///
+/// [Tag#accept(TagVisitor)] calls the method for the type of the tag, so code that handles every
+/// type dispatches with one virtual call instead of testing the type against each class in turn.
+/// Compounds of every implementation are visited by [#visitCompound(CompoundTag)]. A visitor does
+/// not descend by itself; it calls `accept` on the elements of lists and compounds it wants to
+/// visit.
+///
+/// @param <R> The result type, [Void] for visitors that return nothing.
+public interface TagVisitor<R> {
+    R visitByte(ByteTag tag);
+
+    R visitShort(ShortTag tag);
+
+    R visitInt(IntTag tag);
+
+    R visitLong(LongTag tag);
+
+    R visitFloat(FloatTag tag);
+
+    R visitDouble(DoubleTag tag);
+
+    R visitByteArray(ByteArrayTag tag);
+
+    R visitString(StringTag tag);
+
+    R visitList(ListTag<?> tag);
+
+    R visitCompound(CompoundTag tag);
+
+    R visitIntArray(IntArrayTag tag);
+
+    R visitLongArray(LongArrayTag tag);
+}
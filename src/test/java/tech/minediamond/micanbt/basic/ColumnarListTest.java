@@ -0,0 +1,215 @@
+package tech.minediamond.micanbt.basic;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.nbt.NBT;
+import tech.minediamond.micanbt.nbt.NBTCompressType;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarListTest {
+
+    // An inventory whose items share their keys, except for one item with a tag and one with a differently typed Slot
+    private static CompoundTag inventory() {
+        ListTag<CompoundTag> items = new ListTag<>("Items", CompoundTag.ID);
+        for (int i = 0; i < 20; i++) {
+            CompoundTag item = new CommonCompoundTag("");
+            item.put(new ByteTag("Slot", (byte) i));
+            item.put(new StringTag("id", i % 2 == 0 ? "minecraft:stone" : "minecraft:dirt"));
+            item.put(new ByteTag("Count", (byte) (i + 1)));
+            if (i == 3) {
+                CompoundTag tag = new CommonCompoundTag("tag");
+                tag.put(new IntTag("Damage", 7));
+                item.put(tag);
+            }
+            items.add(item);
+        }
+        CompoundTag odd = new CommonCompoundTag("");
+        odd.put(new IntTag("Slot", 100));
+        odd.put(new ByteTag("Count", (byte) 5));
+        items.add(odd);
+
+        CompoundTag root = new CommonCompoundTag("");
+        root.put(items);
+        root.put(new ListTag<>("Empty", CompoundTag.ID));
+        return root;
+    }
+
+    private static List<String> keys(CompoundTag compound) {
+        List<String> keys = new ArrayList<>();
+        for (Tag tag : compound) {
+            keys.add(tag.getName());
+        }
+        return keys;
+    }
+
+    private static int sum(byte[] values) {
+        int total = 0;
+        for (byte value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Test
+    public void testReaderFillsColumns() throws IOException {
+        CompoundTag tag = inventory();
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        for (CompoundTag read : new CompoundTag[]{
+                NBT.fromBytes(data).columnar(true).getTag(),
+                NBT.fromDataInput(new DataInputStream(new ByteArrayInputStream(data))).columnar(true).getTag()}) {
+            @SuppressWarnings("unchecked")
+            ListTag<CompoundTag> items = (ListTag<CompoundTag>) read.get("Items");
+            CompoundColumns columns = items.getColumns();
+            assertNotNull(columns);
+            assertEquals(21, columns.getRowCount());
+            assertEquals(List.of("Slot", "id", "Count", "tag"), columns.getKeys());
+
+            // A scan over one key is a loop over its column
+            byte[] counts = columns.getByteColumn("Count");
+            int total = 0;
+            for (byte count : counts) {
+                total += count;
+            }
+            assertEquals(210 + 5, total);
+            assertEquals(CompoundColumns.MIXED, columns.getTypeId("Slot"));
+            assertEquals(1, columns.countPresent("tag"));
+            assertNull(columns.getStringColumn("id")[20]);
+            assertThrows(NBTTypeException.class, () -> columns.getIntColumn("Count"));
+
+            // Elements are views of the rows
+            CompoundTag third = items.get(3);
+            assertEquals(4, third.size());
+            assertEquals(new StringTag("id", "minecraft:dirt"), third.get("id"));
+            assertEquals(7, ((IntTag) third.get("tag").at("Damage")).getRawValue());
+            assertEquals(new IntTag("Slot", 100), items.get(20).get("Slot"));
+            assertFalse(items.get(20).contains("id"));
+
+            // Writing, hashing and printing see the same tree as the plain read
+            assertArrayEquals(data, NBT.toBytes(read, NBTCompressType.UNCOMPRESSED, false));
+            assertEquals(tag.contentHash(), read.contentHash());
+            assertEquals(tag.toString(), read.toString());
+            assertNotNull(((ListTag<?>) read.get("Empty")).getColumns());
+
+            // Rows are equal to the plain compounds with the same entries
+            CompoundTag plain = NBT.read(data);
+            assertEquals(plain, read);
+            assertEquals(plain.hashCode(), read.hashCode());
+            @SuppressWarnings("unchecked")
+            ListTag<CompoundTag> plainItems = (ListTag<CompoundTag>) plain.get("Items");
+            assertEquals(plainItems.get(3), third);
+            assertEquals(third, plainItems.get(3));
+            assertEquals(3, items.indexOf(plainItems.get(3)));
+            assertTrue(items.contains(plainItems.get(20)));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLazyReadFillsColumns() throws IOException {
+        CompoundTag tag = inventory();
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        CompoundTag read = NBT.fromBytes(data).lazy(true).columnar(true).getTag();
+
+        ListTag<CompoundTag> items = (ListTag<CompoundTag>) read.get("Items");
+        assertNotNull(items.getColumns());
+        assertEquals(215, sum(items.getColumns().getByteColumn("Count")));
+        // Compounds nested in the elements are still deferred
+        ReorderableCompoundTag nested = (ReorderableCompoundTag) items.get(3).get("tag");
+        assertFalse(nested.isMaterialized());
+        assertEquals(new IntTag("Damage", 7), nested.get("Damage"));
+        assertArrayEquals(data, NBT.toBytes(read, NBTCompressType.UNCOMPRESSED, false));
+
+        // Without columnar mode a lazy read defers the list as usual
+        ListTag<CompoundTag> deferred = (ListTag<CompoundTag>) NBT.fromBytes(data).lazy(true).getTag().get("Items");
+        assertFalse(deferred.isMaterialized());
+        assertNull(deferred.getColumns());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRowsKeepTheirKeyOrder() throws IOException {
+        // Items written by different code paths, with the same keys in different orders
+        ListTag<CompoundTag> items = new ListTag<>("Items", CompoundTag.ID);
+        String[][] orders = {{"Slot", "id", "Count"}, {"id", "Count", "Slot"}, {"Count", "Slot"}, {"Slot", "Count", "id"}};
+        for (String[] order : orders) {
+            CompoundTag item = new CommonCompoundTag("");
+            for (String key : order) {
+                item.put(key.equals("id") ? new StringTag(key, "minecraft:stone") : new ByteTag(key, (byte) key.length()));
+            }
+            items.add(item);
+        }
+        CompoundTag tag = new CommonCompoundTag("");
+        tag.put(items);
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+
+        CompoundTag read = NBT.fromBytes(data).columnar(true).getTag();
+        ListTag<CompoundTag> readItems = (ListTag<CompoundTag>) read.get("Items");
+        assertNotNull(readItems.getColumns());
+        assertArrayEquals(data, NBT.toBytes(read, NBTCompressType.UNCOMPRESSED, false));
+        assertEquals(tag.contentHash(), read.contentHash());
+        assertEquals(tag.toString(), read.toString());
+        for (int row = 0; row < orders.length; row++) {
+            assertEquals(List.of(orders[row]), keys(readItems.get(row)));
+        }
+
+        // A new entry goes last, and removing entries or rows keeps the order of the others
+        CompoundTag second = readItems.get(1);
+        second.put(new ByteTag("Damage", (byte) 0));
+        second.remove("Count");
+        assertEquals(List.of("id", "Slot", "Damage"), keys(second));
+        readItems.remove(0);
+        assertEquals(List.of("id", "Slot", "Damage"), keys(readItems.get(0)));
+        assertEquals(List.of("Count", "Slot"), keys(readItems.copy().get(1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testModificationsWriteColumns() {
+        ListTag<CompoundTag> items = ListTag.of("Items", CompoundColumns.of(((ListTag<CompoundTag>) inventory().get("Items"))));
+        CompoundColumns columns = items.getColumns();
+        ListTag<CompoundTag> copy = items.copy();
+        assertEquals(items, copy);
+        assertEquals(items.hashCode(), copy.hashCode());
+
+        CompoundTag first = items.get(0);
+        first.put(new ByteTag("Count", (byte) 64));
+        first.remove("id");
+        assertEquals(64, columns.getByteColumn("Count")[0]);
+        assertFalse(columns.isPresent(0, "id"));
+        assertEquals(2, first.size());
+        assertNotEquals(items, copy);
+        assertEquals((byte) 1, ((ByteTag) copy.get(0).get("Count")).getRawValue());
+
+        // A new key gets a column, and a value of another type turns the column into tags
+        items.get(1).put(new StringTag("CustomName", "Dirt"));
+        items.get(2).put(new StringTag("Count", "many"));
+        assertEquals(CompoundColumns.MIXED, columns.getTypeId("Count"));
+        assertEquals(new ByteTag("Count", (byte) 2), items.get(1).get("Count"));
+
+        // Structural changes move the rows of every column
+        CompoundTag removed = items.remove(0);
+        assertEquals(new ByteTag("Count", (byte) 64), removed.get("Count"));
+        assertEquals(20, items.size());
+        assertEquals(new StringTag("CustomName", "Dirt"), items.get(0).get("CustomName"));
+        CompoundTag added = new CommonCompoundTag("");
+        added.put(new ShortTag("Damage", (short) 3));
+        items.add(added, 0);
+        assertEquals(1, items.get(0).size());
+        assertEquals(new ShortTag("Damage", (short) 3), items.get(0).get("Damage"));
+        assertFalse(items.get(1).contains("Damage"));
+        items.add(items.get(1));
+        assertEquals(items.get(1), items.get(items.size() - 1));
+
+        items.clear();
+        assertTrue(items.isEmpty());
+        assertSame(columns, items.getColumns());
+        assertEquals(21, copy.size());
+    }
+}
@@ -0,0 +1,156 @@
+package tech.minediamond.micanbt.basic;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.nbt.NBT;
+import tech.minediamond.micanbt.nbt.NBTCompressType;
+import tech.minediamond.micanbt.nbt.NBTHash;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrozenTagTest {
+
+    // A loot table like template with a primitive list and a list of compounds
+    private static CompoundTag template() {
+        CompoundTag pool = new CommonCompoundTag("pool");
+        pool.put(new IntTag("rolls", 1));
+        pool.put(ListTag.of("weights", new int[]{5, 3, 1}));
+        ListTag<CompoundTag> entries = new ListTag<>("entries", CompoundTag.ID);
+        for (String name : new String[]{"minecraft:bread", "minecraft:apple"}) {
+            CompoundTag entry = new CommonCompoundTag("");
+            entry.put(new StringTag("name", name));
+            entry.put(new ByteTag("count", (byte) 2));
+            entries.add(entry);
+        }
+        pool.put(entries);
+
+        CompoundTag root = new ReorderableCompoundTag("");
+        root.put(pool);
+        root.put(new StringTag("type", "minecraft:chest"));
+        root.put(new LongArrayTag("seeds", new long[]{1, 2, 3}));
+        return root;
+    }
+
+    @Test
+    public void testFreezeIsDeep() throws IOException {
+        byte[] data = Util.levelDatBytes();
+        CompoundTag expected = NBT.read(data);
+        CompoundTag tag = NBT.fromBytes(data).lazy(true).getTag().freeze();
+        assertTrue(tag.isFrozen());
+        assertEquals(expected.contentHash(), tag.contentHash());
+        assertArrayEquals(NBT.toBytes(expected, NBTCompressType.UNCOMPRESSED, false), NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false));
+        assertEquals(tag.contentHash(), tag.getCachedContentHash());
+
+        CompoundTag data0 = (CompoundTag) tag.get("Data");
+        assertTrue(data0.isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> tag.put(new IntTag("x", 1)));
+        assertThrows(UnsupportedOperationException.class, () -> data0.remove("LevelName"));
+        assertThrows(UnsupportedOperationException.class, () -> ((StringTag) data0.get("LevelName")).setValue("other"));
+        assertThrows(UnsupportedOperationException.class, () -> {
+            Iterator<Tag> iterator = data0.iterator();
+            iterator.next();
+            iterator.remove();
+        });
+        ((ReorderableCompoundTag) data0).getRawValue().remove("LevelName");
+        assertNotNull(data0.get("LevelName"));
+        assertEquals(expected.contentHash(), tag.contentHash());
+    }
+
+    @Test
+    public void testFrozenLists() {
+        CompoundTag root = template().freeze();
+        CompoundTag pool = (CompoundTag) root.get("pool");
+        @SuppressWarnings("unchecked")
+        ListTag<IntTag> weights = (ListTag<IntTag>) pool.get("weights");
+        assertTrue(weights.isPrimitive());
+        assertTrue(weights.get(1).isFrozen());
+        assertTrue(weights.isPrimitive());
+        assertThrows(UnsupportedOperationException.class, () -> weights.add(new IntTag("", 4)));
+        assertThrows(UnsupportedOperationException.class, () -> weights.get(0).setValue(0));
+        assertThrows(UnsupportedOperationException.class, () -> weights.getRawValue().clear());
+        assertEquals(3, weights.size());
+        assertEquals(weights.hashCode(), weights.hashCode());
+
+        // Columns are frozen with their list
+        @SuppressWarnings("unchecked")
+        ListTag<CompoundTag> entries = (ListTag<CompoundTag>) pool.get("entries");
+        ListTag<CompoundTag> columnar = ListTag.of("entries", CompoundColumns.of(entries)).freeze();
+        assertTrue(columnar.getColumns().isFrozen());
+        assertTrue(columnar.get(0).isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> columnar.get(0).put(new ByteTag("count", (byte) 1)));
+        assertThrows(UnsupportedOperationException.class, () -> columnar.getColumns().addRow());
+        assertThrows(UnsupportedOperationException.class, () -> ((StringTag) columnar.get(1).get("name")).setValue(""));
+        ListTag<CompoundTag> thawed = columnar.thaw();
+        thawed.get(0).put(new ByteTag("count", (byte) 1));
+        assertEquals(new ByteTag("count", (byte) 2), columnar.get(0).get("count"));
+    }
+
+    @Test
+    public void testThawSharesUnchangedSubtrees() {
+        CompoundTag template = template().freeze();
+        NBTHash templateHash = template.contentHash();
+
+        CompoundTag variant = template.thaw();
+        assertFalse(variant.isFrozen());
+        CompoundTag pool = ((CompoundTag) variant.get("pool")).thaw();
+        pool.put(new IntTag("rolls", 3));
+        variant.put(pool);
+        variant.freeze();
+
+        // Only the path to the change was copied
+        CompoundTag templatePool = (CompoundTag) template.get("pool");
+        assertNotSame(templatePool, variant.get("pool"));
+        assertSame(templatePool.get("entries"), pool.get("entries"));
+        assertSame(template.get("seeds"), variant.get("seeds"));
+        assertEquals(new IntTag("rolls", 1), templatePool.get("rolls"));
+        assertEquals(templateHash, template.contentHash());
+
+        CompoundTag expected = template();
+        ((CompoundTag) expected.get("pool")).put(new IntTag("rolls", 3));
+        assertEquals(expected.contentHash(), variant.contentHash());
+        assertNotEquals(templateHash, variant.contentHash());
+
+        // A thawed leaf is a modifiable copy; thawing a modifiable tag returns it
+        LongArrayTag seeds = (LongArrayTag) variant.get("seeds").thaw();
+        seeds.setValue(0, 9);
+        assertEquals(1, ((LongArrayTag) template.get("seeds")).getValue(0));
+        assertSame(seeds, seeds.thaw());
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        CompoundTag template = template();
+        byte[] expected = NBT.toBytes(template, NBTCompressType.UNCOMPRESSED, false);
+        NBTHash expectedHash = template.contentHash();
+        CompoundTag frozen = template.freeze();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        assertArrayEquals(expected, NBT.toBytes(frozen, NBTCompressType.UNCOMPRESSED, false));
+                        assertEquals(expectedHash, frozen.contentHash());
+                        assertEquals(1, ((ListTag<?>) frozen.at("pool.weights")).getInt(2));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
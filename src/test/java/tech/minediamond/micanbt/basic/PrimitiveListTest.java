@@ -0,0 +1,124 @@
+package tech.minediamond.micanbt.basic;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.nbt.NBT;
+import tech.minediamond.micanbt.nbt.NBTCompressType;
+import tech.minediamond.micanbt.nbt.NBTNetworkCodec;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrimitiveListTest {
+
+    // Lists of every number type, built from element tags
+    private static CompoundTag entity() {
+        CompoundTag tag = new CommonCompoundTag("");
+        tag.put(new ListTag<>("Pos", List.of(new DoubleTag("", 12.5), new DoubleTag("", 64), new DoubleTag("", -3.25))));
+        tag.put(new ListTag<>("Rotation", List.of(new FloatTag("", 90f), new FloatTag("", Float.NaN))));
+        tag.put(new ListTag<>("Bytes", List.of(new ByteTag("", (byte) -1), new ByteTag("", (byte) 7))));
+        tag.put(new ListTag<>("Shorts", List.of(new ShortTag("", (short) 300))));
+        tag.put(new ListTag<>("Ints", List.of(new IntTag("", -5), new IntTag("", 1 << 20))));
+        tag.put(new ListTag<>("Longs", List.of(new LongTag("", Long.MIN_VALUE))));
+        tag.put(new ListTag<>("Empty", DoubleTag.ID));
+        return tag;
+    }
+
+    @Test
+    public void testReaderKeepsNumbersInArrays() throws IOException {
+        CompoundTag tag = entity();
+        for (boolean littleEndian : new boolean[]{false, true}) {
+            byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, littleEndian);
+            CompoundTag read = NBT.read(data, NBTCompressType.UNCOMPRESSED, littleEndian);
+
+            ListTag<?> pos = (ListTag<?>) read.get("Pos");
+            assertTrue(pos.isPrimitive());
+            assertArrayEquals(new double[]{12.5, 64, -3.25}, (double[]) pos.getPrimitiveArray());
+            assertEquals(64, pos.getDouble(1));
+            assertTrue(Float.isNaN(((ListTag<?>) read.get("Rotation")).getFloat(1)));
+            assertEquals((short) 300, ((ListTag<?>) read.get("Shorts")).getShort(0));
+            assertEquals(Long.MIN_VALUE, ((ListTag<?>) read.get("Longs")).getLong(0));
+            assertEquals(0, ((ListTag<?>) read.get("Empty")).size());
+
+            // Writing, hashing and printing work from the arrays
+            assertArrayEquals(data, NBT.toBytes(read, NBTCompressType.UNCOMPRESSED, littleEndian));
+            assertEquals(tag.contentHash(), read.contentHash());
+            assertEquals(tag.toString(), read.toString());
+            assertTrue(pos.isPrimitive());
+        }
+
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        CompoundTag fromStream = NBT.read(new DataInputStream(new ByteArrayInputStream(data)));
+        assertArrayEquals(new int[]{-5, 1 << 20}, (int[]) ((ListTag<?>) fromStream.get("Ints")).getPrimitiveArray());
+        assertArrayEquals(new byte[]{-1, 7}, (byte[]) ((ListTag<?>) fromStream.get("Bytes")).getPrimitiveArray());
+    }
+
+    @Test
+    public void testPayloadNaNsMatchTags() throws IOException {
+        float nanFloat = Float.intBitsToFloat(0x7FC00001);
+        double nanDouble = Double.longBitsToDouble(0xFFF0000000000123L);
+        CompoundTag boxed = new CommonCompoundTag("");
+        boxed.put(new ListTag<>("floats", List.of(new FloatTag("", 1f), new FloatTag("", nanFloat))));
+        boxed.put(new ListTag<>("doubles", List.of(new DoubleTag("", nanDouble), new DoubleTag("", 2))));
+        CompoundTag primitive = new CommonCompoundTag("");
+        primitive.put(ListTag.of("floats", new float[]{1f, nanFloat}));
+        primitive.put(ListTag.of("doubles", new double[]{nanDouble, 2}));
+
+        for (boolean littleEndian : new boolean[]{false, true}) {
+            byte[] expected = NBT.toBytes(boxed, NBTCompressType.UNCOMPRESSED, littleEndian);
+            assertArrayEquals(expected, NBT.toBytes(primitive, NBTCompressType.UNCOMPRESSED, littleEndian));
+            ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+            NBT.write(primitive, streamed, NBTCompressType.UNCOMPRESSED, littleEndian);
+            assertArrayEquals(expected, streamed.toByteArray());
+        }
+    }
+
+    @Test
+    public void testTagsCreatedOnAccess() {
+        ListTag<DoubleTag> pos = ListTag.of("Pos", new double[]{1, 2, 3});
+        ListTag<DoubleTag> copy = pos.copy();
+        assertEquals(pos, copy);
+        assertEquals(pos.hashCode(), new ListTag<>("Pos", List.of(new DoubleTag("", 1), new DoubleTag("", 2), new DoubleTag("", 3))).hashCode());
+
+        // Comparing with a list of element tags leaves the array in place
+        ListTag<DoubleTag> boxed = new ListTag<>("Pos", List.of(new DoubleTag("", 1), new DoubleTag("", 2), new DoubleTag("", 3)));
+        assertEquals(pos, boxed);
+        assertEquals(boxed, pos);
+        assertNotEquals(pos, new ListTag<>("Pos", List.of(new DoubleTag("", 1), new DoubleTag("", 2))));
+        assertTrue(pos.isPrimitive());
+
+        pos.get(1).setValue(5);
+        assertFalse(pos.isPrimitive());
+        assertNull(pos.getPrimitiveArray());
+        assertEquals(5, pos.getDouble(1));
+        assertEquals(2, copy.getDouble(1));
+        assertTrue(copy.isPrimitive());
+        assertNotEquals(pos, copy);
+
+        pos.add(new DoubleTag("", 4));
+        assertEquals(4, pos.size());
+        assertThrows(NBTTypeException.class, () -> pos.getInt(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> copy.getDouble(3));
+    }
+
+    @Test
+    public void testNetworkCodec() throws IOException {
+        CompoundTag tag = entity();
+        CompoundTag read = NBT.read(NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false), NBTCompressType.UNCOMPRESSED, false);
+        for (NBTNetworkCodec codec : new NBTNetworkCodec[]{NBTNetworkCodec.JAVA, NBTNetworkCodec.BEDROCK}) {
+            ByteBuffer expected = ByteBuffer.allocate((int) codec.size(tag));
+            codec.write(tag, expected);
+            assertEquals(expected.capacity(), codec.size(read));
+            ByteBuffer actual = ByteBuffer.allocate((int) codec.size(read));
+            codec.write(read, actual);
+            assertArrayEquals(expected.array(), actual.array());
+        }
+        assertTrue(((ListTag<?>) read.get("Ints")).isPrimitive());
+    }
+}
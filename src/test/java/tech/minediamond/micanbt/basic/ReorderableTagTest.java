@@ -48,6 +48,46 @@ public class ReorderableTagTest {
         assertArrayEquals(new long[]{1, 2, 3}, ((LongArrayTag) compoundTag.get(8)).getRawValue());
     }
 
+    @Test
+    public void testEqualsComparesContent() {
+        ReorderableCompoundTag compoundTag = buildTag();
+        CommonCompoundTag common = new CommonCompoundTag("tag");
+        for (Tag tag : compoundTag) {
+            common.put(tag);
+        }
+        ReorderableCompoundTag moved = buildTag();
+        moved.moveTo("StringTag", 0);
+
+        // Equal entries make equal compounds, whatever the implementation and the order
+        assertEquals(compoundTag, common);
+        assertEquals(common, compoundTag);
+        assertEquals(compoundTag, moved);
+        assertEquals(compoundTag.hashCode(), common.hashCode());
+        assertEquals(compoundTag.hashCode(), moved.hashCode());
+
+        moved.put(new IntTag("IntTag", 2));
+        assertNotEquals(compoundTag, moved);
+        assertNotEquals(compoundTag, new ReorderableCompoundTag("tag"));
+        assertNotEquals(compoundTag, new CommonCompoundTag("other", common.getRawValue()));
+    }
+
+    @Test
+    public void testCopyIsDeep() {
+        ReorderableCompoundTag compoundTag = buildTag();
+        ReorderableCompoundTag nested = buildTag();
+        compoundTag.put(nested);
+        ReorderableCompoundTag copy = compoundTag.copy();
+        assertEquals(compoundTag, copy);
+
+        // Modifying the entries of the copy leaves the original untouched
+        ((IntArrayTag) copy.get("IntArrayTag")).setValue(0, 9);
+        ((CompoundTag) copy.get("tag")).put(new IntTag("IntTag", 2));
+        assertEquals(1, ((IntArrayTag) compoundTag.get("IntArrayTag")).getRawValue()[0]);
+        assertEquals(new IntTag("IntTag", 1), nested.get("IntTag"));
+        assertNotSame(nested, copy.get("tag"));
+        assertNotEquals(compoundTag, copy);
+    }
+
     public static ReorderableCompoundTag buildTag() {
         ReorderableCompoundTag tag = new ReorderableCompoundTag("tag");
         tag.put(new ByteArrayTag("ByteArrayTag", new byte[]{1, 0, 3}));
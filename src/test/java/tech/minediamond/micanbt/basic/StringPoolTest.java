@@ -0,0 +1,60 @@
+package tech.minediamond.micanbt.basic;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.nbt.NBT;
+import tech.minediamond.micanbt.nbt.NBTCompressType;
+import tech.minediamond.micanbt.snbt.SNBT;
+import tech.minediamond.micanbt.tag.CompoundTag;
+import tech.minediamond.micanbt.tag.ListTag;
+import tech.minediamond.micanbt.tag.StringPool;
+import tech.minediamond.micanbt.tag.StringTag;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringPoolTest {
+
+    @Test
+    public void testInternAndCounters() {
+        StringPool pool = StringPool.create(16, 10);
+        String stone = pool.intern(new String("minecraft"));
+        assertSame(stone, pool.intern(new String("minecraft")));
+        assertSame(stone, new StringTag("Name", new String("minecraft"), pool).getRawValue());
+        String tooLong = "minecraft:stone";
+        assertSame(tooLong, pool.intern(tooLong));
+
+        assertEquals(2, pool.hits());
+        assertEquals(1, pool.misses());
+        assertEquals(18, pool.savedChars());
+        pool.resetStatistics();
+        assertEquals(0, pool.hits());
+        assertSame(stone, pool.intern(new String("minecraft")));
+    }
+
+    @Test
+    public void testEviction() {
+        StringPool pool = StringPool.create(1);
+        assertEquals(2, pool.capacity());
+        for (int i = 0; i < 10; i++) {
+            pool.intern("value" + i);
+        }
+        assertEquals(10, pool.misses());
+        assertEquals(8, pool.evictions());
+    }
+
+    @Test
+    public void testReadersSharePool() throws IOException {
+        StringPool pool = StringPool.create(64);
+        CompoundTag tag = (CompoundTag) SNBT.parse("{palette: [{Name: \"minecraft:air\"}, {Name: \"minecraft:air\"}], other: 'minecraft:air'}", pool);
+        ListTag<?> palette = (ListTag<?>) tag.get("palette");
+        String first = ((CompoundTag) palette.get(0)).get("Name").getRawValue().toString();
+        assertSame(first, ((CompoundTag) palette.get(1)).get("Name").getRawValue());
+        assertSame(first, tag.get("other").getRawValue());
+
+        CompoundTag read = NBT.fromBytes(NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false)).stringPool(pool).getTag();
+        assertSame(first, read.get("other").getRawValue());
+        assertEquals(5, pool.hits());
+        assertEquals(1, pool.misses());
+    }
+}
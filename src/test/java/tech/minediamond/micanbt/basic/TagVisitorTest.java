@@ -0,0 +1,97 @@
+package tech.minediamond.micanbt.basic;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.tag.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagVisitorTest {
+
+    // Answers the ID of the type it was dispatched to
+    private static final TagVisitor<Integer> ID_VISITOR = new TagVisitor<>() {
+        @Override
+        public Integer visitByte(ByteTag tag) {
+            return ByteTag.ID;
+        }
+
+        @Override
+        public Integer visitShort(ShortTag tag) {
+            return ShortTag.ID;
+        }
+
+        @Override
+        public Integer visitInt(IntTag tag) {
+            return IntTag.ID;
+        }
+
+        @Override
+        public Integer visitLong(LongTag tag) {
+            return LongTag.ID;
+        }
+
+        @Override
+        public Integer visitFloat(FloatTag tag) {
+            return FloatTag.ID;
+        }
+
+        @Override
+        public Integer visitDouble(DoubleTag tag) {
+            return DoubleTag.ID;
+        }
+
+        @Override
+        public Integer visitByteArray(ByteArrayTag tag) {
+            return ByteArrayTag.ID;
+        }
+
+        @Override
+        public Integer visitString(StringTag tag) {
+            return StringTag.ID;
+        }
+
+        @Override
+        public Integer visitList(ListTag<?> tag) {
+            return ListTag.ID;
+        }
+
+        @Override
+        public Integer visitCompound(CompoundTag tag) {
+            return CompoundTag.ID;
+        }
+
+        @Override
+        public Integer visitIntArray(IntArrayTag tag) {
+            return IntArrayTag.ID;
+        }
+
+        @Override
+        public Integer visitLongArray(LongArrayTag tag) {
+            return LongArrayTag.ID;
+        }
+    };
+
+    @Test
+    public void testAcceptDispatchesByType() {
+        List<Tag> tags = List.of(new ByteTag(), new ShortTag(), new IntTag(), new LongTag(), new FloatTag(),
+                new DoubleTag(), new ByteArrayTag(), new StringTag(), new ListTag<>("", IntTag.ID),
+                new CommonCompoundTag(), new ReorderableCompoundTag(), new IntArrayTag(), new LongArrayTag());
+        for (Tag tag : tags) {
+            assertEquals(tag.getTagId(), tag.accept(ID_VISITOR), tag.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void testReorderableCopyIsDeep() {
+        ReorderableCompoundTag inner = new ReorderableCompoundTag("inner");
+        inner.put(new IntTag("value", 1));
+        ReorderableCompoundTag tag = new ReorderableCompoundTag("");
+        tag.put(inner);
+
+        ReorderableCompoundTag copy = tag.copy();
+        ((IntTag) ((CompoundTag) copy.get("inner")).get("value")).setValue(2);
+        assertEquals(1, ((IntTag) inner.get("value")).getRawValue());
+        assertNotSame(inner, copy.get("inner"));
+    }
+}
@@ -0,0 +1,68 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.CommonCompoundTag;
+import tech.minediamond.micanbt.tag.CompoundTag;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressionSettingsTest {
+
+    @ParameterizedTest
+    @EnumSource(value = NBTCompressType.class, names = {"GZIP", "ZLIB"})
+    public void testEveryLevelAndStrategyRoundTrips(NBTCompressType compressType) throws IOException {
+        CompoundTag tag = Util.levelDat();
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            for (NBTDeflateStrategy strategy : NBTDeflateStrategy.values()) {
+                for (int level = -1; level <= 9; level++) {
+                    byte[] serial = NBTWriter.builder(tag).compressType(compressType).compressionLevel(level).deflateStrategy(strategy).toByteArray();
+                    byte[] parallel = NBTWriter.builder(tag).compressType(compressType).compressionLevel(level).deflateStrategy(strategy)
+                            .parallelCompression(executor, 16 * 1024).toByteArray();
+
+                    assertEquals(tag, NBT.read(serial, compressType, false), strategy + "/" + level);
+                    assertEquals(tag, NBT.read(parallel, compressType, false), strategy + "/" + level);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSettingsChangeTheOutput() throws IOException {
+        CompoundTag tag = Util.levelDat();
+        int fastest = NBTWriter.builder(tag).compressionLevel(1).toByteArray().length;
+        int best = NBTWriter.builder(tag).compressionLevel(9).toByteArray().length;
+        int stored = NBTWriter.builder(tag).compressionLevel(0).toByteArray().length;
+        int huffman = NBTWriter.builder(tag).deflateStrategy(NBTDeflateStrategy.HUFFMAN_ONLY).toByteArray().length;
+        assertTrue(best < fastest);
+        assertTrue(fastest < huffman);
+        assertTrue(huffman < stored);
+
+        // A pooled deflater must not keep the settings of the previous stream
+        assertEquals(NBTWriter.builder(tag).toByteArray().length, NBT.toBytes(tag).length);
+    }
+
+    @Test
+    public void testLZ4Modes() throws IOException {
+        CompoundTag tag = Util.levelDat();
+        byte[] fast = NBTWriter.builder(tag).compressType(NBTCompressType.LZ4).lz4Mode(NBTLZ4Mode.FAST).toByteArray();
+        byte[] high = NBTWriter.builder(tag).compressType(NBTCompressType.LZ4).lz4Mode(NBTLZ4Mode.HIGH).toByteArray();
+
+        assertTrue(high.length < fast.length);
+        assertEquals(tag, NBT.read(fast, NBTCompressType.LZ4, false));
+        assertEquals(tag, NBT.read(high, NBTCompressType.LZ4, false));
+    }
+
+    @Test
+    public void testInvalidLevel() {
+        NBTWriter.Builder builder = NBTWriter.builder(new CommonCompoundTag(""));
+        assertThrows(IllegalArgumentException.class, () -> builder.compressionLevel(10));
+        assertThrows(IllegalArgumentException.class, () -> builder.compressionLevel(-2));
+    }
+}
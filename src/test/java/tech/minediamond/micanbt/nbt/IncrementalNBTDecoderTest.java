@@ -0,0 +1,118 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalNBTDecoderTest {
+
+    private static CompoundTag arrays() {
+        CommonCompoundTag tag = new CommonCompoundTag("arrays");
+        tag.put(new IntArrayTag("ints", new int[]{1, -2, 3, Integer.MIN_VALUE, Integer.MAX_VALUE}));
+        tag.put(new LongArrayTag("longs", new long[]{1L, -2L, Long.MIN_VALUE}));
+        tag.put(new ByteArrayTag("empty", new byte[0]));
+        tag.put(new StringTag("", "😀 \u0000 中文"));
+        ListTag<ListTag<IntTag>> nested = new ListTag<>("nested");
+        ListTag<IntTag> inner = new ListTag<>("");
+        inner.add(new IntTag("", 7));
+        nested.add(inner);
+        nested.add(new ListTag<>(""));
+        tag.put(nested);
+        return tag;
+    }
+
+    private static CompoundTag decodeInFragments(byte[] data, boolean littleEndian, Random random, int maxFragment) throws IOException {
+        IncrementalNBTDecoder decoder = new IncrementalNBTDecoder(littleEndian);
+        int offset = 0;
+        while (offset < data.length) {
+            int length = Math.min(data.length - offset, 1 + random.nextInt(maxFragment));
+            ByteBuffer fragment = ByteBuffer.wrap(data, offset, length);
+            IncrementalNBTDecoder.Result result = decoder.feed(fragment);
+            offset += length;
+            assertFalse(fragment.hasRemaining());
+            if (result instanceof IncrementalNBTDecoder.Result.Complete(CompoundTag tag)) {
+                assertEquals(data.length, offset);
+                assertFalse(decoder.isInProgress());
+                return tag;
+            }
+            assertSame(IncrementalNBTDecoder.Result.NEED_MORE, result);
+            assertTrue(decoder.isInProgress());
+        }
+        throw new AssertionError("Document did not complete");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testFragmentedInput(boolean littleEndian) throws IOException {
+        Random random = new Random(42);
+        for (CompoundTag tag : new CompoundTag[]{Util.getBasicTag(), Util.levelDat(), arrays()}) {
+            byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, littleEndian);
+            for (int maxFragment : new int[]{1, 3, 9, 64, 4096, data.length}) {
+                CompoundTag decoded = decodeInFragments(data, littleEndian, random, maxFragment);
+                assertArrayEquals(data, NBT.toBytes(decoded, NBTCompressType.UNCOMPRESSED, littleEndian), "fragments up to " + maxFragment);
+            }
+        }
+    }
+
+    @Test
+    public void testConsecutiveDocuments() throws IOException {
+        byte[] first = NBT.toBytes(arrays(), NBTCompressType.UNCOMPRESSED, false);
+        byte[] second = NBT.toBytes(Util.getBasicTag(), NBTCompressType.UNCOMPRESSED, false);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(first.length + second.length).put(first).put(second).flip();
+
+        IncrementalNBTDecoder decoder = new IncrementalNBTDecoder();
+        IncrementalNBTDecoder.Result result = decoder.feed(buffer);
+        assertInstanceOf(IncrementalNBTDecoder.Result.Complete.class, result);
+        assertEquals(first.length, buffer.position());
+        assertArrayEquals(first, NBT.toBytes(((IncrementalNBTDecoder.Result.Complete) result).tag(), NBTCompressType.UNCOMPRESSED, false));
+
+        result = decoder.feed(buffer);
+        assertInstanceOf(IncrementalNBTDecoder.Result.Complete.class, result);
+        assertFalse(buffer.hasRemaining());
+        assertSame(IncrementalNBTDecoder.Result.NEED_MORE, decoder.feed(buffer));
+        assertFalse(decoder.isInProgress());
+    }
+
+    @Test
+    public void testInvalidInput() throws IOException {
+        IncrementalNBTDecoder decoder = new IncrementalNBTDecoder();
+        assertThrows(NBTParseException.class, () -> decoder.feed(ByteBuffer.wrap(new byte[]{8, 0, 0})));
+
+        decoder.reset();
+        assertThrows(NBTParseException.class, () -> decoder.feed(ByteBuffer.wrap(new byte[]{10, 0, 0, 99, 0, 0})));
+
+        decoder.reset();
+        assertSame(IncrementalNBTDecoder.Result.NEED_MORE, decoder.feed(ByteBuffer.wrap(new byte[]{10, 0})));
+        decoder.reset();
+        assertFalse(decoder.isInProgress());
+        assertInstanceOf(IncrementalNBTDecoder.Result.Complete.class, decoder.feed(ByteBuffer.wrap(new byte[]{10, 0, 0, 0})));
+    }
+
+    @Test
+    public void testForgedArrayLength() throws IOException {
+        // A long array that declares 2^31 - 1 elements, about 16 GiB, but holds only two
+        ByteBuffer header = ByteBuffer.wrap(new byte[]{10, 0, 0, 12, 0, 1, 'a', 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+        IncrementalNBTDecoder decoder = new IncrementalNBTDecoder();
+        assertSame(IncrementalNBTDecoder.Result.NEED_MORE, decoder.feed(header));
+        assertSame(IncrementalNBTDecoder.Result.NEED_MORE, decoder.feed(ByteBuffer.allocate(2 * Long.BYTES)));
+        assertTrue(decoder.isInProgress());
+        decoder.reset();
+
+        // Elements that arrive in many fragments still fill an array of the declared length
+        long[] values = new long[1000];
+        Arrays.setAll(values, i -> i * 31L);
+        CompoundTag tag = new CommonCompoundTag("");
+        tag.put(new LongArrayTag("a", values));
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        assertArrayEquals(values, ((LongArrayTag) decodeInFragments(data, false, new Random(7), 5).get("a")).getRawValue());
+    }
+}
@@ -0,0 +1,59 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import tech.minediamond.micanbt.tag.CompoundTag;
+import tech.minediamond.micanbt.tag.IntTag;
+import tech.minediamond.micanbt.tag.ReorderableCompoundTag;
+import tech.minediamond.micanbt.tag.Tag;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyInternerTest {
+
+    private static CompoundTag document() {
+        ReorderableCompoundTag tag = new ReorderableCompoundTag("");
+        ReorderableCompoundTag sub = new ReorderableCompoundTag("palette");
+        sub.put(new IntTag("Name", 1));
+        sub.put(new IntTag("名前\u0000", 2));
+        tag.put(sub);
+        return tag;
+    }
+
+    private static String keyOf(CompoundTag root, int index) {
+        int i = 0;
+        for (Tag tag : (CompoundTag) root.get("palette")) {
+            if (i++ == index) {
+                return tag.getName();
+            }
+        }
+        throw new AssertionError();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testKeysAreShared(boolean littleEndian) throws IOException {
+        KeyInterner interner = KeyInterner.create(64);
+        byte[] data = NBT.toBytes(document(), NBTCompressType.GZIP, littleEndian);
+
+        CompoundTag first = NBT.fromBytes(data).littleEndian(littleEndian).keyInterner(interner).getTag();
+        CompoundTag second = NBT.fromBytes(data).littleEndian(littleEndian).lazy(true).keyInterner(interner).getTag();
+        CompoundTag plain = NBT.fromBytes(data).littleEndian(littleEndian).getTag();
+
+        assertEquals("Name", keyOf(first, 0));
+        assertEquals("名前\u0000", keyOf(first, 1));
+        assertSame(keyOf(first, 0), keyOf(second, 0));
+        assertSame(keyOf(first, 1), keyOf(second, 1));
+        assertNotSame(keyOf(first, 0), keyOf(plain, 0));
+        assertArrayEquals(NBT.toBytes(plain, NBTCompressType.UNCOMPRESSED, littleEndian), NBT.toBytes(second, NBTCompressType.UNCOMPRESSED, littleEndian));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 1000, 1 << 20})
+    public void testCapacityIsPowerOfTwo(int capacity) {
+        int actual = KeyInterner.create(capacity).capacity();
+        assertTrue(actual >= capacity && Integer.bitCount(actual) == 1);
+    }
+}
@@ -0,0 +1,96 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.CompoundTag;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTBufferTest {
+
+    private static byte[] remainingBytes(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return bytes;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testBufferMatchesByteArray(boolean littleEndian) throws IOException {
+        CompoundTag tag = Util.getBasicTag();
+        byte[] expected = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, littleEndian);
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(expected.length + 8), ByteBuffer.allocateDirect(expected.length + 8)}) {
+            buffer.put((byte) 42);
+            ByteBuffer result = NBT.toBuffer(tag, buffer, littleEndian);
+
+            assertSame(buffer, result);
+            assertEquals(1 + expected.length, buffer.position());
+            assertEquals(42, buffer.get(0));
+            assertArrayEquals(expected, remainingBytes(buffer, 1, buffer.position()));
+            assertEquals(tag, NBT.read(remainingBytes(buffer, 1, buffer.position()), NBTCompressType.UNCOMPRESSED, littleEndian));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testBufferGrows(boolean direct) throws IOException {
+        CompoundTag tag = Util.getBasicTag();
+        byte[] expected = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(16) : ByteBuffer.allocate(16);
+        buffer.putInt(0xCAFEBABE);
+        ByteBuffer grown = NBT.toBuffer(tag, buffer);
+
+        assertNotSame(buffer, grown);
+        assertEquals(direct, grown.isDirect());
+        assertEquals(4, buffer.position());
+        assertEquals(4 + expected.length, grown.position());
+        assertEquals(0xCAFEBABE, grown.getInt(0));
+        assertArrayEquals(expected, remainingBytes(grown, 4, grown.position()));
+    }
+
+    @Test
+    public void testReadOnlyBufferRejected() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024).asReadOnlyBuffer();
+        assertThrows(ReadOnlyBufferException.class, () -> NBT.toBuffer(Util.getBasicTag(), buffer));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testSegmentMatchesByteArray(boolean littleEndian) throws IOException {
+        CompoundTag tag = Util.getBasicTag();
+        byte[] expected = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, littleEndian);
+
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(expected.length + 8);
+            assertEquals(expected.length, NBT.toSegment(tag, segment, littleEndian));
+            assertArrayEquals(expected, segment.asSlice(0, expected.length).toArray(ValueLayout.JAVA_BYTE));
+
+            MemorySegment exact = NBT.toSegment(tag, arena, littleEndian);
+            assertEquals(expected.length, exact.byteSize());
+            assertArrayEquals(expected, exact.toArray(ValueLayout.JAVA_BYTE));
+        }
+    }
+
+    @Test
+    public void testSegmentOverflowFailsFast() throws IOException {
+        CompoundTag tag = Util.getBasicTag();
+        long size = NBTSizer.uncompressedSize(tag);
+
+        byte[] bytes = new byte[(int) size - 1];
+        MemorySegment segment = MemorySegment.ofArray(bytes);
+        assertThrows(BufferOverflowException.class, () -> NBT.toSegment(tag, segment));
+        assertArrayEquals(new byte[bytes.length], bytes);
+    }
+}
@@ -0,0 +1,103 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.CompoundTag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTCodecPoolTest {
+
+    private static byte[] payload() {
+        byte[] payload = new byte[100_000];
+        Random random = new Random(7);
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (random.nextInt(16) + 'a');
+        }
+        return payload;
+    }
+
+    private static byte[] compress(NBTCodecPool pool, NBTCompressType compressType, byte[] payload) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (OutputStream out = pool.compress(bos, compressType)) {
+            out.write(payload);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] decompress(NBTCodecPool pool, NBTCompressType compressType, byte[] data) throws IOException {
+        try (InputStream in = pool.decompress(new ByteArrayInputStream(data), compressType)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    public void testCompatibleWithJdkStreams() throws IOException {
+        byte[] payload = payload();
+        for (NBTCodecPool pool : new NBTCodecPool[]{NBTCodecPool.threadLocal(), NBTCodecPool.bounded(1)}) {
+            try (pool) {
+                byte[] gzip = compress(pool, NBTCompressType.GZIP, payload);
+                assertArrayEquals(payload, new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes());
+                byte[] zlib = compress(pool, NBTCompressType.ZLIB, payload);
+                assertArrayEquals(payload, new InflaterInputStream(new ByteArrayInputStream(zlib)).readAllBytes());
+
+                ByteArrayOutputStream jdk = new ByteArrayOutputStream();
+                // Two concatenated members
+                for (int i = 0; i < 2; i++) {
+                    try (GZIPOutputStream out = new GZIPOutputStream(jdk)) {
+                        out.write(payload);
+                    }
+                }
+                byte[] twice = decompress(pool, NBTCompressType.GZIP, jdk.toByteArray());
+                assertEquals(payload.length * 2, twice.length);
+                assertArrayEquals(payload, decompress(pool, NBTCompressType.ZLIB, zlib));
+            }
+        }
+    }
+
+    @Test
+    public void testCorruptTrailerIsDetected() throws IOException {
+        byte[] gzip = compress(NBTCodecPool.shared(), NBTCompressType.GZIP, payload());
+        gzip[gzip.length - 5]++;
+        assertThrows(IOException.class, () -> decompress(NBTCodecPool.shared(), NBTCompressType.GZIP, gzip));
+    }
+
+    @Test
+    public void testCodecsAreReusedAndEndedOnClose() throws IOException {
+        NBTCodecPool pool = NBTCodecPool.bounded(1);
+        decompress(pool, NBTCompressType.ZLIB, compress(pool, NBTCompressType.ZLIB, payload()));
+        Inflater inflater = pool.acquireInflater(false);
+        pool.release(inflater, false);
+        decompress(pool, NBTCompressType.ZLIB, compress(pool, NBTCompressType.ZLIB, payload()));
+        assertSame(inflater, pool.acquireInflater(false));
+        pool.release(inflater, false);
+
+        pool.close();
+        assertThrows(NullPointerException.class, inflater::reset);
+        // A closed pool still works but retains nothing
+        assertArrayEquals(payload(), decompress(pool, NBTCompressType.GZIP, compress(pool, NBTCompressType.GZIP, payload())));
+    }
+
+    @Test
+    public void testReadWriteWithPool() throws IOException {
+        CompoundTag tag = Util.getBasicTag();
+        try (NBTCodecPool pool = NBTCodecPool.threadLocal()) {
+            for (NBTCompressType compressType : NBTCompressType.values()) {
+                byte[] data = NBTWriter.builder(tag).compressType(compressType).codecPool(pool).toByteArray();
+                CompoundTag read = NBT.fromBytes(data).codecPool(pool).getTag();
+                assertArrayEquals(NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false), NBT.toBytes(read, NBTCompressType.UNCOMPRESSED, false));
+            }
+        }
+    }
+}
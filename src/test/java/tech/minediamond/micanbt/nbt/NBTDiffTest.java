@@ -0,0 +1,260 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTDiffTest {
+
+    private static void assertPatches(CompoundTag a, CompoundTag b) throws IOException {
+        byte[] patch = NBTDiff.diff(a, b);
+        NBTDiff.apply(patch, a);
+        assertEquals(NBTHasher.ORDER_INDEPENDENT.hash(b), NBTHasher.ORDER_INDEPENDENT.hash(a));
+        assertEquals(2, NBTDiff.diff(a, b).length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Tag> ListTag<T> list(Tag tag) {
+        return (ListTag<T>) tag;
+    }
+
+    @Test
+    public void testIdenticalTrees() throws IOException {
+        byte[] data = Util.levelDatBytes();
+        CompoundTag a = NBT.read(data);
+        assertEquals(2, NBTDiff.diff(a, a).length);
+        assertEquals(2, NBTDiff.diff(a, NBT.read(data)).length);
+    }
+
+    @Test
+    public void testSingleValueChange() throws IOException {
+        byte[] data = Util.levelDatBytes();
+        CompoundTag a = NBT.read(data);
+        CompoundTag b = NBT.read(data);
+        ((CompoundTag) b.get("Data")).put(new LongTag("Time", 22161425L));
+
+        byte[] patch = NBTDiff.diff(a, b);
+        assertTrue(patch.length < 32, "patch of " + patch.length + " bytes");
+        NBTDiff.apply(patch, a);
+        assertArrayEquals(NBT.toBytes(b, NBTCompressType.UNCOMPRESSED, false), NBT.toBytes(a, NBTCompressType.UNCOMPRESSED, false));
+    }
+
+    @Test
+    public void testStructuralChanges() throws IOException {
+        byte[] data = Util.levelDatBytes();
+        CompoundTag a = NBT.read(data);
+        CompoundTag b = NBT.read(data);
+        CompoundTag bData = (CompoundTag) b.get("Data");
+        assertNotNull(bData);
+
+        bData.remove("raining");
+        bData.put(new StringTag("LevelName", "renamed"));
+        bData.put(new StringTag("GameType", "changed type"));
+        bData.put(new IntArrayTag("extra", new int[]{1, 2, 3}));
+        ListTag<IntTag> gateways = list(bData.at("DragonFight.Gateways"));
+        gateways.remove(7);
+        gateways.add(new IntTag("", 42), 2);
+        gateways.add(new IntTag("", 43));
+        ListTag<StringTag> brands = list(bData.get("ServerBrands"));
+        brands.set(0, new StringTag("", "vanilla"));
+        IntArrayTag dragon = (IntArrayTag) bData.at("DragonFight.Dragon");
+        assertNotNull(dragon);
+        dragon.setValue(2, 5);
+
+        assertPatches(a, b);
+    }
+
+    @Test
+    public void testArrayRanges() throws IOException {
+        long[] values = new long[1024];
+        Arrays.setAll(values, i -> i * 31L);
+        CompoundTag a = new CommonCompoundTag("");
+        a.put(new LongArrayTag("data", values.clone()));
+        a.put(new ByteArrayTag("bytes", new byte[100]));
+        a.put(new IntArrayTag("ints", new int[]{1, 2, 3, 4, 5, 6}));
+
+        CompoundTag b = a.copy();
+        long[] changed = values.clone();
+        changed[10] = -1;
+        changed[12] = -2;
+        changed[900] = -3;
+        b.put(new LongArrayTag("data", changed));
+        byte[] patch = NBTDiff.diff(a, b);
+        // Two ranges, one of three elements and one of one, instead of the 8 KiB array
+        assertTrue(patch.length < 80, "patch of " + patch.length + " bytes");
+        assertPatches(a, b);
+
+        // Growing, shrinking and truncating without other changes
+        b.put(new ByteArrayTag("bytes", new byte[130]));
+        b.put(new IntArrayTag("ints", new int[]{1, 2, 9}));
+        b.put(new LongArrayTag("data", Arrays.copyOf(changed, 10)));
+        assertPatches(a, b);
+        assertArrayEquals(new int[]{1, 2, 9}, ((IntArrayTag) a.get("ints")).getRawValue());
+        assertEquals(130, ((ByteArrayTag) a.get("bytes")).size());
+    }
+
+    @Test
+    public void testPrimitiveListsStayPrimitive() throws IOException {
+        double[] pos = {1.5, 64, -3.25};
+        int[] weights = new int[200];
+        Arrays.setAll(weights, i -> i);
+        CompoundTag a = new CommonCompoundTag("");
+        a.put(ListTag.of("Pos", pos.clone()));
+        a.put(ListTag.of("weights", weights.clone()));
+        a.put(ListTag.of("grown", new float[]{1, 2}));
+
+        CompoundTag b = a.copy();
+        b.put(ListTag.of("Pos", new double[]{1.5, 65, -3.25}));
+        int[] changed = weights.clone();
+        changed[7] = -1;
+        changed[150] = -2;
+        b.put(ListTag.of("weights", changed));
+        b.put(ListTag.of("grown", new float[]{1, 3, 2}));
+
+        byte[] patch = NBTDiff.diff(a, b);
+        for (CompoundTag tree : new CompoundTag[]{a, b}) {
+            for (String key : new String[]{"Pos", "weights", "grown"}) {
+                assertTrue(((ListTag<?>) tree.get(key)).isPrimitive(), key);
+            }
+        }
+        // One set per changed number instead of the whole lists
+        assertTrue(patch.length < 100, "patch of " + patch.length + " bytes");
+        assertPatches(a, b);
+    }
+
+    @Test
+    public void testCachedHashesShortCircuit() throws IOException {
+        CompoundTag a = new CommonCompoundTag("");
+        a.put(new LongArrayTag("data", new long[]{1, 2, 3}));
+        CompoundTag b = new CommonCompoundTag("");
+        b.put(new LongArrayTag("data", new long[]{1, 2, 3}));
+        a.get("data").contentHash();
+        b.get("data").contentHash();
+        assertEquals(2, NBTDiff.diff(a, b).length);
+
+        ((LongArrayTag) b.get("data")).setValue(1, 7);
+        assertNull(b.get("data").getCachedContentHash());
+        assertPatches(a, b);
+    }
+
+    @Test
+    public void testMalformedPatches() throws IOException {
+        CompoundTag a = NBT.read(Util.levelDatBytes());
+        CompoundTag b = a.copy();
+        b.put(new IntTag("new", 1));
+        byte[] patch = NBTDiff.diff(a, b);
+
+        byte[] wrongVersion = patch.clone();
+        wrongVersion[0] = 9;
+        assertThrows(NBTParseException.class, () -> NBTDiff.apply(wrongVersion, a.copy()));
+        assertThrows(NBTParseException.class, () -> NBTDiff.apply(Arrays.copyOf(patch, patch.length - 2), a.copy()));
+
+        CompoundTag removal = a.copy();
+        removal.remove("Data");
+        byte[] removeData = NBTDiff.diff(a, removal);
+        assertThrows(IllegalArgumentException.class, () -> NBTDiff.apply(removeData, new CommonCompoundTag("")));
+    }
+
+    @Test
+    public void testRandomEdits() throws IOException {
+        Random random = new Random(42);
+        for (int round = 0; round < 300; round++) {
+            CompoundTag a = randomCompound(random, 3);
+            CompoundTag b = a.copy();
+            byte[] original = NBT.toBytes(a, NBTCompressType.UNCOMPRESSED, false);
+            CompoundTag before = NBT.read(original, NBTCompressType.UNCOMPRESSED, false);
+            CompoundTag after = NBT.read(original, NBTCompressType.UNCOMPRESSED, false);
+            for (int i = random.nextInt(4); i >= 0; i--) {
+                mutate(after, random);
+            }
+            byte[] patch = NBTDiff.diff(before, after);
+            NBTDiff.apply(patch, b);
+            assertEquals(NBTHasher.ORDER_INDEPENDENT.hash(after), NBTHasher.ORDER_INDEPENDENT.hash(b), "round " + round);
+        }
+    }
+
+    private static CompoundTag randomCompound(Random random, int depth) {
+        CompoundTag compound = new ReorderableCompoundTag("");
+        for (int i = random.nextInt(6); i >= 0; i--) {
+            compound.put(randomTag(random, "k" + random.nextInt(10), depth));
+        }
+        return compound;
+    }
+
+    private static Tag randomTag(Random random, String name, int depth) {
+        int kind = random.nextInt(depth > 0 ? 7 : 5);
+        return switch (kind) {
+            case 0 -> new IntTag(name, random.nextInt(5));
+            case 1 -> new StringTag(name, "s" + random.nextInt(5));
+            case 2 -> new DoubleTag(name, random.nextInt(3) / 2.0);
+            case 3 -> {
+                long[] values = new long[random.nextInt(40)];
+                Arrays.setAll(values, i -> random.nextInt(3));
+                yield new LongArrayTag(name, values);
+            }
+            case 4 -> {
+                byte[] values = new byte[random.nextInt(40)];
+                random.nextBytes(values);
+                yield new ByteArrayTag(name, values);
+            }
+            case 5 -> {
+                List<Tag> elements = new ArrayList<>();
+                boolean compounds = random.nextBoolean();
+                for (int i = random.nextInt(6); i > 0; i--) {
+                    elements.add(compounds ? randomCompound(random, depth - 1) : new IntTag("", random.nextInt(4)));
+                }
+                yield new ListTag<>(name, elements);
+            }
+            default -> {
+                CompoundTag compound = randomCompound(random, depth - 1);
+                CompoundTag named = new ReorderableCompoundTag(name);
+                for (Tag entry : compound) {
+                    named.put(entry);
+                }
+                yield named;
+            }
+        };
+    }
+
+    private static void mutate(Tag tag, Random random) {
+        if (tag instanceof CompoundTag compound) {
+            List<Tag> entries = new ArrayList<>();
+            compound.forEach(entries::add);
+            int choice = random.nextInt(4);
+            if (entries.isEmpty() || choice == 0) {
+                compound.put(randomTag(random, "k" + random.nextInt(12), 2));
+            } else if (choice == 1) {
+                compound.remove(entries.get(random.nextInt(entries.size())).getName());
+            } else {
+                mutate(entries.get(random.nextInt(entries.size())), random);
+            }
+        } else if (tag instanceof ListTag<?> listTag) {
+            ListTag<Tag> list = list(listTag);
+            int choice = random.nextInt(3);
+            if (list.isEmpty() || choice == 0) {
+                Tag element = list.getElementTypeId() == CompoundTag.ID ? randomCompound(random, 1) : new IntTag("", random.nextInt(4));
+                list.add(element, random.nextInt(list.size() + 1));
+            } else if (choice == 1) {
+                list.remove(random.nextInt(list.size()));
+            } else {
+                mutate(list.get(random.nextInt(list.size())), random);
+            }
+        } else if (tag instanceof LongArrayTag longArrayTag && longArrayTag.size() > 0) {
+            longArrayTag.setValue(random.nextInt(longArrayTag.size()), random.nextLong());
+        } else if (tag instanceof ByteArrayTag byteArrayTag) {
+            byteArrayTag.setValue(Arrays.copyOf(byteArrayTag.getRawValue(), random.nextInt(50)));
+        } else if (tag instanceof IntTag intTag) {
+            intTag.setValue(intTag.getRawValue() + 1);
+        } else if (tag instanceof StringTag stringTag) {
+            stringTag.setValue(stringTag.getRawValue() + "!");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTHasherTest {
+
+    private static CompoundTag sample(String name) {
+        ReorderableCompoundTag nested = new ReorderableCompoundTag("nested");
+        nested.put(new StringTag("ascii", "minecraft:stone"));
+        nested.put(new StringTag("unicode", "café 世界 😀 nul\u0000end"));
+        nested.put(new ListTag<>("empty", IntTag.ID));
+
+        ListTag<ListTag<DoubleTag>> matrix = new ListTag<>("matrix", ListTag.ID);
+        matrix.add(new ListTag<>("", List.of(new DoubleTag("", 1.5), new DoubleTag("", Double.NaN))));
+        matrix.add(new ListTag<>("", List.of(new DoubleTag("", -0.0))));
+
+        ReorderableCompoundTag root = new ReorderableCompoundTag(name);
+        root.put(new ByteTag("byte", (byte) -3));
+        root.put(new ShortTag("short", (short) 1234));
+        root.put(new IntTag("int", 0x12345678));
+        root.put(new LongTag("long", Long.MIN_VALUE));
+        root.put(new FloatTag("float", Float.NaN));
+        root.put(new ByteArrayTag("bytes", new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13}));
+        root.put(new IntArrayTag("ints", new int[]{-1, 2, -3}));
+        root.put(new LongArrayTag("longs", new long[]{Long.MAX_VALUE, -7}));
+        root.put(nested);
+        root.put(matrix);
+        return root;
+    }
+
+    @Test
+    public void testStreamMatchesTree() throws IOException {
+        byte[] compressed = Util.levelDatBytes();
+        CompoundTag tag = NBT.read(compressed);
+        byte[] raw = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        byte[] littleEndian = NBT.toBytes(tag, NBTCompressType.GZIP, true);
+
+        for (NBTHasher hasher : new NBTHasher[]{NBTHasher.ORDERED, NBTHasher.ORDER_INDEPENDENT}) {
+            NBTHash expected = hasher.hash(tag);
+            assertEquals(expected, tag.contentHash(hasher.isOrderIndependent()));
+            assertEquals(expected, NBT.hash(compressed, hasher));
+            assertEquals(expected, NBT.hash(raw, hasher));
+            assertEquals(expected, NBT.fromBytes(littleEndian).littleEndian(true).hash(hasher));
+            assertEquals(expected, hasher.hash(new DataInputStream(new ByteArrayInputStream(raw))));
+        }
+        assertNotEquals(NBTHasher.ORDERED.hash(tag), NBTHasher.ORDER_INDEPENDENT.hash(tag));
+    }
+
+    @Test
+    public void testEncodingIndependence() throws IOException {
+        CompoundTag tag = sample("root");
+        for (NBTHasher hasher : new NBTHasher[]{NBTHasher.ORDERED, NBTHasher.ORDER_INDEPENDENT}) {
+            NBTHash expected = hasher.hash(tag);
+            assertEquals(expected, NBT.hash(NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false), hasher));
+            assertEquals(expected, NBT.fromBytes(NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, true)).littleEndian(true).hash(hasher));
+            assertEquals(expected, NBT.hash(NBT.toBytes(tag, NBTCompressType.ZLIB, false), hasher));
+            // The root name is not part of the content
+            assertEquals(expected, hasher.hash(sample("other")));
+        }
+    }
+
+    @Test
+    public void testOrderIndependence() {
+        ReorderableCompoundTag a = (ReorderableCompoundTag) sample("");
+        ReorderableCompoundTag b = (ReorderableCompoundTag) sample("");
+        b.swap(0, 5);
+        ((ReorderableCompoundTag) b.get("nested")).swap(0, 2);
+
+        assertNotEquals(NBTHasher.ORDERED.hash(a), NBTHasher.ORDERED.hash(b));
+        assertEquals(NBTHasher.ORDER_INDEPENDENT.hash(a), NBTHasher.ORDER_INDEPENDENT.hash(b));
+
+        // Lists stay ordered either way
+        @SuppressWarnings("unchecked")
+        ListTag<Tag> matrix = (ListTag<Tag>) b.get("matrix");
+        matrix.add(matrix.remove(0));
+        assertNotEquals(NBTHasher.ORDER_INDEPENDENT.hash(a), NBTHasher.ORDER_INDEPENDENT.hash(b));
+    }
+
+    @Test
+    public void testContentChangesHash() {
+        CompoundTag base = sample("");
+        NBTHash hash = base.contentHash();
+
+        CompoundTag renamed = sample("");
+        renamed.remove("int");
+        renamed.put(new IntTag("int2", 0x12345678));
+        assertNotEquals(hash, renamed.contentHash());
+
+        CompoundTag retyped = sample("");
+        retyped.put(new LongTag("int", 0x12345678));
+        assertNotEquals(hash, retyped.contentHash());
+
+        CompoundTag emptied = sample("");
+        ((CompoundTag) emptied.get("nested")).put(new ListTag<>("empty", ByteTag.ID));
+        assertNotEquals(hash, emptied.contentHash());
+    }
+
+    @Test
+    public void testCachedHashFollowsSetters() {
+        CompoundTag root = sample("");
+        NBTHash before = root.contentHash(true);
+
+        StringTag ascii = (StringTag) root.at("nested.ascii");
+        assertNotNull(ascii);
+        NBTHash stringHash = ascii.contentHash();
+        assertSame(stringHash, ascii.contentHash());
+
+        ascii.setValue("minecraft:dirt");
+        assertNotEquals(stringHash, ascii.contentHash());
+        assertNotEquals(before, root.contentHash(true));
+
+        ascii.setValue("minecraft:stone");
+        assertEquals(stringHash, ascii.contentHash());
+        assertEquals(before, root.contentHash(true));
+
+        IntArrayTag ints = (IntArrayTag) root.get("ints");
+        assertNotNull(ints);
+        ints.setValue(1, 3);
+        assertNotEquals(before, root.contentHash(true));
+    }
+}
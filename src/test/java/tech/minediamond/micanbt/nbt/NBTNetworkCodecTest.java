@@ -0,0 +1,126 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTNetworkCodecTest {
+
+    // NaNs that carry a payload, as a tag and in a list backed by an array
+    private static CompoundTag nans() {
+        CompoundTag tag = new CommonCompoundTag("nans");
+        tag.put(new FloatTag("float", Float.intBitsToFloat(0x7FC00001)));
+        tag.put(ListTag.of("doubles", new double[]{1, Double.longBitsToDouble(0xFFF0000000000123L)}));
+        return tag;
+    }
+
+    private static byte[] encode(NBTNetworkCodec codec, Tag tag) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) codec.size(tag));
+        codec.write(tag, buffer);
+        assertFalse(buffer.hasRemaining());
+        byte[] bytes = new byte[buffer.capacity()];
+        buffer.get(0, bytes);
+        return bytes;
+    }
+
+    // A root compound holding one entry of lists nested inside each other, depth levels deep in total
+    private static byte[] nestedLists(int depth) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 3 + 5 * depth + 1);
+        buffer.put((byte) 10).put((byte) 9).putShort((short) 0);
+        for (int level = 2; level < depth; level++) {
+            buffer.put((byte) 9).putInt(1);
+        }
+        buffer.put((byte) 0).putInt(0).put((byte) 0);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    @Test
+    public void testJavaFormatsMatchFileFormat() throws IOException {
+        for (CompoundTag tag : new CompoundTag[]{Util.getBasicTag(), Util.levelDat(), nans()}) {
+            byte[] file = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+            assertArrayEquals(file, encode(NBTNetworkCodec.JAVA_NAMED, tag));
+
+            // The nameless root drops the name length and the name that follow the type ID
+            int nameLength = ((file[1] & 0xFF) << 8) | (file[2] & 0xFF);
+            byte[] nameless = new byte[file.length - 2 - nameLength];
+            nameless[0] = file[0];
+            System.arraycopy(file, 3 + nameLength, nameless, 1, nameless.length - 1);
+            byte[] encoded = encode(NBTNetworkCodec.JAVA, tag);
+            assertArrayEquals(nameless, encoded);
+
+            CompoundTag decoded = NBTNetworkCodec.JAVA.read(ByteBuffer.wrap(encoded));
+            assertEquals("", decoded.getName());
+            assertArrayEquals(encoded, encode(NBTNetworkCodec.JAVA, decoded));
+        }
+    }
+
+    @Test
+    public void testBedrockVarInts() throws IOException {
+        CommonCompoundTag tag = new CommonCompoundTag("");
+        tag.put(new IntTag("a", -1));
+        tag.put(new LongTag("b", 300));
+        ListTag<StringTag> list = new ListTag<>("c");
+        list.add(new StringTag("", "é"));
+        tag.put(list);
+
+        byte[] expected = {
+                10, 0,
+                3, 1, 'a', 1,
+                4, 1, 'b', (byte) 0xD8, 4,
+                9, 1, 'c', 8, 2, 2, (byte) 0xC3, (byte) 0xA9,
+                0
+        };
+        assertArrayEquals(expected, encode(NBTNetworkCodec.BEDROCK, tag));
+
+        CompoundTag decoded = NBTNetworkCodec.BEDROCK.read(ByteBuffer.wrap(expected));
+        assertEquals(-1, ((IntTag) decoded.get("a")).getRawValue());
+        assertEquals(300L, ((LongTag) decoded.get("b")).getRawValue());
+    }
+
+    @Test
+    public void testBedrockRoundTrip() throws IOException {
+        CompoundTag tag = Util.levelDat();
+        byte[] encoded = encode(NBTNetworkCodec.BEDROCK, tag);
+        assertTrue(encoded.length < NBTSizer.uncompressedSize(tag, true));
+
+        CompoundTag decoded = NBTNetworkCodec.BEDROCK.read(ByteBuffer.wrap(encoded));
+        assertArrayEquals(NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, true), NBT.toBytes(decoded, NBTCompressType.UNCOMPRESSED, true));
+    }
+
+    @Test
+    public void testBufferHandling() throws IOException {
+        CompoundTag tag = Util.getBasicTag();
+        byte[] encoded = encode(NBTNetworkCodec.JAVA, tag);
+
+        ByteBuffer small = ByteBuffer.allocate(encoded.length - 1);
+        assertThrows(BufferOverflowException.class, () -> NBTNetworkCodec.JAVA.write(tag, small));
+        assertEquals(0, small.position());
+
+        // Trailing bytes stay in the buffer and the caller's byte order is kept
+        ByteBuffer packet = ByteBuffer.allocate(encoded.length + 4).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        packet.put(encoded).putInt(7).flip();
+        NBTNetworkCodec.JAVA.read(packet);
+        assertEquals(encoded.length, packet.position());
+        assertEquals(7, packet.getInt());
+
+        assertNull(NBTNetworkCodec.JAVA.readTag(ByteBuffer.wrap(new byte[]{0})));
+        assertThrows(NBTParseException.class, () -> NBTNetworkCodec.JAVA.read(ByteBuffer.wrap(new byte[]{0})));
+        assertThrows(NBTParseException.class, () -> NBTNetworkCodec.JAVA.read(ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 1))));
+        assertThrows(NBTParseException.class, () -> NBTNetworkCodec.BEDROCK.read(ByteBuffer.wrap(new byte[]{10, 0, 9, 0, 1, 2, (byte) 0xFF, (byte) 0xFF, 0x7F})));
+    }
+
+    @Test
+    public void testNestingDepthLimit() throws IOException {
+        assertNotNull(NBTNetworkCodec.JAVA.read(ByteBuffer.wrap(nestedLists(NBTNetworkCodec.MAX_DEPTH))));
+        assertThrows(NBTParseException.class, () -> NBTNetworkCodec.JAVA.read(ByteBuffer.wrap(nestedLists(NBTNetworkCodec.MAX_DEPTH + 1))));
+        // Deep enough to overflow the stack of a reader without the limit
+        assertThrows(NBTParseException.class, () -> NBTNetworkCodec.JAVA.read(ByteBuffer.wrap(nestedLists(1_000_000))));
+    }
+}
@@ -0,0 +1,118 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.path.NBTPath;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTPatcherTest {
+
+    private static void edit(CompoundTag tag) {
+        CompoundTag data = (CompoundTag) tag.get("Data");
+        assertNotNull(data);
+        data.put(new LongTag("Time", 24000L));
+        data.put(new ByteTag("Difficulty", (byte) 1));
+        ((FloatTag) data.at("Player.abilities.walkSpeed")).setValue(0.25f);
+        ((IntTag) data.at("DragonFight.Gateways[3]")).setValue(99);
+        ((IntTag) data.at("DragonFight.Gateways[-1]")).setValue(-5);
+        ((IntArrayTag) data.at("DragonFight.Dragon")).setValue(new int[]{1, 2, 3, 4});
+    }
+
+    private static void patch(NBTPatcher patcher) throws IOException {
+        assertTrue(patcher.set("Data.Time", new LongTag("", 24000L)));
+        assertTrue(patcher.set("Data.Difficulty", new ByteTag("", (byte) 1)));
+        assertTrue(patcher.set("Data.Player.abilities.walkSpeed", new FloatTag("", 0.25f)));
+        assertTrue(patcher.set("Data.DragonFight.Gateways[3]", new IntTag("", 99)));
+        assertTrue(patcher.set("Data.DragonFight.Gateways[-1]", new IntTag("", -5)));
+        assertTrue(patcher.set("Data.DragonFight.Dragon", new IntArrayTag("", new int[]{1, 2, 3, 4})));
+    }
+
+    @Test
+    public void testPatchMatchesRewrite() throws IOException {
+        CompoundTag tag = Util.levelDat();
+        CompoundTag edited = Util.levelDat();
+        edit(edited);
+
+        for (boolean littleEndian : new boolean[]{false, true}) {
+            byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, littleEndian);
+            patch(NBTPatcher.of(data, littleEndian));
+            assertArrayEquals(NBT.toBytes(edited, NBTCompressType.UNCOMPRESSED, littleEndian), data);
+        }
+    }
+
+    @Test
+    public void testNaNMatchesWriter() throws IOException {
+        float nanFloat = Float.intBitsToFloat(0x7FC00001);
+        double nanDouble = Double.longBitsToDouble(0xFFF0000000000123L);
+        CompoundTag tag = new CommonCompoundTag("");
+        tag.put(new FloatTag("f", 1f));
+        tag.put(new DoubleTag("d", 2));
+        CompoundTag edited = new CommonCompoundTag("");
+        edited.put(new FloatTag("f", nanFloat));
+        edited.put(new DoubleTag("d", nanDouble));
+
+        for (boolean littleEndian : new boolean[]{false, true}) {
+            byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, littleEndian);
+            NBTPatcher patcher = NBTPatcher.of(data, littleEndian);
+            assertTrue(patcher.set("f", new FloatTag("", nanFloat)));
+            assertTrue(patcher.set("d", new DoubleTag("", nanDouble)));
+            assertArrayEquals(NBT.toBytes(edited, NBTCompressType.UNCOMPRESSED, littleEndian), data);
+        }
+    }
+
+    @Test
+    public void testDirectBuffer() throws IOException {
+        CompoundTag tag = Util.levelDat();
+        CompoundTag edited = Util.levelDat();
+        edit(edited);
+
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 3);
+        buffer.put(new byte[3]).put(data).position(3);
+        patch(NBTPatcher.of(buffer, false));
+        assertEquals(3, buffer.position());
+
+        byte[] patched = new byte[data.length];
+        buffer.get(patched);
+        assertArrayEquals(NBT.toBytes(edited, NBTCompressType.UNCOMPRESSED, false), patched);
+    }
+
+    @Test
+    public void testOffsetOf() throws IOException {
+        CompoundTag tag = new CommonCompoundTag("root");
+        tag.put(new IntTag("a", 7));
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        NBTPatcher patcher = NBTPatcher.of(data);
+
+        // Root ID, root name, entry ID and entry name
+        assertEquals(1 + 2 + 4 + 1 + 2 + 1, patcher.offsetOf(NBTPath.of("a")));
+        assertEquals(1 + 2 + 4, patcher.offsetOf(NBTPath.of("")));
+        assertEquals(-1, patcher.offsetOf(NBTPath.of("b")));
+        assertEquals(-1, patcher.offsetOf(NBTPath.of("a.b")));
+        assertEquals(-1, patcher.offsetOf(NBTPath.of("a[0]")));
+    }
+
+    @Test
+    public void testRejectedChanges() throws IOException {
+        byte[] data = NBT.toBytes(Util.levelDat(), NBTCompressType.UNCOMPRESSED, false);
+        byte[] original = data.clone();
+        NBTPatcher patcher = NBTPatcher.of(data);
+
+        assertFalse(patcher.set("Data.Missing", new IntTag("", 1)));
+        assertFalse(patcher.set("Data.DragonFight.Gateways[19]", new IntTag("", 1)));
+        assertThrows(IllegalArgumentException.class, () -> patcher.set("Data.Time", new IntTag("", 1)));
+        assertThrows(IllegalArgumentException.class, () -> patcher.set("Data.DragonFight.Dragon", new IntArrayTag("", new int[3])));
+        assertThrows(IllegalArgumentException.class, () -> patcher.set("Data.LevelName", new StringTag("", "world")));
+        assertThrows(IllegalArgumentException.class, () -> patcher.set("Data.DragonFight{DragonKilled:1b}.Dragon", new IntTag("", 1)));
+        assertArrayEquals(original, data);
+
+        byte[] truncated = Arrays.copyOf(data, data.length / 2);
+        assertThrows(NBTParseException.class, () -> NBTPatcher.of(truncated).set("Data.Missing", new IntTag("", 1)));
+    }
+}
@@ -0,0 +1,74 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.snbt.SNBT;
+import tech.minediamond.micanbt.tag.CompoundTag;
+import tech.minediamond.micanbt.tag.ListTag;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTProjectionTest {
+
+    private static final String DOCUMENT = """
+            {
+                Level: {Status: "full", InhabitedTime: 42L, Heights: [L; 1L, 2L, 3L], Name: "chunk"},
+                Entities: [{id: "a", Pos: [0.0d, 1.0d, 2.0d]}, {id: "b", Pos: [3.0d, 4.0d, 5.0d]}, {id: "c", Pos: [6.0d, 7.0d, 8.0d]}],
+                Scores: [I; 7, 8, 9],
+                Names: ["x", "y", "z"]
+            }""";
+
+    private static byte[] document() throws IOException {
+        return NBT.toBytes((CompoundTag) SNBT.parse(DOCUMENT), NBTCompressType.UNCOMPRESSED, false);
+    }
+
+    @Test
+    public void testKeysAreProjected() throws IOException {
+        CompoundTag full = NBT.read(document());
+        CompoundTag tag = NBT.fromBytes(document()).project("Level.Status", "Level.InhabitedTime").getTag();
+
+        assertEquals(full.at("Level.Status"), tag.at("Level.Status"));
+        assertEquals(full.at("Level.InhabitedTime"), tag.at("Level.InhabitedTime"));
+        assertEquals(1, tag.size());
+        assertEquals(2, ((CompoundTag) tag.get("Level")).size());
+        assertNull(tag.at("Level.Heights"));
+        assertNull(tag.at("Entities"));
+    }
+
+    @Test
+    public void testIndicesAreProjected() throws IOException {
+        CompoundTag full = NBT.read(document());
+        CompoundTag tag = NBT.fromBytes(document()).project("Entities[1].id", "Names[-1]").getTag();
+
+        assertEquals(full.at("Entities[1].id"), tag.at("Entities[1].id"));
+        assertEquals(full.at("Names[-1]"), tag.at("Names[-1]"));
+        // Elements in front of the index are placeholders, trailing elements are dropped
+        ListTag<?> entities = (ListTag<?>) tag.get("Entities");
+        assertEquals(2, entities.size());
+        assertEquals(0, ((CompoundTag) entities.get(0)).size());
+        assertEquals(3, ((ListTag<?>) tag.get("Names")).size());
+        assertEquals("", tag.at("Names[0]").getRawValue());
+    }
+
+    @Test
+    public void testFilterAndWholeSubtrees() throws IOException {
+        CompoundTag full = NBT.read(document());
+        CompoundTag tag = NBT.fromBytes(document()).project("Entities[2]{id: \"c\"}.Pos[1]", "Scores", "Level").getTag();
+
+        assertEquals(full.at("Entities[2]{id: \"c\"}.Pos[1]"), tag.at("Entities[2]{id: \"c\"}.Pos[1]"));
+        assertEquals(full.at("Scores"), tag.at("Scores"));
+        assertArrayEquals(NBT.toBytes((CompoundTag) full.get("Level")), NBT.toBytes((CompoundTag) tag.get("Level")));
+    }
+
+    @Test
+    public void testProjectedLevelDat() throws IOException {
+        byte[] data = Util.levelDatBytes();
+        CompoundTag full = NBT.read(data);
+        CompoundTag tag = NBT.fromBytes(data).project("Data.LevelName").getTag();
+
+        assertEquals(full.at("Data.LevelName"), tag.at("Data.LevelName"));
+        assertEquals(1, ((CompoundTag) tag.get("Data")).size());
+    }
+}
@@ -0,0 +1,145 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTQuotaTest {
+
+    // A root compound holding `depth - 1` nested compounds
+    private static byte[] nested(int depth) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(10);
+        out.writeUTF("");
+        for (int i = 1; i < depth; i++) {
+            out.writeByte(10);
+            out.writeUTF("a");
+        }
+        for (int i = 0; i < depth; i++) {
+            out.writeByte(0);
+        }
+        return bytes.toByteArray();
+    }
+
+    // A root compound with a long array that declares Integer.MAX_VALUE elements but holds one
+    private static byte[] forgedArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(10);
+        out.writeUTF("");
+        out.writeByte(12);
+        out.writeUTF("data");
+        out.writeInt(Integer.MAX_VALUE);
+        out.writeLong(42);
+        return bytes.toByteArray();
+    }
+
+    private static NBTReader.Builder stream(byte[] data) {
+        return NBT.fromDataInput(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    public void testWithinQuota() throws IOException {
+        byte[] data = Util.levelDatBytes();
+        CompoundTag expected = NBT.read(data);
+        NBTValidationReport report = NBT.validate(data);
+
+        NBTQuota quota = new NBTQuota(64, report.getTagCount(), 1 << 20);
+        CompoundTag tag = NBT.fromBytes(data).quota(quota).getTag();
+        assertEquals(expected.contentHash(), tag.contentHash());
+
+        NBTQuota tooFewTags = new NBTQuota(64, report.getTagCount() - 1, 1 << 20);
+        assertThrows(NBTQuotaExceededException.class, () -> NBT.fromBytes(data).quota(tooFewTags).getTag());
+        NBTQuota tooFewBytes = new NBTQuota(64, Long.MAX_VALUE, 1000);
+        assertThrows(NBTQuotaExceededException.class, () -> NBT.fromBytes(data).quota(tooFewBytes).getTag());
+    }
+
+    @Test
+    public void testDepth() throws IOException {
+        NBTQuota quota = new NBTQuota(512, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertNotNull(NBT.fromBytes(nested(512)).quota(quota).getTag());
+        assertThrows(NBTQuotaExceededException.class, () -> NBT.fromBytes(nested(513)).quota(quota).getTag());
+
+        // Deep enough to overflow the stack of a recursive decoder
+        byte[] deep = nested(1_000_000);
+        assertThrows(NBTQuotaExceededException.class, () -> NBT.fromBytes(deep).quota(quota).getTag());
+        assertThrows(NBTQuotaExceededException.class, () -> stream(deep).quota(quota).getTag());
+        assertThrows(NBTQuotaExceededException.class, () -> NBT.fromBytes(deep).quota(quota).visit(new NBTVisitor() {
+        }));
+    }
+
+    @Test
+    public void testForgedArrayLength() throws IOException {
+        byte[] data = forgedArray();
+        NBTQuota quota = new NBTQuota(512, 1000, 1 << 20);
+        assertThrows(NBTQuotaExceededException.class, () -> NBT.fromBytes(data).quota(quota).getTag());
+        assertThrows(NBTQuotaExceededException.class, () -> stream(data).quota(quota).getTag());
+
+        // Without a quota the length is still not trusted with the allocation
+        assertThrows(NBTParseException.class, () -> NBT.read(data));
+        assertThrows(NBTParseException.class, () -> stream(data).getTag());
+        assertThrows(NBTParseException.class, () -> stream(data).visit(new NBTVisitor() {
+        }));
+    }
+
+    @Test
+    public void testNumericListBytes() throws IOException {
+        int[] values = new int[200_000];
+        Arrays.setAll(values, i -> i);
+        CompoundTag tag = new CommonCompoundTag("");
+        tag.put(ListTag.of("values", values));
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+
+        // The list is charged its encoded size, although it creates no tag per element
+        NBTQuota enough = new NBTQuota(512, Long.MAX_VALUE, 1 << 20);
+        assertArrayEquals(values, (int[]) ((ListTag<?>) NBT.fromBytes(data).quota(enough).getTag().get("values")).getPrimitiveArray());
+        NBTQuota tooFewBytes = new NBTQuota(512, Long.MAX_VALUE, 1 << 19);
+        assertThrows(NBTQuotaExceededException.class, () -> NBT.fromBytes(data).quota(tooFewBytes).getTag());
+        assertThrows(NBTQuotaExceededException.class, () -> stream(data).quota(tooFewBytes).getTag());
+
+        // A list of doubles that declares 800 MB but holds one element
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(10);
+        out.writeUTF("");
+        out.writeByte(9);
+        out.writeUTF("Pos");
+        out.writeByte(6);
+        out.writeInt(100_000_000);
+        out.writeDouble(1);
+        byte[] forged = bytes.toByteArray();
+        assertThrows(NBTQuotaExceededException.class, () -> NBT.fromBytes(forged).quota(enough).getTag());
+        assertThrows(NBTQuotaExceededException.class, () -> stream(forged).quota(enough).getTag());
+    }
+
+    @Test
+    public void testLargeArraysFromStream() throws IOException {
+        long[] longs = new long[300_000];
+        Arrays.setAll(longs, i -> i * 7L);
+        int[] ints = new int[600_000];
+        Arrays.setAll(ints, i -> -i);
+        byte[] bytes = new byte[3_000_000];
+        Arrays.fill(bytes, (byte) 5);
+        CompoundTag tag = new CommonCompoundTag("");
+        tag.put(new LongArrayTag("longs", longs));
+        tag.put(new IntArrayTag("ints", ints));
+        tag.put(new ByteArrayTag("bytes", bytes));
+        byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+
+        CompoundTag read = stream(data).getTag();
+        assertArrayEquals(longs, ((LongArrayTag) read.get("longs")).getRawValue());
+        assertArrayEquals(ints, ((IntArrayTag) read.get("ints")).getRawValue());
+        assertArrayEquals(bytes, ((ByteArrayTag) read.get("bytes")).getRawValue());
+        assertEquals(tag.contentHash(), NBT.fromBytes(NBT.toBytes(tag, NBTCompressType.GZIP, false)).getTag().contentHash());
+    }
+}
@@ -0,0 +1,47 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTSizerTest {
+
+    private static CompoundTag unicode() {
+        ReorderableCompoundTag tag = new ReorderableCompoundTag("根");
+        tag.put(new StringTag("nul\u0000", "😀 \u0000 é"));
+        tag.put(new ListTag<>("empty"));
+        ListTag<StringTag> strings = new ListTag<>("strings");
+        strings.add(new StringTag("", "中文"));
+        tag.put(strings);
+        ListTag<DoubleTag> doubles = new ListTag<>("doubles");
+        doubles.add(new DoubleTag("", 1.5));
+        tag.put(doubles);
+        return tag;
+    }
+
+    // NaNs that carry a payload, which every writer turns into the canonical NaN
+    private static CompoundTag nans() {
+        ReorderableCompoundTag tag = new ReorderableCompoundTag("");
+        tag.put(new FloatTag("float", Float.intBitsToFloat(0x7FC00001)));
+        tag.put(new DoubleTag("double", Double.longBitsToDouble(0xFFF0000000000123L)));
+        return tag;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testSizeMatchesStreamedOutput(boolean littleEndian) throws IOException {
+        for (CompoundTag tag : new CompoundTag[]{Util.getBasicTag(), Util.levelDat(), unicode(), nans()}) {
+            ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+            NBT.write(tag, streamed, NBTCompressType.UNCOMPRESSED, littleEndian);
+
+            assertEquals(streamed.size(), NBTSizer.uncompressedSize(tag, littleEndian));
+            assertArrayEquals(streamed.toByteArray(), NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, littleEndian));
+        }
+    }
+}
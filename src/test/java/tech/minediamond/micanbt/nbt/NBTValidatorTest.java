@@ -0,0 +1,92 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTValidatorTest {
+
+    private static long countTags(Tag tag) {
+        long count = 1;
+        if (tag instanceof CompoundTag compoundTag) {
+            for (Tag child : compoundTag) {
+                count += countTags(child);
+            }
+        } else if (tag instanceof ListTag<?> listTag) {
+            for (Tag child : listTag) {
+                count += countTags(child);
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testValidDocument() throws IOException {
+        byte[] compressed = Util.levelDatBytes();
+        CompoundTag tag = NBT.read(compressed);
+        byte[] raw = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+
+        for (byte[] data : new byte[][]{compressed, raw}) {
+            NBTValidationReport report = NBT.validate(data);
+            assertTrue(report.isValid(), report.toString());
+            assertNull(report.getError());
+            assertEquals(-1, report.getErrorOffset());
+            assertEquals(raw.length, report.getSize());
+            assertEquals(countTags(tag), report.getTagCount());
+        }
+    }
+
+    @Test
+    public void testTruncatedDocument() throws IOException {
+        byte[] raw = NBT.toBytes(NBT.read(Util.levelDatBytes()), NBTCompressType.UNCOMPRESSED, false);
+        for (int length : new int[]{0, 1, 3, 100, raw.length / 2, raw.length - 1}) {
+            NBTValidationReport report = NBT.validate(Arrays.copyOf(raw, length));
+            assertFalse(report.isValid(), "length " + length);
+            assertTrue(report.getErrorOffset() <= length, report.toString());
+        }
+    }
+
+    @Test
+    public void testErrorOffsets() throws IOException {
+        // {a: 1}: type, name length, then the int entry at offset 3 and the closing TAG_End at 11
+        byte[] valid = {10, 0, 0, 3, 0, 1, 'a', 0, 0, 0, 1, 0};
+        assertTrue(NBT.validate(valid).isValid());
+
+        byte[] unknownId = valid.clone();
+        unknownId[3] = 99;
+        NBTValidationReport report = NBT.validate(unknownId);
+        assertFalse(report.isValid());
+        assertEquals(3, report.getErrorOffset());
+
+        byte[] notCompound = valid.clone();
+        notCompound[0] = 8;
+        assertEquals(0, NBT.validate(notCompound).getErrorOffset());
+
+        // A byte array entry whose length is negative
+        byte[] negative = {10, 0, 0, 7, 0, 1, 'b', (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0};
+        report = NBT.validate(negative);
+        assertEquals(3, report.getErrorOffset());
+        assertEquals("Negative array length: -1", report.getError());
+
+        // A list of TAG_End with elements, and an array longer than the data
+        assertEquals(3, NBT.validate(new byte[]{10, 0, 0, 9, 0, 1, 'c', 0, 0, 0, 0, 1, 0}).getErrorOffset());
+        assertEquals(3, NBT.validate(new byte[]{10, 0, 0, 11, 0, 1, 'd', 0, 0, 1, 0, 0}).getErrorOffset());
+    }
+
+    @Test
+    public void testCorruptCompressedData() throws IOException {
+        byte[] corrupt = Util.levelDatBytes();
+        for (int i = 100; i < 200; i++) {
+            corrupt[i] ^= 0x5A;
+        }
+        assertFalse(NBT.validate(corrupt).isValid());
+
+        byte[] badHeader = {0x1f, (byte) 0x8b, 0x08, 0, 0};
+        assertFalse(NBT.validate(badHeader).isValid());
+    }
+}
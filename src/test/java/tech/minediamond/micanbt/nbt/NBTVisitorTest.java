@@ -0,0 +1,194 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.CompoundTag;
+import tech.minediamond.micanbt.tag.ListTag;
+import tech.minediamond.micanbt.tag.LongArrayTag;
+import tech.minediamond.micanbt.tag.ReorderableCompoundTag;
+import tech.minediamond.micanbt.tag.Tag;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NBTVisitorTest {
+
+    private static int countTags(Tag tag) {
+        int count = 1;
+        if (tag instanceof CompoundTag compoundTag) {
+            for (Tag subTag : compoundTag) {
+                count += countTags(subTag);
+            }
+        } else if (tag instanceof ListTag<?> listTag) {
+            for (Tag subTag : listTag) {
+                count += countTags(subTag);
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testVisitsEveryTag() throws IOException {
+        byte[] data = Util.levelDatBytes();
+        CompoundTag tag = NBT.read(data);
+
+        CountingVisitor visitor = new CountingVisitor();
+        NBT.visit(data, visitor);
+        assertEquals(countTags(tag), visitor.starts);
+
+        CountingVisitor uncompressedVisitor = new CountingVisitor();
+        NBT.visit(NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false), uncompressedVisitor);
+        assertEquals(visitor.starts, uncompressedVisitor.starts);
+        assertEquals(visitor.ends, uncompressedVisitor.ends);
+    }
+
+    @Test
+    public void testSkipAndStop() throws IOException {
+        byte[] data = Util.levelDatBytes();
+        CompoundTag tag = NBT.read(data);
+
+        List<String> compounds = new ArrayList<>();
+        NBT.visit(data, new NBTVisitor() {
+            @Override
+            public Result visitCompoundStart(String name) {
+                compounds.add(name);
+                return name.equals("Data") ? Result.SKIP : Result.CONTINUE;
+            }
+        });
+        assertEquals(List.of("", "Data"), compounds);
+
+        String[] levelName = new String[1];
+        NBT.visit(data, new NBTVisitor() {
+            @Override
+            public Result visitString(String name, String value) {
+                if (name.equals("LevelName")) {
+                    levelName[0] = value;
+                    return Result.STOP;
+                }
+                return Result.CONTINUE;
+            }
+        });
+        assertEquals(tag.at("Data.LevelName").getRawValue(), levelName[0]);
+    }
+
+    @Test
+    public void testDeepNesting() throws IOException {
+        // A root holding lists nested 100,000 levels deep around a single int
+        int depth = 100_000;
+        ByteBuffer buffer = ByteBuffer.allocate(3 + 3 + 5 * depth + 4 + 1);
+        buffer.put(new byte[]{10, 0, 0, 9, 0, 0});
+        for (int i = 1; i < depth; i++) {
+            buffer.put((byte) 9).putInt(1);
+        }
+        buffer.put((byte) 3).putInt(1).putInt(7).put((byte) 0);
+
+        CountingVisitor visitor = new CountingVisitor();
+        NBT.visit(buffer.array(), visitor);
+        assertEquals(depth + 2, visitor.starts);
+        assertEquals(depth + 1, visitor.ends);
+        assertThrows(NBTParseException.class, () -> NBT.visit(Arrays.copyOf(buffer.array(), buffer.capacity() - 1), new CountingVisitor()));
+    }
+
+    @Test
+    public void testLongArrayView() throws IOException {
+        long[] values = {1L, -2L, Long.MAX_VALUE, Long.MIN_VALUE};
+        CompoundTag tag = new ReorderableCompoundTag("");
+        tag.put(new LongArrayTag("values", values));
+
+        for (boolean littleEndian : new boolean[]{false, true}) {
+            byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, littleEndian);
+            long[] read = new long[values.length];
+            NBT.fromBytes(data).littleEndian(littleEndian).visit(new NBTVisitor() {
+                @Override
+                public Result visitLongArray(String name, LongBuffer buffer) {
+                    buffer.get(read);
+                    return Result.CONTINUE;
+                }
+            });
+            assertArrayEquals(values, read);
+        }
+    }
+
+    private static class CountingVisitor implements NBTVisitor {
+        int starts;
+        int ends;
+
+        private Result count() {
+            starts++;
+            return Result.CONTINUE;
+        }
+
+        @Override
+        public Result visitByte(String name, byte value) {
+            return count();
+        }
+
+        @Override
+        public Result visitShort(String name, short value) {
+            return count();
+        }
+
+        @Override
+        public Result visitInt(String name, int value) {
+            return count();
+        }
+
+        @Override
+        public Result visitLong(String name, long value) {
+            return count();
+        }
+
+        @Override
+        public Result visitFloat(String name, float value) {
+            return count();
+        }
+
+        @Override
+        public Result visitDouble(String name, double value) {
+            return count();
+        }
+
+        @Override
+        public Result visitString(String name, String value) {
+            return count();
+        }
+
+        @Override
+        public Result visitByteArray(String name, ByteBuffer values) {
+            return count();
+        }
+
+        @Override
+        public Result visitIntArray(String name, IntBuffer values) {
+            return count();
+        }
+
+        @Override
+        public Result visitLongArray(String name, LongBuffer values) {
+            return count();
+        }
+
+        @Override
+        public Result visitCompoundStart(String name) {
+            return count();
+        }
+
+        @Override
+        public Result visitListStart(String name, int typeId, int count) {
+            return count();
+        }
+
+        @Override
+        public Result visitEnd() {
+            ends++;
+            return Result.CONTINUE;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import tech.minediamond.micanbt.roundtrip.Util;
+import tech.minediamond.micanbt.tag.CommonCompoundTag;
+import tech.minediamond.micanbt.tag.CompoundTag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCompressionTest {
+
+    private static byte[] inflate(byte[] data, NBTCompressType compressType) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(data);
+        try (InputStream stream = compressType == NBTCompressType.GZIP ? new GZIPInputStream(in) : new InflaterInputStream(in)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = NBTCompressType.class, names = {"GZIP", "ZLIB"})
+    public void testReadableByJdkAndReader(NBTCompressType compressType) throws IOException {
+        CompoundTag tag = Util.levelDat();
+        byte[] raw = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        byte[] serial = NBT.toBytes(tag, compressType, false);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int blockSize : new int[]{1, 4096, 64 * 1024, 1 << 20}) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                NBT.toStream(tag, out).compressType(compressType).parallelCompression(executor, blockSize).write();
+                byte[] parallel = out.toByteArray();
+
+                assertArrayEquals(raw, inflate(parallel, compressType));
+                assertEquals(tag, NBT.read(parallel, compressType, false));
+                if (blockSize >= 64 * 1024) {
+                    // The preset dictionaries keep the ratio close to single-threaded output
+                    assertTrue(parallel.length < serial.length * 1.05, blockSize + ": " + parallel.length + " vs " + serial.length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            for (NBTCompressType compressType : new NBTCompressType[]{NBTCompressType.GZIP, NBTCompressType.ZLIB}) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                NBTCodecPool.shared().compress(out, compressType, executor, 1024).close();
+                assertArrayEquals(new byte[0], inflate(out.toByteArray(), compressType));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidBlockSize() {
+        assertThrows(IllegalArgumentException.class, () -> NBTWriter.builder(new CommonCompoundTag("")).parallelCompression(Runnable::run, 0));
+    }
+}
@@ -0,0 +1,45 @@
+package tech.minediamond.micanbt.nbt;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringCodecTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "block_states", "café", "\u0000nul", "中文", "😀 emoji", "lone \uD800 surrogate"})
+    public void testModifiedUtf8MatchesDataOutputStream(String value) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new DataOutputStream(expected).writeUTF(value);
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new StringCodec(true).write(new DataOutputStream(actual), value);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(actual.toByteArray()));
+        assertEquals(value, new StringCodec(true).read(in));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "block_states", "café", "\u0000nul", "中文", "😀 emoji", "lone \uD800 surrogate"})
+    public void testUtf8MatchesGetBytes(String value) throws IOException {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        new StringCodec(false).write(new DataOutputStream(actual), value);
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = actual.toByteArray();
+        assertEquals(bytes.length, StringCodec.encodedLength(value, false));
+        assertEquals(bytes.length + 2, encoded.length);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        assertEquals(new String(bytes, StandardCharsets.UTF_8), new StringCodec(false).read(in));
+    }
+}
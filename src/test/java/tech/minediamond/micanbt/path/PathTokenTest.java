@@ -47,7 +47,7 @@ public class PathTokenTest {
         Tag stringListTag = SNBT.parse("[\"str\",\"str1\",\"str2\"]");
         Tag nonListTag = SNBT.parse("{str:\"hello\",int:2}");
 
-        verifyToken(token1, compoundListTag, 0, SNBT.parse("{str:\"value\"}"));
+        verifyToken(token1, compoundListTag, 1, SNBT.parse("{str:\"value\"}"));
         verifyToken(token2, compoundListTag, -1, null);
 
         verifyToken(token1, stringListTag, -1, null);
@@ -55,6 +55,10 @@ public class PathTokenTest {
 
         verifyToken(token1, nonListTag, -1, null);
         verifyToken(token2, nonListTag, -1, null);
+
+        // A compound pattern matches elements that have its entries, whatever else they hold
+        Tag widerListTag = SNBT.parse("[{str:\"other\"},{int:3,str:\"value\"}]");
+        verifyToken(token1, widerListTag, 1, SNBT.parse("{int:3,str:\"value\"}"));
     }
 
     @Test
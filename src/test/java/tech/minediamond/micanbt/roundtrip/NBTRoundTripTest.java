@@ -2,16 +2,28 @@ package tech.minediamond.micanbt.roundtrip;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import tech.minediamond.micanbt.nbt.NBT;
 import tech.minediamond.micanbt.nbt.NBTCompressType;
+import tech.minediamond.micanbt.nbt.NBTParseException;
+import tech.minediamond.micanbt.nbt.NBTSkipper;
 import tech.minediamond.micanbt.tag.CompoundTag;
+import tech.minediamond.micanbt.tag.IntArrayTag;
+import tech.minediamond.micanbt.tag.LongArrayTag;
+import tech.minediamond.micanbt.tag.ReorderableCompoundTag;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Random;
 import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -56,4 +68,110 @@ public class NBTRoundTripTest {
         assertArrayEquals(originalBytes, parsedBytes);
     }
 
+    @ParameterizedTest
+    @EnumSource(NBTCompressType.class)
+    public void testMappedFileRoundTrip(NBTCompressType compressType) throws IOException {
+        Path filePath = tempDir.resolve("mapped.nbt");
+
+        CompoundTag tag = Util.getBasicTag();
+        byte[] expected = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        for (boolean littleEndian : new boolean[]{false, true}) {
+            NBT.write(tag, filePath, compressType, littleEndian);
+            CompoundTag read = NBT.fromMappedFile(filePath).littleEndian(littleEndian).getTag();
+            assertArrayEquals(expected, NBT.toBytes(read, NBTCompressType.UNCOMPRESSED, false));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(NBTCompressType.class)
+    public void testLazyRoundTrip(NBTCompressType compressType) throws IOException {
+        CompoundTag tag = Util.getBasicTag();
+        byte[] expected = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+        byte[] data = NBT.toBytes(tag, compressType, false);
+
+        ReorderableCompoundTag read = (ReorderableCompoundTag) NBT.fromBytes(data).lazy(true).getTag();
+        assertFalse(read.isMaterialized());
+        ReorderableCompoundTag sub = (ReorderableCompoundTag) read.get("subCompoundTag");
+        assertTrue(read.isMaterialized());
+        assertFalse(sub.isMaterialized());
+        assertEquals(2, sub.size());
+        assertTrue(sub.isMaterialized());
+
+        assertArrayEquals(expected, NBT.toBytes(NBT.fromBytes(data).lazy(true).getTag(), NBTCompressType.UNCOMPRESSED, false));
+    }
+
+    @Test
+    public void testLazyDeepNesting() throws IOException {
+        // Compounds nested a million levels deep, far deeper than the call stack allows
+        int depth = 1_000_000;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i <= depth; i++) {
+            out.write(new byte[]{10, 0, 0});
+        }
+        out.write(new byte[depth + 1]);
+        byte[] data = out.toByteArray();
+
+        ReorderableCompoundTag read = (ReorderableCompoundTag) NBT.fromBytes(data).lazy(true).getTag();
+        ReorderableCompoundTag child = (ReorderableCompoundTag) read.get("");
+        assertEquals(1, read.size());
+        assertFalse(child.isMaterialized());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 3, data.length - 3));
+        NBTSkipper.skipCompoundEntries(in);
+        assertEquals(0, in.available());
+        DataInputStream truncated = new DataInputStream(new ByteArrayInputStream(data, 3, data.length - 4));
+        assertThrows(NBTParseException.class, () -> NBTSkipper.skipCompoundEntries(truncated));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testLargeArrayRoundTrip(boolean littleEndian) throws IOException {
+        // Larger than the block size of the bulk array codec
+        Random random = new Random(42);
+        int[] ints = random.ints(5000).toArray();
+        long[] longs = random.longs(3000).toArray();
+        ReorderableCompoundTag tag = new ReorderableCompoundTag("");
+        tag.put(new IntArrayTag("ints", ints));
+        tag.put(new LongArrayTag("longs", longs));
+
+        for (NBTCompressType compressType : NBTCompressType.values()) {
+            byte[] data = NBT.toBytes(tag, compressType, littleEndian);
+            CompoundTag read = NBT.read(data, compressType, littleEndian);
+            assertArrayEquals(ints, ((IntArrayTag) read.get("ints")).getRawValue());
+            assertArrayEquals(longs, ((LongArrayTag) read.get("longs")).getRawValue());
+        }
+        if (!littleEndian) {
+            byte[] data = NBT.toBytes(tag, NBTCompressType.UNCOMPRESSED, false);
+            CompoundTag read = NBT.read(new DataInputStream(new ByteArrayInputStream(data)));
+            assertArrayEquals(longs, ((LongArrayTag) read.get("longs")).getRawValue());
+        }
+    }
+
+    @Test
+    public void testDeepNestingRoundTrip() throws IOException {
+        // Compounds and single-element lists alternating, deeper than a recursive codec could go
+        int depth = 200_000;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(10);
+        out.writeUTF("");
+        for (int i = 0; i < depth; i++) {
+            out.writeByte(9);
+            out.writeUTF("l");
+            out.writeByte(10);
+            out.writeInt(1);
+        }
+        out.writeByte(3);
+        out.writeUTF("leaf");
+        out.writeInt(7);
+        for (int i = 0; i <= depth; i++) {
+            out.writeByte(0);
+        }
+        byte[] data = bytes.toByteArray();
+
+        CompoundTag read = NBT.read(data);
+        assertArrayEquals(data, NBT.toBytes(read, NBTCompressType.UNCOMPRESSED, false));
+        CompoundTag fromStream = NBT.read(new DataInputStream(new ByteArrayInputStream(data)));
+        assertArrayEquals(data, NBT.toBytes(fromStream, NBTCompressType.UNCOMPRESSED, false));
+    }
 }
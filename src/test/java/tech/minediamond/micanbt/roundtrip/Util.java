@@ -1,9 +1,26 @@
 package tech.minediamond.micanbt.roundtrip;
 
+import tech.minediamond.micanbt.nbt.NBT;
 import tech.minediamond.micanbt.tag.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
 public class Util {
 
+    public static byte[] levelDatBytes() throws IOException {
+        try (InputStream inputStream = Util.class.getResourceAsStream("/level.dat")) {
+            assertNotNull(inputStream);
+            return inputStream.readAllBytes();
+        }
+    }
+
+    public static CompoundTag levelDat() throws IOException {
+        return NBT.read(levelDatBytes());
+    }
+
     public static ReorderableCompoundTag getBasicTag() {
         ReorderableCompoundTag tag = new ReorderableCompoundTag("tag");
         tag.put(new ByteArrayTag("ByteArrayTag", new byte[]{1, 0, 3}));